@@ -20,12 +20,19 @@ package org.ops4j.pax.url.mvn.internal;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.Dictionary;
+import java.util.Hashtable;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.url.URLConstants;
 import org.ops4j.pax.url.commons.handler.ConnectionFactory;
 import org.ops4j.pax.url.commons.handler.HandlerActivator;
+import org.ops4j.pax.url.maven.commons.DownloadScheduler;
 import org.ops4j.pax.url.maven.commons.MavenConfiguration;
 import org.ops4j.pax.url.maven.commons.MavenConfigurationImpl;
 import org.ops4j.pax.url.maven.commons.MavenSettingsImpl;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetrics;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetricsImpl;
 import org.ops4j.pax.url.mvn.ServiceConstants;
 import org.ops4j.util.property.PropertyResolver;
 
@@ -36,10 +43,29 @@ public final class Activator
     extends HandlerActivator<MavenConfiguration>
 {
 
+    /**
+     * Resolution metrics the connections report into.
+     */
+    private final ResolutionMetricsImpl m_metrics;
+    /**
+     * Resolution metrics service registration. Used for cleanup.
+     */
+    private ServiceRegistration m_metricsReg;
+
     /**
      * @see HandlerActivator#HandlerActivator(String[], String, org.ops4j.pax.url.commons.handler.ConnectionFactory)
      */
     public Activator()
+    {
+        this( new ResolutionMetricsImpl() );
+    }
+
+    /**
+     * @param metrics resolution metrics the connections report into
+     *
+     * @see HandlerActivator#HandlerActivator(String[], String, org.ops4j.pax.url.commons.handler.ConnectionFactory)
+     */
+    private Activator( final ResolutionMetricsImpl metrics )
     {
         super(
             new String[]{ ServiceConstants.PROTOCOL },
@@ -47,6 +73,11 @@ public final class Activator
             new ConnectionFactory<MavenConfiguration>()
             {
 
+                /**
+                 * Scheduler of downloads shared by the connections, created together with the configuration.
+                 */
+                private volatile DownloadScheduler m_scheduler;
+
                 /**
                  * @see ConnectionFactory#createConection(BundleContext, URL, Object)
                  */
@@ -55,7 +86,7 @@ public final class Activator
                                                       final MavenConfiguration config )
                     throws MalformedURLException
                 {
-                    return new Connection( url, config );
+                    return new Connection( url, config, metrics, m_scheduler );
                 }
 
                 /**
@@ -68,12 +99,46 @@ public final class Activator
                     config.setSettings(
                         new MavenSettingsImpl( config.getSettingsFileUrl(), config.useFallbackRepositories() )
                     );
+                    m_scheduler = new DownloadScheduler( config, metrics );
                     return config;
                 }
 
 
             }
         );
+        m_metrics = metrics;
+    }
+
+    /**
+     * Registers the resolution metrics service next to the protocol handler, and with JMX.
+     *
+     * @see HandlerActivator#start(BundleContext)
+     */
+    @Override
+    public void start( final BundleContext bundleContext )
+    {
+        super.start( bundleContext );
+        final Dictionary<String, Object> props = new Hashtable<String, Object>();
+        props.put( URLConstants.URL_HANDLER_PROTOCOL, ServiceConstants.PROTOCOL );
+        m_metricsReg = bundleContext.registerService( ResolutionMetrics.class.getName(), m_metrics, props );
+        m_metrics.registerMBean( ServiceConstants.PROTOCOL );
+    }
+
+    /**
+     * Unregisters the resolution metrics service.
+     *
+     * @see HandlerActivator#stop(BundleContext)
+     */
+    @Override
+    public void stop( final BundleContext bundleContext )
+    {
+        m_metrics.unregisterMBean();
+        if( m_metricsReg != null )
+        {
+            m_metricsReg.unregister();
+            m_metricsReg = null;
+        }
+        super.stop( bundleContext );
     }
 
 }
\ No newline at end of file
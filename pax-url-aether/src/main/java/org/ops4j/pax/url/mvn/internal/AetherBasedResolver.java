@@ -53,8 +53,11 @@ import org.sonatype.aether.util.artifact.DefaultArtifact;
 import org.sonatype.aether.util.repository.DefaultMirrorSelector;
 import org.sonatype.aether.util.repository.DefaultProxySelector;
 import org.sonatype.aether.version.Version;
+import org.ops4j.pax.url.maven.commons.DownloadScheduler;
 import org.ops4j.pax.url.maven.commons.MavenConfiguration;
 import org.ops4j.pax.url.maven.commons.MavenRepositoryURL;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetrics;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetricsImpl;
 
 import static org.ops4j.pax.url.mvn.internal.Parser.*;
 
@@ -72,6 +75,7 @@ public class AetherBasedResolver {
     final private MavenConfiguration m_config;
     final private MirrorSelector m_mirrorSelector;
     final private ProxySelector m_proxySelector;
+    final private ResolutionMetrics m_metrics;
 
     /**
      * Create a AetherBasedResolver
@@ -83,8 +87,40 @@ public class AetherBasedResolver {
     public AetherBasedResolver( final MavenConfiguration configuration )
         throws MalformedURLException
     {
-        m_repoSystem = newRepositorySystem();
+        this( configuration, new ResolutionMetricsImpl() );
+    }
+
+    /**
+     * Create a AetherBasedResolver reporting transfers into metrics.
+     *
+     * @param configuration (must be not null)
+     * @param metrics       metrics to report into (must be not null)
+     *
+     * @throws java.net.MalformedURLException in case of url problems in configuration.
+     */
+    public AetherBasedResolver( final MavenConfiguration configuration, final ResolutionMetrics metrics )
+        throws MalformedURLException
+    {
+        this( configuration, metrics, new DownloadScheduler( configuration, metrics ) );
+    }
+
+    /**
+     * Create a AetherBasedResolver reporting transfers into metrics and scheduling downloads from http(s) repositories.
+     *
+     * @param configuration (must be not null)
+     * @param metrics       metrics to report into (must be not null)
+     * @param scheduler     scheduler of downloads (must be not null)
+     *
+     * @throws java.net.MalformedURLException in case of url problems in configuration.
+     */
+    public AetherBasedResolver( final MavenConfiguration configuration,
+                                final ResolutionMetrics metrics,
+                                final DownloadScheduler scheduler )
+        throws MalformedURLException
+    {
+        m_repoSystem = newRepositorySystem( scheduler );
         m_config = configuration;
+        m_metrics = metrics;
 
         m_remoteRepos = selectRepositories( getRemoteRepositories( configuration ) );
         m_mirrorSelector = selectMirrors();
@@ -280,6 +316,8 @@ public class AetherBasedResolver {
         session.setLocalRepositoryManager( m_repoSystem.newLocalRepositoryManager( localRepo ) );
         session.setMirrorSelector( m_mirrorSelector );
         session.setProxySelector( m_proxySelector );
+        session.setTransferListener( new MetricsTransferListener( m_metrics ) );
+        session.setOffline( m_config.getOffline() );
         return session;
     }
 
@@ -297,11 +335,11 @@ public class AetherBasedResolver {
         return Integer.parseInt( intStr );
     }
 
-    private RepositorySystem newRepositorySystem()
+    private RepositorySystem newRepositorySystem( final DownloadScheduler scheduler )
     {
         DefaultServiceLocator locator = new DefaultServiceLocator();
 
-        locator.setServices( WagonProvider.class, new ManualWagonProvider() );
+        locator.setServices( WagonProvider.class, new ManualWagonProvider( scheduler ) );
         locator.addService( RepositoryConnectorFactory.class, WagonRepositoryConnectorFactory.class );
 
         locator.setService( LocalRepositoryManagerFactory.class, SimpleLocalRepositoryManagerFactory.class );
@@ -27,7 +27,10 @@ import java.net.URLConnection;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.ops4j.lang.NullArgumentException;
+import org.ops4j.pax.url.maven.commons.DownloadScheduler;
 import org.ops4j.pax.url.maven.commons.MavenConfiguration;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetrics;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetricsImpl;
 
 /**
  * An URLConnextion that supports mvn: protocol.<br/>
@@ -75,6 +78,10 @@ public class Connection
      */
     private Parser m_parser;
     private AetherBasedResolver m_aetherBasedResolver;
+    /**
+     * Metrics to report into.
+     */
+    private final ResolutionMetrics m_metrics;
 
     /**
      * Creates a new connection.
@@ -86,13 +93,53 @@ public class Connection
      */
     public Connection( final URL url, final MavenConfiguration configuration )
         throws MalformedURLException
+    {
+        this( url, configuration, new ResolutionMetricsImpl() );
+    }
+
+    /**
+     * Creates a new connection reporting into metrics.
+     *
+     * @param url           the url; cannot be null.
+     * @param configuration service configuration; cannot be null
+     * @param metrics       metrics to report into; cannot be null
+     *
+     * @throws MalformedURLException in case of a malformed url
+     */
+    public Connection( final URL url, final MavenConfiguration configuration, final ResolutionMetrics metrics )
+        throws MalformedURLException
+    {
+        this( url, configuration, metrics, null );
+    }
+
+    /**
+     * Creates a new connection reporting into metrics and scheduling downloads with a scheduler shared with other
+     * connections.
+     *
+     * @param url           the url; cannot be null.
+     * @param configuration service configuration; cannot be null
+     * @param metrics       metrics to report into; cannot be null
+     * @param scheduler     scheduler of downloads; null to schedule the downloads of this connection on their own
+     *
+     * @throws MalformedURLException in case of a malformed url
+     * @since 1.3.6
+     */
+    public Connection( final URL url,
+                       final MavenConfiguration configuration,
+                       final ResolutionMetrics metrics,
+                       final DownloadScheduler scheduler )
+        throws MalformedURLException
     {
         super( url );
         NullArgumentException.validateNotNull( url, "URL cannot be null" );
         NullArgumentException.validateNotNull( configuration, "Service configuration" );
+        NullArgumentException.validateNotNull( metrics, "Metrics" );
 
-        m_parser = new Parser( url.getPath() );
-        m_aetherBasedResolver = new AetherBasedResolver( configuration );
+        m_parser = Parser.parse( url.getPath() );
+        m_metrics = metrics;
+        m_aetherBasedResolver = scheduler == null
+                                ? new AetherBasedResolver( configuration, metrics )
+                                : new AetherBasedResolver( configuration, metrics, scheduler );
     }
 
 
@@ -109,7 +156,7 @@ public class Connection
     }
 
     /**
-     * TODO doc
+     * Resolves the artifact, reporting the resolution time into the metrics.
      */
     @Override
     public InputStream getInputStream()
@@ -117,6 +164,17 @@ public class Connection
     {
         connect();
         LOG.debug( "Resolving [" + url.toExternalForm() + "]" );
-        return m_aetherBasedResolver.resolve( m_parser.getGroup(), m_parser.getArtifact(), m_parser.getClassifier(), m_parser.getType(), m_parser.getVersion() );
+        final long start = System.currentTimeMillis();
+        boolean resolved = false;
+        try
+        {
+            final InputStream inputStream = m_aetherBasedResolver.resolve( m_parser.getGroup(), m_parser.getArtifact(), m_parser.getClassifier(), m_parser.getType(), m_parser.getVersion() );
+            resolved = true;
+            return inputStream;
+        }
+        finally
+        {
+            m_metrics.resolved( url.toExternalForm(), System.currentTimeMillis() - start, resolved );
+        }
     }
 }
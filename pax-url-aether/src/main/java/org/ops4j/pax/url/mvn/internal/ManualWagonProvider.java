@@ -20,6 +20,7 @@ import org.apache.maven.wagon.providers.file.FileWagon;
 import org.apache.maven.wagon.providers.http.LightweightHttpWagon;
 import org.apache.maven.wagon.providers.http.LightweightHttpsWagon;
 import org.sonatype.aether.connector.wagon.WagonProvider;
+import org.ops4j.pax.url.maven.commons.DownloadScheduler;
 
 /**
  * Simplistic wagon provider
@@ -28,6 +29,31 @@ public class ManualWagonProvider
     implements WagonProvider
 {
 
+    /**
+     * Scheduler of http(s) downloads. Null if downloads are not scheduled.
+     */
+    private final DownloadScheduler m_scheduler;
+
+    /**
+     * Creates a provider of wagons whose downloads are not scheduled.
+     */
+    public ManualWagonProvider()
+    {
+        this( null );
+    }
+
+    /**
+     * Creates a provider of wagons whose http(s) downloads are scheduled.
+     *
+     * @param scheduler scheduler of downloads; null if downloads should not be scheduled
+     *
+     * @since 1.3.6
+     */
+    public ManualWagonProvider( final DownloadScheduler scheduler )
+    {
+        m_scheduler = scheduler;
+    }
+
     public Wagon lookup( String roleHint )
         throws Exception
     {
@@ -37,10 +63,10 @@ public class ManualWagonProvider
         }
         else if( "http".equals( roleHint ) )
         {
-            return new LightweightHttpWagon();
+            return m_scheduler == null ? new LightweightHttpWagon() : new ScheduledHttpWagon( m_scheduler );
         }else if( "https".equals( roleHint ) )
         {
-            return new LightweightHttpsWagon();
+            return m_scheduler == null ? new LightweightHttpsWagon() : new ScheduledHttpsWagon( m_scheduler );
         }
         return null;
     }
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import org.sonatype.aether.transfer.AbstractTransferListener;
+import org.sonatype.aether.transfer.ArtifactNotFoundException;
+import org.sonatype.aether.transfer.MetadataNotFoundException;
+import org.sonatype.aether.transfer.TransferEvent;
+import org.sonatype.aether.transfer.TransferResource;
+import org.ops4j.lang.NullArgumentException;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetrics;
+
+/**
+ * Aether transfer listener that reports transfers from remote repositories into the handler metrics. As Aether only
+ * notifies the end of a transfer, latencies are the time until the transfer ended. Checksum transfers only count for
+ * the bytes transferred.
+ *
+ * @since 1.3.6
+ */
+class MetricsTransferListener
+    extends AbstractTransferListener
+{
+
+    /**
+     * Metrics to report into.
+     */
+    private final ResolutionMetrics m_metrics;
+
+    /**
+     * Creates a new listener.
+     *
+     * @param metrics metrics to report into; cannot be null
+     *
+     * @throws NullArgumentException if metrics is null
+     */
+    MetricsTransferListener( final ResolutionMetrics metrics )
+    {
+        NullArgumentException.validateNotNull( metrics, "Metrics" );
+        m_metrics = metrics;
+    }
+
+    @Override
+    public void transferSucceeded( final TransferEvent event )
+    {
+        final TransferResource resource = event.getResource();
+        final String repository = getRepository( resource );
+        if( !isChecksum( resource ) )
+        {
+            m_metrics.request( repository, getRequest( resource ), ResolutionMetrics.Outcome.HIT, getLatency( resource ) );
+        }
+        m_metrics.transferred( repository, event.getTransferredBytes() );
+    }
+
+    @Override
+    public void transferFailed( final TransferEvent event )
+    {
+        final TransferResource resource = event.getResource();
+        if( isChecksum( resource ) )
+        {
+            return;
+        }
+        final Exception exception = event.getException();
+        m_metrics.request(
+            getRepository( resource ),
+            getRequest( resource ),
+            exception instanceof ArtifactNotFoundException || exception instanceof MetadataNotFoundException
+            ? ResolutionMetrics.Outcome.NOT_FOUND
+            : ResolutionMetrics.Outcome.ERROR,
+            getLatency( resource )
+        );
+    }
+
+    /**
+     * Returns the repository url of a transferred resource, ending with a file separator as in the mvn: handler.
+     *
+     * @param resource transferred resource
+     *
+     * @return repository url
+     */
+    private static String getRepository( final TransferResource resource )
+    {
+        final String repository = resource.getRepositoryUrl();
+        return repository.endsWith( "/" ) ? repository : repository + "/";
+    }
+
+    /**
+     * Returns the kind of request that transferred a resource.
+     *
+     * @param resource transferred resource
+     *
+     * @return metadata for maven-metadata.xml files, artifact otherwise
+     */
+    private static ResolutionMetrics.Request getRequest( final TransferResource resource )
+    {
+        return resource.getResourceName().endsWith( ".xml" ) && resource.getResourceName().contains( "maven-metadata" )
+               ? ResolutionMetrics.Request.METADATA
+               : ResolutionMetrics.Request.ARTIFACT;
+    }
+
+    /**
+     * Checks if a transferred resource is a checksum.
+     *
+     * @param resource transferred resource
+     *
+     * @return true if resource is a sha1 or md5 checksum
+     */
+    private static boolean isChecksum( final TransferResource resource )
+    {
+        return resource.getResourceName().endsWith( ".sha1" ) || resource.getResourceName().endsWith( ".md5" );
+    }
+
+    /**
+     * Returns the time a transfer took.
+     *
+     * @param resource transferred resource
+     *
+     * @return time in milliseconds since the transfer started
+     */
+    private static long getLatency( final TransferResource resource )
+    {
+        return System.currentTimeMillis() - resource.getTransferStartTime();
+    }
+
+}
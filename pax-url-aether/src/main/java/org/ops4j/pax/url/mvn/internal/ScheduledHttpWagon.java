@@ -0,0 +1,103 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.io.IOException;
+import java.net.URL;
+import org.apache.maven.wagon.InputData;
+import org.apache.maven.wagon.ResourceDoesNotExistException;
+import org.apache.maven.wagon.TransferFailedException;
+import org.apache.maven.wagon.authorization.AuthorizationException;
+import org.apache.maven.wagon.providers.http.LightweightHttpWagon;
+import org.apache.maven.wagon.repository.Repository;
+import org.ops4j.lang.NullArgumentException;
+import org.ops4j.pax.url.maven.commons.DownloadScheduler;
+
+/**
+ * Http wagon whose downloads are scheduled by the handler {@link DownloadScheduler}: a download waits for a connection
+ * to the repository host before it is opened, and its stream is throttled and releases the connection when closed.
+ *
+ * @since 1.3.6
+ */
+class ScheduledHttpWagon
+    extends LightweightHttpWagon
+{
+
+    /**
+     * Scheduler of downloads.
+     */
+    private final DownloadScheduler m_scheduler;
+
+    /**
+     * Creates a new wagon.
+     *
+     * @param scheduler scheduler of downloads; cannot be null
+     *
+     * @throws NullArgumentException if scheduler is null
+     */
+    ScheduledHttpWagon( final DownloadScheduler scheduler )
+    {
+        NullArgumentException.validateNotNull( scheduler, "Scheduler" );
+        m_scheduler = scheduler;
+    }
+
+    @Override
+    public void fillInputData( final InputData inputData )
+        throws TransferFailedException, ResourceDoesNotExistException, AuthorizationException
+    {
+        final DownloadScheduler.Download download = schedule( m_scheduler, getRepository() );
+        boolean filled = false;
+        try
+        {
+            super.fillInputData( inputData );
+            filled = true;
+        }
+        finally
+        {
+            if( !filled )
+            {
+                download.release();
+            }
+        }
+        inputData.setInputStream( download.wrap( inputData.getInputStream() ) );
+    }
+
+    /**
+     * Waits for a connection to the host of a repository.
+     *
+     * @param scheduler  scheduler of downloads
+     * @param repository repository to download from
+     *
+     * @return scheduled download
+     *
+     * @throws TransferFailedException if no connection became available in time
+     */
+    static DownloadScheduler.Download schedule( final DownloadScheduler scheduler, final Repository repository )
+        throws TransferFailedException
+    {
+        try
+        {
+            return scheduler.schedule( new URL( repository.getUrl() ) );
+        }
+        catch( IOException e )
+        {
+            throw new TransferFailedException( e.getMessage(), e );
+        }
+    }
+
+}
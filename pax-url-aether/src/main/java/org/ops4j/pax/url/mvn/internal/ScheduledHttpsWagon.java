@@ -0,0 +1,76 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import org.apache.maven.wagon.InputData;
+import org.apache.maven.wagon.ResourceDoesNotExistException;
+import org.apache.maven.wagon.TransferFailedException;
+import org.apache.maven.wagon.authorization.AuthorizationException;
+import org.apache.maven.wagon.providers.http.LightweightHttpsWagon;
+import org.ops4j.lang.NullArgumentException;
+import org.ops4j.pax.url.maven.commons.DownloadScheduler;
+
+/**
+ * Https counterpart of {@link ScheduledHttpWagon}.
+ *
+ * @since 1.3.6
+ */
+class ScheduledHttpsWagon
+    extends LightweightHttpsWagon
+{
+
+    /**
+     * Scheduler of downloads.
+     */
+    private final DownloadScheduler m_scheduler;
+
+    /**
+     * Creates a new wagon.
+     *
+     * @param scheduler scheduler of downloads; cannot be null
+     *
+     * @throws NullArgumentException if scheduler is null
+     */
+    ScheduledHttpsWagon( final DownloadScheduler scheduler )
+    {
+        NullArgumentException.validateNotNull( scheduler, "Scheduler" );
+        m_scheduler = scheduler;
+    }
+
+    @Override
+    public void fillInputData( final InputData inputData )
+        throws TransferFailedException, ResourceDoesNotExistException, AuthorizationException
+    {
+        final DownloadScheduler.Download download = ScheduledHttpWagon.schedule( m_scheduler, getRepository() );
+        boolean filled = false;
+        try
+        {
+            super.fillInputData( inputData );
+            filled = true;
+        }
+        finally
+        {
+            if( !filled )
+            {
+                download.release();
+            }
+        }
+        inputData.setInputStream( download.wrap( inputData.getInputStream() ) );
+    }
+
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+/**
+ * Generated files used by the benchmarks. Entries are valid (empty) classes, padded to the requested size with a
+ * random (fixed seed) constant so they do not compress to nothing.
+ *
+ * @since 1.3.6
+ */
+public final class Fixtures
+{
+
+    /**
+     * Utility class.
+     */
+    private Fixtures()
+    {
+        // utility class
+    }
+
+    /**
+     * Creates a temporary directory.
+     *
+     * @param prefix directory name prefix
+     *
+     * @return created directory
+     *
+     * @throws IOException if the directory cannot be created
+     */
+    public static File createDirectory( final String prefix )
+        throws IOException
+    {
+        final File directory = File.createTempFile( prefix, "" );
+        if( !directory.delete() || !directory.mkdirs() )
+        {
+            throw new IOException( "Cannot create directory [" + directory + "]" );
+        }
+        return directory;
+    }
+
+    /**
+     * Creates a jar with classes spread over ten packages.
+     *
+     * @param jar       jar file to be created
+     * @param entries   number of entries
+     * @param entrySize approximate size of each entry (bytes)
+     *
+     * @throws IOException if the jar cannot be written
+     */
+    public static void createJar( final File jar, final int entries, final int entrySize )
+        throws IOException
+    {
+        jar.getParentFile().mkdirs();
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().putValue( "Manifest-Version", "1.0" );
+        final Random random = new Random( 42 );
+        final JarOutputStream out = new JarOutputStream( new FileOutputStream( jar ), manifest );
+        try
+        {
+            for( int i = 0; i < entries; i++ )
+            {
+                out.putNextEntry( new JarEntry( className( i ) + ".class" ) );
+                out.write( createClass( className( i ), entrySize, random ) );
+                out.closeEntry();
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Creates files spread over ten directories, as jar entries would be.
+     *
+     * @param directory directory to create the files into
+     * @param entries   number of files
+     * @param entrySize approximate size of each file (bytes)
+     *
+     * @throws IOException if the files cannot be written
+     */
+    public static void createFiles( final File directory, final int entries, final int entrySize )
+        throws IOException
+    {
+        final Random random = new Random( 42 );
+        for( int i = 0; i < entries; i++ )
+        {
+            final File file = new File( directory, className( i ) + ".class" );
+            file.getParentFile().mkdirs();
+            final OutputStream out = new FileOutputStream( file );
+            try
+            {
+                out.write( createClass( className( i ), entrySize, random ) );
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Reads a stream till the end and closes it.
+     *
+     * @param in stream to be read
+     *
+     * @return number of bytes read
+     *
+     * @throws IOException re-thrown
+     */
+    public static long consume( final InputStream in )
+        throws IOException
+    {
+        try
+        {
+            final byte[] buffer = new byte[8192];
+            long total = 0;
+            int read;
+            while( ( read = in.read( buffer ) ) != -1 )
+            {
+                total += read;
+            }
+            return total;
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Deletes a file or a directory with all its content.
+     *
+     * @param file file or directory to be deleted; can be null
+     */
+    public static void delete( final File file )
+    {
+        if( file == null )
+        {
+            return;
+        }
+        final File[] children = file.listFiles();
+        if( children != null )
+        {
+            for( File child : children )
+            {
+                delete( child );
+            }
+        }
+        file.delete();
+    }
+
+    private static String className( final int index )
+    {
+        return "org/ops4j/pax/url/generated/p" + ( index % 10 ) + "/Class" + index;
+    }
+
+    /**
+     * Creates the bytes of a public class without members (java 5 format), with a string constant of random letters.
+     *
+     * @param name    internal class name
+     * @param padding length of the string constant
+     * @param random  source of the string constant letters
+     *
+     * @return class bytes
+     *
+     * @throws IOException re-thrown (not expected in memory)
+     */
+    private static byte[] createClass( final String name, final int padding, final Random random )
+        throws IOException
+    {
+        final char[] constant = new char[padding];
+        for( int i = 0; i < padding; i++ )
+        {
+            constant[ i ] = (char) ( 'a' + random.nextInt( 26 ) );
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream( padding + 128 );
+        final DataOutputStream out = new DataOutputStream( bytes );
+        out.writeInt( 0xCAFEBABE );
+        out.writeShort( 0 );
+        out.writeShort( 49 );
+        // constant pool: this class (1, 2), super class (3, 4), padding (5)
+        out.writeShort( 6 );
+        out.writeByte( 1 );
+        out.writeUTF( name );
+        out.writeByte( 7 );
+        out.writeShort( 1 );
+        out.writeByte( 1 );
+        out.writeUTF( "java/lang/Object" );
+        out.writeByte( 7 );
+        out.writeShort( 3 );
+        out.writeByte( 1 );
+        out.writeUTF( new String( constant ) );
+        // public super, this class, super class, no interfaces, fields, methods or attributes
+        out.writeShort( 0x21 );
+        out.writeShort( 2 );
+        out.writeShort( 4 );
+        out.writeShort( 0 );
+        out.writeShort( 0 );
+        out.writeShort( 0 );
+        out.writeShort( 0 );
+        out.close();
+        return bytes.toByteArray();
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the benchmarks writing the results as JSON (to jmh-result.json, change with -rff) so they can be compared
+ * between builds. Any JMH option can be given; an explicit result format (-rf) overrides JSON.
+ *
+ * @since 1.3.6
+ */
+public final class Main
+{
+
+    /**
+     * Utility class.
+     */
+    private Main()
+    {
+        // utility class
+    }
+
+    /**
+     * Runs JMH.
+     *
+     * @param args JMH options
+     *
+     * @throws Exception re-thrown from JMH
+     */
+    public static void main( final String[] args )
+        throws Exception
+    {
+        final List<String> options = new ArrayList<String>( Arrays.asList( args ) );
+        if( !options.contains( "-rf" ) )
+        {
+            options.add( "-rf" );
+            options.add( "json" );
+        }
+        org.openjdk.jmh.Main.main( options.toArray( new String[options.size()] ) );
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.maven.commons;
+
+import java.net.MalformedURLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing of repository specs into {@link MavenRepositoryURL}s, as done for every configured repository each time the
+ * configuration is read.
+ *
+ * @since 1.3.6
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class MavenRepositoryURLBenchmark
+{
+
+    /**
+     * Parsed repository spec.
+     */
+    @Param( {
+        "http://repo1.maven.org/maven2",
+        "http://repository.ops4j.org/mvn-snapshots@snapshots@noreleases@id=ops4j.snapshots",
+        "file:/opt/repository@snapshots"
+    } )
+    public String spec;
+
+    @Benchmark
+    public MavenRepositoryURL parse()
+        throws MalformedURLException
+    {
+        return new MavenRepositoryURL( spec );
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ops4j.pax.url.benchmarks.Fixtures;
+
+/**
+ * End to end resolution of mvn: urls against a generated file repository, from parsing the url to reading the
+ * artifact, through the stand alone {@link Handler}. The local repository is empty and write through is disabled, so
+ * every resolution goes to the file repository.
+ *
+ * @since 1.3.6
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ResolutionBenchmark
+{
+
+    private static final String GROUP = "org.ops4j.pax.url.generated";
+    private static final String ARTIFACT = "generated";
+    private static final int VERSIONS = 20;
+
+    /**
+     * Resolved version (exact, LATEST or a range).
+     */
+    @Param( { "1.0.10", "LATEST", "[1.0.5,1.0.15)" } )
+    public String version;
+
+    /**
+     * Number of entries of the resolved jar (1 KB each).
+     */
+    @Param( { "10", "1000" } )
+    public int entries;
+
+    private File m_repository;
+    private File m_localRepository;
+    private URL m_url;
+
+    @Setup
+    public void setUp()
+        throws IOException
+    {
+        m_repository = Fixtures.createDirectory( "pax-url-repository" );
+        m_localRepository = Fixtures.createDirectory( "pax-url-local" );
+        final File artifactDir = new File( m_repository, GROUP.replace( '.', '/' ) + "/" + ARTIFACT );
+        final StringBuilder metadata = new StringBuilder()
+            .append( "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" )
+            .append( "<metadata><groupId>" ).append( GROUP ).append( "</groupId>" )
+            .append( "<artifactId>" ).append( ARTIFACT ).append( "</artifactId><versioning>" )
+            .append( "<latest>1.0." ).append( VERSIONS - 1 ).append( "</latest><versions>" );
+        for( int i = 0; i < VERSIONS; i++ )
+        {
+            final String artifactVersion = "1.0." + i;
+            Fixtures.createJar(
+                new File( artifactDir, artifactVersion + "/" + ARTIFACT + "-" + artifactVersion + ".jar" ),
+                entries,
+                1024
+            );
+            metadata.append( "<version>" ).append( artifactVersion ).append( "</version>" );
+        }
+        metadata.append( "</versions><lastUpdated>20110101120000</lastUpdated></versioning></metadata>" );
+        final OutputStream out = new FileOutputStream( new File( artifactDir, "maven-metadata.xml" ) );
+        try
+        {
+            out.write( metadata.toString().getBytes( "UTF-8" ) );
+        }
+        finally
+        {
+            out.close();
+        }
+
+        System.setProperty( ServiceConstants.PROPERTY_REPOSITORIES, m_repository.toURI().toString() );
+        System.setProperty( ServiceConstants.PROPERTY_LOCAL_REPOSITORY, m_localRepository.getAbsolutePath() );
+        System.setProperty( ServiceConstants.PROPERTY_LOCAL_REPOSITORY_WRITE_THROUGH, "false" );
+        System.setProperty( ServiceConstants.PROPERTY_USE_FALLBACK_REPOSITORIES, "false" );
+        m_url = new URL( null, "mvn:" + GROUP + "/" + ARTIFACT + "/" + version, new Handler() );
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        System.clearProperty( ServiceConstants.PROPERTY_REPOSITORIES );
+        System.clearProperty( ServiceConstants.PROPERTY_LOCAL_REPOSITORY );
+        System.clearProperty( ServiceConstants.PROPERTY_LOCAL_REPOSITORY_WRITE_THROUGH );
+        System.clearProperty( ServiceConstants.PROPERTY_USE_FALLBACK_REPOSITORIES );
+        Fixtures.delete( m_repository );
+        Fixtures.delete( m_localRepository );
+    }
+
+    @Benchmark
+    public long resolve()
+        throws IOException
+    {
+        return Fixtures.consume( m_url.openStream() );
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.ops4j.util.xml.XmlUtils;
+
+/**
+ * Compares parsing of maven metadata by {@link MetadataParser} with the DOM based parsing (XmlUtils path lookups)
+ * the handler used before. Both variants extract the same information: all versions, the last version and the
+ * snapshot / last updated elements.
+ * Run with "-prof gc" to compare allocation rates (gc.alloc.rate.norm is the number of bytes allocated per parse).
+ *
+ * @since 1.3.6
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class MetadataParserBenchmark
+{
+
+    /**
+     * Number of versions in metadata.
+     */
+    @Param( { "10", "100", "1000" } )
+    public int versions;
+
+    private byte[] m_content;
+
+    @Setup
+    public void setUp()
+        throws Exception
+    {
+        final StringBuilder metadata = new StringBuilder()
+            .append( "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" )
+            .append( "<metadata><groupId>org.ops4j.pax.url</groupId><artifactId>pax-url-mvn</artifactId>" )
+            .append( "<versioning><latest>1." ).append( versions - 1 ).append( ".0</latest><versions>" );
+        for( int i = 0; i < versions; i++ )
+        {
+            metadata.append( "<version>1." ).append( i ).append( ".0</version>" );
+        }
+        metadata.append( "</versions><lastUpdated>20110101120000</lastUpdated></versioning></metadata>" );
+        m_content = metadata.toString().getBytes( "UTF-8" );
+    }
+
+    @Benchmark
+    public void streaming( final Blackhole blackhole )
+        throws Exception
+    {
+        final Metadata metadata = MetadataParser.parse( new ByteArrayInputStream( m_content ) );
+        for( String version : metadata.getVersions() )
+        {
+            blackhole.consume( version );
+        }
+        blackhole.consume( metadata.getLastVersion() );
+        blackhole.consume( metadata.getSnapshotTimestamp() );
+        blackhole.consume( metadata.getSnapshotBuildNumber() );
+        blackhole.consume( metadata.getSnapshotLocalCopy() );
+        blackhole.consume( metadata.getLastUpdated() );
+    }
+
+    @Benchmark
+    public void dom( final Blackhole blackhole )
+        throws Exception
+    {
+        final Document metadata = XmlUtils.parseDoc( new ByteArrayInputStream( m_content ) );
+        final List<Element> elements = XmlUtils.getElements( metadata, "versioning/versions/version" );
+        for( Element element : elements )
+        {
+            blackhole.consume( XmlUtils.getTextContent( element ) );
+        }
+        blackhole.consume( XmlUtils.getTextContentOfElement( metadata, "versioning/versions/version[last]" ) );
+        blackhole.consume( XmlUtils.getTextContentOfElement( metadata, "versioning/snapshot/timestamp" ) );
+        blackhole.consume( XmlUtils.getTextContentOfElement( metadata, "versioning/snapshot/buildNumber" ) );
+        blackhole.consume( XmlUtils.getTextContentOfElement( metadata, "versioning/snapshot/localCopy" ) );
+        blackhole.consume( XmlUtils.getTextContentOfElement( metadata, "versioning/lastUpdated" ) );
+    }
+
+}
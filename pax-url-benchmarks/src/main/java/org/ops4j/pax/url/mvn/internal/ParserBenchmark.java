@@ -0,0 +1,87 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.net.MalformedURLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares parsing mvn: url paths with {@link Parser#Parser(String)} to looking them up with {@link Parser#parse}, and
+ * measures building the paths of other versions of a parsed artifact (as done for each candidate version while
+ * resolving ranges and snapshots).
+ *
+ * @since 1.3.6
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ParserBenchmark
+{
+
+    /**
+     * Parsed path.
+     */
+    @Param( {
+        "org.ops4j.pax.url/pax-url-mvn/1.3.5",
+        "org.ops4j.pax.url/pax-url-mvn/[1.3,1.4)/xml/features",
+        "http://repository.ops4j.org/maven2@id=ops4j!org.ops4j.pax.url/pax-url-mvn/1.3.6-SNAPSHOT"
+    } )
+    public String path;
+
+    @Benchmark
+    public Parser parse()
+        throws MalformedURLException
+    {
+        return new Parser( path );
+    }
+
+    @Benchmark
+    public Parser parseCached()
+        throws MalformedURLException
+    {
+        return Parser.parse( path );
+    }
+
+    @Benchmark
+    public String artifactPath()
+        throws MalformedURLException
+    {
+        return Parser.parse( path ).getArtifactPath( "1.3.6" );
+    }
+
+    @Benchmark
+    public String snapshotPath()
+        throws MalformedURLException
+    {
+        return Parser.parse( path ).getSnapshotPath( "1.3.6-SNAPSHOT", "20110101.120000", "3" );
+    }
+
+}
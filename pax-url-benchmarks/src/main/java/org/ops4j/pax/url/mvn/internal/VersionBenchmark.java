@@ -0,0 +1,177 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares sorting and range checks of {@link Version} with the segment object based comparison it replaced
+ * ({@link SegmentVersion}). Run with "-prof gc" to compare allocation rates.
+ *
+ * @since 1.3.6
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class VersionBenchmark
+{
+
+    /**
+     * Number of versions to sort / check.
+     */
+    @Param( { "100", "1000" } )
+    public int versions;
+
+    private Version[] m_versions;
+    private SegmentVersion[] m_segmentVersions;
+    private VersionRange m_range;
+    private SegmentVersion m_lowest;
+    private SegmentVersion m_highest;
+
+    @Setup
+    public void setUp()
+    {
+        final Random random = new Random( 42 );
+        final String[] qualifiers = { "", "-SNAPSHOT", "-RC1", "-alpha-2", ".Final" };
+        m_versions = new Version[versions];
+        m_segmentVersions = new SegmentVersion[versions];
+        for( int i = 0; i < versions; i++ )
+        {
+            final String version = random.nextInt( 5 ) + "." + random.nextInt( 20 ) + "." + random.nextInt( 10 )
+                                   + qualifiers[ random.nextInt( qualifiers.length ) ];
+            m_versions[ i ] = new Version( version );
+            m_segmentVersions[ i ] = new SegmentVersion( version );
+        }
+        m_range = new VersionRange( "[2.1,2.2)" );
+        m_lowest = new SegmentVersion( "2.1" );
+        m_highest = new SegmentVersion( "2.2" );
+    }
+
+    @Benchmark
+    public Version[] sort()
+    {
+        final Version[] sorted = m_versions.clone();
+        Arrays.sort( sorted );
+        return sorted;
+    }
+
+    @Benchmark
+    public SegmentVersion[] sortSegments()
+    {
+        final SegmentVersion[] sorted = m_segmentVersions.clone();
+        Arrays.sort( sorted );
+        return sorted;
+    }
+
+    @Benchmark
+    public void includes( final Blackhole blackhole )
+    {
+        for( Version version : m_versions )
+        {
+            blackhole.consume( m_range.includes( version ) );
+        }
+    }
+
+    @Benchmark
+    public void includesSegments( final Blackhole blackhole )
+    {
+        for( SegmentVersion version : m_segmentVersions )
+        {
+            blackhole.consume( version.compareTo( m_lowest ) >= 0 && version.compareTo( m_highest ) < 0 );
+        }
+    }
+
+    /**
+     * Version compared the way {@link Version} used to: by copying the segments of the other version and wrapping
+     * segments of different types.
+     */
+    public static class SegmentVersion
+        implements Comparable<SegmentVersion>
+    {
+
+        private final VersionSegment[] m_segments;
+
+        SegmentVersion( final String version )
+        {
+            m_segments = new Version( version ).getSegments();
+        }
+
+        VersionSegment[] getSegments()
+        {
+            final VersionSegment[] copy = new VersionSegment[m_segments.length];
+            System.arraycopy( m_segments, 0, copy, 0, m_segments.length );
+            return copy;
+        }
+
+        public int compareTo( final SegmentVersion version )
+        {
+            final VersionSegment[] otherSegments = version.getSegments();
+            final int maxSegments = Math.max( m_segments.length, otherSegments.length );
+            for( int i = 0; i < maxSegments; i++ )
+            {
+                VersionSegment thisSegment = new NullVersionSegment();
+                if( i < m_segments.length )
+                {
+                    thisSegment = m_segments[ i ];
+                }
+                VersionSegment otherSegment = new NullVersionSegment();
+                if( i < otherSegments.length )
+                {
+                    otherSegment = otherSegments[ i ];
+                }
+                int compResult = 0;
+                if( thisSegment.getClass().isAssignableFrom( otherSegment.getClass() ) )
+                {
+                    compResult = thisSegment.compareTo( otherSegment );
+                }
+                else if( thisSegment instanceof StringVersionSegment )
+                {
+                    compResult = thisSegment.compareTo( new StringVersionSegment( otherSegment.toString() ) );
+                }
+                else if( otherSegment instanceof StringVersionSegment )
+                {
+                    compResult = new StringVersionSegment( thisSegment.toString() ).compareTo( otherSegment );
+                }
+                if( compResult != 0 )
+                {
+                    return compResult;
+                }
+            }
+            return 0;
+        }
+
+    }
+
+}
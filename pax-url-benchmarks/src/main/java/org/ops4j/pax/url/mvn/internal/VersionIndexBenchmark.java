@@ -0,0 +1,93 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares selecting the versions in a narrow range out of a {@link VersionIndex} with parsing and checking every
+ * version, as range resolution did before the index.
+ *
+ * @since 1.3.6
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class VersionIndexBenchmark
+{
+
+    /**
+     * Number of published versions.
+     */
+    @Param( { "100", "5000" } )
+    public int versions;
+
+    private List<String> m_versions;
+    private VersionIndex m_index;
+    private VersionRange m_range;
+
+    @Setup
+    public void setUp()
+    {
+        m_versions = new ArrayList<String>();
+        for( int i = 0; m_versions.size() < versions; i++ )
+        {
+            m_versions.add( ( i / 100 ) + "." + ( i / 10 % 10 ) + "." + ( i % 10 ) );
+        }
+        m_index = new VersionIndex( m_versions );
+        m_range = new VersionRange( "[0.2,0.3)" );
+    }
+
+    @Benchmark
+    public List<Version> index()
+    {
+        return m_index.select( m_range );
+    }
+
+    @Benchmark
+    public List<Version> scan()
+    {
+        final List<Version> selected = new ArrayList<Version>();
+        for( String versionString : m_versions )
+        {
+            final Version version = new Version( versionString );
+            if( m_range.includes( version ) )
+            {
+                selected.add( version );
+            }
+        }
+        return selected;
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parsing of {@link Version}s and {@link VersionRange}s, and range checks against ranges of every shape (closed,
+ * half open, unbounded and exact).
+ *
+ * @since 1.3.6
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class VersionRangeBenchmark
+{
+
+    private static final String[] VERSIONS = {
+        "1", "1.2.3", "2.0.0-SNAPSHOT", "1.0-alpha-2", "3.1.0.RC1", "20110101.120000-3", "1.2.3.Final", "10.20.30.40"
+    };
+    private static final String[] RANGES = {
+        "[1.0,2.0]", "[1.2,1.3)", "(,2.0)", "[1.5,)", "[1.2.3]"
+    };
+
+    private Version[] m_versions;
+    private VersionRange[] m_ranges;
+
+    @Setup
+    public void setUp()
+    {
+        m_versions = new Version[VERSIONS.length];
+        for( int i = 0; i < VERSIONS.length; i++ )
+        {
+            m_versions[ i ] = new Version( VERSIONS[ i ] );
+        }
+        m_ranges = new VersionRange[RANGES.length];
+        for( int i = 0; i < RANGES.length; i++ )
+        {
+            m_ranges[ i ] = new VersionRange( RANGES[ i ] );
+        }
+    }
+
+    @Benchmark
+    public void parseVersions( final Blackhole blackhole )
+    {
+        for( String version : VERSIONS )
+        {
+            blackhole.consume( new Version( version ) );
+        }
+    }
+
+    @Benchmark
+    public void parseRanges( final Blackhole blackhole )
+    {
+        for( String range : RANGES )
+        {
+            blackhole.consume( new VersionRange( range ) );
+        }
+    }
+
+    @Benchmark
+    public void includes( final Blackhole blackhole )
+    {
+        for( VersionRange range : m_ranges )
+        {
+            for( Version version : m_versions )
+            {
+                blackhole.consume( range.includes( version ) );
+            }
+        }
+    }
+
+    @Benchmark
+    public void compare( final Blackhole blackhole )
+    {
+        for( Version version : m_versions )
+        {
+            for( Version other : m_versions )
+            {
+                blackhole.consume( version.compareTo( other ) );
+            }
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.wrap.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ops4j.pax.url.benchmarks.Fixtures;
+import org.ops4j.pax.url.wrap.Handler;
+
+/**
+ * Parsing of wrap: urls and generation of the bundle stream out of generated jars of several sizes.
+ *
+ * @since 1.3.6
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class WrapBenchmark
+{
+
+    /**
+     * Number of entries of the wrapped jar (1 KB each).
+     */
+    @Param( { "10", "100", "1000" } )
+    public int entries;
+
+    private File m_directory;
+    private String m_path;
+    private URL m_url;
+
+    @Setup
+    public void setUp()
+        throws IOException
+    {
+        m_directory = Fixtures.createDirectory( "pax-url-wrap" );
+        final File jar = new File( m_directory, "generated.jar" );
+        Fixtures.createJar( jar, entries, 1024 );
+        m_path = jar.toURI().toString() + "$Bundle-SymbolicName=generated&Export-Package=*";
+        m_url = new URL( null, "wrap:" + m_path, new Handler() );
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        Fixtures.delete( m_directory );
+    }
+
+    @Benchmark
+    @OutputTimeUnit( TimeUnit.MICROSECONDS )
+    public Parser parse()
+        throws MalformedURLException
+    {
+        return new Parser( m_path );
+    }
+
+    @Benchmark
+    public long wrap()
+        throws IOException
+    {
+        return Fixtures.consume( m_url.openStream() );
+    }
+
+}
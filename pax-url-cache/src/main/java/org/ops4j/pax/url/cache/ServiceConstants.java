@@ -45,4 +45,29 @@ public interface ServiceConstants
      */
     static final String DEFAULT_ROOT_DIRECTORY = "./cache";
 
+    /**
+     * Maximum number of concurrent downloads from all hosts configuration property name.
+     *
+     * @since 1.3.6
+     */
+    static final String PROPERTY_MAX_CONNECTIONS = PID + ".maxConnections";
+    /**
+     * Maximum number of concurrent downloads from one host configuration property name.
+     *
+     * @since 1.3.6
+     */
+    static final String PROPERTY_MAX_CONNECTIONS_PER_HOST = PID + ".maxConnectionsPerHost";
+    /**
+     * Maximum download rate from all hosts (bytes per second) configuration property name.
+     *
+     * @since 1.3.6
+     */
+    static final String PROPERTY_MAX_BYTES_PER_SECOND = PID + ".maxBytesPerSecond";
+    /**
+     * Maximum download rate from one host (bytes per second) configuration property name.
+     *
+     * @since 1.3.6
+     */
+    static final String PROPERTY_MAX_BYTES_PER_SECOND_PER_HOST = PID + ".maxBytesPerSecondPerHost";
+
 }
\ No newline at end of file
@@ -24,6 +24,8 @@ import org.osgi.framework.BundleContext;
 import org.ops4j.pax.url.cache.ServiceConstants;
 import org.ops4j.pax.url.commons.handler.ConnectionFactory;
 import org.ops4j.pax.url.commons.handler.HandlerActivator;
+import org.ops4j.pax.url.maven.commons.DownloadScheduler;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetricsImpl;
 import org.ops4j.util.property.PropertyResolver;
 
 /**
@@ -47,6 +49,11 @@ public final class Activator
             new ConnectionFactory<Configuration>()
             {
 
+                /**
+                 * Scheduler of http(s) downloads, created out of the current configuration.
+                 */
+                private volatile DownloadScheduler m_scheduler;
+
                 /**
                  * Creates a "cache" url connection.
                  *
@@ -57,7 +64,7 @@ public final class Activator
                                                       final Configuration config )
                     throws IOException
                 {
-                    return createConnection( url, config );
+                    return createConnection( url, config, m_scheduler );
                 }
 
                 /**
@@ -65,7 +72,9 @@ public final class Activator
                  */
                 public Configuration createConfiguration( final PropertyResolver propertyResolver )
                 {
-                    return new ConfigurationImpl( propertyResolver );
+                    final Configuration config = new ConfigurationImpl( propertyResolver );
+                    m_scheduler = createScheduler( config );
+                    return config;
                 }
 
             }
@@ -89,4 +98,45 @@ public final class Activator
         return new Connection( url, config );
     }
 
+    /**
+     * Creates a "cache" url connection whose http(s) downloads are scheduled.
+     *
+     * @param url       cache file url
+     * @param config    configuration
+     * @param scheduler scheduler of http(s) downloads; null if downloads are not scheduled
+     *
+     * @return url connection
+     *
+     * @throws java.io.IOException re-thrown
+     * @since 1.3.6
+     */
+    public static URLConnection createConnection( final URL url,
+                                                  final Configuration config,
+                                                  final DownloadScheduler scheduler )
+        throws IOException
+    {
+        return new Connection( url, config, scheduler );
+    }
+
+    /**
+     * Creates a scheduler of http(s) downloads limited as configured.
+     *
+     * @param config configuration
+     *
+     * @return download scheduler
+     *
+     * @since 1.3.6
+     */
+    public static DownloadScheduler createScheduler( final Configuration config )
+    {
+        return new DownloadScheduler(
+            config.getMaxConnections(),
+            config.getMaxConnectionsPerHost(),
+            config.getMaxBytesPerSecond(),
+            config.getMaxBytesPerSecondPerHost(),
+            DownloadScheduler.DEFAULT_TIMEOUT,
+            new ResolutionMetricsImpl()
+        );
+    }
+
 }
\ No newline at end of file
@@ -36,4 +36,44 @@ public interface Configuration
      */
     File getWorkingDirectory();
 
+    /**
+     * Returns the maximum number of concurrent downloads of http(s) urls from all hosts.
+     * Defaults to 0 (no limit).
+     *
+     * @return maximum number of connections
+     *
+     * @since 1.3.6
+     */
+    Integer getMaxConnections();
+
+    /**
+     * Returns the maximum number of concurrent downloads of http(s) urls from one host.
+     * Defaults to 0 (no limit).
+     *
+     * @return maximum number of connections per host
+     *
+     * @since 1.3.6
+     */
+    Integer getMaxConnectionsPerHost();
+
+    /**
+     * Returns the maximum download rate (bytes per second) of http(s) urls from all hosts.
+     * Defaults to 0 (no limit).
+     *
+     * @return maximum download rate
+     *
+     * @since 1.3.6
+     */
+    Integer getMaxBytesPerSecond();
+
+    /**
+     * Returns the maximum download rate (bytes per second) of http(s) urls from one host.
+     * Defaults to 0 (no limit).
+     *
+     * @return maximum download rate per host
+     *
+     * @since 1.3.6
+     */
+    Integer getMaxBytesPerSecondPerHost();
+
 }
\ No newline at end of file
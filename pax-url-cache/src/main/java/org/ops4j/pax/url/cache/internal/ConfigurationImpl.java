@@ -18,6 +18,8 @@
 package org.ops4j.pax.url.cache.internal;
 
 import java.io.File;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.ops4j.lang.NullArgumentException;
 import org.ops4j.pax.url.cache.ServiceConstants;
 import org.ops4j.util.property.PropertyResolver;
@@ -34,6 +36,11 @@ public class ConfigurationImpl
     implements Configuration
 {
 
+    /**
+     * Logger.
+     */
+    private static final Log LOG = LogFactory.getLog( ConfigurationImpl.class );
+
     /**
      * Property resolver. Cannot be null.
      */
@@ -68,4 +75,66 @@ public class ConfigurationImpl
         }
         return get( ServiceConstants.PROPERTY_WORKING_DIRECTORY );
     }
-}
\ No newline at end of file
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getMaxConnections()
+    {
+        return getInteger( ServiceConstants.PROPERTY_MAX_CONNECTIONS );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getMaxConnectionsPerHost()
+    {
+        return getInteger( ServiceConstants.PROPERTY_MAX_CONNECTIONS_PER_HOST );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getMaxBytesPerSecond()
+    {
+        return getInteger( ServiceConstants.PROPERTY_MAX_BYTES_PER_SECOND );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getMaxBytesPerSecondPerHost()
+    {
+        return getInteger( ServiceConstants.PROPERTY_MAX_BYTES_PER_SECOND_PER_HOST );
+    }
+
+    /**
+     * Resolves a non negative integer property, defaulting to 0 (no limit) if the property is not set or invalid.
+     *
+     * @param property property name
+     *
+     * @return resolved value
+     */
+    private Integer getInteger( final String property )
+    {
+        if( !contains( property ) )
+        {
+            Integer value = 0;
+            final String spec = m_propertyResolver.get( property );
+            if( spec != null && spec.trim().length() > 0 )
+            {
+                try
+                {
+                    value = Math.max( 0, Integer.parseInt( spec.trim() ) );
+                }
+                catch( NumberFormatException e )
+                {
+                    LOG.warn( "Property [" + property + "] value [" + spec + "] is not a number, using [0]" );
+                }
+            }
+            return set( property, value );
+        }
+        return get( property );
+    }
+
+}
@@ -35,6 +35,7 @@ import java.security.NoSuchAlgorithmException;
 import java.util.Properties;
 import org.ops4j.io.StreamUtils;
 import org.ops4j.lang.NullArgumentException;
+import org.ops4j.pax.url.maven.commons.DownloadScheduler;
 
 /**
  * TODO Add JavaDoc.
@@ -58,6 +59,10 @@ public class Connection
      * Name corresponding to url (base64 encoding).
      */
     private final String m_cacheName;
+    /**
+     * Scheduler of http(s) downloads. Null if downloads are not scheduled.
+     */
+    private final DownloadScheduler m_scheduler;
     /**
      * Url property name.
      */
@@ -88,6 +93,27 @@ public class Connection
     protected Connection( final URL url,
                           final Configuration configuration )
         throws IOException
+    {
+        this( url, configuration, null );
+    }
+
+    /**
+     * Creates a new connection whose http(s) downloads are scheduled.
+     *
+     * @param url           url to be handled; cannot be null.
+     * @param configuration protocol configuration; cannot be null
+     * @param scheduler     scheduler of http(s) downloads; null if downloads are not scheduled
+     *
+     * @throws MalformedURLException - If url path is empty
+     * @throws IOException           - If cache name cannot be generated
+     * @throws NullArgumentException - If url or configuration is null
+     *
+     * @since 1.3.6
+     */
+    protected Connection( final URL url,
+                          final Configuration configuration,
+                          final DownloadScheduler scheduler )
+        throws IOException
     {
         super( url );
 
@@ -97,6 +123,7 @@ public class Connection
         m_parser = new Parser( url.getPath() );
         m_configuration = configuration;
         m_cacheName = generateCacheName( m_parser.getUrl() );
+        m_scheduler = scheduler;
     }
 
     /**
@@ -182,7 +209,7 @@ public class Connection
         if( cacheTime == null || !cacheDateFile.exists() )
         {
             StreamUtils.copyStream(
-                m_parser.getUrl().openStream(),
+                openStream( m_parser.getUrl() ),
                 new BufferedOutputStream( new FileOutputStream( cacheDateFile ) ),
                 true
             );
@@ -200,6 +227,41 @@ public class Connection
         }
         return new BufferedInputStream( new FileInputStream( cacheDateFile ) );
     }
+
+    /**
+     * Opens the url to be cached. Http(s) urls wait for the scheduler to allow the download; other urls (as files or
+     * mvn: urls, whose downloads are scheduled by their own handler) are opened directly.
+     *
+     * @param url url to be cached
+     *
+     * @return url content
+     *
+     * @throws IOException - If the url cannot be opened
+     */
+    private InputStream openStream( final URL url )
+        throws IOException
+    {
+        if( m_scheduler == null
+            || !( "http".equalsIgnoreCase( url.getProtocol() ) || "https".equalsIgnoreCase( url.getProtocol() ) ) )
+        {
+            return url.openStream();
+        }
+        final DownloadScheduler.Download download = m_scheduler.schedule( url );
+        try
+        {
+            return download.wrap( url.openStream() );
+        }
+        catch( IOException e )
+        {
+            download.release();
+            throw e;
+        }
+        catch( RuntimeException e )
+        {
+            download.release();
+            throw e;
+        }
+    }
 }
 
 
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.maven.commons;
+
+import java.io.IOException;
+
+/**
+ * Thrown by the {@link DownloadScheduler} when a download waited longer than the timeout for a free connection. The
+ * host was never contacted, so this is not a failure of the repository: the limits of the scheduler were reached
+ * because of the downloads already in progress.
+ *
+ * @since 1.3.6
+ */
+public class ConnectionUnavailableException
+    extends IOException
+{
+
+    /**
+     * Serialization version.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Host the download waited for (protocol://host:port).
+     */
+    private final String m_host;
+    /**
+     * Time (in milliseconds) the download waited.
+     */
+    private final long m_timeout;
+
+    /**
+     * Creates a new exception.
+     *
+     * @param host    host the download waited for (protocol://host:port)
+     * @param timeout time (in milliseconds) the download waited
+     */
+    public ConnectionUnavailableException( final String host, final long timeout )
+    {
+        super( "No connection to [" + host + "] available within [" + timeout + "] ms" );
+        m_host = host;
+        m_timeout = timeout;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return host the download waited for (protocol://host:port)
+     */
+    public String getHost()
+    {
+        return m_host;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return time (in milliseconds) the download waited
+     */
+    public long getTimeout()
+    {
+        return m_timeout;
+    }
+
+}
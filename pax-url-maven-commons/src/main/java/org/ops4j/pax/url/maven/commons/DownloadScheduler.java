@@ -0,0 +1,552 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.maven.commons;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.ops4j.lang.NullArgumentException;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetrics;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetricsImpl;
+
+/**
+ * Schedules downloads from repository hosts. The number of concurrent downloads is limited per host and overall, and
+ * the rate at which bytes are read can be limited per host and overall as well. Downloads over a connection limit
+ * wait for a connection in arrival order, so a caller opening many urls at once cannot starve the others, up to a
+ * timeout. A download keeps its connection, and is throttled, until its stream is read till the end, fails or is
+ * closed. The number of waiting downloads and the time they waited are reported into the handler metrics.
+ * Limits of zero mean no limit.
+ *
+ * @since 1.3.6
+ */
+public class DownloadScheduler
+{
+
+    /**
+     * Time (in milliseconds) to wait for a connection if there is no connect timeout.
+     */
+    public static final long DEFAULT_TIMEOUT = 60000;
+    /**
+     * Nanoseconds in a second.
+     */
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    /**
+     * Maximum number of concurrent downloads from one host; zero for no limit.
+     */
+    private final int m_maxConnectionsPerHost;
+    /**
+     * Maximum download rate from one host (bytes per second); zero for no limit.
+     */
+    private final long m_maxBytesPerSecondPerHost;
+    /**
+     * Time (in milliseconds) to wait for a connection.
+     */
+    private final long m_timeout;
+    /**
+     * Available connections to all hosts. Null if there is no limit.
+     */
+    private final Semaphore m_connections;
+    /**
+     * Download rate limit of all hosts. Null if there is no limit.
+     */
+    private final RateLimiter m_rate;
+    /**
+     * Scheduling state per host (protocol://host:port).
+     */
+    private final ConcurrentMap<String, Host> m_hosts;
+    /**
+     * Metrics to report waiting downloads into.
+     */
+    private final ResolutionMetrics m_metrics;
+
+    /**
+     * Creates a scheduler configured by a maven configuration. Downloads wait for a connection up to the connect
+     * timeout, or {@link #DEFAULT_TIMEOUT} if there is no connect timeout.
+     *
+     * @param configuration maven configuration; cannot be null
+     * @param metrics       metrics to report waiting downloads into; cannot be null
+     *
+     * @throws NullArgumentException if any of the parameters is null
+     */
+    public DownloadScheduler( final MavenConfiguration configuration, final ResolutionMetrics metrics )
+    {
+        this( validate( configuration ).getMaxConnections(),
+              configuration.getMaxConnectionsPerHost(),
+              configuration.getMaxBytesPerSecond(),
+              configuration.getMaxBytesPerSecondPerHost(),
+              configuration.getConnectTimeout() > 0 ? configuration.getConnectTimeout() : DEFAULT_TIMEOUT,
+              metrics
+        );
+    }
+
+    /**
+     * Creates a scheduler that only limits the number of concurrent downloads per host, not reporting into metrics.
+     *
+     * @param maxConnectionsPerHost maximum number of concurrent downloads from one host; zero for no limit
+     * @param timeout               time (in milliseconds) to wait for a connection
+     */
+    public DownloadScheduler( final int maxConnectionsPerHost, final long timeout )
+    {
+        this( 0, maxConnectionsPerHost, 0, 0, timeout, new ResolutionMetricsImpl() );
+    }
+
+    /**
+     * Creates a new scheduler.
+     *
+     * @param maxConnections           maximum number of concurrent downloads from all hosts; zero for no limit
+     * @param maxConnectionsPerHost    maximum number of concurrent downloads from one host; zero for no limit
+     * @param maxBytesPerSecond        maximum download rate from all hosts (bytes per second); zero for no limit
+     * @param maxBytesPerSecondPerHost maximum download rate from one host (bytes per second); zero for no limit
+     * @param timeout                  time (in milliseconds) to wait for a connection
+     * @param metrics                  metrics to report waiting downloads into; cannot be null
+     *
+     * @throws NullArgumentException if metrics is null
+     */
+    public DownloadScheduler( final int maxConnections,
+                              final int maxConnectionsPerHost,
+                              final long maxBytesPerSecond,
+                              final long maxBytesPerSecondPerHost,
+                              final long timeout,
+                              final ResolutionMetrics metrics )
+    {
+        NullArgumentException.validateNotNull( metrics, "Metrics" );
+        m_maxConnectionsPerHost = maxConnectionsPerHost;
+        m_maxBytesPerSecondPerHost = maxBytesPerSecondPerHost;
+        m_timeout = timeout;
+        m_connections = maxConnections > 0 ? new Semaphore( maxConnections, true ) : null;
+        m_rate = maxBytesPerSecond > 0 ? new RateLimiter( maxBytesPerSecond ) : null;
+        m_hosts = new ConcurrentHashMap<String, Host>();
+        m_metrics = metrics;
+    }
+
+    /**
+     * Validates the configuration before delegating to the main constructor.
+     *
+     * @param configuration maven configuration
+     *
+     * @return configuration
+     *
+     * @throws NullArgumentException if configuration is null
+     */
+    private static MavenConfiguration validate( final MavenConfiguration configuration )
+    {
+        NullArgumentException.validateNotNull( configuration, "Maven configuration" );
+        return configuration;
+    }
+
+    /**
+     * Waits for a connection to the host of an url to be available. The returned download must be released, directly
+     * or by closing the stream it wraps.
+     *
+     * @param url url to be downloaded; cannot be null
+     *
+     * @return scheduled download
+     *
+     * @throws ConnectionUnavailableException if no connection became available in time
+     * @throws IOException                     if the thread was interrupted
+     * @throws NullArgumentException           if url is null
+     */
+    public Download schedule( final URL url )
+        throws IOException
+    {
+        NullArgumentException.validateNotNull( url, "URL" );
+        final Host host = getHost( url );
+        if( host.m_connections == null && m_connections == null )
+        {
+            return new Download( host.m_rate, m_rate, null, null );
+        }
+        final long start = System.currentTimeMillis();
+        final long deadline = start + m_timeout;
+        m_metrics.queued();
+        Semaphore hostConnection = null;
+        try
+        {
+            hostConnection = acquire( host.m_connections, deadline, host.m_name );
+            final Semaphore connection = acquire( m_connections, deadline, host.m_name );
+            return new Download( host.m_rate, m_rate, hostConnection, connection );
+        }
+        catch( IOException e )
+        {
+            release( hostConnection );
+            throw e;
+        }
+        finally
+        {
+            m_metrics.dequeued( System.currentTimeMillis() - start );
+        }
+    }
+
+    /**
+     * Returns the scheduling state of the host of an url, creating it on first use.
+     *
+     * @param url url
+     *
+     * @return host state
+     */
+    private Host getHost( final URL url )
+    {
+        final String name = url.getProtocol() + "://" + url.getHost() + ":" + url.getPort();
+        Host host = m_hosts.get( name );
+        if( host == null )
+        {
+            final Host created = new Host(
+                name,
+                m_maxConnectionsPerHost > 0 ? new Semaphore( m_maxConnectionsPerHost, true ) : null,
+                m_maxBytesPerSecondPerHost > 0 ? new RateLimiter( m_maxBytesPerSecondPerHost ) : null
+            );
+            host = m_hosts.putIfAbsent( name, created );
+            if( host == null )
+            {
+                host = created;
+            }
+        }
+        return host;
+    }
+
+    /**
+     * Waits for a connection.
+     *
+     * @param connections available connections; can be null if there is no limit
+     * @param deadline    time (in milliseconds) until which to wait
+     * @param host        host being connected to (for messages)
+     *
+     * @return connections the connection was taken from or null if there is no limit
+     *
+     * @throws ConnectionUnavailableException if no connection became available in time
+     * @throws IOException                     if the thread was interrupted
+     */
+    private Semaphore acquire( final Semaphore connections, final long deadline, final String host )
+        throws IOException
+    {
+        if( connections == null )
+        {
+            return null;
+        }
+        try
+        {
+            final long timeout = Math.max( 0, deadline - System.currentTimeMillis() );
+            if( !connections.tryAcquire( timeout, TimeUnit.MILLISECONDS ) )
+            {
+                throw new ConnectionUnavailableException( host, m_timeout );
+            }
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException( "Interrupted while waiting for a connection to [" + host + "]" );
+        }
+        return connections;
+    }
+
+    /**
+     * Releases a connection.
+     *
+     * @param connections connections the connection was taken from; can be null
+     */
+    private static void release( final Semaphore connections )
+    {
+        if( connections != null )
+        {
+            connections.release();
+        }
+    }
+
+    /**
+     * A download that got its connection.
+     */
+    public static class Download
+    {
+
+        /**
+         * Download rate limit of the host. Null if there is no limit.
+         */
+        private final RateLimiter m_hostRate;
+        /**
+         * Download rate limit of all hosts. Null if there is no limit.
+         */
+        private final RateLimiter m_rate;
+        /**
+         * Connections to the host the connection was taken from. Null if there is no limit.
+         */
+        private final Semaphore m_hostConnection;
+        /**
+         * Connections to all hosts the connection was taken from. Null if there is no limit.
+         */
+        private final Semaphore m_connection;
+        /**
+         * True once the connection was released.
+         */
+        private final AtomicBoolean m_released;
+
+        /**
+         * Creates a new download.
+         *
+         * @param hostRate       download rate limit of the host; can be null
+         * @param rate           download rate limit of all hosts; can be null
+         * @param hostConnection connections to the host the connection was taken from; can be null
+         * @param connection     connections to all hosts the connection was taken from; can be null
+         */
+        Download( final RateLimiter hostRate,
+                  final RateLimiter rate,
+                  final Semaphore hostConnection,
+                  final Semaphore connection )
+        {
+            m_hostRate = hostRate;
+            m_rate = rate;
+            m_hostConnection = hostConnection;
+            m_connection = connection;
+            m_released = new AtomicBoolean();
+        }
+
+        /**
+         * Wraps the stream of the download into a stream that is throttled and releases the connection once read till
+         * the end, failed or closed.
+         *
+         * @param inputStream download stream; cannot be null
+         *
+         * @return scheduled stream (the stream itself if there is nothing to schedule)
+         *
+         * @throws NullArgumentException if input stream is null
+         */
+        public InputStream wrap( final InputStream inputStream )
+        {
+            NullArgumentException.validateNotNull( inputStream, "Input stream" );
+            if( m_hostRate == null && m_rate == null && m_hostConnection == null && m_connection == null )
+            {
+                return inputStream;
+            }
+            return new ScheduledInputStream( inputStream, this );
+        }
+
+        /**
+         * Releases the connection. Subsequent calls do nothing.
+         */
+        public void release()
+        {
+            if( m_released.compareAndSet( false, true ) )
+            {
+                DownloadScheduler.release( m_connection );
+                DownloadScheduler.release( m_hostConnection );
+            }
+        }
+
+        /**
+         * Waits as long as needed to keep the download rates after bytes were read.
+         *
+         * @param bytes number of bytes read
+         *
+         * @throws InterruptedIOException if the thread was interrupted while waiting
+         */
+        void transferred( final long bytes )
+            throws InterruptedIOException
+        {
+            final long delay = Math.max(
+                m_hostRate == null ? 0 : m_hostRate.reserve( bytes ),
+                m_rate == null ? 0 : m_rate.reserve( bytes )
+            );
+            if( delay <= 0 )
+            {
+                return;
+            }
+            try
+            {
+                Thread.sleep( delay / 1000000, (int) ( delay % 1000000 ) );
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException( "Interrupted while throttling download" );
+            }
+        }
+
+    }
+
+    /**
+     * Scheduling state of one host.
+     */
+    private static class Host
+    {
+
+        /**
+         * Host name (protocol://host:port).
+         */
+        private final String m_name;
+        /**
+         * Available connections to the host. Null if there is no limit.
+         */
+        private final Semaphore m_connections;
+        /**
+         * Download rate limit of the host. Null if there is no limit.
+         */
+        private final RateLimiter m_rate;
+
+        Host( final String name, final Semaphore connections, final RateLimiter rate )
+        {
+            m_name = name;
+            m_connections = connections;
+            m_rate = rate;
+        }
+
+    }
+
+    /**
+     * Limits a download rate by spreading reads in time: each read reserves the time its bytes take at the maximum
+     * rate, and readers wait until their reservation ends. Time the limiter was idle is not saved up for bursts.
+     */
+    private static class RateLimiter
+    {
+
+        /**
+         * Maximum rate (bytes per second).
+         */
+        private final long m_bytesPerSecond;
+        /**
+         * Time (System.nanoTime) at which the last reservation ends.
+         */
+        private long m_next;
+
+        RateLimiter( final long bytesPerSecond )
+        {
+            m_bytesPerSecond = bytesPerSecond;
+            m_next = System.nanoTime();
+        }
+
+        /**
+         * Reserves the time to transfer bytes.
+         *
+         * @param bytes number of bytes
+         *
+         * @return time (in nanoseconds) to wait for the reservation to end
+         */
+        synchronized long reserve( final long bytes )
+        {
+            final long now = System.nanoTime();
+            if( m_next - now < 0 )
+            {
+                m_next = now;
+            }
+            m_next += bytes * NANOS_PER_SECOND / m_bytesPerSecond;
+            return m_next - now;
+        }
+
+    }
+
+    /**
+     * Stream of a scheduled download, throttled and releasing its connection once read till the end, failed or
+     * closed.
+     */
+    private static class ScheduledInputStream
+        extends FilterInputStream
+    {
+
+        /**
+         * Scheduled download.
+         */
+        private final Download m_download;
+
+        ScheduledInputStream( final InputStream inputStream, final Download download )
+        {
+            super( inputStream );
+            m_download = download;
+        }
+
+        @Override
+        public int read()
+            throws IOException
+        {
+            try
+            {
+                final int read = super.read();
+                if( read == -1 )
+                {
+                    m_download.release();
+                }
+                else
+                {
+                    m_download.transferred( 1 );
+                }
+                return read;
+            }
+            catch( IOException e )
+            {
+                m_download.release();
+                throw e;
+            }
+        }
+
+        @Override
+        public int read( final byte[] buffer, final int offset, final int length )
+            throws IOException
+        {
+            try
+            {
+                final int read = super.read( buffer, offset, length );
+                if( read == -1 )
+                {
+                    m_download.release();
+                }
+                else if( read > 0 )
+                {
+                    m_download.transferred( read );
+                }
+                return read;
+            }
+            catch( IOException e )
+            {
+                m_download.release();
+                throw e;
+            }
+        }
+
+        @Override
+        public long skip( final long count )
+            throws IOException
+        {
+            final long skipped = super.skip( count );
+            if( skipped > 0 )
+            {
+                m_download.transferred( skipped );
+            }
+            return skipped;
+        }
+
+        @Override
+        public void close()
+            throws IOException
+        {
+            try
+            {
+                super.close();
+            }
+            finally
+            {
+                m_download.release();
+            }
+        }
+
+    }
+
+}
@@ -77,7 +77,11 @@ public interface MavenConfiguration {
 
     /**
      * @param url Enables the proxy server for a given URL.
+     *
+     * @deprecated This method changes the proxy system properties and the default authenticator of the java runtime;
+     *             use {@link #getProxySelector()} to open each connection through its own proxy instead.
      */
+    @Deprecated
     void enableProxy( URL url );
 
     /**
@@ -90,6 +94,14 @@ public interface MavenConfiguration {
      */
     Map<String, Map<String, String>> getProxySettings( String... protocols );
 
+    /**
+     * Returns the http and https proxies out of the active proxy settings (see {@link #getProxySettings(String...)}),
+     * parsed once into an immutable selector that connections use to pick their own proxy and credentials.
+     *
+     * @return proxy selector; empty if no proxy is configured
+     */
+    RepositoryProxySelector getProxySelector();
+
     /**
      * Returns the mirror settings from settings.xml.
      * The fields are id, url, mirrorOf, layout, mirrorOfLayouts.
@@ -97,4 +109,225 @@ public interface MavenConfiguration {
      * @return the mirror settings
      */
     Map<String, Map<String, String>> getMirrors();
+
+    /**
+     * Returns the number of threads used to probe repositories concurrently. A value of zero (default) means that
+     * repositories are probed one after another.
+     *
+     * @return number of probe threads
+     */
+    Integer getProbeThreads();
+
+    /**
+     * Returns the maximum time (in milliseconds) to wait for a repository to be probed when probing concurrently,
+     * counted from the moment the probe of the repository starts. Repositories that do not answer in time are skipped.
+     *
+     * @return per repository probe deadline
+     */
+    Integer getProbeTimeout();
+
+    /**
+     * Returns the time (in milliseconds) parsed maven metadata is cached. A value of zero (default) means that maven
+     * metadata is not cached.
+     *
+     * @return metadata time to live
+     */
+    Integer getMetadataCacheTtl();
+
+    /**
+     * Returns the maximum size (in kilobytes) of cached maven metadata. When exceeded the least recently used metadata
+     * is evicted.
+     *
+     * @return maximum metadata cache size
+     */
+    Integer getMetadataCacheSize();
+
+    /**
+     * Returns the time (in milliseconds) an artifact or metadata file not found in a repository is remembered as
+     * missing, so it is not looked up again in that repository. A value of zero (default) means that misses are not
+     * remembered.
+     *
+     * @return not found time to live
+     */
+    Integer getNotFoundCacheTtl();
+
+    /**
+     * Returns the maximum number of artifacts and metadata files remembered as missing. When exceeded the least
+     * recently used entries are evicted.
+     *
+     * @return maximum number of remembered misses
+     */
+    Integer getNotFoundCacheSize();
+
+    /**
+     * Returns true if artifacts downloaded from remote repositories should be stored in the local repository, so later
+     * resolutions find them there. Default false.
+     *
+     * @return true if remote artifacts should be written through to the local repository
+     */
+    Boolean getLocalRepositoryWriteThrough();
+
+    /**
+     * Returns the policy applied when the checksum of a downloaded artifact does not match the checksum (.sha1 or
+     * .md5) published next to it: "fail", "warn" or "ignore" (default, checksums are not verified).
+     *
+     * @return checksum policy
+     */
+    String getChecksumPolicy();
+
+    /**
+     * Returns the number of times a download from a http(s) repository that is interrupted (e.g. connection drops) is
+     * resumed from where it stopped. A value of zero means that interrupted downloads fail.
+     *
+     * @return number of download retries
+     */
+    Integer getDownloadRetries();
+
+    /**
+     * Returns the delay (in milliseconds) before resuming an interrupted download the first time. The delay is doubled
+     * on each following retry.
+     *
+     * @return first retry delay
+     */
+    Integer getDownloadRetryDelay();
+
+    /**
+     * Returns the connect timeout (in milliseconds) of connections to repositories. A value of zero (default) means no
+     * timeout.
+     *
+     * @return connect timeout
+     */
+    Integer getConnectTimeout();
+
+    /**
+     * Returns the read timeout (in milliseconds) of connections to repositories. A value of zero (default) means no
+     * timeout.
+     *
+     * @return read timeout
+     */
+    Integer getReadTimeout();
+
+    /**
+     * Returns the maximum number of concurrent connections to one repository host. A value of zero means no limit.
+     *
+     * @return maximum number of connections per host
+     */
+    Integer getMaxConnectionsPerHost();
+
+    /**
+     * Returns the number of artifacts downloaded concurrently by a batch resolution. A value of zero means that
+     * artifacts are downloaded one after another.
+     *
+     * @return number of batch threads
+     */
+    Integer getBatchThreads();
+
+    /**
+     * Returns the artifacts to be resolved in the background when the handler starts, so later resolutions are
+     * served from the prefetched copies. The value is either a comma separated list of urls or the url of a file
+     * listing one url per line.
+     *
+     * @return prefetch specification or null if nothing should be prefetched
+     */
+    String getPrefetch();
+
+    /**
+     * Returns true if repositories should be probed in the order of their observed performance (latency, hit ratio and
+     * error ratio) instead of the configured order. The configured order still breaks ties.
+     *
+     * @return true if repositories are ordered adaptively
+     */
+    Boolean getAdaptiveRepositoryOrder();
+
+    /**
+     * Returns the number of consecutive failures (repository not reachable, timeouts, server errors) after which a
+     * repository is skipped for the circuit breaker cool down. A value of zero means that repositories are never
+     * skipped.
+     *
+     * @return circuit breaker failure threshold
+     */
+    Integer getCircuitBreakerThreshold();
+
+    /**
+     * Returns the time in milliseconds a repository is skipped once its circuit breaker opened. After the cool down
+     * the repository is tried again and skipped for another cool down if it still fails.
+     *
+     * @return circuit breaker cool down
+     */
+    Integer getCircuitBreakerCoolDown();
+
+    /**
+     * Returns the minimum time in milliseconds to wait for a download from a remote repository to start before the same
+     * artifact is requested from the next repository that has it (hedged), keeping whichever starts first. A value of
+     * zero means that downloads are not hedged.
+     *
+     * @return hedge delay
+     */
+    Integer getHedgeDelay();
+
+    /**
+     * Returns the percentile of recently observed download start latencies used as hedge delay, if longer than the
+     * configured hedge delay. A value of zero means that the configured hedge delay is always used.
+     *
+     * @return hedge percentile, between 0 and 100
+     */
+    Integer getHedgePercentile();
+
+    /**
+     * Returns the maximum number of hedges sent for one download.
+     *
+     * @return maximum number of hedges
+     */
+    Integer getMaxHedges();
+
+    /**
+     * Returns the update policy of maven metadata downloaded from remote repositories, same as in maven: always, daily,
+     * interval:N (minutes) or never. Remote metadata is remembered together with its validators (ETag and
+     * Last-Modified); within the update interval it is used without contacting the repository, afterwards it is
+     * revalidated with a conditional request.
+     *
+     * @return metadata update policy
+     */
+    String getMetadataUpdatePolicy();
+
+    /**
+     * Returns true if LATEST, version range and SNAPSHOT resolutions against the local repository should be answered
+     * from an in memory index of the versions and files present on disk instead of the local maven metadata files, so
+     * artifacts installed without metadata are found as well. Default true.
+     *
+     * @return true if the local repository should be indexed
+     */
+    Boolean getLocalRepositoryIndex();
+
+    /**
+     * Returns true if the handler is offline: only file repositories (including the local repository) are searched
+     * and no connection is ever made to a remote repository. Default false.
+     *
+     * @return true if offline
+     */
+    Boolean getOffline();
+
+    /**
+     * Returns the maximum number of concurrent downloads from all repository hosts together, on top of the limit per
+     * host (see {@link #getMaxConnectionsPerHost()}). A value of zero means no limit.
+     *
+     * @return maximum number of connections
+     */
+    Integer getMaxConnections();
+
+    /**
+     * Returns the maximum rate, in bytes per second, at which artifacts and metadata are read from all repository
+     * hosts together. A value of zero means no limit.
+     *
+     * @return maximum download rate
+     */
+    Integer getMaxBytesPerSecond();
+
+    /**
+     * Returns the maximum rate, in bytes per second, at which artifacts and metadata are read from one repository
+     * host. A value of zero means no limit.
+     *
+     * @return maximum download rate per host
+     */
+    Integer getMaxBytesPerSecondPerHost();
 }
@@ -58,6 +58,14 @@ public class MavenConfigurationImpl
      * Repositories separator.
      */
     private final static String REPOSITORIES_SEPARATOR = ",";
+    /**
+     * Key under which the parsed proxy selector is stored (after the pid).
+     */
+    private final static String PROXY_SELECTOR = ".proxySelector";
+    /**
+     * Protocols that repositories can be accessed through a proxy with.
+     */
+    private final static String[] PROXIED_PROTOCOLS = { "http", "https" };
 
     /**
      * Maven settings abstraction. Can be null.
@@ -297,8 +305,10 @@ public class MavenConfigurationImpl
     /**
      * Enables the proxy server for a given URL.
      *
-     * @deprecated This method has side-effects and is only used in the "old" resolver.
+     * @deprecated This method changes the proxy system properties and the default authenticator of the java runtime;
+     *             use {@link #getProxySelector()} to open each connection through its own proxy instead.
      */
+    @Deprecated
     public void enableProxy( URL url )
     {
         final String protocol = url.getProtocol();
@@ -376,6 +386,28 @@ public class MavenConfigurationImpl
         return pr;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public RepositoryProxySelector getProxySelector()
+    {
+        if( !contains( m_pid + PROXY_SELECTOR ) ) {
+            final Map<String, Map<String, String>> proxies = new HashMap<String, Map<String, String>>();
+            for( String protocol : PROXIED_PROTOCOLS ) {
+                final Map<String, String> proxyDetails = getProxySettings( protocol ).get( protocol );
+                if( proxyDetails != null ) {
+                    proxies.put( protocol, proxyDetails );
+                }
+            }
+            final RepositoryProxySelector proxySelector = new RepositoryProxySelector( proxies );
+            if( !proxySelector.isEmpty() ) {
+                LOGGER.debug( "Using proxies " + proxySelector );
+            }
+            return set( m_pid + PROXY_SELECTOR, proxySelector );
+        }
+        return get( m_pid + PROXY_SELECTOR );
+    }
+
     private void parseSystemWideProxySettings( Map<String, Map<String, String>> pr )
     {
         String httpHost = m_propertyResolver.get( "http.proxyHost" );
@@ -427,4 +459,371 @@ public class MavenConfigurationImpl
         return m_settings.getMirrorSettings();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getProbeThreads()
+    {
+        return getInteger( MavenConstants.PROPERTY_PROBE_THREADS, MavenConstants.PROPERTY_PROBE_THREADS_DEFAULT );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getProbeTimeout()
+    {
+        return getInteger( MavenConstants.PROPERTY_PROBE_TIMEOUT, MavenConstants.PROPERTY_PROBE_TIMEOUT_DEFAULT );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getMetadataCacheTtl()
+    {
+        return getInteger( MavenConstants.PROPERTY_METADATA_CACHE_TTL,
+                           MavenConstants.PROPERTY_METADATA_CACHE_TTL_DEFAULT
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getMetadataCacheSize()
+    {
+        return getInteger( MavenConstants.PROPERTY_METADATA_CACHE_SIZE,
+                           MavenConstants.PROPERTY_METADATA_CACHE_SIZE_DEFAULT
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getNotFoundCacheTtl()
+    {
+        return getInteger( MavenConstants.PROPERTY_NOT_FOUND_CACHE_TTL,
+                           MavenConstants.PROPERTY_NOT_FOUND_CACHE_TTL_DEFAULT
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getNotFoundCacheSize()
+    {
+        return getInteger( MavenConstants.PROPERTY_NOT_FOUND_CACHE_SIZE,
+                           MavenConstants.PROPERTY_NOT_FOUND_CACHE_SIZE_DEFAULT
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Boolean getLocalRepositoryWriteThrough()
+    {
+        if( !contains( m_pid + MavenConstants.PROPERTY_LOCAL_REPOSITORY_WRITE_THROUGH ) ) {
+            return set( m_pid + MavenConstants.PROPERTY_LOCAL_REPOSITORY_WRITE_THROUGH,
+                        Boolean.valueOf(
+                            m_propertyResolver.get( m_pid + MavenConstants.PROPERTY_LOCAL_REPOSITORY_WRITE_THROUGH )
+                        )
+            );
+        }
+        return get( m_pid + MavenConstants.PROPERTY_LOCAL_REPOSITORY_WRITE_THROUGH );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getChecksumPolicy()
+    {
+        if( !contains( m_pid + MavenConstants.PROPERTY_CHECKSUM_POLICY ) ) {
+            String policy = MavenConstants.PROPERTY_CHECKSUM_POLICY_DEFAULT;
+            final String spec = m_propertyResolver.get( m_pid + MavenConstants.PROPERTY_CHECKSUM_POLICY );
+            if( spec != null && spec.trim().length() > 0 ) {
+                final String value = spec.trim().toLowerCase();
+                if( MavenConstants.CHECKSUM_POLICY_FAIL.equals( value )
+                    || MavenConstants.CHECKSUM_POLICY_WARN.equals( value )
+                    || MavenConstants.CHECKSUM_POLICY_IGNORE.equals( value ) ) {
+                    policy = value;
+                } else {
+                    LOGGER.warn( "Property [" + m_pid + MavenConstants.PROPERTY_CHECKSUM_POLICY
+                                 + "] is not a valid checksum policy [" + spec + "]. Using default [" + policy + "]"
+                    );
+                }
+            }
+            return set( m_pid + MavenConstants.PROPERTY_CHECKSUM_POLICY, policy );
+        }
+        return get( m_pid + MavenConstants.PROPERTY_CHECKSUM_POLICY );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getDownloadRetries()
+    {
+        return getInteger( MavenConstants.PROPERTY_DOWNLOAD_RETRIES,
+                           MavenConstants.PROPERTY_DOWNLOAD_RETRIES_DEFAULT
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getDownloadRetryDelay()
+    {
+        return getInteger( MavenConstants.PROPERTY_DOWNLOAD_RETRY_DELAY,
+                           MavenConstants.PROPERTY_DOWNLOAD_RETRY_DELAY_DEFAULT
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getConnectTimeout()
+    {
+        return getInteger( MavenConstants.PROPERTY_CONNECT_TIMEOUT,
+                           MavenConstants.PROPERTY_CONNECT_TIMEOUT_DEFAULT
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getReadTimeout()
+    {
+        return getInteger( MavenConstants.PROPERTY_READ_TIMEOUT,
+                           MavenConstants.PROPERTY_READ_TIMEOUT_DEFAULT
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getMaxConnectionsPerHost()
+    {
+        return getInteger( MavenConstants.PROPERTY_MAX_CONNECTIONS_PER_HOST,
+                           MavenConstants.PROPERTY_MAX_CONNECTIONS_PER_HOST_DEFAULT
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getBatchThreads()
+    {
+        return getInteger( MavenConstants.PROPERTY_BATCH_THREADS, MavenConstants.PROPERTY_BATCH_THREADS_DEFAULT );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getPrefetch()
+    {
+        if( !contains( m_pid + MavenConstants.PROPERTY_PREFETCH ) ) {
+            final String spec = m_propertyResolver.get( m_pid + MavenConstants.PROPERTY_PREFETCH );
+            return set(
+                m_pid + MavenConstants.PROPERTY_PREFETCH,
+                spec == null || spec.trim().length() == 0 ? null : spec.trim()
+            );
+        }
+        return get( m_pid + MavenConstants.PROPERTY_PREFETCH );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Boolean getAdaptiveRepositoryOrder()
+    {
+        if( !contains( m_pid + MavenConstants.PROPERTY_ADAPTIVE_REPOSITORY_ORDER ) ) {
+            return set( m_pid + MavenConstants.PROPERTY_ADAPTIVE_REPOSITORY_ORDER,
+                        Boolean.valueOf(
+                            m_propertyResolver.get( m_pid + MavenConstants.PROPERTY_ADAPTIVE_REPOSITORY_ORDER )
+                        )
+            );
+        }
+        return get( m_pid + MavenConstants.PROPERTY_ADAPTIVE_REPOSITORY_ORDER );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getCircuitBreakerThreshold()
+    {
+        return getInteger( MavenConstants.PROPERTY_CIRCUIT_BREAKER_THRESHOLD,
+                           MavenConstants.PROPERTY_CIRCUIT_BREAKER_THRESHOLD_DEFAULT
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getCircuitBreakerCoolDown()
+    {
+        return getInteger( MavenConstants.PROPERTY_CIRCUIT_BREAKER_COOL_DOWN,
+                           MavenConstants.PROPERTY_CIRCUIT_BREAKER_COOL_DOWN_DEFAULT
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getHedgeDelay()
+    {
+        return getInteger( MavenConstants.PROPERTY_HEDGE_DELAY, MavenConstants.PROPERTY_HEDGE_DELAY_DEFAULT );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getHedgePercentile()
+    {
+        return Math.min( 100, getInteger( MavenConstants.PROPERTY_HEDGE_PERCENTILE,
+                                          MavenConstants.PROPERTY_HEDGE_PERCENTILE_DEFAULT
+        )
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getMaxHedges()
+    {
+        return getInteger( MavenConstants.PROPERTY_MAX_HEDGES, MavenConstants.PROPERTY_MAX_HEDGES_DEFAULT );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getMetadataUpdatePolicy()
+    {
+        if( !contains( m_pid + MavenConstants.PROPERTY_METADATA_UPDATE_POLICY ) ) {
+            String policy = MavenConstants.PROPERTY_METADATA_UPDATE_POLICY_DEFAULT;
+            final String spec = m_propertyResolver.get( m_pid + MavenConstants.PROPERTY_METADATA_UPDATE_POLICY );
+            if( spec != null && spec.trim().length() > 0 ) {
+                final String value = spec.trim().toLowerCase();
+                if( MavenConstants.UPDATE_POLICY_ALWAYS.equals( value )
+                    || MavenConstants.UPDATE_POLICY_DAILY.equals( value )
+                    || MavenConstants.UPDATE_POLICY_NEVER.equals( value )
+                    || isIntervalPolicy( value ) ) {
+                    policy = value;
+                } else {
+                    LOGGER.warn( "Property [" + m_pid + MavenConstants.PROPERTY_METADATA_UPDATE_POLICY
+                                 + "] is not a valid update policy [" + spec + "]. Using default [" + policy + "]"
+                    );
+                }
+            }
+            return set( m_pid + MavenConstants.PROPERTY_METADATA_UPDATE_POLICY, policy );
+        }
+        return get( m_pid + MavenConstants.PROPERTY_METADATA_UPDATE_POLICY );
+    }
+
+    /**
+     * Checks if an update policy is an interval policy with a valid number of minutes.
+     *
+     * @param policy update policy
+     *
+     * @return true if policy is interval:N, N being a non negative number
+     */
+    private static boolean isIntervalPolicy( final String policy )
+    {
+        if( !policy.startsWith( MavenConstants.UPDATE_POLICY_INTERVAL ) ) {
+            return false;
+        }
+        try {
+            return Integer.parseInt( policy.substring( MavenConstants.UPDATE_POLICY_INTERVAL.length() ).trim() ) >= 0;
+        } catch( NumberFormatException e ) {
+            return false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Boolean getLocalRepositoryIndex()
+    {
+        if( !contains( m_pid + MavenConstants.PROPERTY_LOCAL_REPOSITORY_INDEX ) ) {
+            final String spec = m_propertyResolver.get( m_pid + MavenConstants.PROPERTY_LOCAL_REPOSITORY_INDEX );
+            return set( m_pid + MavenConstants.PROPERTY_LOCAL_REPOSITORY_INDEX,
+                        spec == null
+                        ? Boolean.valueOf( MavenConstants.PROPERTY_LOCAL_REPOSITORY_INDEX_DEFAULT )
+                        : Boolean.valueOf( spec.trim() )
+            );
+        }
+        return get( m_pid + MavenConstants.PROPERTY_LOCAL_REPOSITORY_INDEX );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Boolean getOffline()
+    {
+        if( !contains( m_pid + MavenConstants.PROPERTY_OFFLINE ) ) {
+            return set( m_pid + MavenConstants.PROPERTY_OFFLINE,
+                        Boolean.valueOf( m_propertyResolver.get( m_pid + MavenConstants.PROPERTY_OFFLINE ) )
+            );
+        }
+        return get( m_pid + MavenConstants.PROPERTY_OFFLINE );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getMaxConnections()
+    {
+        return getInteger( MavenConstants.PROPERTY_MAX_CONNECTIONS, MavenConstants.PROPERTY_MAX_CONNECTIONS_DEFAULT );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getMaxBytesPerSecond()
+    {
+        return getInteger( MavenConstants.PROPERTY_MAX_BYTES_PER_SECOND,
+                           MavenConstants.PROPERTY_MAX_BYTES_PER_SECOND_DEFAULT
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getMaxBytesPerSecondPerHost()
+    {
+        return getInteger( MavenConstants.PROPERTY_MAX_BYTES_PER_SECOND_PER_HOST,
+                           MavenConstants.PROPERTY_MAX_BYTES_PER_SECOND_DEFAULT
+        );
+    }
+
+    /**
+     * Resolves a non negative integer property. If the property is not set or is not a valid non negative integer the
+     * default value is used.
+     *
+     * @param property     property name (without pid)
+     * @param defaultValue value to be used if property is not set or is invalid
+     *
+     * @return resolved value
+     */
+    private Integer getInteger( final String property, final int defaultValue )
+    {
+        if( !contains( m_pid + property ) ) {
+            Integer value = defaultValue;
+            final String spec = m_propertyResolver.get( m_pid + property );
+            if( spec != null && spec.trim().length() > 0 ) {
+                try {
+                    value = Integer.valueOf( spec.trim() );
+                    if( value < 0 ) {
+                        LOGGER.warn( "Property [" + m_pid + property + "] cannot be negative. Using default ["
+                                     + defaultValue + "]"
+                        );
+                        value = defaultValue;
+                    }
+                } catch( NumberFormatException e ) {
+                    LOGGER.warn( "Property [" + m_pid + property + "] is not a valid number [" + spec
+                                 + "]. Using default [" + defaultValue + "]"
+                    );
+                }
+            }
+            return set( m_pid + property, value );
+        }
+        return get( m_pid + property );
+    }
+
 }
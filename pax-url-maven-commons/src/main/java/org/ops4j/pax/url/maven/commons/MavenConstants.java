@@ -78,4 +78,231 @@ public interface MavenConstants {
      * segment in repository spec that gives the name of the repo. Crucial for Aether handler.
      */
     static final String OPTION_ID = "id";
-}
\ No newline at end of file
+    /**
+     * Number of threads used to probe repositories concurrently configuration property name.
+     */
+    static final String PROPERTY_PROBE_THREADS = ".probeThreads";
+    /**
+     * Default number of probe threads. Zero means that repositories are probed one after another.
+     */
+    static final int PROPERTY_PROBE_THREADS_DEFAULT = 0;
+    /**
+     * Per repository probe deadline (in milliseconds) configuration property name.
+     */
+    static final String PROPERTY_PROBE_TIMEOUT = ".probeTimeout";
+    /**
+     * Default per repository probe deadline (in milliseconds).
+     */
+    static final int PROPERTY_PROBE_TIMEOUT_DEFAULT = 30000;
+    /**
+     * Time to live (in milliseconds) of cached maven metadata configuration property name.
+     */
+    static final String PROPERTY_METADATA_CACHE_TTL = ".metadataCacheTtl";
+    /**
+     * Default time to live of cached maven metadata. Zero means that metadata is not cached.
+     */
+    static final int PROPERTY_METADATA_CACHE_TTL_DEFAULT = 0;
+    /**
+     * Maximum size (in kilobytes) of cached maven metadata configuration property name.
+     */
+    static final String PROPERTY_METADATA_CACHE_SIZE = ".metadataCacheSize";
+    /**
+     * Default maximum size (in kilobytes) of cached maven metadata.
+     */
+    static final int PROPERTY_METADATA_CACHE_SIZE_DEFAULT = 4096;
+    /**
+     * Time to live (in milliseconds) of remembered not found artifacts / metadata configuration property name.
+     */
+    static final String PROPERTY_NOT_FOUND_CACHE_TTL = ".notFoundCacheTtl";
+    /**
+     * Default time to live of remembered not found artifacts / metadata. Zero means that misses are not remembered.
+     */
+    static final int PROPERTY_NOT_FOUND_CACHE_TTL_DEFAULT = 0;
+    /**
+     * Maximum number of remembered not found artifacts / metadata configuration property name.
+     */
+    static final String PROPERTY_NOT_FOUND_CACHE_SIZE = ".notFoundCacheSize";
+    /**
+     * Default maximum number of remembered not found artifacts / metadata.
+     */
+    static final int PROPERTY_NOT_FOUND_CACHE_SIZE_DEFAULT = 1000;
+    /**
+     * Store remote artifacts in local repository configuration property name.
+     */
+    static final String PROPERTY_LOCAL_REPOSITORY_WRITE_THROUGH = ".localRepositoryWriteThrough";
+    /**
+     * Checksum policy configuration property name.
+     */
+    static final String PROPERTY_CHECKSUM_POLICY = ".checksumPolicy";
+    /**
+     * Checksum policy: downloads with a checksum mismatch fail.
+     */
+    static final String CHECKSUM_POLICY_FAIL = "fail";
+    /**
+     * Checksum policy: checksum mismatches are logged.
+     */
+    static final String CHECKSUM_POLICY_WARN = "warn";
+    /**
+     * Checksum policy: checksums are not verified.
+     */
+    static final String CHECKSUM_POLICY_IGNORE = "ignore";
+    /**
+     * Default checksum policy.
+     */
+    static final String PROPERTY_CHECKSUM_POLICY_DEFAULT = CHECKSUM_POLICY_IGNORE;
+    /**
+     * Number of times an interrupted download is resumed configuration property name.
+     */
+    static final String PROPERTY_DOWNLOAD_RETRIES = ".downloadRetries";
+    /**
+     * Default number of times an interrupted download is resumed.
+     */
+    static final int PROPERTY_DOWNLOAD_RETRIES_DEFAULT = 3;
+    /**
+     * Delay (in milliseconds) before resuming an interrupted download the first time configuration property name.
+     */
+    static final String PROPERTY_DOWNLOAD_RETRY_DELAY = ".downloadRetryDelay";
+    /**
+     * Default delay before resuming an interrupted download the first time. Doubled on each retry.
+     */
+    static final int PROPERTY_DOWNLOAD_RETRY_DELAY_DEFAULT = 500;
+    /**
+     * Connect timeout (in milliseconds) of connections to repositories configuration property name.
+     */
+    static final String PROPERTY_CONNECT_TIMEOUT = ".connectTimeout";
+    /**
+     * Default connect timeout. Zero means no timeout.
+     */
+    static final int PROPERTY_CONNECT_TIMEOUT_DEFAULT = 0;
+    /**
+     * Read timeout (in milliseconds) of connections to repositories configuration property name.
+     */
+    static final String PROPERTY_READ_TIMEOUT = ".readTimeout";
+    /**
+     * Default read timeout. Zero means no timeout.
+     */
+    static final int PROPERTY_READ_TIMEOUT_DEFAULT = 0;
+    /**
+     * Maximum number of concurrent connections to one repository host configuration property name.
+     */
+    static final String PROPERTY_MAX_CONNECTIONS_PER_HOST = ".maxConnectionsPerHost";
+    /**
+     * Default maximum number of concurrent connections to one repository host: no limit. A connection is held until
+     * its stream is read or closed, so a limit would make callers that keep streams open wait for each other.
+     */
+    static final int PROPERTY_MAX_CONNECTIONS_PER_HOST_DEFAULT = 0;
+    /**
+     * Number of artifacts downloaded concurrently by batch resolutions configuration property name.
+     */
+    static final String PROPERTY_BATCH_THREADS = ".batchThreads";
+    /**
+     * Default number of artifacts downloaded concurrently by batch resolutions.
+     */
+    static final int PROPERTY_BATCH_THREADS_DEFAULT = 4;
+    /**
+     * Artifacts to be prefetched when the handler starts configuration property name. Either a comma separated list of
+     * urls or the url of a file listing one url per line.
+     */
+    static final String PROPERTY_PREFETCH = ".prefetch";
+    /**
+     * Order repositories by observed latency, hit ratio and error ratio configuration property name.
+     */
+    static final String PROPERTY_ADAPTIVE_REPOSITORY_ORDER = ".adaptiveRepositoryOrder";
+    /**
+     * Number of consecutive failures after which a repository is skipped configuration property name.
+     */
+    static final String PROPERTY_CIRCUIT_BREAKER_THRESHOLD = ".circuitBreakerThreshold";
+    /**
+     * Default number of consecutive failures after which a repository is skipped.
+     */
+    static final int PROPERTY_CIRCUIT_BREAKER_THRESHOLD_DEFAULT = 5;
+    /**
+     * Time a failing repository is skipped configuration property name.
+     */
+    static final String PROPERTY_CIRCUIT_BREAKER_COOL_DOWN = ".circuitBreakerCoolDown";
+    /**
+     * Default time (in milliseconds) a failing repository is skipped.
+     */
+    static final int PROPERTY_CIRCUIT_BREAKER_COOL_DOWN_DEFAULT = 30000;
+    /**
+     * Delay after which a download that did not start is hedged configuration property name.
+     */
+    static final String PROPERTY_HEDGE_DELAY = ".hedgeDelay";
+    /**
+     * Default delay (in milliseconds) after which a download that did not start is hedged. Zero, so downloads are not
+     * hedged.
+     */
+    static final int PROPERTY_HEDGE_DELAY_DEFAULT = 0;
+    /**
+     * Percentile of observed download start latencies used as hedge delay configuration property name.
+     */
+    static final String PROPERTY_HEDGE_PERCENTILE = ".hedgePercentile";
+    /**
+     * Default percentile of observed download start latencies used as hedge delay.
+     */
+    static final int PROPERTY_HEDGE_PERCENTILE_DEFAULT = 95;
+    /**
+     * Maximum number of hedges per download configuration property name.
+     */
+    static final String PROPERTY_MAX_HEDGES = ".maxHedges";
+    /**
+     * Default maximum number of hedges per download.
+     */
+    static final int PROPERTY_MAX_HEDGES_DEFAULT = 1;
+    /**
+     * Update policy of remote maven metadata configuration property name.
+     */
+    static final String PROPERTY_METADATA_UPDATE_POLICY = ".metadataUpdatePolicy";
+    /**
+     * Update policy: remote metadata is revalidated on each use.
+     */
+    static final String UPDATE_POLICY_ALWAYS = "always";
+    /**
+     * Update policy: remote metadata is revalidated once a day.
+     */
+    static final String UPDATE_POLICY_DAILY = "daily";
+    /**
+     * Update policy: remote metadata is revalidated after an interval in minutes, as in interval:60.
+     */
+    static final String UPDATE_POLICY_INTERVAL = "interval:";
+    /**
+     * Update policy: remote metadata is never revalidated while it is remembered.
+     */
+    static final String UPDATE_POLICY_NEVER = "never";
+    /**
+     * Default update policy of remote maven metadata.
+     */
+    static final String PROPERTY_METADATA_UPDATE_POLICY_DEFAULT = UPDATE_POLICY_ALWAYS;
+    /**
+     * Answer local repository queries from an in memory index configuration property name.
+     */
+    static final String PROPERTY_LOCAL_REPOSITORY_INDEX = ".localRepositoryIndex";
+    /**
+     * Default of answering local repository queries from an in memory index.
+     */
+    static final boolean PROPERTY_LOCAL_REPOSITORY_INDEX_DEFAULT = true;
+    /**
+     * Offline mode (only file repositories are used) configuration property name.
+     */
+    static final String PROPERTY_OFFLINE = ".offline";
+    /**
+     * Maximum number of concurrent downloads from all repository hosts configuration property name.
+     */
+    static final String PROPERTY_MAX_CONNECTIONS = ".maxConnections";
+    /**
+     * Default maximum number of concurrent downloads from all repository hosts (no limit).
+     */
+    static final int PROPERTY_MAX_CONNECTIONS_DEFAULT = 0;
+    /**
+     * Maximum download rate from all repository hosts (bytes per second) configuration property name.
+     */
+    static final String PROPERTY_MAX_BYTES_PER_SECOND = ".maxBytesPerSecond";
+    /**
+     * Maximum download rate from one repository host (bytes per second) configuration property name.
+     */
+    static final String PROPERTY_MAX_BYTES_PER_SECOND_PER_HOST = ".maxBytesPerSecondPerHost";
+    /**
+     * Default maximum download rate (no limit).
+     */
+    static final int PROPERTY_MAX_BYTES_PER_SECOND_DEFAULT = 0;
+}
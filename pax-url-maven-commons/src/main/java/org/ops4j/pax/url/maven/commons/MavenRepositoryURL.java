@@ -24,7 +24,6 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import sun.util.LocaleServiceProviderPool;
 import org.ops4j.lang.NullArgumentException;
 
 /**
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.maven.commons;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.ops4j.lang.NullArgumentException;
+
+/**
+ * A bounded cache of parse results (as the parsed form of an url path), keyed by the parsed string. Cached values
+ * must be immutable as they are shared by all threads. Lookups do not lock; when the cache is full, adding a value
+ * evicts arbitrary entries (not the least recently used ones), which is good enough for a working set of urls that
+ * is usually much smaller than the cache.
+ *
+ * @since 1.3.6
+ */
+public class ParseCache<V>
+{
+
+    /**
+     * Maximum number of cached values.
+     */
+    private final int m_maxSize;
+    /**
+     * Cached values by parsed string.
+     */
+    private final ConcurrentMap<String, V> m_values;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxSize maximum number of cached values; zero disables caching
+     */
+    public ParseCache( final int maxSize )
+    {
+        m_maxSize = maxSize;
+        m_values = new ConcurrentHashMap<String, V>();
+    }
+
+    /**
+     * Returns the cached value for a parsed string.
+     *
+     * @param key parsed string; cannot be null
+     *
+     * @return cached value or null if the string was not parsed yet (or was evicted)
+     *
+     * @throws NullArgumentException if key is null
+     */
+    public V get( final String key )
+    {
+        NullArgumentException.validateNotNull( key, "Key" );
+        return m_values.get( key );
+    }
+
+    /**
+     * Caches a value, unless a value is already cached for the same string.
+     *
+     * @param key   parsed string; cannot be null
+     * @param value parse result; cannot be null
+     *
+     * @return the cached value, that is the value already cached for the string if any, otherwise the given value
+     *
+     * @throws NullArgumentException if key or value is null
+     */
+    public V put( final String key, final V value )
+    {
+        NullArgumentException.validateNotNull( key, "Key" );
+        NullArgumentException.validateNotNull( value, "Value" );
+        if( m_maxSize <= 0 )
+        {
+            return value;
+        }
+        final V cached = m_values.putIfAbsent( key, value );
+        if( cached != null )
+        {
+            return cached;
+        }
+        if( m_values.size() > m_maxSize )
+        {
+            final Iterator<String> keys = m_values.keySet().iterator();
+            while( m_values.size() > m_maxSize && keys.hasNext() )
+            {
+                if( !key.equals( keys.next() ) )
+                {
+                    keys.remove();
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return number of cached values
+     */
+    public int size()
+    {
+        return m_values.size();
+    }
+
+    /**
+     * Removes all cached values.
+     */
+    public void clear()
+    {
+        m_values.clear();
+    }
+
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.maven.commons;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.Proxy;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Map;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.ops4j.lang.NullArgumentException;
+import org.ops4j.net.URLUtils;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetricsImpl;
+
+/**
+ * Default {@link Transport}, based on {@link HttpURLConnection}.
+ * Connections to http(s) repositories are kept alive and reused by the keep-alive cache of the java runtime, which
+ * reuses a socket only if the previous response was read completely. This transport makes sure that happens: error
+ * responses (e.g. 404 of a repository that does not contain an artifact) are always drained before being reported.
+ * Connections are scheduled by a {@link DownloadScheduler}: the number of concurrent connections to one host (and
+ * optionally to all hosts) is limited; requests over the limit wait for a connection to be released, up to the connect
+ * timeout (or {@link #DEFAULT_POOL_TIMEOUT} if there is no connect timeout). A connection is released when its
+ * response stream is read till the end or closed.
+ * Connect and read timeouts apply to every connection; zero means the java runtime defaults (no timeout).
+ *
+ * @since 1.3.6
+ */
+public class PooledTransport
+    implements Transport
+{
+
+    /**
+     * Logger.
+     */
+    private static final Log LOG = LogFactory.getLog( PooledTransport.class );
+    /**
+     * Time (in milliseconds) to wait for a connection to a host if there is no connect timeout.
+     */
+    public static final long DEFAULT_POOL_TIMEOUT = DownloadScheduler.DEFAULT_TIMEOUT;
+    /**
+     * Maximum number of bytes drained from an error response. Bigger error responses close the connection.
+     */
+    private static final int MAX_DRAIN = 64 * 1024;
+
+    /**
+     * Connect timeout (in milliseconds); zero for no timeout.
+     */
+    private final int m_connectTimeout;
+    /**
+     * Read timeout (in milliseconds); zero for no timeout.
+     */
+    private final int m_readTimeout;
+    /**
+     * True if the certificate should be checked on SSL connection, false otherwise.
+     */
+    private final boolean m_checkCertificate;
+    /**
+     * Proxies to open connections through. Null if no proxy is configured.
+     */
+    private final RepositoryProxySelector m_proxySelector;
+    /**
+     * Scheduler of connections.
+     */
+    private final DownloadScheduler m_scheduler;
+
+    /**
+     * Creates a transport configured by a maven configuration.
+     *
+     * @param configuration maven configuration; cannot be null
+     *
+     * @throws NullArgumentException if configuration is null
+     */
+    public PooledTransport( final MavenConfiguration configuration )
+    {
+        this( configuration, new DownloadScheduler( validate( configuration ), new ResolutionMetricsImpl() ) );
+    }
+
+    /**
+     * Creates a transport configured by a maven configuration, scheduling connections with a scheduler.
+     *
+     * @param configuration maven configuration; cannot be null
+     * @param scheduler     scheduler of connections; cannot be null
+     *
+     * @throws NullArgumentException if any of the parameters is null
+     */
+    public PooledTransport( final MavenConfiguration configuration, final DownloadScheduler scheduler )
+    {
+        this( validate( configuration ).getConnectTimeout(),
+              configuration.getReadTimeout(),
+              configuration.getCertificateCheck(),
+              configuration.getProxySelector(),
+              scheduler
+        );
+    }
+
+    /**
+     * Creates a new transport.
+     *
+     * @param connectTimeout        connect timeout (in milliseconds); zero for no timeout
+     * @param readTimeout           read timeout (in milliseconds); zero for no timeout
+     * @param maxConnectionsPerHost maximum number of concurrent connections per host; zero for no limit
+     * @param checkCertificate      if the certificate should be checked on SSL connections
+     */
+    public PooledTransport( final int connectTimeout,
+                            final int readTimeout,
+                            final int maxConnectionsPerHost,
+                            final boolean checkCertificate )
+    {
+        this( connectTimeout, readTimeout, maxConnectionsPerHost, checkCertificate, null );
+    }
+
+    /**
+     * Creates a new transport that opens connections through proxies.
+     *
+     * @param connectTimeout        connect timeout (in milliseconds); zero for no timeout
+     * @param readTimeout           read timeout (in milliseconds); zero for no timeout
+     * @param maxConnectionsPerHost maximum number of concurrent connections per host; zero for no limit
+     * @param checkCertificate      if the certificate should be checked on SSL connections
+     * @param proxySelector         proxies to open connections through; null for none
+     *
+     * @since 1.3.6
+     */
+    public PooledTransport( final int connectTimeout,
+                            final int readTimeout,
+                            final int maxConnectionsPerHost,
+                            final boolean checkCertificate,
+                            final RepositoryProxySelector proxySelector )
+    {
+        this( connectTimeout,
+              readTimeout,
+              checkCertificate,
+              proxySelector,
+              new DownloadScheduler(
+                  maxConnectionsPerHost, connectTimeout > 0 ? connectTimeout : DEFAULT_POOL_TIMEOUT
+              )
+        );
+    }
+
+    /**
+     * Creates a new transport that schedules connections with a scheduler.
+     *
+     * @param connectTimeout   connect timeout (in milliseconds); zero for no timeout
+     * @param readTimeout      read timeout (in milliseconds); zero for no timeout
+     * @param checkCertificate if the certificate should be checked on SSL connections
+     * @param proxySelector    proxies to open connections through; null for none
+     * @param scheduler        scheduler of connections; cannot be null
+     *
+     * @throws NullArgumentException if scheduler is null
+     */
+    public PooledTransport( final int connectTimeout,
+                            final int readTimeout,
+                            final boolean checkCertificate,
+                            final RepositoryProxySelector proxySelector,
+                            final DownloadScheduler scheduler )
+    {
+        NullArgumentException.validateNotNull( scheduler, "Scheduler" );
+        m_connectTimeout = connectTimeout;
+        m_readTimeout = readTimeout;
+        m_checkCertificate = checkCertificate;
+        m_proxySelector = proxySelector == null || proxySelector.isEmpty() ? null : proxySelector;
+        m_scheduler = scheduler;
+        if( m_proxySelector != null && m_proxySelector.hasCredentials() )
+        {
+            // https connections do not send the Proxy-Authorization header on the tunnel to the proxy
+            ProxyAuthenticator.register( m_proxySelector );
+        }
+    }
+
+    /**
+     * Validates the configuration before delegating to the main constructor.
+     *
+     * @param configuration maven configuration
+     *
+     * @return configuration
+     *
+     * @throws NullArgumentException if configuration is null
+     */
+    private static MavenConfiguration validate( final MavenConfiguration configuration )
+    {
+        NullArgumentException.validateNotNull( configuration, "Maven configuration" );
+        return configuration;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public InputStream openStream( final URL url )
+        throws IOException
+    {
+        final TransportResponse response = open( url, null );
+        if( response.getStatus() != HttpURLConnection.HTTP_OK )
+        {
+            response.close();
+            throw new IOException( "Unexpected response [" + response.getStatus() + "] for [" + url + "]" );
+        }
+        return response.getInputStream();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public TransportResponse open( final URL url, final Map<String, String> headers )
+        throws IOException
+    {
+        NullArgumentException.validateNotNull( url, "URL" );
+        // the proxy is chosen per connection, so the proxy settings of the java runtime are left untouched
+        final Proxy proxy = m_proxySelector == null ? null : m_proxySelector.getProxy( url );
+        final URLConnection connection = proxy == null ? url.openConnection() : url.openConnection( proxy );
+        URLUtils.prepareForAuthentication( connection );
+        if( !m_checkCertificate )
+        {
+            URLUtils.prepareForSSL( connection );
+        }
+        if( !( connection instanceof HttpURLConnection ) )
+        {
+            return new TransportResponse( connection, TransportResponse.STATUS_OK, connection.getInputStream() );
+        }
+        final HttpURLConnection httpConnection = (HttpURLConnection) connection;
+        if( m_connectTimeout > 0 )
+        {
+            httpConnection.setConnectTimeout( m_connectTimeout );
+        }
+        if( m_readTimeout > 0 )
+        {
+            httpConnection.setReadTimeout( m_readTimeout );
+        }
+        final String proxyAuthorization = m_proxySelector == null ? null : m_proxySelector.getProxyAuthorization( url );
+        if( proxyAuthorization != null )
+        {
+            httpConnection.setRequestProperty( "Proxy-Authorization", proxyAuthorization );
+        }
+        if( headers != null )
+        {
+            for( Map.Entry<String, String> header : headers.entrySet() )
+            {
+                httpConnection.setRequestProperty( header.getKey(), header.getValue() );
+            }
+        }
+        final DownloadScheduler.Download download = m_scheduler.schedule( url );
+        try
+        {
+            final int status = httpConnection.getResponseCode();
+            if( status >= HttpURLConnection.HTTP_BAD_REQUEST )
+            {
+                drain( httpConnection );
+                if( status == HttpURLConnection.HTTP_NOT_FOUND || status == HttpURLConnection.HTTP_GONE )
+                {
+                    throw new FileNotFoundException( url.toExternalForm() );
+                }
+                throw new IOException( "Server returned HTTP response code: " + status + " for URL: " + url );
+            }
+            return new TransportResponse(
+                httpConnection, status, download.wrap( httpConnection.getInputStream() )
+            );
+        }
+        catch( IOException e )
+        {
+            download.release();
+            throw e;
+        }
+        catch( RuntimeException e )
+        {
+            download.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads and closes the error stream of a connection, so the socket can be reused.
+     *
+     * @param connection connection with an error response
+     */
+    private static void drain( final HttpURLConnection connection )
+    {
+        final InputStream errorStream = connection.getErrorStream();
+        if( errorStream == null )
+        {
+            return;
+        }
+        try
+        {
+            final byte[] buffer = new byte[4096];
+            int drained = 0;
+            int read;
+            while( drained <= MAX_DRAIN && ( read = errorStream.read( buffer ) ) != -1 )
+            {
+                drained += read;
+            }
+            if( drained > MAX_DRAIN )
+            {
+                connection.disconnect();
+            }
+        }
+        catch( IOException e )
+        {
+            LOG.trace( "Could not drain error response of [" + connection.getURL() + "]: " + e.getMessage() );
+        }
+        finally
+        {
+            try
+            {
+                errorStream.close();
+            }
+            catch( IOException ignore )
+            {
+                // ignore
+            }
+        }
+    }
+
+}
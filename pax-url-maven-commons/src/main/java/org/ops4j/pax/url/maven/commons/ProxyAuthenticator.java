@@ -0,0 +1,120 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.maven.commons;
+
+import java.net.Authenticator;
+import java.net.PasswordAuthentication;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.ops4j.lang.NullArgumentException;
+
+/**
+ * Authenticator giving the credentials of the proxies of the registered {@link RepositoryProxySelector}s. Https
+ * connections open a tunnel through the proxy without the request headers of the connection, so the proxy credentials
+ * can only be given by the default authenticator of the java runtime. The authenticator only answers requests of
+ * proxies it knows; it answers nothing for servers, so server authentication is left to the connections.
+ * Selectors are referenced weakly, so they are forgotten together with the transports using them.
+ * Note that recent java runtimes do not use Basic authentication for tunnels unless the
+ * jdk.http.auth.tunneling.disabledSchemes system property allows it.
+ *
+ * @since 1.3.6
+ */
+class ProxyAuthenticator
+    extends Authenticator
+{
+
+    /**
+     * Logger.
+     */
+    private static final Log LOG = LogFactory.getLog( ProxyAuthenticator.class );
+    /**
+     * Authenticator installed as default.
+     */
+    private static final ProxyAuthenticator INSTANCE = new ProxyAuthenticator();
+
+    /**
+     * Registered selectors.
+     */
+    private final Map<RepositoryProxySelector, Boolean> m_selectors;
+    /**
+     * True once installed as default authenticator.
+     */
+    private boolean m_installed;
+
+    /**
+     * Creates the authenticator.
+     */
+    private ProxyAuthenticator()
+    {
+        m_selectors = new WeakHashMap<RepositoryProxySelector, Boolean>();
+    }
+
+    /**
+     * Registers the proxies of a selector, installing the authenticator as default authenticator if not done yet.
+     *
+     * @param selector selector whose proxies require credentials; cannot be null
+     *
+     * @throws NullArgumentException if selector is null
+     */
+    static void register( final RepositoryProxySelector selector )
+    {
+        NullArgumentException.validateNotNull( selector, "Proxy selector" );
+        synchronized( INSTANCE )
+        {
+            INSTANCE.m_selectors.put( selector, Boolean.TRUE );
+            if( !INSTANCE.m_installed )
+            {
+                LOG.debug( "Installing proxy authenticator" );
+                Authenticator.setDefault( INSTANCE );
+                INSTANCE.m_installed = true;
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected PasswordAuthentication getPasswordAuthentication()
+    {
+        if( getRequestorType() != RequestorType.PROXY )
+        {
+            return null;
+        }
+        final List<RepositoryProxySelector> selectors;
+        synchronized( this )
+        {
+            selectors = new ArrayList<RepositoryProxySelector>( m_selectors.keySet() );
+        }
+        for( RepositoryProxySelector selector : selectors )
+        {
+            final PasswordAuthentication credentials =
+                selector.getProxyCredentials( getRequestingHost(), getRequestingPort() );
+            if( credentials != null )
+            {
+                return credentials;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.maven.commons;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.ops4j.lang.NullArgumentException;
+import org.ops4j.net.Base64Encoder;
+
+/**
+ * Proxies to be used to access repositories, by protocol, as parsed once out of the proxy settings (see
+ * {@link MavenConfiguration#getProxySettings(String...)}). The selector is immutable, so it can be used by concurrent
+ * connections: each connection is opened through the proxy selected for its url and sends the proxy credentials
+ * itself, instead of changing the proxy system properties of the java runtime. As https connections do not send
+ * request headers to the proxy, their credentials are given by a {@link ProxyAuthenticator}, that only answers proxy
+ * requests.
+ * Urls whose protocol has no proxy configured are not handled by the selector and are opened as the java runtime
+ * does by default.
+ *
+ * @since 1.3.6
+ */
+public class RepositoryProxySelector
+    extends ProxySelector
+{
+
+    /**
+     * Logger.
+     */
+    private static final Log LOG = LogFactory.getLog( RepositoryProxySelector.class );
+    /**
+     * Default proxy port.
+     */
+    private static final int DEFAULT_PORT = 80;
+    /**
+     * Separators of non proxy hosts. Java uses "|", maven also allows ",".
+     */
+    private static final String NON_PROXY_HOSTS_SEPARATORS = "[|,]";
+
+    /**
+     * Proxies by protocol.
+     */
+    private final Map<String, ProxyEntry> m_proxies;
+
+    /**
+     * Creates a new selector.
+     *
+     * @param proxySettings proxy settings by protocol, with the fields user, pass, host, port and nonProxyHosts;
+     *                      cannot be null
+     *
+     * @throws NullArgumentException if proxy settings is null
+     */
+    public RepositoryProxySelector( final Map<String, Map<String, String>> proxySettings )
+    {
+        NullArgumentException.validateNotNull( proxySettings, "Proxy settings" );
+        final Map<String, ProxyEntry> proxies = new HashMap<String, ProxyEntry>();
+        for( Map.Entry<String, Map<String, String>> entry : proxySettings.entrySet() )
+        {
+            if( entry.getValue() != null && entry.getValue().get( "host" ) != null )
+            {
+                proxies.put( entry.getKey().toLowerCase(), new ProxyEntry( entry.getValue() ) );
+            }
+        }
+        m_proxies = Collections.unmodifiableMap( proxies );
+    }
+
+    /**
+     * Returns the proxy to be used to open an url.
+     *
+     * @param url url to be opened; cannot be null
+     *
+     * @return proxy ({@link Proxy#NO_PROXY} for a non proxy host) or null if no proxy is configured for the protocol
+     *
+     * @throws NullArgumentException if url is null
+     */
+    public Proxy getProxy( final URL url )
+    {
+        NullArgumentException.validateNotNull( url, "URL" );
+        final ProxyEntry proxy = m_proxies.get( url.getProtocol().toLowerCase() );
+        if( proxy == null )
+        {
+            return null;
+        }
+        return proxy.isNonProxyHost( url.getHost() ) ? Proxy.NO_PROXY : proxy.getProxy();
+    }
+
+    /**
+     * Returns the value of the Proxy-Authorization header to be sent when opening an url.
+     *
+     * @param url url to be opened; cannot be null
+     *
+     * @return basic authorization or null if the url is not opened through a proxy that requires credentials
+     *
+     * @throws NullArgumentException if url is null
+     */
+    public String getProxyAuthorization( final URL url )
+    {
+        NullArgumentException.validateNotNull( url, "URL" );
+        final ProxyEntry proxy = m_proxies.get( url.getProtocol().toLowerCase() );
+        if( proxy == null || proxy.isNonProxyHost( url.getHost() ) )
+        {
+            return null;
+        }
+        return proxy.getAuthorization();
+    }
+
+    /**
+     * Returns the credentials of a proxy.
+     *
+     * @param host proxy host
+     * @param port proxy port
+     *
+     * @return credentials or null if the proxy is not one of the proxies of the selector or does not require
+     *         credentials
+     */
+    public PasswordAuthentication getProxyCredentials( final String host, final int port )
+    {
+        for( ProxyEntry proxy : m_proxies.values() )
+        {
+            if( proxy.getCredentials() != null && proxy.isProxy( host, port ) )
+            {
+                return proxy.getCredentials();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if any proxy requires credentials.
+     *
+     * @return true if at least one proxy requires credentials
+     */
+    public boolean hasCredentials()
+    {
+        for( ProxyEntry proxy : m_proxies.values() )
+        {
+            if( proxy.getCredentials() != null )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if any proxy is configured.
+     *
+     * @return true if there are no proxies
+     */
+    public boolean isEmpty()
+    {
+        return m_proxies.isEmpty();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Proxy> select( final URI uri )
+    {
+        NullArgumentException.validateNotNull( uri, "URI" );
+        final List<Proxy> proxies = new ArrayList<Proxy>( 1 );
+        final ProxyEntry proxy = uri.getScheme() == null ? null : m_proxies.get( uri.getScheme().toLowerCase() );
+        proxies.add( proxy == null || proxy.isNonProxyHost( uri.getHost() ) ? Proxy.NO_PROXY : proxy.getProxy() );
+        return proxies;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void connectFailed( final URI uri, final SocketAddress address, final IOException e )
+    {
+        LOG.debug( "Could not connect to proxy [" + address + "] for [" + uri + "]: " + e.getMessage() );
+    }
+
+    @Override
+    public String toString()
+    {
+        return new StringBuilder()
+            .append( "RepositoryProxySelector{" )
+            .append( m_proxies )
+            .append( "}" )
+            .toString();
+    }
+
+    /**
+     * Proxy of one protocol. Immutable.
+     */
+    private static class ProxyEntry
+    {
+
+        /**
+         * Proxy.
+         */
+        private final Proxy m_proxy;
+        /**
+         * Basic authorization. Null if the proxy does not require credentials.
+         */
+        private final String m_authorization;
+        /**
+         * Credentials. Null if the proxy does not require credentials.
+         */
+        private final PasswordAuthentication m_credentials;
+        /**
+         * Hosts that are accessed directly.
+         */
+        private final Pattern[] m_nonProxyHosts;
+
+        /**
+         * Creates a new proxy out of its settings.
+         *
+         * @param details proxy settings (user, pass, host, port and nonProxyHosts)
+         */
+        ProxyEntry( final Map<String, String> details )
+        {
+            int port = DEFAULT_PORT;
+            final String portSpec = details.get( "port" );
+            if( portSpec != null && portSpec.trim().length() > 0 )
+            {
+                try
+                {
+                    port = Integer.parseInt( portSpec.trim() );
+                }
+                catch( NumberFormatException e )
+                {
+                    LOG.warn( "Proxy port [" + portSpec + "] is not a number, using [" + DEFAULT_PORT + "]" );
+                }
+            }
+            m_proxy = new Proxy(
+                Proxy.Type.HTTP, InetSocketAddress.createUnresolved( details.get( "host" ).trim(), port )
+            );
+            final String user = details.get( "user" );
+            if( user != null && user.length() > 0 )
+            {
+                final String pass = details.get( "pass" ) == null ? "" : details.get( "pass" );
+                m_authorization = "Basic " + Base64Encoder.encode( user + ":" + pass );
+                m_credentials = new PasswordAuthentication( user, pass.toCharArray() );
+            }
+            else
+            {
+                m_authorization = null;
+                m_credentials = null;
+            }
+            final List<Pattern> nonProxyHosts = new ArrayList<Pattern>();
+            final String nonProxyHostsSpec = details.get( "nonProxyHosts" );
+            if( nonProxyHostsSpec != null )
+            {
+                for( String host : nonProxyHostsSpec.split( NON_PROXY_HOSTS_SEPARATORS ) )
+                {
+                    if( host.trim().length() > 0 )
+                    {
+                        nonProxyHosts.add( toPattern( host.trim() ) );
+                    }
+                }
+            }
+            m_nonProxyHosts = nonProxyHosts.toArray( new Pattern[nonProxyHosts.size()] );
+        }
+
+        /**
+         * Getter.
+         *
+         * @return proxy
+         */
+        Proxy getProxy()
+        {
+            return m_proxy;
+        }
+
+        /**
+         * Getter.
+         *
+         * @return basic authorization or null if the proxy does not require credentials
+         */
+        String getAuthorization()
+        {
+            return m_authorization;
+        }
+
+        /**
+         * Getter.
+         *
+         * @return credentials or null if the proxy does not require credentials
+         */
+        PasswordAuthentication getCredentials()
+        {
+            return m_credentials;
+        }
+
+        /**
+         * Checks if this is the proxy at a host and port.
+         *
+         * @param host host name
+         * @param port port
+         *
+         * @return true if the proxy host (ignoring case) and port match
+         */
+        boolean isProxy( final String host, final int port )
+        {
+            final InetSocketAddress address = (InetSocketAddress) m_proxy.address();
+            return address.getPort() == port && address.getHostName().equalsIgnoreCase( host );
+        }
+
+        /**
+         * Checks if a host should be accessed directly.
+         *
+         * @param host host name
+         *
+         * @return true if host matches one of the non proxy hosts
+         */
+        boolean isNonProxyHost( final String host )
+        {
+            if( host == null )
+            {
+                return false;
+            }
+            for( Pattern nonProxyHost : m_nonProxyHosts )
+            {
+                if( nonProxyHost.matcher( host ).matches() )
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Converts a non proxy host, that can contain "*" wildcards (as *.example.com), into a case insensitive
+         * pattern.
+         *
+         * @param host non proxy host
+         *
+         * @return pattern
+         */
+        private static Pattern toPattern( final String host )
+        {
+            final StringBuilder pattern = new StringBuilder();
+            final String[] parts = host.split( "\\*", -1 );
+            for( int i = 0; i < parts.length; i++ )
+            {
+                if( i > 0 )
+                {
+                    pattern.append( ".*" );
+                }
+                pattern.append( Pattern.quote( parts[ i ] ) );
+            }
+            return Pattern.compile( pattern.toString(), Pattern.CASE_INSENSITIVE );
+        }
+
+        @Override
+        public String toString()
+        {
+            return m_proxy + ( m_authorization == null ? "" : " (authenticated)" );
+        }
+
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.maven.commons;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * Access to the resources (artifacts, metadata, checksums) of maven repositories. All remote access of a handler goes
+ * through one transport, so implementations can pool connections, limit concurrency and apply timeouts in one place.
+ * Implementations must be thread safe.
+ *
+ * @since 1.3.6
+ */
+public interface Transport
+{
+
+    /**
+     * Opens a stream to a resource.
+     *
+     * @param url resource url
+     *
+     * @return stream to resource content; must be closed by the caller
+     *
+     * @throws java.io.FileNotFoundException if the resource does not exist
+     * @throws IOException                   if the resource cannot be read
+     */
+    InputStream openStream( URL url )
+        throws IOException;
+
+    /**
+     * Requests a resource with additional request headers (e.g. "Range" or "If-None-Match"). Any response that is not
+     * an error (e.g. 200, 206, 304) is returned, so the caller can act on the status and response headers.
+     *
+     * @param url     resource url
+     * @param headers additional request headers; can be null. Ignored for non http(s) urls
+     *
+     * @return response; must be closed by the caller
+     *
+     * @throws java.io.FileNotFoundException if the resource does not exist
+     * @throws IOException                   if the resource cannot be read or the server answers with an error
+     */
+    TransportResponse open( URL url, Map<String, String> headers )
+        throws IOException;
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.maven.commons;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLConnection;
+import org.ops4j.lang.NullArgumentException;
+
+/**
+ * A response of a {@link Transport}. Closing the response (or its stream) releases the underlying connection.
+ *
+ * @since 1.3.6
+ */
+public class TransportResponse
+{
+
+    /**
+     * Status code used for responses of non http(s) urls.
+     */
+    public static final int STATUS_OK = 200;
+
+    /**
+     * Connection that produced the response.
+     */
+    private final URLConnection m_connection;
+    /**
+     * Response status code.
+     */
+    private final int m_status;
+    /**
+     * Response content.
+     */
+    private final InputStream m_inputStream;
+
+    /**
+     * Creates a new response.
+     *
+     * @param connection  connection that produced the response; cannot be null
+     * @param status      response status code
+     * @param inputStream response content; cannot be null
+     *
+     * @throws NullArgumentException if connection or input stream is null
+     */
+    public TransportResponse( final URLConnection connection, final int status, final InputStream inputStream )
+    {
+        NullArgumentException.validateNotNull( connection, "Connection" );
+        NullArgumentException.validateNotNull( inputStream, "Input stream" );
+        m_connection = connection;
+        m_status = status;
+        m_inputStream = inputStream;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return response status code ({@link #STATUS_OK} for non http(s) urls)
+     */
+    public int getStatus()
+    {
+        return m_status;
+    }
+
+    /**
+     * Returns the value of a response header.
+     *
+     * @param name header name
+     *
+     * @return header value or null if not present
+     */
+    public String getHeader( final String name )
+    {
+        return m_connection.getHeaderField( name );
+    }
+
+    /**
+     * Returns the content length announced by the response.
+     *
+     * @return content length or -1 if not announced
+     */
+    public long getContentLength()
+    {
+        final String length = m_connection.getHeaderField( "Content-Length" );
+        if( length != null )
+        {
+            try
+            {
+                return Long.parseLong( length.trim() );
+            }
+            catch( NumberFormatException ignore )
+            {
+                // unknown
+            }
+        }
+        return m_connection.getContentLength();
+    }
+
+    /**
+     * Getter.
+     *
+     * @return response content; closing it closes the response
+     */
+    public InputStream getInputStream()
+    {
+        return m_inputStream;
+    }
+
+    /**
+     * Closes the response, releasing the underlying connection.
+     *
+     * @throws IOException re-thrown
+     */
+    public void close()
+        throws IOException
+    {
+        m_inputStream.close();
+    }
+
+}
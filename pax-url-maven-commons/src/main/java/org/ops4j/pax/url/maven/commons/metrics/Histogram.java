@@ -0,0 +1,201 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.maven.commons.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histogram with fixed buckets, from 1 ms to 1 minute. Recording is lock free.
+ *
+ * @since 1.3.6
+ */
+public class Histogram
+{
+
+    /**
+     * Upper bounds (inclusive) of buckets in milliseconds. Values above the last bound go into an overflow bucket.
+     */
+    private static final long[] BOUNDS = {
+        1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000, 60000
+    };
+
+    /**
+     * Number of values by bucket, the last one being the overflow bucket.
+     */
+    private final AtomicLongArray m_counts;
+    /**
+     * Number of values recorded.
+     */
+    private final AtomicLong m_count;
+    /**
+     * Sum of values recorded.
+     */
+    private final AtomicLong m_total;
+    /**
+     * Largest value recorded.
+     */
+    private final AtomicLong m_max;
+
+    /**
+     * Creates an empty histogram.
+     */
+    public Histogram()
+    {
+        m_counts = new AtomicLongArray( BOUNDS.length + 1 );
+        m_count = new AtomicLong();
+        m_total = new AtomicLong();
+        m_max = new AtomicLong();
+    }
+
+    /**
+     * Records a value.
+     *
+     * @param value value in milliseconds; negative values are recorded as zero
+     */
+    public void record( final long value )
+    {
+        final long recorded = Math.max( 0, value );
+        int bucket = 0;
+        while( bucket < BOUNDS.length && recorded > BOUNDS[ bucket ] )
+        {
+            bucket++;
+        }
+        m_counts.incrementAndGet( bucket );
+        m_count.incrementAndGet();
+        m_total.addAndGet( recorded );
+        long max = m_max.get();
+        while( recorded > max && !m_max.compareAndSet( max, recorded ) )
+        {
+            max = m_max.get();
+        }
+    }
+
+    /**
+     * Getter.
+     *
+     * @return number of values recorded
+     */
+    public long getCount()
+    {
+        return m_count.get();
+    }
+
+    /**
+     * Getter.
+     *
+     * @return sum of values recorded
+     */
+    public long getTotal()
+    {
+        return m_total.get();
+    }
+
+    /**
+     * Getter.
+     *
+     * @return largest value recorded
+     */
+    public long getMax()
+    {
+        return m_max.get();
+    }
+
+    /**
+     * Getter.
+     *
+     * @return mean of values recorded; zero if none was recorded
+     */
+    public double getMean()
+    {
+        final long count = m_count.get();
+        return count == 0 ? 0 : (double) m_total.get() / count;
+    }
+
+    /**
+     * Returns an upper estimate of a percentile: the upper bound of the bucket the percentile falls into, but never
+     * more than the largest value recorded.
+     *
+     * @param percentile percentile, between 1 and 100
+     *
+     * @return percentile estimate in milliseconds; zero if no value was recorded
+     */
+    public long getPercentile( final int percentile )
+    {
+        final long[] counts = getCounts();
+        long count = 0;
+        for( long bucketCount : counts )
+        {
+            count += bucketCount;
+        }
+        if( count == 0 )
+        {
+            return 0;
+        }
+        final long rank = Math.max( 1, (long) Math.ceil( count * percentile / 100.0 ) );
+        long cumulated = 0;
+        for( int bucket = 0; bucket < BOUNDS.length; bucket++ )
+        {
+            cumulated += counts[ bucket ];
+            if( cumulated >= rank )
+            {
+                return Math.min( BOUNDS[ bucket ], getMax() );
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Getter.
+     *
+     * @return upper bounds (inclusive) of buckets in milliseconds, without the overflow bucket
+     */
+    public long[] getBounds()
+    {
+        return BOUNDS.clone();
+    }
+
+    /**
+     * Getter.
+     *
+     * @return number of values by bucket, the last one being the overflow bucket
+     */
+    public long[] getCounts()
+    {
+        final long[] counts = new long[m_counts.length()];
+        for( int bucket = 0; bucket < counts.length; bucket++ )
+        {
+            counts[ bucket ] = m_counts.get( bucket );
+        }
+        return counts;
+    }
+
+    @Override
+    public String toString()
+    {
+        return new StringBuilder()
+            .append( "count=" ).append( getCount() )
+            .append( " mean=" ).append( Math.round( getMean() ) )
+            .append( " p50=" ).append( getPercentile( 50 ) )
+            .append( " p90=" ).append( getPercentile( 90 ) )
+            .append( " p99=" ).append( getPercentile( 99 ) )
+            .append( " max=" ).append( getMax() )
+            .toString();
+    }
+
+}
@@ -0,0 +1,392 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.maven.commons.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics of the requests made to one repository, including hedges sent to it and the state of its circuit breaker.
+ *
+ * @since 1.3.6
+ */
+public class RepositoryMetrics
+{
+
+    /**
+     * Repository url.
+     */
+    private final String m_repository;
+    /**
+     * Number of requests that found the resource.
+     */
+    private final AtomicLong m_hits;
+    /**
+     * Number of requests for resources the repository does not have.
+     */
+    private final AtomicLong m_notFound;
+    /**
+     * Number of requests that failed.
+     */
+    private final AtomicLong m_errors;
+    /**
+     * Number of requests to a remote repository that were not sent because the handler is offline.
+     */
+    private final AtomicLong m_blocked;
+    /**
+     * Number of bytes read.
+     */
+    private final AtomicLong m_bytes;
+    /**
+     * Latencies of metadata fetches.
+     */
+    private final Histogram m_metadataLatency;
+    /**
+     * Latencies of artifact downloads.
+     */
+    private final Histogram m_artifactLatency;
+    /**
+     * Number of hedges sent to the repository.
+     */
+    private final AtomicLong m_hedges;
+    /**
+     * Number of hedges sent to the repository that delivered the artifact first.
+     */
+    private final AtomicLong m_hedgesWon;
+    /**
+     * Current state of the circuit breaker.
+     */
+    private volatile ResolutionMetrics.CircuitState m_circuitState;
+    /**
+     * Number of times the circuit breaker opened.
+     */
+    private final AtomicLong m_circuitOpened;
+    /**
+     * Number of times the circuit breaker half opened to try a request.
+     */
+    private final AtomicLong m_circuitHalfOpened;
+    /**
+     * Number of times the circuit breaker closed again.
+     */
+    private final AtomicLong m_circuitClosed;
+
+    /**
+     * Creates empty metrics, with a closed circuit breaker.
+     *
+     * @param repository repository url
+     */
+    RepositoryMetrics( final String repository )
+    {
+        this( repository, ResolutionMetrics.CircuitState.CLOSED );
+    }
+
+    /**
+     * Creates empty metrics.
+     *
+     * @param repository   repository url
+     * @param circuitState current state of the circuit breaker
+     */
+    RepositoryMetrics( final String repository, final ResolutionMetrics.CircuitState circuitState )
+    {
+        m_repository = repository;
+        m_hits = new AtomicLong();
+        m_notFound = new AtomicLong();
+        m_errors = new AtomicLong();
+        m_blocked = new AtomicLong();
+        m_bytes = new AtomicLong();
+        m_metadataLatency = new Histogram();
+        m_artifactLatency = new Histogram();
+        m_hedges = new AtomicLong();
+        m_hedgesWon = new AtomicLong();
+        m_circuitState = circuitState;
+        m_circuitOpened = new AtomicLong();
+        m_circuitHalfOpened = new AtomicLong();
+        m_circuitClosed = new AtomicLong();
+    }
+
+    /**
+     * Records a request. Blocked requests are only counted, as they were never sent.
+     *
+     * @param request kind of request
+     * @param outcome outcome of request
+     * @param latency time in milliseconds until the repository answered or the request failed
+     */
+    void request( final ResolutionMetrics.Request request, final ResolutionMetrics.Outcome outcome, final long latency )
+    {
+        switch( outcome )
+        {
+            case BLOCKED:
+                m_blocked.incrementAndGet();
+                return;
+            case HIT:
+                m_hits.incrementAndGet();
+                break;
+            case NOT_FOUND:
+                m_notFound.incrementAndGet();
+                break;
+            default:
+                m_errors.incrementAndGet();
+        }
+        if( request == ResolutionMetrics.Request.METADATA )
+        {
+            m_metadataLatency.record( latency );
+        }
+        else
+        {
+            m_artifactLatency.record( latency );
+        }
+    }
+
+    /**
+     * Records bytes read.
+     *
+     * @param bytes number of bytes
+     */
+    void transferred( final long bytes )
+    {
+        m_bytes.addAndGet( bytes );
+    }
+
+    /**
+     * Records a hedge sent to the repository.
+     */
+    void hedged()
+    {
+        m_hedges.incrementAndGet();
+    }
+
+    /**
+     * Records a hedge sent to the repository that delivered the artifact first.
+     */
+    void hedgeWon()
+    {
+        m_hedgesWon.incrementAndGet();
+    }
+
+    /**
+     * Records a transition of the circuit breaker.
+     *
+     * @param state new state
+     */
+    void circuitChanged( final ResolutionMetrics.CircuitState state )
+    {
+        m_circuitState = state;
+        switch( state )
+        {
+            case OPEN:
+                m_circuitOpened.incrementAndGet();
+                break;
+            case HALF_OPEN:
+                m_circuitHalfOpened.incrementAndGet();
+                break;
+            default:
+                m_circuitClosed.incrementAndGet();
+        }
+    }
+
+    /**
+     * Getter.
+     *
+     * @return repository url
+     */
+    public String getRepository()
+    {
+        return m_repository;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return number of requests
+     */
+    public long getRequests()
+    {
+        return getHits() + getMisses();
+    }
+
+    /**
+     * Getter.
+     *
+     * @return number of requests that found the resource
+     */
+    public long getHits()
+    {
+        return m_hits.get();
+    }
+
+    /**
+     * Getter.
+     *
+     * @return number of requests that did not find the resource, because the repository does not have it or failed
+     */
+    public long getMisses()
+    {
+        return getNotFound() + getErrors();
+    }
+
+    /**
+     * Getter.
+     *
+     * @return number of requests for resources the repository does not have (404)
+     */
+    public long getNotFound()
+    {
+        return m_notFound.get();
+    }
+
+    /**
+     * Getter.
+     *
+     * @return number of requests that failed
+     */
+    public long getErrors()
+    {
+        return m_errors.get();
+    }
+
+    /**
+     * Getter.
+     *
+     * @return number of requests to a remote repository that were not sent because the handler is offline
+     */
+    public long getBlocked()
+    {
+        return m_blocked.get();
+    }
+
+    /**
+     * Getter.
+     *
+     * @return number of bytes read
+     */
+    public long getBytesTransferred()
+    {
+        return m_bytes.get();
+    }
+
+    /**
+     * Getter.
+     *
+     * @return latencies of metadata fetches
+     */
+    public Histogram getMetadataLatency()
+    {
+        return m_metadataLatency;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return latencies of artifact downloads
+     */
+    public Histogram getArtifactLatency()
+    {
+        return m_artifactLatency;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return number of hedges sent to the repository
+     */
+    public long getHedges()
+    {
+        return m_hedges.get();
+    }
+
+    /**
+     * Getter.
+     *
+     * @return number of hedges sent to the repository that delivered the artifact first
+     */
+    public long getHedgesWon()
+    {
+        return m_hedgesWon.get();
+    }
+
+    /**
+     * Getter.
+     *
+     * @return current state of the circuit breaker
+     */
+    public ResolutionMetrics.CircuitState getCircuitState()
+    {
+        return m_circuitState;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return number of times the circuit breaker opened
+     */
+    public long getCircuitOpened()
+    {
+        return m_circuitOpened.get();
+    }
+
+    /**
+     * Getter.
+     *
+     * @return number of times the circuit breaker half opened to try a request
+     */
+    public long getCircuitHalfOpened()
+    {
+        return m_circuitHalfOpened.get();
+    }
+
+    /**
+     * Getter.
+     *
+     * @return number of times the circuit breaker closed again
+     */
+    public long getCircuitClosed()
+    {
+        return m_circuitClosed.get();
+    }
+
+    /**
+     * Getter.
+     *
+     * @return number of transitions of the circuit breaker
+     */
+    public long getCircuitTransitions()
+    {
+        return getCircuitOpened() + getCircuitHalfOpened() + getCircuitClosed();
+    }
+
+    @Override
+    public String toString()
+    {
+        return new StringBuilder()
+            .append( m_repository )
+            .append( " requests=" ).append( getRequests() )
+            .append( " hits=" ).append( getHits() )
+            .append( " misses=" ).append( getMisses() )
+            .append( " notFound=" ).append( getNotFound() )
+            .append( " errors=" ).append( getErrors() )
+            .append( " blocked=" ).append( getBlocked() )
+            .append( " bytes=" ).append( getBytesTransferred() )
+            .append( " hedges=" ).append( getHedges() )
+            .append( " hedgesWon=" ).append( getHedgesWon() )
+            .append( " circuit=" ).append( m_circuitState )
+            .append( " circuitTransitions=" ).append( getCircuitTransitions() )
+            .append( " metadata[" ).append( m_metadataLatency ).append( "]" )
+            .append( " artifacts[" ).append( m_artifactLatency ).append( "]" )
+            .toString();
+    }
+
+}
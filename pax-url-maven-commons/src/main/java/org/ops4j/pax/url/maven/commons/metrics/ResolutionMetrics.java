@@ -0,0 +1,210 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.maven.commons.metrics;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Metrics of a Maven based protocol handler: requests made to repositories, bytes transferred, hedged downloads,
+ * circuit breaker states and time taken to resolve urls. Protocol handlers report into it and register it as a service
+ * (and as a JMX MBean), with the url.handler.protocol service property set to the handled protocol.
+ *
+ * @since 1.3.6
+ */
+public interface ResolutionMetrics
+{
+
+    /**
+     * Kinds of requests made to repositories.
+     */
+    enum Request
+    {
+        /**
+         * Fetch of a maven-metadata.xml.
+         */
+        METADATA,
+        /**
+         * Download of an artifact.
+         */
+        ARTIFACT
+    }
+
+    /**
+     * Outcomes of requests made to repositories.
+     */
+    enum Outcome
+    {
+        /**
+         * Repository had the resource (or it was not modified).
+         */
+        HIT,
+        /**
+         * Repository does not have the resource.
+         */
+        NOT_FOUND,
+        /**
+         * Repository could not be accessed.
+         */
+        ERROR,
+        /**
+         * Request to a remote repository was not sent because the handler is offline.
+         */
+        BLOCKED
+    }
+
+    /**
+     * States of the circuit breaker of a repository.
+     */
+    enum CircuitState
+    {
+        /**
+         * Requests are sent to the repository.
+         */
+        CLOSED,
+        /**
+         * Repository failed repeatedly, requests are not sent to it.
+         */
+        OPEN,
+        /**
+         * A trial request is sent to the repository to find out if it recovered.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * Records a request made to a repository.
+     *
+     * @param repository repository url
+     * @param request    kind of request
+     * @param outcome    outcome of request
+     * @param latency    time in milliseconds until the repository answered or the request failed
+     */
+    void request( String repository, Request request, Outcome outcome, long latency );
+
+    /**
+     * Records bytes read from a repository.
+     *
+     * @param repository repository url
+     * @param bytes      number of bytes
+     */
+    void transferred( String repository, long bytes );
+
+    /**
+     * Records the resolution of an url, from the connection being asked for its content till the content is available
+     * or the resolution failed.
+     *
+     * @param url      resolved url
+     * @param time     resolution time in milliseconds
+     * @param resolved true if the url could be resolved
+     */
+    void resolved( String url, long time, boolean resolved );
+
+    /**
+     * Records that a download started waiting for a free connection (see
+     * {@link org.ops4j.pax.url.maven.commons.DownloadScheduler}).
+     */
+    void queued();
+
+    /**
+     * Records that a download stopped waiting for a free connection, because it got one or because it gave up.
+     *
+     * @param waitTime time in milliseconds the download waited
+     */
+    void dequeued( long waitTime );
+
+    /**
+     * Records a hedge: a download sent to a repository because the download from a preferred repository did not
+     * start in time.
+     *
+     * @param repository repository url the hedge was sent to
+     */
+    void hedged( String repository );
+
+    /**
+     * Records that a hedge delivered the artifact before the download it was hedging.
+     *
+     * @param repository repository url the hedge was sent to
+     */
+    void hedgeWon( String repository );
+
+    /**
+     * Records a transition of the circuit breaker of a repository.
+     *
+     * @param repository repository url
+     * @param state      new state
+     */
+    void circuitChanged( String repository, CircuitState state );
+
+    /**
+     * Getter.
+     *
+     * @return metrics of each repository requests were made to
+     */
+    Collection<RepositoryMetrics> getRepositoryMetrics();
+
+    /**
+     * Returns the metrics of a repository.
+     *
+     * @param repository repository url
+     *
+     * @return repository metrics or null if no request was made to the repository
+     */
+    RepositoryMetrics getRepositoryMetrics( String repository );
+
+    /**
+     * Getter.
+     *
+     * @return resolution times of all urls
+     */
+    Histogram getResolutionTimes();
+
+    /**
+     * Getter.
+     *
+     * @return resolution times by url, for the most recently resolved urls
+     */
+    Map<String, Histogram> getResolutionTimesByUrl();
+
+    /**
+     * Getter.
+     *
+     * @return number of urls that could not be resolved
+     */
+    long getResolutionFailures();
+
+    /**
+     * Getter.
+     *
+     * @return number of downloads currently waiting for a free connection
+     */
+    long getQueueDepth();
+
+    /**
+     * Getter.
+     *
+     * @return times downloads waited for a free connection
+     */
+    Histogram getQueueWaitTimes();
+
+    /**
+     * Clears all metrics.
+     */
+    void reset();
+
+}
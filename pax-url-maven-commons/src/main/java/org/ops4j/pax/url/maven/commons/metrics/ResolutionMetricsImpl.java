@@ -0,0 +1,577 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.maven.commons.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.ops4j.lang.NullArgumentException;
+
+/**
+ * Default implementation of {@link ResolutionMetrics}, also exposed through JMX.
+ * Repository and url keys are recorded without user info, as urls can contain credentials (user:password@host) that
+ * should not be readable by JMX clients.
+ *
+ * @since 1.3.6
+ */
+public class ResolutionMetricsImpl
+    implements ResolutionMetrics, ResolutionMetricsMBean
+{
+
+    /**
+     * Logger.
+     */
+    private static final Log LOG = LogFactory.getLog( ResolutionMetricsImpl.class );
+    /**
+     * JMX domain of the MBeans.
+     */
+    public static final String JMX_DOMAIN = "org.ops4j.pax.url";
+    /**
+     * Number of urls whose resolution times are kept.
+     */
+    private static final int MAX_URLS = 256;
+    /**
+     * User info of the urls (as well as of urls nested in mvn: urls): "user:password@" following "//".
+     */
+    private static final Pattern USER_INFO = Pattern.compile( "(?<=//)[^/@\\s]+@" );
+
+    /**
+     * Metrics by repository.
+     */
+    private final ConcurrentMap<String, RepositoryMetrics> m_repositories;
+    /**
+     * Resolution times of most recently resolved urls, in access order.
+     */
+    private final Map<String, Histogram> m_urls;
+    /**
+     * Resolution times of all urls.
+     */
+    private volatile Histogram m_resolutionTimes;
+    /**
+     * Number of urls that could not be resolved.
+     */
+    private final AtomicLong m_resolutionFailures;
+    /**
+     * Number of downloads waiting for a free connection.
+     */
+    private final AtomicLong m_queueDepth;
+    /**
+     * Times downloads waited for a free connection.
+     */
+    private volatile Histogram m_queueWaitTimes;
+    /**
+     * Name under which the MBean is registered. Null if not registered.
+     */
+    private ObjectName m_objectName;
+
+    /**
+     * Creates empty metrics.
+     */
+    public ResolutionMetricsImpl()
+    {
+        m_repositories = new ConcurrentHashMap<String, RepositoryMetrics>();
+        m_urls = new LinkedHashMap<String, Histogram>( 16, 0.75f, true )
+        {
+            @Override
+            protected boolean removeEldestEntry( final Map.Entry<String, Histogram> eldest )
+            {
+                return size() > MAX_URLS;
+            }
+        };
+        m_resolutionTimes = new Histogram();
+        m_resolutionFailures = new AtomicLong();
+        m_queueDepth = new AtomicLong();
+        m_queueWaitTimes = new Histogram();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void request( final String repository, final Request request, final Outcome outcome, final long latency )
+    {
+        NullArgumentException.validateNotNull( request, "Request" );
+        NullArgumentException.validateNotNull( outcome, "Outcome" );
+        repository( repository ).request( request, outcome, latency );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void transferred( final String repository, final long bytes )
+    {
+        repository( repository ).transferred( bytes );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void resolved( final String url, final long time, final boolean resolved )
+    {
+        NullArgumentException.validateNotNull( url, "URL" );
+        final String key = withoutUserInfo( url );
+        m_resolutionTimes.record( time );
+        if( !resolved )
+        {
+            m_resolutionFailures.incrementAndGet();
+        }
+        Histogram histogram;
+        synchronized( m_urls )
+        {
+            histogram = m_urls.get( key );
+            if( histogram == null )
+            {
+                histogram = new Histogram();
+                m_urls.put( key, histogram );
+            }
+        }
+        histogram.record( time );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void queued()
+    {
+        m_queueDepth.incrementAndGet();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void dequeued( final long waitTime )
+    {
+        m_queueDepth.decrementAndGet();
+        m_queueWaitTimes.record( waitTime );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void hedged( final String repository )
+    {
+        repository( repository ).hedged();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void hedgeWon( final String repository )
+    {
+        repository( repository ).hedgeWon();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void circuitChanged( final String repository, final CircuitState state )
+    {
+        NullArgumentException.validateNotNull( state, "State" );
+        repository( repository ).circuitChanged( state );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Collection<RepositoryMetrics> getRepositoryMetrics()
+    {
+        return new ArrayList<RepositoryMetrics>( m_repositories.values() );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public RepositoryMetrics getRepositoryMetrics( final String repository )
+    {
+        return repository == null ? null : m_repositories.get( withoutUserInfo( repository ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Histogram getResolutionTimes()
+    {
+        return m_resolutionTimes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Map<String, Histogram> getResolutionTimesByUrl()
+    {
+        synchronized( m_urls )
+        {
+            return new LinkedHashMap<String, Histogram>( m_urls );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getResolutionFailures()
+    {
+        return m_resolutionFailures.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getQueueDepth()
+    {
+        return m_queueDepth.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Histogram getQueueWaitTimes()
+    {
+        return m_queueWaitTimes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void reset()
+    {
+        // circuit states are the current state, not accumulated counts, so they are kept
+        for( RepositoryMetrics metrics : m_repositories.values() )
+        {
+            if( metrics.getCircuitState() == CircuitState.CLOSED )
+            {
+                m_repositories.remove( metrics.getRepository(), metrics );
+            }
+            else
+            {
+                m_repositories.replace(
+                    metrics.getRepository(), metrics,
+                    new RepositoryMetrics( metrics.getRepository(), metrics.getCircuitState() )
+                );
+            }
+        }
+        synchronized( m_urls )
+        {
+            m_urls.clear();
+        }
+        m_resolutionTimes = new Histogram();
+        m_resolutionFailures.set( 0 );
+        // the queue depth is the current state, not an accumulated count, so it is kept
+        m_queueWaitTimes = new Histogram();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getRequests()
+    {
+        long requests = 0;
+        for( RepositoryMetrics metrics : m_repositories.values() )
+        {
+            requests += metrics.getRequests();
+        }
+        return requests;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getHits()
+    {
+        long hits = 0;
+        for( RepositoryMetrics metrics : m_repositories.values() )
+        {
+            hits += metrics.getHits();
+        }
+        return hits;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getMisses()
+    {
+        return getNotFound() + getErrors();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getNotFound()
+    {
+        long notFound = 0;
+        for( RepositoryMetrics metrics : m_repositories.values() )
+        {
+            notFound += metrics.getNotFound();
+        }
+        return notFound;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getErrors()
+    {
+        long errors = 0;
+        for( RepositoryMetrics metrics : m_repositories.values() )
+        {
+            errors += metrics.getErrors();
+        }
+        return errors;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getBlocked()
+    {
+        long blocked = 0;
+        for( RepositoryMetrics metrics : m_repositories.values() )
+        {
+            blocked += metrics.getBlocked();
+        }
+        return blocked;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getBytesTransferred()
+    {
+        long bytes = 0;
+        for( RepositoryMetrics metrics : m_repositories.values() )
+        {
+            bytes += metrics.getBytesTransferred();
+        }
+        return bytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getHedges()
+    {
+        long hedges = 0;
+        for( RepositoryMetrics metrics : m_repositories.values() )
+        {
+            hedges += metrics.getHedges();
+        }
+        return hedges;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getHedgesWon()
+    {
+        long hedgesWon = 0;
+        for( RepositoryMetrics metrics : m_repositories.values() )
+        {
+            hedgesWon += metrics.getHedgesWon();
+        }
+        return hedgesWon;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getOpenCircuits()
+    {
+        long open = 0;
+        for( RepositoryMetrics metrics : m_repositories.values() )
+        {
+            if( metrics.getCircuitState() != CircuitState.CLOSED )
+            {
+                open++;
+            }
+        }
+        return open;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getCircuitTransitions()
+    {
+        long transitions = 0;
+        for( RepositoryMetrics metrics : m_repositories.values() )
+        {
+            transitions += metrics.getCircuitTransitions();
+        }
+        return transitions;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getResolutions()
+    {
+        return m_resolutionTimes.getCount();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getResolutionTime()
+    {
+        return m_resolutionTimes.toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getQueueWaitTime()
+    {
+        return m_queueWaitTimes.toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String[] getRepositories()
+    {
+        final List<String> repositories = new ArrayList<String>();
+        for( RepositoryMetrics metrics : m_repositories.values() )
+        {
+            repositories.add( metrics.toString() );
+        }
+        return repositories.toArray( new String[repositories.size()] );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String[] getUrls()
+    {
+        final List<String> urls = new ArrayList<String>();
+        for( Map.Entry<String, Histogram> entry : getResolutionTimesByUrl().entrySet() )
+        {
+            urls.add( entry.getKey() + " " + entry.getValue() );
+        }
+        return urls.toArray( new String[urls.size()] );
+    }
+
+    /**
+     * Registers the metrics as an MBean of the platform MBean server, named
+     * org.ops4j.pax.url:type=ResolutionMetrics,protocol=&lt;protocol&gt;. Failures are logged, as metrics are not
+     * essential to the protocol handler.
+     *
+     * @param protocol handled protocol; cannot be null
+     */
+    public synchronized void registerMBean( final String protocol )
+    {
+        NullArgumentException.validateNotEmpty( protocol, "Protocol" );
+        unregisterMBean();
+        try
+        {
+            final ObjectName objectName = new ObjectName(
+                JMX_DOMAIN + ":type=ResolutionMetrics,protocol=" + ObjectName.quote( protocol )
+            );
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                new StandardMBean( this, ResolutionMetricsMBean.class ), objectName
+            );
+            m_objectName = objectName;
+        }
+        catch( JMException e )
+        {
+            LOG.warn( "Could not register resolution metrics of [" + protocol + "] with JMX", e );
+        }
+    }
+
+    /**
+     * Unregisters the MBean registered by {@link #registerMBean(String)}, if any.
+     */
+    public synchronized void unregisterMBean()
+    {
+        if( m_objectName == null )
+        {
+            return;
+        }
+        try
+        {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if( server.isRegistered( m_objectName ) )
+            {
+                server.unregisterMBean( m_objectName );
+            }
+        }
+        catch( JMException e )
+        {
+            LOG.warn( "Could not unregister resolution metrics [" + m_objectName + "] from JMX", e );
+        }
+        m_objectName = null;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return name under which the MBean is registered or null if not registered
+     */
+    public synchronized ObjectName getObjectName()
+    {
+        return m_objectName;
+    }
+
+    /**
+     * Returns the metrics of a repository, creating them if needed.
+     *
+     * @param repository repository url; cannot be null
+     *
+     * @return repository metrics
+     */
+    private RepositoryMetrics repository( final String repository )
+    {
+        NullArgumentException.validateNotNull( repository, "Repository" );
+        final String key = withoutUserInfo( repository );
+        RepositoryMetrics metrics = m_repositories.get( key );
+        if( metrics == null )
+        {
+            metrics = new RepositoryMetrics( key );
+            final RepositoryMetrics existing = m_repositories.putIfAbsent( key, metrics );
+            if( existing != null )
+            {
+                metrics = existing;
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Removes the user info of an url and of the urls nested in it.
+     *
+     * @param url url
+     *
+     * @return url without user info
+     */
+    static String withoutUserInfo( final String url )
+    {
+        return url.indexOf( '@' ) < 0 ? url : USER_INFO.matcher( url ).replaceAll( "" );
+    }
+
+}
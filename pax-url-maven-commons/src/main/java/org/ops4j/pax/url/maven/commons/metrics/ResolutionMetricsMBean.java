@@ -0,0 +1,160 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.maven.commons.metrics;
+
+/**
+ * JMX view of {@link ResolutionMetrics}. Totals are summed over all repositories; histograms are rendered as text.
+ *
+ * @since 1.3.6
+ */
+public interface ResolutionMetricsMBean
+{
+
+    /**
+     * Getter.
+     *
+     * @return number of requests made to repositories
+     */
+    long getRequests();
+
+    /**
+     * Getter.
+     *
+     * @return number of requests that found the resource
+     */
+    long getHits();
+
+    /**
+     * Getter.
+     *
+     * @return number of requests that did not find the resource
+     */
+    long getMisses();
+
+    /**
+     * Getter.
+     *
+     * @return number of requests for resources the repository does not have (404)
+     */
+    long getNotFound();
+
+    /**
+     * Getter.
+     *
+     * @return number of requests that failed
+     */
+    long getErrors();
+
+    /**
+     * Getter.
+     *
+     * @return number of requests to remote repositories that were not sent because the handler is offline
+     */
+    long getBlocked();
+
+    /**
+     * Getter.
+     *
+     * @return number of bytes read from repositories
+     */
+    long getBytesTransferred();
+
+    /**
+     * Getter.
+     *
+     * @return number of hedges: downloads sent to a repository because the download from a preferred repository did
+     *         not start in time
+     */
+    long getHedges();
+
+    /**
+     * Getter.
+     *
+     * @return number of hedges that delivered the artifact before the download they were hedging
+     */
+    long getHedgesWon();
+
+    /**
+     * Getter.
+     *
+     * @return number of repositories whose circuit breaker is open or half open
+     */
+    long getOpenCircuits();
+
+    /**
+     * Getter.
+     *
+     * @return number of transitions of the circuit breakers of all repositories
+     */
+    long getCircuitTransitions();
+
+    /**
+     * Getter.
+     *
+     * @return number of urls resolved, successfully or not
+     */
+    long getResolutions();
+
+    /**
+     * Getter.
+     *
+     * @return number of urls that could not be resolved
+     */
+    long getResolutionFailures();
+
+    /**
+     * Getter.
+     *
+     * @return resolution times of all urls
+     */
+    String getResolutionTime();
+
+    /**
+     * Getter.
+     *
+     * @return number of downloads currently waiting for a free connection
+     */
+    long getQueueDepth();
+
+    /**
+     * Getter.
+     *
+     * @return times downloads waited for a free connection
+     */
+    String getQueueWaitTime();
+
+    /**
+     * Getter.
+     *
+     * @return metrics of each repository, one line per repository
+     */
+    String[] getRepositories();
+
+    /**
+     * Getter.
+     *
+     * @return resolution times of the most recently resolved urls, one line per url
+     */
+    String[] getUrls();
+
+    /**
+     * Clears all metrics.
+     */
+    void reset();
+
+}
@@ -494,4 +494,114 @@ public class ConfigurationImplTest
         verify( propertyResolver );
     }
 
+    @Test
+    public void getProbeThreads()
+    {
+        PropertyResolver propertyResolver = createMock( PropertyResolver.class );
+        expect( propertyResolver.get( "test.pid.probeThreads" ) ).andReturn( "4" );
+        replay( propertyResolver );
+        MavenConfiguration config = new MavenConfigurationImpl( propertyResolver, PID );
+        assertEquals( "Probe threads", Integer.valueOf( 4 ), config.getProbeThreads() );
+        verify( propertyResolver );
+    }
+
+    @Test
+    public void getInvalidProbeTimeout()
+    {
+        PropertyResolver propertyResolver = createMock( PropertyResolver.class );
+        expect( propertyResolver.get( "test.pid.probeTimeout" ) ).andReturn( "soon" );
+        replay( propertyResolver );
+        MavenConfiguration config = new MavenConfigurationImpl( propertyResolver, PID );
+        assertEquals( "Probe timeout", Integer.valueOf( 30000 ), config.getProbeTimeout() );
+        verify( propertyResolver );
+    }
+
+    @Test
+    public void getMetadataUpdatePolicy()
+    {
+        PropertyResolver propertyResolver = createMock( PropertyResolver.class );
+        expect( propertyResolver.get( "test.pid.metadataUpdatePolicy" ) ).andReturn( " Interval:30 " );
+        replay( propertyResolver );
+        MavenConfiguration config = new MavenConfigurationImpl( propertyResolver, PID );
+        assertEquals( "Update policy", "interval:30", config.getMetadataUpdatePolicy() );
+        verify( propertyResolver );
+    }
+
+    @Test
+    public void getInvalidMetadataUpdatePolicy()
+    {
+        PropertyResolver propertyResolver = createMock( PropertyResolver.class );
+        expect( propertyResolver.get( "test.pid.metadataUpdatePolicy" ) ).andReturn( "interval:soon" );
+        replay( propertyResolver );
+        MavenConfiguration config = new MavenConfigurationImpl( propertyResolver, PID );
+        assertEquals( "Update policy", "always", config.getMetadataUpdatePolicy() );
+        verify( propertyResolver );
+    }
+
+    @Test
+    public void getDefaultLocalRepositoryIndex()
+    {
+        PropertyResolver propertyResolver = createMock( PropertyResolver.class );
+        expect( propertyResolver.get( "test.pid.localRepositoryIndex" ) ).andReturn( null );
+        replay( propertyResolver );
+        MavenConfiguration config = new MavenConfigurationImpl( propertyResolver, PID );
+        assertEquals( "Local repository index", Boolean.TRUE, config.getLocalRepositoryIndex() );
+        verify( propertyResolver );
+    }
+
+    @Test
+    public void getLocalRepositoryIndex()
+    {
+        PropertyResolver propertyResolver = createMock( PropertyResolver.class );
+        expect( propertyResolver.get( "test.pid.localRepositoryIndex" ) ).andReturn( "false" );
+        replay( propertyResolver );
+        MavenConfiguration config = new MavenConfigurationImpl( propertyResolver, PID );
+        assertEquals( "Local repository index", Boolean.FALSE, config.getLocalRepositoryIndex() );
+        verify( propertyResolver );
+    }
+
+    @Test
+    public void getOffline()
+    {
+        PropertyResolver propertyResolver = createMock( PropertyResolver.class );
+        expect( propertyResolver.get( "test.pid.offline" ) ).andReturn( "true" );
+        replay( propertyResolver );
+        MavenConfiguration config = new MavenConfigurationImpl( propertyResolver, PID );
+        assertEquals( "Offline", Boolean.TRUE, config.getOffline() );
+        verify( propertyResolver );
+    }
+
+    @Test
+    public void getDefaultMaxConnections()
+    {
+        PropertyResolver propertyResolver = createMock( PropertyResolver.class );
+        expect( propertyResolver.get( "test.pid.maxConnections" ) ).andReturn( null );
+        replay( propertyResolver );
+        MavenConfiguration config = new MavenConfigurationImpl( propertyResolver, PID );
+        assertEquals( "Max connections", Integer.valueOf( 0 ), config.getMaxConnections() );
+        verify( propertyResolver );
+    }
+
+    @Test
+    public void getMaxBytesPerSecond()
+    {
+        PropertyResolver propertyResolver = createMock( PropertyResolver.class );
+        expect( propertyResolver.get( "test.pid.maxBytesPerSecond" ) ).andReturn( "1048576" );
+        replay( propertyResolver );
+        MavenConfiguration config = new MavenConfigurationImpl( propertyResolver, PID );
+        assertEquals( "Max bytes per second", Integer.valueOf( 1048576 ), config.getMaxBytesPerSecond() );
+        verify( propertyResolver );
+    }
+
+    @Test
+    public void getMaxBytesPerSecondPerHost()
+    {
+        PropertyResolver propertyResolver = createMock( PropertyResolver.class );
+        expect( propertyResolver.get( "test.pid.maxBytesPerSecondPerHost" ) ).andReturn( "65536" );
+        replay( propertyResolver );
+        MavenConfiguration config = new MavenConfigurationImpl( propertyResolver, PID );
+        assertEquals( "Max bytes per second per host", Integer.valueOf( 65536 ), config.getMaxBytesPerSecondPerHost() );
+        verify( propertyResolver );
+    }
+
 }
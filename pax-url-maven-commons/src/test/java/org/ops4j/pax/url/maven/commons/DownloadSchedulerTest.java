@@ -0,0 +1,147 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.maven.commons;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetricsImpl;
+
+/**
+ * Unit test for {@link DownloadScheduler}.
+ *
+ * @since 1.3.6
+ */
+public class DownloadSchedulerTest
+{
+
+    /**
+     * Tests that downloads from a host wait for the connections of that host only.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void connectionsPerHost()
+        throws IOException
+    {
+        final DownloadScheduler scheduler = new DownloadScheduler( 1, 50 );
+        final DownloadScheduler.Download download = scheduler.schedule( new URL( "http://host1/a.jar" ) );
+        scheduler.schedule( new URL( "http://host2/a.jar" ) ).release();
+        try
+        {
+            scheduler.schedule( new URL( "http://host1/b.jar" ) );
+            fail( "Expected to time out" );
+        }
+        catch( ConnectionUnavailableException expected )
+        {
+            assertEquals( "Host", "http://host1:-1", expected.getHost() );
+        }
+        download.release();
+        download.release();
+        scheduler.schedule( new URL( "http://host1/b.jar" ) ).release();
+    }
+
+    /**
+     * Tests that downloads from all hosts wait for the overall connections, and that waiting is reported.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void connections()
+        throws IOException
+    {
+        final ResolutionMetricsImpl metrics = new ResolutionMetricsImpl();
+        final DownloadScheduler scheduler = new DownloadScheduler( 1, 0, 0, 0, 50, metrics );
+        final DownloadScheduler.Download download = scheduler.schedule( new URL( "http://host1/a.jar" ) );
+        try
+        {
+            scheduler.schedule( new URL( "http://host2/a.jar" ) );
+            fail( "Expected to time out" );
+        }
+        catch( ConnectionUnavailableException expected )
+        {
+            // expected
+        }
+        download.release();
+        scheduler.schedule( new URL( "http://host2/a.jar" ) ).release();
+        assertEquals( "Queue depth", 0, metrics.getQueueDepth() );
+        assertEquals( "Queued downloads", 3, metrics.getQueueWaitTimes().getCount() );
+        assertTrue( "Wait time", metrics.getQueueWaitTimes().getMax() >= 50 );
+    }
+
+    /**
+     * Tests that the connection is released once the stream is read till the end or closed.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void releasedByStream()
+        throws IOException
+    {
+        final DownloadScheduler scheduler = new DownloadScheduler( 1, 50 );
+        final URL url = new URL( "http://host/a.jar" );
+        InputStream in = scheduler.schedule( url ).wrap( new ByteArrayInputStream( new byte[10] ) );
+        assertEquals( "Read", 10, in.read( new byte[20] ) );
+        assertEquals( "End", -1, in.read() );
+        in = scheduler.schedule( url ).wrap( new ByteArrayInputStream( new byte[10] ) );
+        in.close();
+        scheduler.schedule( url ).release();
+    }
+
+    /**
+     * Tests that a download without limits is not wrapped.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void unlimited()
+        throws IOException
+    {
+        final DownloadScheduler scheduler = new DownloadScheduler( 0, 50 );
+        final InputStream in = new ByteArrayInputStream( new byte[10] );
+        assertSame( "Stream", in, scheduler.schedule( new URL( "http://host/a.jar" ) ).wrap( in ) );
+    }
+
+    /**
+     * Tests that reads are spread in time to keep the download rate.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void bytesPerSecond()
+        throws IOException
+    {
+        final DownloadScheduler scheduler = new DownloadScheduler(
+            0, 0, 0, 10000, 50, new ResolutionMetricsImpl()
+        );
+        final InputStream in = scheduler.schedule( new URL( "http://host/a.jar" ) ).wrap(
+            new ByteArrayInputStream( new byte[2000] )
+        );
+        final long start = System.currentTimeMillis();
+        final byte[] buffer = new byte[100];
+        while( in.read( buffer ) != -1 )
+        {
+            // consume
+        }
+        assertTrue( "Throttled", System.currentTimeMillis() - start >= 150 );
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.maven.commons;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link ParseCache}.
+ *
+ * @since 1.3.6
+ */
+public class ParseCacheTest
+{
+
+    /**
+     * Tests that the first value cached for a string is kept.
+     */
+    @Test
+    public void firstValueKept()
+    {
+        final ParseCache<Object> cache = new ParseCache<Object>( 10 );
+        final Object first = new Object();
+        assertNull( "Not parsed", cache.get( "path" ) );
+        assertSame( "Cached", first, cache.put( "path", first ) );
+        assertSame( "Already cached", first, cache.put( "path", new Object() ) );
+        assertSame( "Lookup", first, cache.get( "path" ) );
+    }
+
+    /**
+     * Tests that the cache does not grow over its maximum size and keeps the value just added.
+     */
+    @Test
+    public void bounded()
+    {
+        final ParseCache<Integer> cache = new ParseCache<Integer>( 3 );
+        for( int i = 0; i < 10; i++ )
+        {
+            cache.put( "path" + i, i );
+            assertEquals( "Added value", Integer.valueOf( i ), cache.get( "path" + i ) );
+        }
+        assertEquals( "Size", 3, cache.size() );
+    }
+
+    /**
+     * Tests that a cache of size zero does not cache anything.
+     */
+    @Test
+    public void disabled()
+    {
+        final ParseCache<Object> cache = new ParseCache<Object>( 0 );
+        final Object value = new Object();
+        assertSame( "Value", value, cache.put( "path", value ) );
+        assertNull( "Not cached", cache.get( "path" ) );
+    }
+
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.maven.commons;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Unit test for {@link PooledTransport} against a local http server.
+ *
+ * @since 1.3.6
+ */
+public class PooledTransportTest
+{
+
+    private static final byte[] CONTENT = "content".getBytes();
+
+    private HttpServer m_server;
+
+    @Before
+    public void setUp()
+        throws IOException
+    {
+        m_server = HttpServer.create( new InetSocketAddress( "127.0.0.1", 0 ), 0 );
+        m_server.createContext( "/", new HttpHandler()
+        {
+            public void handle( final HttpExchange exchange )
+                throws IOException
+            {
+                try
+                {
+                    if( exchange.getRequestURI().getPath().endsWith( "missing" ) )
+                    {
+                        final byte[] error = "not found".getBytes();
+                        exchange.sendResponseHeaders( 404, error.length );
+                        exchange.getResponseBody().write( error );
+                        return;
+                    }
+                    if( exchange.getRequestURI().getPath().endsWith( "proxied" ) )
+                    {
+                        final byte[] echo = ( exchange.getRequestURI().getHost() + " "
+                                              + exchange.getRequestHeaders().getFirst( "Proxy-Authorization" ) )
+                            .getBytes();
+                        exchange.sendResponseHeaders( 200, echo.length );
+                        exchange.getResponseBody().write( echo );
+                        return;
+                    }
+                    final String range = exchange.getRequestHeaders().getFirst( "Range" );
+                    final OutputStream outputStream = exchange.getResponseBody();
+                    if( range != null )
+                    {
+                        exchange.sendResponseHeaders( 206, CONTENT.length - 1 );
+                        outputStream.write( CONTENT, 1, CONTENT.length - 1 );
+                    }
+                    else
+                    {
+                        exchange.sendResponseHeaders( 200, CONTENT.length );
+                        outputStream.write( CONTENT );
+                    }
+                }
+                finally
+                {
+                    exchange.close();
+                }
+            }
+        }
+        );
+        m_server.start();
+    }
+
+    @After
+    public void tearDown()
+    {
+        m_server.stop( 0 );
+    }
+
+    /**
+     * Tests that a missing resource is reported as not found.
+     *
+     * @throws IOException - Expected
+     */
+    @Test( expected = FileNotFoundException.class )
+    public void notFound()
+        throws IOException
+    {
+        new PooledTransport( 0, 0, 1, false ).openStream( url( "missing" ) );
+    }
+
+    /**
+     * Tests that an error response releases its connection.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void notFoundReleasesConnection()
+        throws IOException
+    {
+        final Transport transport = new PooledTransport( 1000, 0, 1, false );
+        for( int i = 0; i < 3; i++ )
+        {
+            try
+            {
+                transport.openStream( url( "missing" ) );
+                fail( "Expected FileNotFoundException" );
+            }
+            catch( FileNotFoundException expected )
+            {
+                // expected
+            }
+        }
+        assertEquals( "Content", "content", read( transport.openStream( url( "found" ) ) ) );
+    }
+
+    /**
+     * Tests that no more connections than the limit are opened to one host and that connections are released when the
+     * stream is read.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void maxConnectionsPerHost()
+        throws IOException
+    {
+        final Transport transport = new PooledTransport( 200, 0, 1, false );
+        final InputStream first = transport.openStream( url( "found" ) );
+        try
+        {
+            transport.openStream( url( "found" ) );
+            fail( "Expected connection limit to be reached" );
+        }
+        catch( FileNotFoundException e )
+        {
+            fail( "Unexpected not found" );
+        }
+        catch( IOException expected )
+        {
+            // expected
+        }
+        assertEquals( "Content", "content", read( first ) );
+        assertEquals( "Content", "content", read( transport.openStream( url( "found" ) ) ) );
+    }
+
+    /**
+     * Tests that request headers are sent and any successful status is returned.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void partialContent()
+        throws IOException
+    {
+        final TransportResponse response = new PooledTransport( 0, 0, 1, false ).open(
+            url( "found" ), Collections.singletonMap( "Range", "bytes=1-" )
+        );
+        assertEquals( "Status", 206, response.getStatus() );
+        assertEquals( "Content length", CONTENT.length - 1, response.getContentLength() );
+        assertEquals( "Content", "ontent", read( response.getInputStream() ) );
+    }
+
+    /**
+     * Tests that a connection is opened through the proxy selected for its url and sends the proxy credentials, without
+     * setting the proxy system properties.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void proxy()
+        throws IOException
+    {
+        final Map<String, String> proxy = new HashMap<String, String>();
+        proxy.put( "host", "127.0.0.1" );
+        proxy.put( "port", String.valueOf( m_server.getAddress().getPort() ) );
+        proxy.put( "user", "user" );
+        proxy.put( "pass", "secret" );
+        final Transport transport = new PooledTransport(
+            0, 0, 1, false, new RepositoryProxySelector( Collections.singletonMap( "http", proxy ) )
+        );
+        assertEquals(
+            "Proxied request",
+            "repository.invalid Basic dXNlcjpzZWNyZXQ=",
+            read( transport.openStream( new URL( "http://repository.invalid/proxied" ) ) )
+        );
+        assertNull( "Proxy system property", System.getProperty( "http.proxyHost" ) );
+    }
+
+    private URL url( final String path )
+        throws IOException
+    {
+        return new URL( "http://127.0.0.1:" + m_server.getAddress().getPort() + "/" + path );
+    }
+
+    private static String read( final InputStream inputStream )
+        throws IOException
+    {
+        try
+        {
+            final StringBuilder content = new StringBuilder();
+            int read;
+            while( ( read = inputStream.read() ) != -1 )
+            {
+                content.append( (char) read );
+            }
+            return content.toString();
+        }
+        finally
+        {
+            inputStream.close();
+        }
+    }
+
+}
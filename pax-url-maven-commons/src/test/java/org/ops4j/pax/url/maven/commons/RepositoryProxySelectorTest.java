@@ -0,0 +1,139 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.maven.commons;
+
+import java.net.Authenticator;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.PasswordAuthentication;
+import java.net.Proxy;
+import java.net.URI;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link RepositoryProxySelector}.
+ *
+ * @since 1.3.6
+ */
+public class RepositoryProxySelectorTest
+{
+
+    /**
+     * Tests that the proxy of the url protocol is selected, with its credentials.
+     *
+     * @throws MalformedURLException - Unexpected
+     */
+    @Test
+    public void proxyByProtocol()
+        throws MalformedURLException
+    {
+        final RepositoryProxySelector selector = selector( "proxy", "8080", "user", "pass", null );
+        final Proxy proxy = selector.getProxy( new URL( "http://repository/path" ) );
+        assertEquals( "Type", Proxy.Type.HTTP, proxy.type() );
+        assertEquals( "Host", "proxy", ( (InetSocketAddress) proxy.address() ).getHostName() );
+        assertEquals( "Port", 8080, ( (InetSocketAddress) proxy.address() ).getPort() );
+        assertEquals(
+            "Authorization", "Basic dXNlcjpwYXNz", selector.getProxyAuthorization( new URL( "http://repository" ) )
+        );
+        assertNull( "Other protocol", selector.getProxy( new URL( "https://repository/path" ) ) );
+        assertEquals( "Selected", proxy, selector.select( URI.create( "http://repository/path" ) ).get( 0 ) );
+        assertEquals(
+            "Selected other protocol", Proxy.NO_PROXY, selector.select( URI.create( "ftp://repository" ) ).get( 0 )
+        );
+    }
+
+    /**
+     * Tests that non proxy hosts, with wildcards, are accessed directly.
+     *
+     * @throws MalformedURLException - Unexpected
+     */
+    @Test
+    public void nonProxyHosts()
+        throws MalformedURLException
+    {
+        final RepositoryProxySelector selector = selector( "proxy", null, null, null, "localhost|*.example.com" );
+        assertEquals( "Default port", 80, ( (InetSocketAddress) selector.getProxy(
+            new URL( "http://repository" )
+        ).address() ).getPort() );
+        assertNull( "No credentials", selector.getProxyAuthorization( new URL( "http://repository" ) ) );
+        assertEquals( "Localhost", Proxy.NO_PROXY, selector.getProxy( new URL( "http://localhost/path" ) ) );
+        assertEquals( "Wildcard", Proxy.NO_PROXY, selector.getProxy( new URL( "http://Repo.Example.com/path" ) ) );
+        assertNotSame( "Other host", Proxy.NO_PROXY, selector.getProxy( new URL( "http://example.org/path" ) ) );
+    }
+
+    /**
+     * Tests that the credentials of a proxy are given by the default authenticator, as https tunnels do not send the
+     * Proxy-Authorization header, and only to that proxy.
+     *
+     * @throws MalformedURLException - Unexpected
+     */
+    @Test
+    public void proxyCredentialsForTunnels()
+        throws MalformedURLException
+    {
+        final RepositoryProxySelector selector = selector( "proxy", "8080", "user", "pass", null );
+        assertTrue( "Credentials", selector.hasCredentials() );
+        new PooledTransport( 0, 0, 0, true, selector );
+        final URL url = new URL( "https://repository/path" );
+        final PasswordAuthentication credentials = Authenticator.requestPasswordAuthentication(
+            "Proxy", null, 8080, "http", "proxy", "basic", url, Authenticator.RequestorType.PROXY
+        );
+        assertNotNull( "Proxy credentials", credentials );
+        assertEquals( "User", "user", credentials.getUserName() );
+        assertEquals( "Password", "pass", new String( credentials.getPassword() ) );
+        assertNull( "Other proxy", Authenticator.requestPasswordAuthentication(
+            "proxy", null, 3128, "http", "proxy", "basic", url, Authenticator.RequestorType.PROXY
+        )
+        );
+        assertNull( "Server", Authenticator.requestPasswordAuthentication(
+            "proxy", null, 8080, "https", "repository", "basic", url, Authenticator.RequestorType.SERVER
+        )
+        );
+    }
+
+    /**
+     * Tests that no proxy settings give an empty selector.
+     */
+    @Test
+    public void empty()
+    {
+        assertTrue( "Empty", new RepositoryProxySelector( new HashMap<String, Map<String, String>>() ).isEmpty() );
+    }
+
+    private static RepositoryProxySelector selector( final String host,
+                                                     final String port,
+                                                     final String user,
+                                                     final String pass,
+                                                     final String nonProxyHosts )
+    {
+        final Map<String, String> proxy = new HashMap<String, String>();
+        proxy.put( "host", host );
+        proxy.put( "port", port );
+        proxy.put( "user", user );
+        proxy.put( "pass", pass );
+        proxy.put( "nonProxyHosts", nonProxyHosts );
+        final Map<String, Map<String, String>> proxies = new HashMap<String, Map<String, String>>();
+        proxies.put( "http", proxy );
+        return new RepositoryProxySelector( proxies );
+    }
+
+}
@@ -20,13 +20,19 @@ package org.ops4j.pax.url.maven.internal;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.Dictionary;
+import java.util.Hashtable;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.url.URLConstants;
 import org.ops4j.pax.url.commons.handler.ConnectionFactory;
 import org.ops4j.pax.url.commons.handler.HandlerActivator;
 import org.ops4j.pax.url.maven.ServiceConstants;
 import org.ops4j.pax.url.maven.commons.MavenConfiguration;
 import org.ops4j.pax.url.maven.commons.MavenConfigurationImpl;
 import org.ops4j.pax.url.maven.commons.MavenSettingsImpl;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetrics;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetricsImpl;
 import org.ops4j.util.property.PropertyResolver;
 
 /**
@@ -39,10 +45,29 @@ public final class Activator
     extends HandlerActivator<MavenConfiguration>
 {
 
+    /**
+     * Resolution metrics the connections report into.
+     */
+    private final ResolutionMetricsImpl m_metrics;
+    /**
+     * Resolution metrics service registration. Used for cleanup.
+     */
+    private ServiceRegistration m_metricsReg;
+
     /**
      * @see HandlerActivator#HandlerActivator(String[], String, ConnectionFactory)
      */
     public Activator()
+    {
+        this( new ResolutionMetricsImpl() );
+    }
+
+    /**
+     * @param metrics resolution metrics the connections report into
+     *
+     * @see HandlerActivator#HandlerActivator(String[], String, ConnectionFactory)
+     */
+    private Activator( final ResolutionMetricsImpl metrics )
     {
         super(
             new String[]{ ServiceConstants.PROTOCOL },
@@ -58,7 +83,7 @@ public final class Activator
                                                       final MavenConfiguration config )
                     throws MalformedURLException
                 {
-                    return new Connection( url, config );
+                    return new Connection( url, config, metrics );
                 }
 
                 /**
@@ -77,6 +102,39 @@ public final class Activator
 
             }
         );
+        m_metrics = metrics;
+    }
+
+    /**
+     * Registers the resolution metrics service next to the protocol handler, and with JMX.
+     *
+     * @see HandlerActivator#start(BundleContext)
+     */
+    @Override
+    public void start( final BundleContext bundleContext )
+    {
+        super.start( bundleContext );
+        final Dictionary<String, Object> props = new Hashtable<String, Object>();
+        props.put( URLConstants.URL_HANDLER_PROTOCOL, ServiceConstants.PROTOCOL );
+        m_metricsReg = bundleContext.registerService( ResolutionMetrics.class.getName(), m_metrics, props );
+        m_metrics.registerMBean( ServiceConstants.PROTOCOL );
+    }
+
+    /**
+     * Unregisters the resolution metrics service.
+     *
+     * @see HandlerActivator#stop(BundleContext)
+     */
+    @Override
+    public void stop( final BundleContext bundleContext )
+    {
+        m_metrics.unregisterMBean();
+        if( m_metricsReg != null )
+        {
+            m_metricsReg.unregister();
+            m_metricsReg = null;
+        }
+        super.stop( bundleContext );
     }
 
 }
\ No newline at end of file
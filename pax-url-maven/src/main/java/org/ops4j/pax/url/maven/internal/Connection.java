@@ -46,6 +46,8 @@ import org.apache.maven.mercury.transport.api.Server;
 import org.ops4j.lang.NullArgumentException;
 import org.ops4j.pax.url.maven.commons.MavenConfiguration;
 import org.ops4j.pax.url.maven.commons.MavenRepositoryURL;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetrics;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetricsImpl;
 
 /**
  * An URLConnextion that supports maven: protocol.
@@ -73,6 +75,10 @@ public class Connection
      * Mercury virtual repository reader.
      */
     private VirtualRepositoryReader m_vrr;
+    /**
+     * Metrics to report into.
+     */
+    private final ResolutionMetrics m_metrics;
 
     /**
      * Creates a new connection.
@@ -84,11 +90,28 @@ public class Connection
      */
     public Connection( final URL url, final MavenConfiguration configuration )
         throws MalformedURLException
+    {
+        this( url, configuration, new ResolutionMetricsImpl() );
+    }
+
+    /**
+     * Creates a new connection reporting into metrics.
+     *
+     * @param url           the url; cannot be null.
+     * @param configuration service configuration; cannot be null
+     * @param metrics       metrics to report into; cannot be null
+     *
+     * @throws java.net.MalformedURLException in case of a malformed url
+     */
+    public Connection( final URL url, final MavenConfiguration configuration, final ResolutionMetrics metrics )
+        throws MalformedURLException
     {
         super( url );
         NullArgumentException.validateNotNull( url, "URL cannot be null" );
         NullArgumentException.validateNotNull( configuration, "Service configuration" );
+        NullArgumentException.validateNotNull( metrics, "Metrics" );
         m_configuration = configuration;
+        m_metrics = metrics;
         m_parser = new Parser( url.getPath() );
     }
 
@@ -128,11 +151,38 @@ public class Connection
     }
 
     /**
+     * Resolves the artifact, reporting the resolution time into the metrics. Mercury does not expose the requests made
+     * to each repository, so only the resolution time is reported.
+     *
      * {@inheritDoc}
      */
     @Override
     public InputStream getInputStream()
         throws IOException
+    {
+        final long start = System.currentTimeMillis();
+        boolean resolved = false;
+        try
+        {
+            final InputStream inputStream = resolve();
+            resolved = true;
+            return inputStream;
+        }
+        finally
+        {
+            m_metrics.resolved( url.toExternalForm(), System.currentTimeMillis() - start, resolved );
+        }
+    }
+
+    /**
+     * Resolves and downloads the artifact denoted by the url.
+     *
+     * @return the input stream for the resource denoted by url
+     *
+     * @throws IOException in case of an exception during accessing the resource
+     */
+    private InputStream resolve()
+        throws IOException
     {
         connect();
 
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.ops4j.lang.NullArgumentException;
+
+/**
+ * Result of resolving one url by a {@link BatchResolver}: either a local file with the artifact or the failure.
+ * Artifacts found in a local (file) repository are not copied, the file is the one in the repository. Downloaded
+ * artifacts are stored in temporary files, deleted when the resolution is released.
+ *
+ * @since 1.3.6
+ */
+public class BatchResolution
+{
+
+    /**
+     * Resolved url.
+     */
+    private final String m_url;
+    /**
+     * Artifact file. Null if resolution failed.
+     */
+    private final File m_file;
+    /**
+     * True if file is a temporary file.
+     */
+    private final boolean m_temporary;
+    /**
+     * Resolution failure. Null if resolved.
+     */
+    private final Exception m_failure;
+
+    /**
+     * Creates a successful resolution.
+     *
+     * @param url       resolved url; cannot be null
+     * @param file      artifact file; cannot be null
+     * @param temporary true if file is a temporary file to be deleted on release
+     *
+     * @throws NullArgumentException if url or file is null
+     */
+    public BatchResolution( final String url, final File file, final boolean temporary )
+    {
+        NullArgumentException.validateNotNull( url, "URL" );
+        NullArgumentException.validateNotNull( file, "File" );
+        m_url = url;
+        m_file = file;
+        m_temporary = temporary;
+        m_failure = null;
+    }
+
+    /**
+     * Creates a failed resolution.
+     *
+     * @param url     url that could not be resolved; cannot be null
+     * @param failure resolution failure; cannot be null
+     *
+     * @throws NullArgumentException if any of the parameters is null
+     */
+    public BatchResolution( final String url, final Exception failure )
+    {
+        NullArgumentException.validateNotNull( url, "URL" );
+        NullArgumentException.validateNotNull( failure, "Failure" );
+        m_url = url;
+        m_file = null;
+        m_temporary = false;
+        m_failure = failure;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return resolved url, as requested
+     */
+    public String getURL()
+    {
+        return m_url;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return true if the url was resolved
+     */
+    public boolean isResolved()
+    {
+        return m_failure == null;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return artifact file or null if resolution failed
+     */
+    public File getFile()
+    {
+        return m_file;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return resolution failure or null if resolved
+     */
+    public Exception getFailure()
+    {
+        return m_failure;
+    }
+
+    /**
+     * Opens a new stream over the artifact.
+     *
+     * @return artifact stream
+     *
+     * @throws IOException if resolution failed (with the failure as cause) or the file cannot be opened
+     */
+    public InputStream openStream()
+        throws IOException
+    {
+        if( m_failure != null )
+        {
+            final IOException exception = new IOException( "URL [" + m_url + "] could not be resolved" );
+            exception.initCause( m_failure );
+            throw exception;
+        }
+        return new FileInputStream( m_file );
+    }
+
+    /**
+     * Releases the resolution, deleting the artifact file if it is a temporary file. Files from a local repository are
+     * never deleted.
+     */
+    public void release()
+    {
+        if( m_temporary && m_file.exists() && !m_file.delete() )
+        {
+            m_file.deleteOnExit();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return new StringBuilder()
+            .append( "URL [" ).append( m_url ).append( "]" )
+            .append( m_failure == null ? " resolved to [" + m_file + "]" : " failed: " + m_failure.getMessage() )
+            .toString();
+    }
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn;
+
+import java.util.List;
+
+/**
+ * Resolves many mvn: urls at once. Registered as an OSGi service by the mvn: protocol handler bundle, using the same
+ * configuration as the protocol handler.
+ * Urls of the same artifact (same group and artifact id) share their metadata fetches, while artifacts are downloaded
+ * concurrently, up to the configured number of batch threads.
+ *
+ * @since 1.3.6
+ */
+public interface BatchResolver
+{
+
+    /**
+     * Resolves and downloads a list of mvn: urls. The "mvn:" prefix is optional.
+     * Failures are reported per url, so the resolution of one url does not affect the others.
+     * Each successful resolution should be released once not needed anymore.
+     *
+     * @param urls urls to be resolved; cannot be null
+     *
+     * @return one resolution per url, in the same order as the urls
+     *
+     * @throws IllegalStateException if the resolver is not configured or was stopped
+     */
+    List<BatchResolution> resolve( List<String> urls );
+
+}
@@ -24,6 +24,7 @@ import java.net.URLStreamHandler;
 import org.ops4j.pax.url.maven.commons.MavenConfigurationImpl;
 import org.ops4j.pax.url.maven.commons.MavenSettingsImpl;
 import org.ops4j.pax.url.mvn.internal.Connection;
+import org.ops4j.pax.url.mvn.internal.HandlerContext;
 import org.ops4j.util.property.PropertiesPropertyResolver;
 
 /**
@@ -35,6 +36,12 @@ import org.ops4j.util.property.PropertiesPropertyResolver;
 public class Handler
     extends URLStreamHandler {
 
+    /**
+     * Handler context shared by all connections opened by this handler. Lazy created using the configuration in place
+     * at the moment the first connection is opened.
+     */
+    private HandlerContext m_context;
+
     /**
      * {@inheritDoc}
      */
@@ -45,7 +52,22 @@ public class Handler
         final MavenConfigurationImpl config = new MavenConfigurationImpl( new PropertiesPropertyResolver( System.getProperties() ), ServiceConstants.PID );
 
         config.setSettings( new MavenSettingsImpl( config.getSettingsFileUrl(), config.useFallbackRepositories() ) );
-        return new Connection( url, config );
+        return new Connection( url, config, getContext( config ) );
+    }
+
+    /**
+     * Returns the shared handler context, creating it if not yet created.
+     *
+     * @param config configuration to be used if the context is created
+     *
+     * @return handler context
+     */
+    private synchronized HandlerContext getContext( final MavenConfigurationImpl config )
+    {
+        if( m_context == null ) {
+            m_context = new HandlerContext( config );
+        }
+        return m_context;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn;
+
+import org.ops4j.lang.NullArgumentException;
+
+/**
+ * A step of an mvn: url resolution, as notified to {@link ResolutionListener}s.
+ * Timestamps are {@link System#nanoTime()} values, so only differences between timestamps are meaningful.
+ *
+ * @since 1.3.6
+ */
+public class ResolutionEvent
+{
+
+    /**
+     * Resolution steps.
+     */
+    public static enum Type
+    {
+        /**
+         * Resolution of the url started.
+         */
+        RESOLUTION_STARTED,
+        /**
+         * A repository was searched for the versions matching the url.
+         */
+        REPOSITORY_PROBED,
+        /**
+         * Maven metadata (versions or snapshot builds) was requested from a repository. The failure is set if the
+         * repository does not have it or could not be accessed.
+         */
+        METADATA_FETCHED,
+        /**
+         * Maven metadata was found in cache or was still up to date.
+         */
+        METADATA_CACHED,
+        /**
+         * The download of a candidate artifact was attempted. The failure is set if it could not be started.
+         */
+        CANDIDATE_ATTEMPTED,
+        /**
+         * The download of the resolved artifact completed (or was closed before its end).
+         */
+        DOWNLOAD_COMPLETED,
+        /**
+         * Resolution of the url failed.
+         */
+        RESOLUTION_FAILED
+    }
+
+    /**
+     * Resolution step.
+     */
+    private final Type m_type;
+    /**
+     * Resolved url.
+     */
+    private final String m_url;
+    /**
+     * Repository url. Null if the step does not concern a repository.
+     */
+    private final String m_repository;
+    /**
+     * Url of the resource accessed (metadata or artifact). Null if the step does not concern a resource.
+     */
+    private final String m_resource;
+    /**
+     * Time of the event in nanoseconds.
+     */
+    private final long m_timestamp;
+    /**
+     * Duration of the step in nanoseconds.
+     */
+    private final long m_duration;
+    /**
+     * Number of bytes read by the step. -1 if the step does not read bytes.
+     */
+    private final long m_bytes;
+    /**
+     * Failure of the step. Null if the step did not fail.
+     */
+    private final Throwable m_failure;
+
+    /**
+     * Creates a new event.
+     *
+     * @param type       resolution step; cannot be null
+     * @param url        resolved url; cannot be null
+     * @param repository repository url; null if the step does not concern a repository
+     * @param resource   url of the resource accessed; null if the step does not concern a resource
+     * @param timestamp  time of the event, as {@link System#nanoTime()}
+     * @param duration   duration of the step in nanoseconds
+     * @param bytes      number of bytes read by the step; -1 if the step does not read bytes
+     * @param failure    failure of the step; null if the step did not fail
+     *
+     * @throws NullArgumentException if type or url is null
+     */
+    public ResolutionEvent( final Type type,
+                            final String url,
+                            final String repository,
+                            final String resource,
+                            final long timestamp,
+                            final long duration,
+                            final long bytes,
+                            final Throwable failure )
+    {
+        NullArgumentException.validateNotNull( type, "Type" );
+        NullArgumentException.validateNotNull( url, "URL" );
+        m_type = type;
+        m_url = url;
+        m_repository = repository;
+        m_resource = resource;
+        m_timestamp = timestamp;
+        m_duration = duration;
+        m_bytes = bytes;
+        m_failure = failure;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return resolution step
+     */
+    public Type getType()
+    {
+        return m_type;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return resolved url
+     */
+    public String getURL()
+    {
+        return m_url;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return repository url or null if the step does not concern a repository
+     */
+    public String getRepository()
+    {
+        return m_repository;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return url of the resource accessed or null if the step does not concern a resource
+     */
+    public String getResource()
+    {
+        return m_resource;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return time of the event, as {@link System#nanoTime()}
+     */
+    public long getTimestamp()
+    {
+        return m_timestamp;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return duration of the step in nanoseconds
+     */
+    public long getDuration()
+    {
+        return m_duration;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return number of bytes read by the step or -1 if the step does not read bytes
+     */
+    public long getBytes()
+    {
+        return m_bytes;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return failure of the step or null if the step did not fail
+     */
+    public Throwable getFailure()
+    {
+        return m_failure;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder builder = new StringBuilder()
+            .append( m_type ).append( " [" ).append( m_url ).append( "]" );
+        if( m_resource != null )
+        {
+            builder.append( " resource [" ).append( m_resource ).append( "]" );
+        }
+        else if( m_repository != null )
+        {
+            builder.append( " repository [" ).append( m_repository ).append( "]" );
+        }
+        builder.append( " in " ).append( m_duration / 1000 ).append( " us" );
+        if( m_bytes >= 0 )
+        {
+            builder.append( ", " ).append( m_bytes ).append( " bytes" );
+        }
+        if( m_failure != null )
+        {
+            builder.append( ", failed: " ).append( m_failure );
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn;
+
+/**
+ * Listener of the steps of mvn: url resolutions. Listeners are registered as OSGi services and picked up by the mvn:
+ * protocol handler bundle.
+ * Listeners are notified asynchronously, one event at a time and in the order the events happened, from a thread of
+ * the protocol handler. Events are dropped (and never delivered) if listeners fall too far behind, so a slow listener
+ * never stalls resolutions.
+ *
+ * @since 1.3.6
+ */
+public interface ResolutionListener
+{
+
+    /**
+     * Notifies a resolution step.
+     *
+     * @param event resolution event
+     */
+    void resolutionEvent( ResolutionEvent event );
+
+}
@@ -60,6 +60,116 @@ public interface ServiceConstants
      * Proxy support configuration property name.
      */
     static final String PROPERTY_PROXY_SUPPORT = PID + MavenConstants.PROPERTY_PROXY_SUPPORT;
+    /**
+     * Number of threads used to probe repositories concurrently configuration property name.
+     */
+    static final String PROPERTY_PROBE_THREADS = PID + MavenConstants.PROPERTY_PROBE_THREADS;
+    /**
+     * Per repository probe deadline configuration property name.
+     */
+    static final String PROPERTY_PROBE_TIMEOUT = PID + MavenConstants.PROPERTY_PROBE_TIMEOUT;
+    /**
+     * Time to live of cached maven metadata configuration property name.
+     */
+    static final String PROPERTY_METADATA_CACHE_TTL = PID + MavenConstants.PROPERTY_METADATA_CACHE_TTL;
+    /**
+     * Maximum size of cached maven metadata configuration property name.
+     */
+    static final String PROPERTY_METADATA_CACHE_SIZE = PID + MavenConstants.PROPERTY_METADATA_CACHE_SIZE;
+    /**
+     * Time to live of remembered not found artifacts / metadata configuration property name.
+     */
+    static final String PROPERTY_NOT_FOUND_CACHE_TTL = PID + MavenConstants.PROPERTY_NOT_FOUND_CACHE_TTL;
+    /**
+     * Maximum number of remembered not found artifacts / metadata configuration property name.
+     */
+    static final String PROPERTY_NOT_FOUND_CACHE_SIZE = PID + MavenConstants.PROPERTY_NOT_FOUND_CACHE_SIZE;
+    /**
+     * Store remote artifacts in local repository configuration property name.
+     */
+    static final String PROPERTY_LOCAL_REPOSITORY_WRITE_THROUGH =
+        PID + MavenConstants.PROPERTY_LOCAL_REPOSITORY_WRITE_THROUGH;
+    /**
+     * Checksum policy configuration property name.
+     */
+    static final String PROPERTY_CHECKSUM_POLICY = PID + MavenConstants.PROPERTY_CHECKSUM_POLICY;
+    /**
+     * Number of times an interrupted download is resumed configuration property name.
+     */
+    static final String PROPERTY_DOWNLOAD_RETRIES = PID + MavenConstants.PROPERTY_DOWNLOAD_RETRIES;
+    /**
+     * Delay before resuming an interrupted download the first time configuration property name.
+     */
+    static final String PROPERTY_DOWNLOAD_RETRY_DELAY = PID + MavenConstants.PROPERTY_DOWNLOAD_RETRY_DELAY;
+    /**
+     * Connect timeout configuration property name.
+     */
+    static final String PROPERTY_CONNECT_TIMEOUT = PID + MavenConstants.PROPERTY_CONNECT_TIMEOUT;
+    /**
+     * Read timeout configuration property name.
+     */
+    static final String PROPERTY_READ_TIMEOUT = PID + MavenConstants.PROPERTY_READ_TIMEOUT;
+    /**
+     * Maximum number of concurrent connections per repository host configuration property name.
+     */
+    static final String PROPERTY_MAX_CONNECTIONS_PER_HOST = PID + MavenConstants.PROPERTY_MAX_CONNECTIONS_PER_HOST;
+    /**
+     * Number of artifacts downloaded concurrently by batch resolutions configuration property name.
+     */
+    static final String PROPERTY_BATCH_THREADS = PID + MavenConstants.PROPERTY_BATCH_THREADS;
+    /**
+     * Artifacts to be prefetched when the handler starts configuration property name.
+     */
+    static final String PROPERTY_PREFETCH = PID + MavenConstants.PROPERTY_PREFETCH;
+    /**
+     * Order repositories by observed performance configuration property name.
+     */
+    static final String PROPERTY_ADAPTIVE_REPOSITORY_ORDER = PID + MavenConstants.PROPERTY_ADAPTIVE_REPOSITORY_ORDER;
+    /**
+     * Circuit breaker failure threshold configuration property name.
+     */
+    static final String PROPERTY_CIRCUIT_BREAKER_THRESHOLD = PID + MavenConstants.PROPERTY_CIRCUIT_BREAKER_THRESHOLD;
+    /**
+     * Circuit breaker cool down configuration property name.
+     */
+    static final String PROPERTY_CIRCUIT_BREAKER_COOL_DOWN = PID + MavenConstants.PROPERTY_CIRCUIT_BREAKER_COOL_DOWN;
+    /**
+     * Hedge delay configuration property name.
+     */
+    static final String PROPERTY_HEDGE_DELAY = PID + MavenConstants.PROPERTY_HEDGE_DELAY;
+    /**
+     * Hedge delay percentile configuration property name.
+     */
+    static final String PROPERTY_HEDGE_PERCENTILE = PID + MavenConstants.PROPERTY_HEDGE_PERCENTILE;
+    /**
+     * Maximum number of hedges per download configuration property name.
+     */
+    static final String PROPERTY_MAX_HEDGES = PID + MavenConstants.PROPERTY_MAX_HEDGES;
+    /**
+     * Update policy of remote maven metadata configuration property name.
+     */
+    static final String PROPERTY_METADATA_UPDATE_POLICY = PID + MavenConstants.PROPERTY_METADATA_UPDATE_POLICY;
+    /**
+     * Answer local repository queries from an in memory index configuration property name.
+     */
+    static final String PROPERTY_LOCAL_REPOSITORY_INDEX = PID + MavenConstants.PROPERTY_LOCAL_REPOSITORY_INDEX;
+    /**
+     * Offline mode (only file repositories are used) configuration property name.
+     */
+    static final String PROPERTY_OFFLINE = PID + MavenConstants.PROPERTY_OFFLINE;
+    /**
+     * Maximum number of concurrent downloads from all repository hosts configuration property name.
+     */
+    static final String PROPERTY_MAX_CONNECTIONS = PID + MavenConstants.PROPERTY_MAX_CONNECTIONS;
+    /**
+     * Maximum download rate from all repository hosts (bytes per second) configuration property name.
+     */
+    static final String PROPERTY_MAX_BYTES_PER_SECOND = PID + MavenConstants.PROPERTY_MAX_BYTES_PER_SECOND;
+    /**
+     * Maximum download rate from one repository host (bytes per second) configuration property name.
+     */
+    static final String PROPERTY_MAX_BYTES_PER_SECOND_PER_HOST =
+        PID + MavenConstants.PROPERTY_MAX_BYTES_PER_SECOND_PER_HOST;
     /**
      * The protocol name.
      */
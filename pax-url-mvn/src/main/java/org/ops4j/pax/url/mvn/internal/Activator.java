@@ -20,12 +20,22 @@ package org.ops4j.pax.url.mvn.internal;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.Dictionary;
+import java.util.Hashtable;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.url.URLConstants;
+import org.osgi.util.tracker.ServiceTracker;
 import org.ops4j.pax.url.commons.handler.ConnectionFactory;
 import org.ops4j.pax.url.commons.handler.HandlerActivator;
 import org.ops4j.pax.url.maven.commons.MavenConfiguration;
 import org.ops4j.pax.url.maven.commons.MavenConfigurationImpl;
 import org.ops4j.pax.url.maven.commons.MavenSettingsImpl;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetrics;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetricsImpl;
+import org.ops4j.pax.url.mvn.BatchResolver;
+import org.ops4j.pax.url.mvn.ResolutionListener;
 import org.ops4j.pax.url.mvn.ServiceConstants;
 import org.ops4j.util.property.PropertyResolver;
 
@@ -40,45 +50,223 @@ public final class Activator
     extends HandlerActivator<MavenConfiguration>
 {
 
+    /**
+     * Connection factory. Keeps the handler context shared by connections.
+     */
+    private final MavenConnectionFactory m_connectionFactory;
+    /**
+     * Batch resolver service registration. Used for cleanup.
+     */
+    private ServiceRegistration m_batchResolverReg;
+    /**
+     * Resolution metrics service registration. Used for cleanup.
+     */
+    private ServiceRegistration m_metricsReg;
+    /**
+     * Tracker of resolution listener services.
+     */
+    private ServiceTracker m_listenerTracker;
+
     /**
      * @see HandlerActivator#HandlerActivator(String[], String, org.ops4j.pax.url.commons.handler.ConnectionFactory)
      */
     public Activator()
+    {
+        this( new MavenConnectionFactory() );
+    }
+
+    /**
+     * @param connectionFactory connection factory
+     *
+     * @see HandlerActivator#HandlerActivator(String[], String, org.ops4j.pax.url.commons.handler.ConnectionFactory)
+     */
+    private Activator( final MavenConnectionFactory connectionFactory )
     {
         super(
             new String[]{ ServiceConstants.PROTOCOL },
             ServiceConstants.PID,
-            new ConnectionFactory<MavenConfiguration>()
-            {
+            connectionFactory
+        );
+        m_connectionFactory = connectionFactory;
+    }
 
-                /**
-                 * @see ConnectionFactory#createConection(BundleContext, URL, Object)
-                 */
-                public URLConnection createConection( final BundleContext bundleContext,
-                                                      final URL url,
-                                                      final MavenConfiguration config )
-                    throws MalformedURLException
+    /**
+     * Registers the batch resolver and resolution metrics services next to the protocol handler. Resolution metrics are
+     * registered with JMX as well. Resolution listener services are tracked and notified of resolution events.
+     *
+     * @see HandlerActivator#start(BundleContext)
+     */
+    @Override
+    public void start( final BundleContext bundleContext )
+    {
+        super.start( bundleContext );
+        m_batchResolverReg = bundleContext.registerService(
+            BatchResolver.class.getName(), m_connectionFactory.getBatchResolver(), null
+        );
+        final Dictionary<String, Object> props = new Hashtable<String, Object>();
+        props.put( URLConstants.URL_HANDLER_PROTOCOL, ServiceConstants.PROTOCOL );
+        m_metricsReg = bundleContext.registerService(
+            ResolutionMetrics.class.getName(), m_connectionFactory.getMetrics(), props
+        );
+        m_connectionFactory.getMetrics().registerMBean( ServiceConstants.PROTOCOL );
+        final ResolutionEventDispatcher dispatcher = m_connectionFactory.getEventDispatcher();
+        m_listenerTracker = new ServiceTracker( bundleContext, ResolutionListener.class.getName(), null )
+        {
+            @Override
+            public Object addingService( final ServiceReference reference )
+            {
+                final Object listener = bundleContext.getService( reference );
+                if( listener instanceof ResolutionListener )
                 {
-                    URLConnection con = new Connection( url, config );
-                    return con;
+                    dispatcher.addListener( (ResolutionListener) listener );
                 }
+                return listener;
+            }
 
-                /**
-                 * @see ConnectionFactory#createConfiguration(org.ops4j.util.property.PropertyResolver)
-                 */
-                public MavenConfiguration createConfiguration( final PropertyResolver propertyResolver )
+            @Override
+            public void removedService( final ServiceReference reference, final Object listener )
+            {
+                if( listener instanceof ResolutionListener )
                 {
-                    final MavenConfigurationImpl config =
-                        new MavenConfigurationImpl( propertyResolver, ServiceConstants.PID );
-                    config.setSettings(
-                        new MavenSettingsImpl( config.getSettingsFileUrl(), config.useFallbackRepositories() )
-                    );
-                    return config;
+                    dispatcher.removeListener( (ResolutionListener) listener );
                 }
+                bundleContext.ungetService( reference );
+            }
+        };
+        m_listenerTracker.open();
+    }
+
+    /**
+     * Unregisters the batch resolver and resolution metrics services, stops tracking resolution listeners and disposes
+     * the handler context in use.
+     *
+     * @see HandlerActivator#stop(BundleContext)
+     */
+    @Override
+    public void stop( final BundleContext bundleContext )
+    {
+        if( m_listenerTracker != null )
+        {
+            m_listenerTracker.close();
+            m_listenerTracker = null;
+        }
+        m_connectionFactory.getMetrics().unregisterMBean();
+        if( m_metricsReg != null )
+        {
+            m_metricsReg.unregister();
+            m_metricsReg = null;
+        }
+        if( m_batchResolverReg != null )
+        {
+            m_batchResolverReg.unregister();
+            m_batchResolverReg = null;
+        }
+        super.stop( bundleContext );
+        m_connectionFactory.dispose();
+    }
 
+    /**
+     * Connection factory for mvn: protocol. Each time a configuration is created (e.g. on a configuration update) a
+     * new handler context is created and the previous one is disposed.
+     */
+    private static class MavenConnectionFactory
+        implements ConnectionFactory<MavenConfiguration>
+    {
 
+        /**
+         * Handler context for current configuration.
+         */
+        private volatile HandlerContext m_context;
+        /**
+         * Batch resolver, using the handler context in use.
+         */
+        private final BatchResolverImpl m_batchResolver = new BatchResolverImpl();
+        /**
+         * Resolution metrics, shared by the successive handler contexts.
+         */
+        private final ResolutionMetricsImpl m_metrics = new ResolutionMetricsImpl();
+        /**
+         * Dispatcher of resolution events, shared by the successive handler contexts.
+         */
+        private final ResolutionEventDispatcher m_eventDispatcher = new ResolutionEventDispatcher();
+
+        /**
+         * @see ConnectionFactory#createConection(BundleContext, URL, Object)
+         */
+        public URLConnection createConection( final BundleContext bundleContext,
+                                              final URL url,
+                                              final MavenConfiguration config )
+            throws MalformedURLException
+        {
+            URLConnection con = new Connection( url, config, m_context );
+            return con;
+        }
+
+        /**
+         * @see ConnectionFactory#createConfiguration(org.ops4j.util.property.PropertyResolver)
+         */
+        public MavenConfiguration createConfiguration( final PropertyResolver propertyResolver )
+        {
+            final MavenConfigurationImpl config =
+                new MavenConfigurationImpl( propertyResolver, ServiceConstants.PID );
+            config.setSettings(
+                new MavenSettingsImpl( config.getSettingsFileUrl(), config.useFallbackRepositories() )
+            );
+            final HandlerContext previous = m_context;
+            m_context = new HandlerContext( config, m_metrics, m_eventDispatcher );
+            m_batchResolver.setContext( m_context );
+            if( previous != null )
+            {
+                previous.dispose();
             }
-        );
+            new Prefetcher( m_context ).start();
+            return config;
+        }
+
+        /**
+         * Getter.
+         *
+         * @return batch resolver
+         */
+        BatchResolver getBatchResolver()
+        {
+            return m_batchResolver;
+        }
+
+        /**
+         * Getter.
+         *
+         * @return resolution metrics
+         */
+        ResolutionMetricsImpl getMetrics()
+        {
+            return m_metrics;
+        }
+
+        /**
+         * Getter.
+         *
+         * @return dispatcher of resolution events
+         */
+        ResolutionEventDispatcher getEventDispatcher()
+        {
+            return m_eventDispatcher;
+        }
+
+        /**
+         * Disposes the handler context in use and stops delivering resolution events.
+         */
+        void dispose()
+        {
+            m_batchResolver.setContext( null );
+            final HandlerContext context = m_context;
+            if( context != null )
+            {
+                context.dispose();
+            }
+            m_eventDispatcher.dispose();
+        }
+
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,425 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.ops4j.lang.NullArgumentException;
+import org.ops4j.pax.url.maven.commons.MavenConfiguration;
+import org.ops4j.pax.url.maven.commons.MavenRepositoryURL;
+import org.ops4j.pax.url.mvn.BatchResolution;
+import org.ops4j.pax.url.mvn.BatchResolver;
+import org.ops4j.pax.url.mvn.Handler;
+import org.ops4j.pax.url.mvn.ServiceConstants;
+
+/**
+ * {@link BatchResolver} using the handler context of the mvn: protocol handler.
+ * Urls are planned in groups of the same artifact (repository, group id and artifact id). The first url of each group
+ * is resolved alone, fetching the metadata of the artifact from each repository; the other urls of the group are then
+ * resolved concurrently, finding the metadata in a cache that lives as long as the batch (or in the handler metadata
+ * cache if enabled). Downloads run on the batch executor of the handler context.
+ *
+ * @since 1.3.6
+ */
+class BatchResolverImpl
+    implements BatchResolver
+{
+
+    /**
+     * Logger.
+     */
+    private static final Log LOG = LogFactory.getLog( BatchResolverImpl.class );
+    /**
+     * Time to live (in milliseconds) of metadata cached for one batch, if metadata caching is not enabled.
+     */
+    private static final long BATCH_METADATA_TTL = 10 * 60 * 1000L;
+    /**
+     * Handler used to create mvn: urls. Never used to open connections.
+     */
+    private static final Handler HANDLER = new Handler();
+
+    /**
+     * Handler context in use. Null if not configured.
+     */
+    private volatile HandlerContext m_context;
+
+    /**
+     * Setter.
+     *
+     * @param context handler context to be used by next batches; null if resolver is stopped
+     */
+    void setContext( final HandlerContext context )
+    {
+        m_context = context;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public List<BatchResolution> resolve( final List<String> urls )
+    {
+        NullArgumentException.validateNotNull( urls, "URLs" );
+        for( String url : urls )
+        {
+            NullArgumentException.validateNotNull( url, "URL" );
+        }
+        final HandlerContext context = m_context;
+        if( context == null )
+        {
+            throw new IllegalStateException( "Batch resolver is not configured" );
+        }
+        LOG.debug( "Resolving batch of [" + urls.size() + "] urls" );
+        final Batch batch = new Batch( context, urls );
+        for( List<Integer> group : batch.plan() )
+        {
+            batch.execute( new GroupTask( batch, group ) );
+        }
+        return batch.await();
+    }
+
+    /**
+     * State of one batch resolution.
+     */
+    private static class Batch
+    {
+
+        /**
+         * Handler context.
+         */
+        private final HandlerContext m_context;
+        /**
+         * Metadata cache shared by all resolutions of the batch.
+         */
+        private final ExpiringCache<Metadata> m_metadataCache;
+        /**
+         * Urls to be resolved.
+         */
+        private final List<String> m_urls;
+        /**
+         * Resolutions, by url index. Null while not resolved.
+         */
+        private final BatchResolution[] m_resolutions;
+        /**
+         * Released when all urls are resolved.
+         */
+        private final CountDownLatch m_done;
+
+        /**
+         * Creates a new batch.
+         *
+         * @param context handler context
+         * @param urls    urls to be resolved
+         */
+        Batch( final HandlerContext context, final List<String> urls )
+        {
+            m_context = context;
+            m_urls = new ArrayList<String>( urls );
+            m_resolutions = new BatchResolution[m_urls.size()];
+            m_done = new CountDownLatch( m_urls.size() );
+            final MavenConfiguration configuration = context.getConfiguration();
+            if( configuration.getMetadataCacheTtl() > 0 )
+            {
+                m_metadataCache = context.getMetadataCache();
+            }
+            else
+            {
+                m_metadataCache = new ExpiringCache<Metadata>(
+                    BATCH_METADATA_TTL, configuration.getMetadataCacheSize() * 1024L
+                );
+            }
+        }
+
+        /**
+         * Groups the urls of the same artifact. Malformed urls are resolved as failed right away.
+         *
+         * @return url indexes grouped by artifact
+         */
+        List<List<Integer>> plan()
+        {
+            final Map<String, List<Integer>> groups = new LinkedHashMap<String, List<Integer>>();
+            for( int index = 0; index < m_urls.size(); index++ )
+            {
+                final Parser parser;
+                try
+                {
+                    parser = Parser.parse( createURL( index ).getPath() );
+                }
+                catch( MalformedURLException e )
+                {
+                    resolved( index, new BatchResolution( m_urls.get( index ), e ) );
+                    continue;
+                }
+                catch( RuntimeException e )
+                {
+                    resolved( index, new BatchResolution( m_urls.get( index ), e ) );
+                    continue;
+                }
+                final MavenRepositoryURL repositoryURL = parser.getRepositoryURL();
+                final String key = ( repositoryURL == null ? "" : repositoryURL.getURL().toExternalForm() )
+                                   + "!" + parser.getGroup() + "/" + parser.getArtifact();
+                List<Integer> group = groups.get( key );
+                if( group == null )
+                {
+                    group = new ArrayList<Integer>();
+                    groups.put( key, group );
+                }
+                group.add( index );
+            }
+            return new ArrayList<List<Integer>>( groups.values() );
+        }
+
+        /**
+         * Runs a task on the batch executor, or in the current thread if there is no batch executor.
+         *
+         * @param task task to run
+         */
+        void execute( final Runnable task )
+        {
+            final ExecutorService executor = m_context.getBatchExecutor();
+            if( executor != null )
+            {
+                try
+                {
+                    executor.execute( task );
+                    return;
+                }
+                catch( RejectedExecutionException ignore )
+                {
+                    // context disposed meanwhile, so run in current thread
+                }
+            }
+            task.run();
+        }
+
+        /**
+         * Resolves one url.
+         *
+         * @param index url index
+         */
+        void resolve( final int index )
+        {
+            final String url = m_urls.get( index );
+            try
+            {
+                final Connection connection = new Connection(
+                    createURL( index ), m_context.getConfiguration(), m_context, m_metadataCache
+                );
+                final InputStream inputStream = connection.getInputStream();
+                final File file = connection.getDownloadedFile();
+                if( file != null )
+                {
+                    inputStream.close();
+                    resolved( index, new BatchResolution( url, file, false ) );
+                }
+                else
+                {
+                    resolved( index, new BatchResolution( url, store( inputStream ), true ) );
+                }
+            }
+            catch( IOException e )
+            {
+                LOG.debug( "Could not resolve [" + url + "]: " + e.getMessage() );
+                resolved( index, new BatchResolution( url, e ) );
+            }
+            catch( RuntimeException e )
+            {
+                LOG.debug( "Could not resolve [" + url + "]: " + e.getMessage() );
+                resolved( index, new BatchResolution( url, e ) );
+            }
+        }
+
+        /**
+         * Records the resolution of one url. Resolutions arriving after the batch was given up are released.
+         *
+         * @param index      url index
+         * @param resolution resolution
+         */
+        private void resolved( final int index, final BatchResolution resolution )
+        {
+            synchronized( m_resolutions )
+            {
+                if( m_resolutions[ index ] == null )
+                {
+                    m_resolutions[ index ] = resolution;
+                    m_done.countDown();
+                    return;
+                }
+            }
+            resolution.release();
+        }
+
+        /**
+         * Waits for all urls to be resolved. If the thread is interrupted, urls not yet resolved are reported as
+         * failed.
+         *
+         * @return resolutions in the same order as the urls
+         */
+        List<BatchResolution> await()
+        {
+            try
+            {
+                m_done.await();
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                for( int index = 0; index < m_resolutions.length; index++ )
+                {
+                    resolved( index, new BatchResolution(
+                        m_urls.get( index ), new InterruptedIOException( "Interrupted while resolving" )
+                    )
+                    );
+                }
+            }
+            synchronized( m_resolutions )
+            {
+                return Arrays.asList( m_resolutions.clone() );
+            }
+        }
+
+        /**
+         * Creates the mvn: url for an url index.
+         *
+         * @param index url index
+         *
+         * @return mvn: url
+         *
+         * @throws MalformedURLException if the url is not valid
+         */
+        private URL createURL( final int index )
+            throws MalformedURLException
+        {
+            final String url = m_urls.get( index );
+            final String prefix = ServiceConstants.PROTOCOL + ":";
+            return new URL( null, url.startsWith( prefix ) ? url : prefix + url, HANDLER );
+        }
+
+        /**
+         * Stores a downloaded artifact in a temporary file.
+         *
+         * @param inputStream artifact stream
+         *
+         * @return temporary file
+         *
+         * @throws IOException if the artifact cannot be downloaded or stored
+         */
+        private static File store( final InputStream inputStream )
+            throws IOException
+        {
+            File file = null;
+            try
+            {
+                file = File.createTempFile( "pax-url-mvn-", ".tmp" );
+                final OutputStream outputStream = new FileOutputStream( file );
+                try
+                {
+                    final byte[] buffer = new byte[8192];
+                    int read;
+                    while( ( read = inputStream.read( buffer ) ) != -1 )
+                    {
+                        outputStream.write( buffer, 0, read );
+                    }
+                }
+                finally
+                {
+                    outputStream.close();
+                }
+                return file;
+            }
+            catch( IOException e )
+            {
+                if( file != null && !file.delete() )
+                {
+                    file.deleteOnExit();
+                }
+                throw e;
+            }
+            finally
+            {
+                inputStream.close();
+            }
+        }
+
+    }
+
+    /**
+     * Resolves the urls of one artifact: the first one alone, to fetch the metadata, the others concurrently.
+     */
+    private static class GroupTask
+        implements Runnable
+    {
+
+        /**
+         * Batch.
+         */
+        private final Batch m_batch;
+        /**
+         * Url indexes of the group.
+         */
+        private final List<Integer> m_group;
+
+        /**
+         * Creates a new group task.
+         *
+         * @param batch batch
+         * @param group url indexes of the group
+         */
+        GroupTask( final Batch batch, final List<Integer> group )
+        {
+            m_batch = batch;
+            m_group = group;
+        }
+
+        /**
+         * @see Runnable#run()
+         */
+        public void run()
+        {
+            m_batch.resolve( m_group.get( 0 ) );
+            for( final Integer index : m_group.subList( 1, m_group.size() ) )
+            {
+                m_batch.execute( new Runnable()
+                {
+                    public void run()
+                    {
+                        m_batch.resolve( index );
+                    }
+                }
+                );
+            }
+        }
+
+    }
+
+}
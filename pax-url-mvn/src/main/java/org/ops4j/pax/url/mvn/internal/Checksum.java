@@ -0,0 +1,170 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import org.ops4j.lang.NullArgumentException;
+import org.ops4j.pax.url.maven.commons.Transport;
+
+/**
+ * A checksum published next to an artifact in a repository, as a file with the same name as the artifact plus the
+ * algorithm extension (.sha1 or .md5). Immutable.
+ *
+ * @since 1.3.6
+ */
+class Checksum
+{
+
+    /**
+     * SHA-1 digest algorithm.
+     */
+    static final String SHA1 = "SHA-1";
+    /**
+     * MD5 digest algorithm.
+     */
+    static final String MD5 = "MD5";
+    /**
+     * Maximum number of bytes read out of a checksum file.
+     */
+    private static final int MAX_LENGTH = 1024;
+
+    /**
+     * Digest algorithm.
+     */
+    private final String m_algorithm;
+    /**
+     * Expected digest as hex.
+     */
+    private final String m_value;
+
+    /**
+     * Creates a new checksum.
+     *
+     * @param algorithm digest algorithm; cannot be null
+     * @param value     expected digest as hex; cannot be null
+     *
+     * @throws NullArgumentException if any of the parameters is null
+     */
+    Checksum( final String algorithm, final String value )
+    {
+        NullArgumentException.validateNotNull( algorithm, "Algorithm" );
+        NullArgumentException.validateNotNull( value, "Value" );
+        m_algorithm = algorithm;
+        m_value = value;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return digest algorithm
+     */
+    String getAlgorithm()
+    {
+        return m_algorithm;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return expected digest as hex
+     */
+    String getValue()
+    {
+        return m_value;
+    }
+
+    /**
+     * Creates a task that fetches the published checksum of an artifact, looking first for a SHA-1 and then for a MD5
+     * checksum file. The task returns null if none of them is published.
+     *
+     * @param transport   transport used to fetch the checksum files
+     * @param artifactURL artifact url
+     *
+     * @return fetch task
+     */
+    static Callable<Checksum> fetch( final Transport transport, final URL artifactURL )
+    {
+        return new Callable<Checksum>()
+        {
+            public Checksum call()
+                throws IOException
+            {
+                final Checksum sha1 = fetch( transport, artifactURL, ".sha1", SHA1 );
+                return sha1 != null ? sha1 : fetch( transport, artifactURL, ".md5", MD5 );
+            }
+        };
+    }
+
+    /**
+     * Fetches one checksum file. Checksum files contain the hex digest, optionally followed by the file name, so only
+     * the first word is used.
+     *
+     * @param transport   transport used to fetch the checksum file
+     * @param artifactURL artifact url
+     * @param extension   checksum file extension
+     * @param algorithm   digest algorithm
+     *
+     * @return checksum or null if checksum file is not found or empty
+     *
+     * @throws IOException if checksum file cannot be read
+     */
+    private static Checksum fetch( final Transport transport,
+                                   final URL artifactURL,
+                                   final String extension,
+                                   final String algorithm )
+        throws IOException
+    {
+        final InputStream inputStream;
+        try
+        {
+            inputStream = transport.openStream( new URL( artifactURL.toExternalForm() + extension ) );
+        }
+        catch( FileNotFoundException e )
+        {
+            return null;
+        }
+        try
+        {
+            final byte[] buffer = new byte[MAX_LENGTH];
+            int length = 0;
+            int read;
+            while( length < buffer.length
+                   && ( read = inputStream.read( buffer, length, buffer.length - length ) ) != -1 )
+            {
+                length += read;
+            }
+            final String[] words = new String( buffer, 0, length, "US-ASCII" ).trim().split( "\\s+" );
+            return words[ 0 ].length() == 0 ? null : new Checksum( algorithm, words[ 0 ] );
+        }
+        finally
+        {
+            inputStream.close();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return m_algorithm + ":" + m_value;
+    }
+
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.ops4j.lang.NullArgumentException;
+
+/**
+ * An input stream that computes the SHA-1 and MD5 digests of the bytes read by the caller and, once the whole stream
+ * was read, compares them with the published checksum of the artifact. The published checksum is fetched by a
+ * {@link FutureTask} so it can be downloaded in parallel with the artifact. At the end of the stream the task is run
+ * in the reading thread if no other thread started it yet (e.g. there is no executor or it was busy), otherwise its
+ * result is waited for.
+ * On a mismatch a warning is logged or, if the stream should fail, the read that reaches the end of the stream throws
+ * a {@link ChecksumException} instead of returning -1, so streams wrapping this one (e.g. a
+ * {@link WriteThroughInputStream}) never see a complete artifact.
+ *
+ * @since 1.3.6
+ */
+class ChecksumVerifyingInputStream
+    extends FilterInputStream
+{
+
+    /**
+     * Logger.
+     */
+    private static final Log LOG = LogFactory.getLog( ChecksumVerifyingInputStream.class );
+    /**
+     * Hex digits.
+     */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Name of the verified artifact, used in messages.
+     */
+    private final String m_name;
+    /**
+     * Published checksum.
+     */
+    private final FutureTask<Checksum> m_checksum;
+    /**
+     * True if a mismatch should fail the read, false if it should only be logged.
+     */
+    private final boolean m_fail;
+    /**
+     * SHA-1 digest of bytes read so far.
+     */
+    private final MessageDigest m_sha1;
+    /**
+     * MD5 digest of bytes read so far.
+     */
+    private final MessageDigest m_md5;
+    /**
+     * True once the checksum was verified.
+     */
+    private boolean m_verified;
+    /**
+     * Mismatch failure, thrown again on every read at the end of the stream. Null if verification did not fail.
+     */
+    private ChecksumException m_failure;
+
+    /**
+     * Creates a new verifying stream.
+     *
+     * @param inputStream stream to verify; cannot be null
+     * @param name        name of the verified artifact; cannot be null
+     * @param checksum    published checksum; cannot be null
+     * @param fail        true if a mismatch should fail the read, false if it should only be logged
+     *
+     * @throws NullArgumentException if any of the parameters is null
+     */
+    ChecksumVerifyingInputStream( final InputStream inputStream,
+                                  final String name,
+                                  final FutureTask<Checksum> checksum,
+                                  final boolean fail )
+    {
+        super( inputStream );
+        NullArgumentException.validateNotNull( inputStream, "Input stream" );
+        NullArgumentException.validateNotNull( name, "Name" );
+        NullArgumentException.validateNotNull( checksum, "Checksum" );
+        m_name = name;
+        m_checksum = checksum;
+        m_fail = fail;
+        m_sha1 = createDigest( Checksum.SHA1 );
+        m_md5 = createDigest( Checksum.MD5 );
+    }
+
+    @Override
+    public int read()
+        throws IOException
+    {
+        final int read = super.read();
+        if( read == -1 )
+        {
+            verify();
+        }
+        else
+        {
+            m_sha1.update( (byte) read );
+            m_md5.update( (byte) read );
+        }
+        return read;
+    }
+
+    @Override
+    public int read( final byte[] buffer, final int offset, final int length )
+        throws IOException
+    {
+        final int read = super.read( buffer, offset, length );
+        if( read == -1 )
+        {
+            verify();
+        }
+        else if( read > 0 )
+        {
+            m_sha1.update( buffer, offset, read );
+            m_md5.update( buffer, offset, read );
+        }
+        return read;
+    }
+
+    /**
+     * Skipped bytes must be digested as well, so they are read.
+     */
+    @Override
+    public long skip( final long count )
+        throws IOException
+    {
+        final byte[] buffer = new byte[(int) Math.min( 8192, Math.max( count, 0 ) )];
+        long skipped = 0;
+        while( skipped < count )
+        {
+            final int read = read( buffer, 0, (int) Math.min( buffer.length, count - skipped ) );
+            if( read == -1 )
+            {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported()
+    {
+        return false;
+    }
+
+    @Override
+    public void mark( final int readLimit )
+    {
+        // not supported
+    }
+
+    @Override
+    public void reset()
+        throws IOException
+    {
+        throw new IOException( "Mark / reset not supported" );
+    }
+
+    /**
+     * Stops waiting for the published checksum if the stream is closed before its end.
+     */
+    @Override
+    public void close()
+        throws IOException
+    {
+        if( !m_verified )
+        {
+            m_checksum.cancel( true );
+        }
+        super.close();
+    }
+
+    /**
+     * Compares the computed digest with the published checksum. Verification is done only once, even if the end of
+     * the stream is read more then once.
+     *
+     * @throws ChecksumException if checksums do not match and the stream should fail
+     */
+    private void verify()
+        throws ChecksumException
+    {
+        if( m_verified )
+        {
+            if( m_failure != null )
+            {
+                throw m_failure;
+            }
+            return;
+        }
+        m_verified = true;
+        final Checksum checksum = getChecksum();
+        if( checksum == null )
+        {
+            LOG.debug( "No checksum available for [" + m_name + "]" );
+            return;
+        }
+        final String actual = toHex(
+            Checksum.SHA1.equals( checksum.getAlgorithm() ) ? m_sha1.digest() : m_md5.digest()
+        );
+        if( actual.equalsIgnoreCase( checksum.getValue() ) )
+        {
+            LOG.trace( "Verified " + checksum.getAlgorithm() + " checksum of [" + m_name + "]" );
+            return;
+        }
+        final String message = checksum.getAlgorithm() + " checksum mismatch for [" + m_name + "]: expected ["
+                               + checksum.getValue() + "] but was [" + actual + "]";
+        onMismatch();
+        if( m_fail )
+        {
+            m_failure = new ChecksumException( message );
+            throw m_failure;
+        }
+        LOG.warn( message );
+    }
+
+    /**
+     * Called when the computed digest does not match the published checksum, before failing the read. Does nothing by
+     * default.
+     */
+    protected void onMismatch()
+    {
+        // do nothing
+    }
+
+    /**
+     * Runs the checksum task if not yet started and waits for the published checksum.
+     *
+     * @return published checksum or null if there is no published checksum or it could not be fetched
+     */
+    private Checksum getChecksum()
+    {
+        m_checksum.run();
+        try
+        {
+            return m_checksum.get();
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            LOG.debug( "Interrupted while fetching checksum of [" + m_name + "]" );
+        }
+        catch( ExecutionException e )
+        {
+            LOG.debug( "Could not fetch checksum of [" + m_name + "], reason: " + e.getCause().getMessage() );
+        }
+        return null;
+    }
+
+    /**
+     * Creates a message digest for an algorithm every java runtime is required to support.
+     *
+     * @param algorithm digest algorithm
+     *
+     * @return message digest
+     */
+    private static MessageDigest createDigest( final String algorithm )
+    {
+        try
+        {
+            return MessageDigest.getInstance( algorithm );
+        }
+        catch( NoSuchAlgorithmException e )
+        {
+            throw new IllegalStateException( "Digest algorithm [" + algorithm + "] not supported", e );
+        }
+    }
+
+    /**
+     * Converts a digest to lowercase hex.
+     *
+     * @param digest digest bytes
+     *
+     * @return hex string
+     */
+    private static String toHex( final byte[] digest )
+    {
+        final char[] hex = new char[digest.length * 2];
+        for( int i = 0; i < digest.length; i++ )
+        {
+            hex[ i * 2 ] = HEX[ ( digest[ i ] >> 4 ) & 0xF ];
+            hex[ i * 2 + 1 ] = HEX[ digest[ i ] & 0xF ];
+        }
+        return new String( hex );
+    }
+
+    /**
+     * Thrown when the computed digest does not match the published checksum.
+     */
+    static class ChecksumException
+        extends IOException
+    {
+
+        /**
+         * Serialization version.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Creates a new exception.
+         *
+         * @param message exception message
+         */
+        ChecksumException( final String message )
+        {
+            super( message );
+        }
+
+    }
+
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetrics;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetricsImpl;
+
+/**
+ * Circuit breaker of one repository. The breaker is closed as long as the repository answers (having the resource or
+ * not). After a number of consecutive failures (repository not reachable, timeouts, server errors) it opens and the
+ * repository is skipped for a cool down. Once the cool down elapsed the breaker is half open: one caller is let through
+ * to try the repository again while the others keep skipping it, the outcome of the trial closing the breaker or
+ * opening it for another cool down. A trial that reports no outcome within the cool down is given up, and the next
+ * caller tries the repository instead. Transitions are reported into the resolution metrics.
+ *
+ * @since 1.3.6
+ */
+public class CircuitBreaker
+{
+
+    /**
+     * Logger.
+     */
+    private static final Log LOG = LogFactory.getLog( CircuitBreaker.class );
+
+    /**
+     * Circuit breaker states.
+     */
+    public static enum State
+    {
+        /**
+         * Repository is used.
+         */
+        CLOSED,
+        /**
+         * Repository is skipped.
+         */
+        OPEN,
+        /**
+         * Repository is tried again after the cool down.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * Repository url.
+     */
+    private final String m_repository;
+    /**
+     * Number of consecutive failures opening the breaker. Zero if the breaker never opens.
+     */
+    private final int m_threshold;
+    /**
+     * Time in milliseconds the breaker stays open.
+     */
+    private final long m_coolDown;
+    /**
+     * Metrics the transitions are reported into.
+     */
+    private final ResolutionMetrics m_metrics;
+    /**
+     * Current state.
+     */
+    private State m_state;
+    /**
+     * Consecutive failures.
+     */
+    private int m_failures;
+    /**
+     * Time when the breaker opened.
+     */
+    private long m_openedAt;
+    /**
+     * Caller allowed to try the repository while half open. Null if no trial is in progress.
+     */
+    private Object m_trial;
+    /**
+     * Time when the trial started.
+     */
+    private long m_trialAt;
+
+    /**
+     * Creates a new closed circuit breaker, whose transitions are not reported.
+     *
+     * @param repository repository url
+     * @param threshold  number of consecutive failures opening the breaker; zero if the breaker never opens
+     * @param coolDown   time in milliseconds the breaker stays open
+     */
+    CircuitBreaker( final String repository, final int threshold, final long coolDown )
+    {
+        this( repository, threshold, coolDown, new ResolutionMetricsImpl() );
+    }
+
+    /**
+     * Creates a new closed circuit breaker.
+     *
+     * @param repository repository url
+     * @param threshold  number of consecutive failures opening the breaker; zero if the breaker never opens
+     * @param coolDown   time in milliseconds the breaker stays open
+     * @param metrics    metrics the transitions are reported into
+     */
+    CircuitBreaker( final String repository, final int threshold, final long coolDown, final ResolutionMetrics metrics )
+    {
+        m_repository = repository;
+        m_threshold = threshold;
+        m_coolDown = coolDown;
+        m_metrics = metrics;
+        m_state = State.CLOSED;
+    }
+
+    /**
+     * Checks if the repository may be accessed. An open breaker whose cool down elapsed becomes half open. While half
+     * open only the caller of the trial is allowed, as many times as it asks, till an outcome is reported. To be called
+     * right before a request is sent, as the first allowed caller becomes the trial.
+     *
+     * @param caller caller that would access the repository, as the connection resolving an url
+     *
+     * @return false if the repository should be skipped
+     */
+    synchronized boolean allowRequest( final Object caller )
+    {
+        final long now = System.currentTimeMillis();
+        if( m_state == State.OPEN )
+        {
+            if( now - m_openedAt < m_coolDown )
+            {
+                return false;
+            }
+            transition( State.HALF_OPEN );
+        }
+        if( m_state == State.HALF_OPEN && m_trial != caller )
+        {
+            if( m_trial != null && now - m_trialAt < m_coolDown )
+            {
+                return false;
+            }
+            m_trial = caller;
+            m_trialAt = now;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the repository may be accessed by a caller as {@link #allowRequest(Object)} would, without changing the
+     * state nor claiming the trial of a half open breaker. Used to choose repositories and artifacts before any request
+     * is sent, so a caller that ends up not sending a request does not keep the trial from others.
+     *
+     * @param caller caller that would access the repository, as the connection resolving an url
+     *
+     * @return false if the repository should be skipped
+     */
+    synchronized boolean isAvailable( final Object caller )
+    {
+        final long now = System.currentTimeMillis();
+        switch( m_state )
+        {
+            case OPEN:
+                return now - m_openedAt >= m_coolDown;
+            case HALF_OPEN:
+                return m_trial == null || m_trial == caller || now - m_trialAt >= m_coolDown;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Records that the repository answered, closing the breaker.
+     */
+    synchronized void success()
+    {
+        m_failures = 0;
+        m_trial = null;
+        if( m_state != State.CLOSED )
+        {
+            transition( State.CLOSED );
+        }
+    }
+
+    /**
+     * Records that the repository failed, opening the breaker if the threshold is reached or the breaker was half open.
+     */
+    synchronized void failure()
+    {
+        m_failures++;
+        m_trial = null;
+        if( m_threshold > 0 && ( m_state == State.HALF_OPEN || m_failures >= m_threshold ) )
+        {
+            m_openedAt = System.currentTimeMillis();
+            if( m_state != State.OPEN )
+            {
+                transition( State.OPEN );
+            }
+        }
+    }
+
+    /**
+     * Getter.
+     *
+     * @return current state
+     */
+    public synchronized State getState()
+    {
+        return m_state;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return repository url
+     */
+    public String getRepository()
+    {
+        return m_repository;
+    }
+
+    /**
+     * Changes state, logging the change.
+     *
+     * @param state new state
+     */
+    private void transition( final State state )
+    {
+        if( state == State.OPEN )
+        {
+            LOG.warn( "Skipping repository [" + m_repository + "] for [" + m_coolDown + "] ms after ["
+                      + m_failures + "] consecutive failures"
+            );
+        }
+        else
+        {
+            LOG.info( "Repository [" + m_repository + "] circuit breaker " + m_state + " -> " + state );
+        }
+        m_state = state;
+        m_metrics.circuitChanged( m_repository, ResolutionMetrics.CircuitState.valueOf( state.name() ) );
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Circuit breaker [" + m_repository + "] " + getState();
+    }
+
+}
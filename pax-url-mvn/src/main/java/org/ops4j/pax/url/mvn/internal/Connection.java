@@ -17,27 +17,55 @@
  */
 package org.ops4j.pax.url.mvn.internal;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TimeZone;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import javax.xml.parsers.ParserConfigurationException;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 import org.xml.sax.SAXException;
 import org.ops4j.lang.NullArgumentException;
-import org.ops4j.net.URLUtils;
+import org.ops4j.pax.url.maven.commons.ConnectionUnavailableException;
 import org.ops4j.pax.url.maven.commons.MavenConfiguration;
+import org.ops4j.pax.url.maven.commons.MavenConstants;
 import org.ops4j.pax.url.maven.commons.MavenRepositoryURL;
-import org.ops4j.util.xml.XmlUtils;
+import org.ops4j.pax.url.maven.commons.TransportResponse;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetrics;
+import org.ops4j.pax.url.mvn.ResolutionEvent;
 
 /**
  * An URLConnextion that supports mvn: protocol.<br/>
@@ -67,7 +95,51 @@ import org.ops4j.util.xml.XmlUtils;
  * - org.ops4j.pax.url.mvn.localRepository = the path to local repository directory;<br>
  * - org.ops4j.pax.url.mvn.repository =  a comma separated list for repositories urls;<br/>
  * - org.ops4j.pax.url.mvn.certicateCheck = true/false if the SSL certificate check should be done.
- * Default false.
+ * Default false.<br/>
+ * - org.ops4j.pax.url.mvn.probeThreads = number of threads used to probe repositories concurrently.
+ * Default 0 (repositories are probed one after another);<br/>
+ * - org.ops4j.pax.url.mvn.probeTimeout = maximum time in milliseconds to wait for each repository probed
+ * concurrently, counted from the moment its probe starts; 0 means no limit. Default 30000.<br/>
+ * - org.ops4j.pax.url.mvn.localRepositoryWriteThrough = true/false if artifacts downloaded from remote repositories
+ * should be stored in the local repository. Default false.<br/>
+ * - org.ops4j.pax.url.mvn.checksumPolicy = fail/warn/ignore what to do if a downloaded artifact does not match its
+ * published checksum. Default ignore.<br/>
+ * - org.ops4j.pax.url.mvn.downloadRetries = number of times an interrupted download from a http(s) repository is
+ * resumed. Default 3;<br/>
+ * - org.ops4j.pax.url.mvn.downloadRetryDelay = delay in milliseconds before resuming an interrupted download the first
+ * time, doubled on each retry. Default 500;<br/>
+ * - org.ops4j.pax.url.mvn.connectTimeout = timeout in milliseconds for connecting to a repository. Default 0 (none);<br/>
+ * - org.ops4j.pax.url.mvn.readTimeout = timeout in milliseconds for reading from a repository. Default 0 (none);<br/>
+ * - org.ops4j.pax.url.mvn.maxConnectionsPerHost = maximum number of concurrent connections to one repository host.
+ * Default 0 (no limit);<br/>
+ * - org.ops4j.pax.url.mvn.batchThreads = number of artifacts downloaded concurrently by the batch resolver service.
+ * Default 4;<br/>
+ * - org.ops4j.pax.url.mvn.prefetch = artifacts resolved in background when the handler starts, as a comma separated
+ * list of urls or the url of a file listing one url per line. Default none;<br/>
+ * - org.ops4j.pax.url.mvn.adaptiveRepositoryOrder = true/false if repositories should be probed in the order of their
+ * observed latency, hit ratio and error ratio, the configured order breaking ties. Default false;<br/>
+ * - org.ops4j.pax.url.mvn.circuitBreakerThreshold = number of consecutive failures after which a repository is
+ * skipped. Default 5 (0 means never skip);<br/>
+ * - org.ops4j.pax.url.mvn.circuitBreakerCoolDown = time in milliseconds a failing repository is skipped before it is
+ * tried again. Default 30000;<br/>
+ * - org.ops4j.pax.url.mvn.hedgeDelay = minimum time in milliseconds to wait for a download to start before the artifact
+ * is requested from the next repository that has it, keeping whichever starts first. Default 0 (no hedging);<br/>
+ * - org.ops4j.pax.url.mvn.hedgePercentile = percentile of recent download start latencies used as hedge delay, if
+ * longer than the hedge delay. Default 95;<br/>
+ * - org.ops4j.pax.url.mvn.maxHedges = maximum number of hedged requests sent for one download. Default 1;<br/>
+ * - org.ops4j.pax.url.mvn.metadataUpdatePolicy = always/daily/interval:N/never how often maven metadata from remote
+ * repositories is revalidated, using a conditional request. Default always;<br/>
+ * - org.ops4j.pax.url.mvn.localRepositoryIndex = true/false if LATEST, version ranges and snapshots should be resolved
+ * from the local repository using an in memory index of the artifacts on disk instead of the local maven metadata.
+ * Default true;<br/>
+ * - org.ops4j.pax.url.mvn.offline = true/false if only file repositories (including the local repository) should be
+ * searched, never connecting to a remote repository. Default false;<br/>
+ * - org.ops4j.pax.url.mvn.maxConnections = maximum number of concurrent downloads from all repository hosts, on top of
+ * the limit per host. Default 0 (no limit);<br/>
+ * - org.ops4j.pax.url.mvn.maxBytesPerSecond = maximum download rate from all repository hosts, in bytes per second.
+ * Default 0 (no limit);<br/>
+ * - org.ops4j.pax.url.mvn.maxBytesPerSecondPerHost = maximum download rate from one repository host, in bytes per
+ * second. Default 0 (no limit).
  *
  * @author Alin Dreghiciu
  * @since August 10, 2007
@@ -88,6 +160,10 @@ public class Connection
      * 4 spacess indent;
      */
     private static final String Ix4 = "    ";
+    /**
+     * Timestamp and build number of a snapshot build file name, as in 20110101.120000-1.
+     */
+    private static final Pattern SNAPSHOT_BUILD = Pattern.compile( "(\\d{8}\\.\\d{6})-(\\d+)" );
 
     /**
      * Parsed url.
@@ -97,264 +173,1560 @@ public class Connection
      * Service configuration.
      */
     private final MavenConfiguration m_configuration;
+    /**
+     * Handler wide shared state.
+     */
+    private final HandlerContext m_context;
+    /**
+     * Cache of parsed maven metadata.
+     */
+    private final ExpiringCache<Metadata> m_metadataCache;
+    /**
+     * Artifact the input stream was downloaded from. Null if not yet downloaded.
+     */
+    private DownloadableArtifact m_downloaded;
+    /**
+     * Length of the downloaded artifact as announced by the repository or -1 if not announced.
+     */
+    private long m_downloadedLength;
 
     /**
      * Creates a new connection.
      *
      * @param url           the url; cannot be null.
      * @param configuration service configuration; cannot be null
+     * @param context       handler context; cannot be null
+     *
+     * @throws MalformedURLException in case of a malformed url
+     */
+    public Connection( final URL url, final MavenConfiguration configuration, final HandlerContext context )
+        throws MalformedURLException
+    {
+        this( url, configuration, context, validate( context ).getMetadataCache() );
+    }
+
+    /**
+     * Creates a new connection that uses its own metadata cache instead of the one of the handler context.
+     *
+     * @param url           the url; cannot be null.
+     * @param configuration service configuration; cannot be null
+     * @param context       handler context; cannot be null
+     * @param metadataCache cache of parsed maven metadata; cannot be null
      *
      * @throws MalformedURLException in case of a malformed url
      */
-    public Connection( final URL url, final MavenConfiguration configuration )
+    Connection( final URL url,
+                final MavenConfiguration configuration,
+                final HandlerContext context,
+                final ExpiringCache<Metadata> metadataCache )
         throws MalformedURLException
     {
         super( url );
         NullArgumentException.validateNotNull( url, "URL cannot be null" );
         NullArgumentException.validateNotNull( configuration, "Service configuration" );
+        NullArgumentException.validateNotNull( context, "Handler context" );
+        NullArgumentException.validateNotNull( metadataCache, "Metadata cache" );
         m_configuration = configuration;
-        m_parser = new Parser( url.getPath() );
+        m_context = context;
+        m_metadataCache = metadataCache;
+        m_parser = Parser.parse( url.getPath() );
+    }
+
+    /**
+     * Validates the handler context before delegating to the main constructor.
+     *
+     * @param context handler context
+     *
+     * @return handler context
+     *
+     * @throws NullArgumentException if context is null
+     */
+    private static HandlerContext validate( final HandlerContext context )
+    {
+        NullArgumentException.validateNotNull( context, "Handler context" );
+        return context;
+    }
+
+    /**
+     * Does nothing.
+     *
+     * @see java.net.URLConnection#connect()
+     */
+    @Override
+    public void connect()
+    {
+        // do nothing
+    }
+
+    /**
+     * Returns the input stream denoted by the url.<br/>
+     * If the url does not contain a repository the resource is searched in every repository if available, in the order
+     * provided by the repository setting.<br/>
+     * Concurrent connections for the same artifact share one resolution: the first one resolves and downloads the
+     * artifact while the others wait and then read their own copy of the downloaded artifact. A connection that
+     * cannot wait for the first one, as it made no progress within the read timeout or is read on the same thread
+     * before it, resolves the artifact by itself.<br/>
+     * The resolution time is reported into the handler metrics and the resolution steps are notified to the resolution
+     * listeners.
+     *
+     * @return the input stream for the resource denoted by url
+     *
+     * @throws IOException in case of an exception during accessing the resource
+     * @see java.net.URLConnection#getInputStream()
+     */
+    @Override
+    public InputStream getInputStream()
+        throws IOException
+    {
+        connect();
+        final long start = System.nanoTime();
+        fire( ResolutionEvent.Type.RESOLUTION_STARTED, null, null, start, -1, null );
+        boolean resolved = false;
+        try
+        {
+            final InputStream inputStream = resolveShared();
+            resolved = true;
+            return inputStream;
+        }
+        catch( IOException e )
+        {
+            fire( ResolutionEvent.Type.RESOLUTION_FAILED, null, null, start, -1, e );
+            throw e;
+        }
+        catch( RuntimeException e )
+        {
+            fire( ResolutionEvent.Type.RESOLUTION_FAILED, null, null, start, -1, e );
+            throw e;
+        }
+        finally
+        {
+            m_context.getMetrics().resolved(
+                url.toExternalForm(), ( System.nanoTime() - start ) / 1000000, resolved
+            );
+        }
+    }
+
+    /**
+     * Returns the input stream of the artifact, using a prefetched artifact or joining a concurrent resolution of the
+     * same artifact when possible.
+     *
+     * @return the input stream for the resource denoted by url
+     *
+     * @throws IOException in case of an exception during accessing the resource
+     */
+    private InputStream resolveShared()
+        throws IOException
+    {
+        final ConcurrentMap<String, SharedResolution> resolutions = m_context.getSharedResolutions();
+        final String key = getCoordinates();
+        final File staged = m_context.getStagedArtifacts().get( key );
+        if( staged != null )
+        {
+            try
+            {
+                LOG.debug( "Using prefetched artifact for [" + url.toExternalForm() + "]" );
+                return new FileInputStream( staged );
+            }
+            catch( FileNotFoundException e )
+            {
+                // staged file was removed meanwhile, so resolve again
+                m_context.getStagedArtifacts().remove( key, staged );
+            }
+        }
+        final SharedResolution resolution = new SharedResolution( resolutions, key, m_context.getShareExecutor() );
+        while( true )
+        {
+            final SharedResolution inProgress = resolutions.putIfAbsent( key, resolution );
+            if( inProgress == null )
+            {
+                break;
+            }
+            if( inProgress.join() )
+            {
+                LOG.debug( "Waiting for concurrent resolution of [" + url.toExternalForm() + "]" );
+                final InputStream inputStream = inProgress.await(
+                    m_configuration.getReadTimeout(),
+                    new SharedResolution.Resolver()
+                    {
+                        public InputStream resolve()
+                            throws IOException
+                        {
+                            return Connection.this.resolve();
+                        }
+
+                        public String getArtifact()
+                        {
+                            return m_downloaded.getArtifactURL().toExternalForm();
+                        }
+
+                        public long getLength()
+                        {
+                            return m_downloadedLength;
+                        }
+                    }
+                );
+                return inputStream != null ? inputStream : resolve();
+            }
+            // resolution is over, so start a new one
+            resolutions.remove( key, inProgress );
+        }
+        // the resolution unregisters itself once the download ends
+        final InputStream inputStream;
+        try
+        {
+            inputStream = resolve();
+        }
+        catch( IOException e )
+        {
+            resolution.fail( e );
+            throw e;
+        }
+        catch( RuntimeException e )
+        {
+            resolution.fail( e );
+            throw e;
+        }
+        if( isLocal( m_downloaded ) )
+        {
+            resolution.unshared();
+            return inputStream;
+        }
+        return resolution.share( inputStream, m_downloaded.getArtifactURL().toExternalForm(), m_downloadedLength );
+    }
+
+    /**
+     * Returns the normalized coordinates of the artifact denoted by the url, used to recognize connections for the same
+     * artifact.
+     *
+     * @return artifact coordinates
+     */
+    String getCoordinates()
+    {
+        final MavenRepositoryURL repositoryURL = m_parser.getRepositoryURL();
+        return new StringBuilder()
+            .append( repositoryURL == null ? "" : repositoryURL.getURL().toExternalForm() )
+            .append( "!" ).append( m_parser.getGroup() )
+            .append( "/" ).append( m_parser.getArtifact() )
+            .append( "/" ).append( m_parser.getVersion() )
+            .append( "/" ).append( m_parser.getType() )
+            .append( "/" ).append( m_parser.getClassifier() )
+            .toString();
+    }
+
+    /**
+     * Returns the file of the artifact downloaded by {@link #getInputStream()} if it was found in a local (file)
+     * repository.
+     *
+     * @return artifact file or null if not yet downloaded, downloaded from a remote repository or shared with a
+     *         concurrent connection
+     */
+    File getDownloadedFile()
+    {
+        if( m_downloaded == null || !"file".equals( m_downloaded.getArtifactURL().getProtocol() ) )
+        {
+            return null;
+        }
+        try
+        {
+            return new File( m_downloaded.getArtifactURL().toURI() );
+        }
+        catch( URISyntaxException e )
+        {
+            return null;
+        }
+        catch( IllegalArgumentException e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Resolves and downloads the artifact denoted by the url.
+     *
+     * @return the input stream for the resource denoted by url
+     *
+     * @throws IOException in case of an exception during accessing the resource
+     */
+    private InputStream resolve()
+        throws IOException
+    {
+        LOG.debug( "Resolving [" + url.toExternalForm() + "]" );
+        final Set<DownloadableArtifact> defaultDownloadables = collectDefaultPossibleDownloads();
+        if( LOG.isTraceEnabled() )
+        {
+            LOG.trace( "Possible default download locations for [" + url.toExternalForm() + "]" );
+            for( DownloadableArtifact artifact : defaultDownloadables )
+            {
+                LOG.trace( "  " + artifact );
+            }
+        }
+        InputStream inputStream = download( defaultDownloadables );
+        if( inputStream != null )
+        {
+            return inputStream;
+        }
+        final Set<DownloadableArtifact> downloadables = collectPossibleDownloads();
+        if( LOG.isTraceEnabled() )
+        {
+            LOG.trace( "Possible download locations for [" + url.toExternalForm() + "]" );
+            for( DownloadableArtifact artifact : downloadables )
+            {
+                LOG.trace( "  " + artifact );
+            }
+        }
+        inputStream = download( downloadables );
+        if( inputStream != null )
+        {
+            return inputStream;
+        }
+        // no artifact found
+        if( m_configuration.getOffline() )
+        {
+            throw new RuntimeException(
+                "URL [" + url.toExternalForm() + "] could not be resolved offline,"
+                + " only file repositories were searched."
+            );
+        }
+        throw new RuntimeException(
+            "URL [" + url.toExternalForm() + "] could not be resolved."
+        );
+    }
+
+    /**
+     * Tries to download the artifacts in the provided order, returning the input stream of the first artifact that
+     * could be downloaded. Artifacts known to be missing or that recently failed checksum verification are skipped and
+     * artifacts that are not found are remembered as missing. If hedging is enabled, downloads from remote
+     * repositories that do not start within the hedge delay are hedged by the next repositories having the same version.
+     *
+     * @param downloadables artifacts to download
+     *
+     * @return input stream of first artifact that could be downloaded or null if none could be downloaded
+     */
+    private InputStream download( final Set<DownloadableArtifact> downloadables )
+    {
+        final List<DownloadableArtifact> artifacts = new ArrayList<DownloadableArtifact>( downloadables );
+        final Set<DownloadableArtifact> attempted = new HashSet<DownloadableArtifact>();
+        final boolean hedging = m_configuration.getHedgeDelay() > 0 && m_configuration.getMaxHedges() > 0;
+        for( int i = 0; i < artifacts.size(); i++ )
+        {
+            final DownloadableArtifact artifact = artifacts.get( i );
+            if( attempted.contains( artifact ) || !isDownloadable( artifact ) )
+            {
+                continue;
+            }
+            final Download download;
+            if( hedging && !isLocal( artifact ) )
+            {
+                final List<DownloadableArtifact> group = new ArrayList<DownloadableArtifact>();
+                group.add( artifact );
+                for( int j = i + 1; j < artifacts.size() && group.size() <= m_configuration.getMaxHedges(); j++ )
+                {
+                    final DownloadableArtifact alternative = artifacts.get( j );
+                    if( alternative.getVersion().equals( artifact.getVersion() ) && !isLocal( alternative )
+                        && isDownloadable( alternative ) )
+                    {
+                        group.add( alternative );
+                    }
+                }
+                attempted.addAll( group );
+                download = openHedged( group );
+            }
+            else
+            {
+                download = open( artifact );
+            }
+            if( download != null )
+            {
+                m_downloaded = download.getArtifact();
+                m_downloadedLength = download.getLength();
+                final DownloadableArtifact downloaded = m_downloaded;
+                final long start = System.nanoTime();
+                final InputStream inputStream = new MeteredInputStream(
+                    download.getInputStream(), m_context.getMetrics(), downloaded.getRepository()
+                )
+                {
+                    @Override
+                    protected void completed( final long bytes )
+                    {
+                        fire( ResolutionEvent.Type.DOWNLOAD_COMPLETED, downloaded.getRepository(),
+                              downloaded.getArtifactURL().toExternalForm(), start, bytes, null
+                        );
+                    }
+                };
+                return writeThrough( m_downloaded, verifyChecksum( m_downloaded, inputStream ) );
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if an artifact should be downloaded.
+     *
+     * @param artifact artifact to check
+     *
+     * @return false if the artifact is known to be missing, failed checksum verification or its repository is failing
+     */
+    private boolean isDownloadable( final DownloadableArtifact artifact )
+    {
+        final String key = artifact.getArtifactURL().toExternalForm();
+        if( m_context.getNotFoundCache().get( key ) != null )
+        {
+            LOG.debug( Ix2 + "Skipping [" + artifact + "] as it is known to be missing" );
+            return false;
+        }
+        if( m_context.getChecksumFailureCache().get( key ) != null )
+        {
+            LOG.debug( Ix2 + "Skipping [" + artifact + "] as it failed checksum verification" );
+            return false;
+        }
+        if( !m_context.getCircuitBreaker( artifact.getRepository() ).isAvailable( this ) )
+        {
+            LOG.debug( Ix2 + "Skipping [" + artifact + "] as its repository is failing" );
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Starts the download of an artifact. Artifacts that are not found are remembered as missing.
+     *
+     * @param artifact artifact to download
+     *
+     * @return started download or null if the artifact could not be downloaded
+     */
+    private Download open( final DownloadableArtifact artifact )
+    {
+        if( !m_context.getCircuitBreaker( artifact.getRepository() ).allowRequest( this ) )
+        {
+            LOG.debug( Ix2 + "Skipping [" + artifact + "] as its repository is failing" );
+            return null;
+        }
+        LOG.trace( "Downloading [" + artifact + "]" );
+        final long start = System.currentTimeMillis();
+        final long started = System.nanoTime();
+        try
+        {
+            final InputStream inputStream = artifact.getInputStream(
+                m_context.getTransport(),
+                m_configuration.getDownloadRetries(),
+                m_configuration.getDownloadRetryDelay()
+            );
+            answered( artifact.getRepository(), ResolutionMetrics.Request.ARTIFACT, start, true );
+            fire( ResolutionEvent.Type.CANDIDATE_ATTEMPTED, artifact.getRepository(),
+                  artifact.getArtifactURL().toExternalForm(), started, -1, null
+            );
+            final long length = inputStream instanceof ResumableInputStream
+                                ? ( (ResumableInputStream) inputStream ).getLength()
+                                : -1;
+            return new Download( artifact, inputStream, length, System.currentTimeMillis() - start );
+        }
+        catch( IOException ignore )
+        {
+            if( ignore instanceof FileNotFoundException )
+            {
+                m_context.getNotFoundCache().put( artifact.getArtifactURL().toExternalForm(), Boolean.TRUE, 1 );
+                answered( artifact.getRepository(), ResolutionMetrics.Request.ARTIFACT, start, false );
+            }
+            else if( !( ignore instanceof ConnectionUnavailableException ) )
+            {
+                failed( artifact.getRepository(), ResolutionMetrics.Request.ARTIFACT, start );
+            }
+            fire( ResolutionEvent.Type.CANDIDATE_ATTEMPTED, artifact.getRepository(),
+                  artifact.getArtifactURL().toExternalForm(), started, -1, ignore
+            );
+            // go on with next repository
+            LOG.debug( Ix2 + "Could not download [" + artifact + "]" );
+            LOG.trace( Ix2 + "Reason [" + ignore.getClass().getName() + ": " + ignore.getMessage() + "]" );
+            return null;
+        }
+    }
+
+    /**
+     * Starts the download of the first artifact of a group (same version from different repositories). If it does not
+     * start within the hedge delay, the download of the next artifact is started as well, up to the maximum number of
+     * hedges, and whichever starts first is kept while the others are closed as soon as they start. If a download fails
+     * the next artifact is tried right away. A download that started first but is not returned, as the caller was
+     * interrupted meanwhile, is closed.
+     *
+     * @param group artifacts to download, in order of preference
+     *
+     * @return started download or null if none of the artifacts could be downloaded
+     */
+    private Download openHedged( final List<DownloadableArtifact> group )
+    {
+        final ExecutorService executor = group.size() > 1 ? m_context.getHedgeExecutor() : null;
+        if( executor == null )
+        {
+            for( DownloadableArtifact artifact : group )
+            {
+                final Download download = open( artifact );
+                if( download != null )
+                {
+                    return download;
+                }
+            }
+            return null;
+        }
+        final Hedging hedging = m_context.getHedging();
+        final long delay = hedging.getDelay();
+        final AtomicReference<Object> decided = new AtomicReference<Object>();
+        final CompletionService<Download> completion = new ExecutorCompletionService<Download>( executor );
+        final List<Future<Download>> attempts = new ArrayList<Future<Download>>();
+        Download result = null;
+        try
+        {
+            attempts.add( completion.submit( new HedgedDownload( group.get( 0 ), decided ) ) );
+            int running = 1;
+            while( running > 0 )
+            {
+                final boolean canHedge = attempts.size() < group.size();
+                final Future<Download> attempt = canHedge
+                                                 ? completion.poll( delay, TimeUnit.MILLISECONDS )
+                                                 : completion.take();
+                if( attempt == null )
+                {
+                    final DownloadableArtifact hedge = group.get( attempts.size() );
+                    LOG.debug( Ix2 + "Download not started within [" + delay + "] ms, hedging with [" + hedge + "]" );
+                    hedging.hedged( hedge.getRepository() );
+                    attempts.add( completion.submit( new HedgedDownload( hedge, decided ) ) );
+                    running++;
+                    continue;
+                }
+                running--;
+                final Download download = getDownload( attempt );
+                if( download != null )
+                {
+                    hedging.started( download.getLatency() );
+                    if( download.getArtifact() != group.get( 0 ) )
+                    {
+                        hedging.won( download.getArtifact().getRepository() );
+                    }
+                    result = download;
+                    return result;
+                }
+                if( running == 0 && attempts.size() < group.size() )
+                {
+                    // all downloads so far failed, so go on with the next one right away
+                    attempts.add( completion.submit( new HedgedDownload( group.get( attempts.size() ), decided ) ) );
+                    running++;
+                }
+            }
+            return null;
+        }
+        catch( RejectedExecutionException e )
+        {
+            // context disposed meanwhile, so go on without hedging, keeping a running download that already started
+            LOG.debug( Ix2 + "Downloads cannot be hedged, reason: " + e.getMessage() );
+            if( !decided.compareAndSet( null, Boolean.TRUE ) )
+            {
+                result = (Download) decided.get();
+                hedging.started( result.getLatency() );
+                return result;
+            }
+            for( DownloadableArtifact artifact : group.subList( attempts.size(), group.size() ) )
+            {
+                result = open( artifact );
+                if( result != null )
+                {
+                    return result;
+                }
+            }
+            return null;
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        finally
+        {
+            // close the downloads that start later and do not start the ones not yet started
+            final Object winner = decided.getAndSet( Boolean.TRUE );
+            for( Future<Download> attempt : attempts )
+            {
+                attempt.cancel( false );
+            }
+            // a download that started first but is not returned would keep its connection and download permit
+            if( winner instanceof Download && winner != result )
+            {
+                final Download unused = (Download) winner;
+                LOG.debug( Ix2 + "Closing download of [" + unused.getArtifact() + "] as it is not used" );
+                close( unused );
+            }
+        }
+    }
+
+    /**
+     * Closes a download that is not used, releasing its connection.
+     *
+     * @param download download to close
+     */
+    private static void close( final Download download )
+    {
+        try
+        {
+            download.getInputStream().close();
+        }
+        catch( IOException ignore )
+        {
+            // ignore
+        }
+    }
+
+    /**
+     * Returns the outcome of a hedged download.
+     *
+     * @param attempt hedged download
+     *
+     * @return started download or null if the download failed or another download started first
+     */
+    private static Download getDownload( final Future<Download> attempt )
+    {
+        try
+        {
+            return attempt.get();
+        }
+        catch( ExecutionException e )
+        {
+            final Throwable cause = e.getCause();
+            if( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+            if( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+            return null;
+        }
+        catch( CancellationException e )
+        {
+            return null;
+        }
+        catch( InterruptedException e )
+        {
+            // cannot happen as the attempt is done
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * If enabled by the checksum policy, verifies the checksum of an artifact downloaded from a remote repository while
+     * it is read. The published checksum is fetched in parallel if a probe executor is available, otherwise at the end
+     * of the stream. An artifact that fails verification is skipped by later resolutions, so they move on to the next
+     * repository.
+     *
+     * @param artifact    downloaded artifact
+     * @param inputStream artifact input stream
+     *
+     * @return verifying stream or the original stream
+     */
+    private InputStream verifyChecksum( final DownloadableArtifact artifact, final InputStream inputStream )
+    {
+        final String policy = m_configuration.getChecksumPolicy();
+        if( MavenConstants.CHECKSUM_POLICY_IGNORE.equals( policy ) || isLocal( artifact ) )
+        {
+            return inputStream;
+        }
+        final URL artifactURL = artifact.getArtifactURL();
+        final FutureTask<Checksum> checksum = new FutureTask<Checksum>(
+            Checksum.fetch( m_context.getTransport(), artifactURL )
+        );
+        final ExecutorService executor = m_context.getProbeExecutor();
+        if( executor != null )
+        {
+            try
+            {
+                executor.execute( checksum );
+            }
+            catch( RejectedExecutionException ignore )
+            {
+                // checksum will be fetched at the end of the stream
+            }
+        }
+        return new ChecksumVerifyingInputStream(
+            inputStream, artifactURL.toExternalForm(), checksum, MavenConstants.CHECKSUM_POLICY_FAIL.equals( policy )
+        )
+        {
+            @Override
+            protected void onMismatch()
+            {
+                m_context.getChecksumFailureCache().put( artifactURL.toExternalForm(), Boolean.TRUE, 1 );
+            }
+        };
+    }
+
+    /**
+     * Checks if an artifact is downloaded from a local (file or zip) repository.
+     *
+     * @param artifact artifact
+     *
+     * @return true if artifact is downloaded from a local repository
+     */
+    private static boolean isLocal( final DownloadableArtifact artifact )
+    {
+        final String protocol = artifact.getArtifactURL().getProtocol();
+        return "file".equals( protocol ) || "jar".equals( protocol );
+    }
+
+    /**
+     * If enabled, stores the artifact in the local repository while it is read, so later resolutions find it there.
+     * Only release artifacts downloaded from remote repositories are stored, as snapshots are resolved from the local
+     * repository only if built locally. If the artifact cannot be stored the original stream is returned.
+     * Interrupted downloads are resumed below the returned stream, so a partially written file is completed instead of
+     * being discarded.
+     *
+     * @param artifact    downloaded artifact
+     * @param inputStream artifact input stream
+     *
+     * @return stream that stores the artifact or the original stream
+     */
+    private InputStream writeThrough( final DownloadableArtifact artifact, final InputStream inputStream )
+    {
+        if( !m_configuration.getLocalRepositoryWriteThrough() )
+        {
+            return inputStream;
+        }
+        final MavenRepositoryURL localRepository = m_configuration.getLocalRepository();
+        if( localRepository == null || !localRepository.isFileRepository() || isLocal( artifact )
+            || artifact.getPath().contains( "SNAPSHOT" ) )
+        {
+            return inputStream;
+        }
+        final File target = new File( localRepository.getFile(), artifact.getPath() );
+        if( target.exists() )
+        {
+            return inputStream;
+        }
+        try
+        {
+            LOG.debug( Ix2 + "Storing [" + artifact + "] in local repository" );
+            return new WriteThroughInputStream( inputStream, target );
+        }
+        catch( IOException e )
+        {
+            LOG.warn( "Could not store [" + artifact + "] in local repository, reason: " + e.getMessage() );
+            return inputStream;
+        }
+    }
+
+    /**
+     * Searches all available repositories for possible artifacts to download. The returned set of downloadable
+     * artifacts (never null, but maybe empty) will be sorted descending by version of the artifact and by positon of
+     * repository in the list of repositories to be searched.
+     *
+     * @return a non null sorted set of artifacts
+     *
+     * @throws java.net.MalformedURLException re-thrown
+     */
+    private Set<DownloadableArtifact> collectPossibleDownloads()
+        throws MalformedURLException
+    {
+        final List<MavenRepositoryURL> repositories = new ArrayList<MavenRepositoryURL>();
+        if( m_configuration.getAdaptiveRepositoryOrder() )
+        {
+            repositories.addAll( m_context.getRepositoryStatistics().order( m_configuration.getRepositories() ) );
+            // a prefered repository from the url is always searched first
+            if( m_parser.getRepositoryURL() != null )
+            {
+                repositories.add( 0, m_parser.getRepositoryURL() );
+            }
+            return doCollectPossibleDownloads( repositories );
+        }
+        repositories.addAll( m_configuration.getRepositories() );
+        // if the url contains a prefered repository add that repository as the first repository to be searched
+        if( m_parser.getRepositoryURL() != null )
+        {
+            repositories.add(
+                repositories.size() == 0 ? 0 : 1,
+                m_parser.getRepositoryURL()
+            );
+        }
+        return doCollectPossibleDownloads( repositories );
+    }
+
+    /**
+     * Search the default repositories for possible artifacts to download.
+     */
+    private Set<DownloadableArtifact> collectDefaultPossibleDownloads()
+        throws MalformedURLException
+    {
+        if( m_configuration.getAdaptiveRepositoryOrder() )
+        {
+            return doCollectPossibleDownloads(
+                m_context.getRepositoryStatistics().order( m_configuration.getDefaultRepositories() )
+            );
+        }
+        return doCollectPossibleDownloads( m_configuration.getDefaultRepositories() );
+    }
+
+    /**
+     * Searches the provided repositories for possible artifacts to download. If a probe executor is available the
+     * repositories are probed concurrently, otherwise one after another. In both cases the result is sorted by
+     * {@link DownloadComparator}.
+     *
+     * @param searched repositories to be searched; repositories whose circuit breaker is open are skipped
+     *
+     * @return a non null sorted set of artifacts
+     *
+     * @throws java.net.MalformedURLException re-thrown
+     */
+    private Set<DownloadableArtifact> doCollectPossibleDownloads( final List<MavenRepositoryURL> searched )
+        throws MalformedURLException
+    {
+        final Set<DownloadableArtifact> downloadables = new TreeSet<DownloadableArtifact>( new DownloadComparator() );
+
+        // skip failing repositories right away
+        final List<MavenRepositoryURL> repositories = new ArrayList<MavenRepositoryURL>( searched.size() );
+        final boolean offline = m_configuration.getOffline();
+        for( MavenRepositoryURL repositoryURL : searched )
+        {
+            if( offline && !repositoryURL.isFileRepository() )
+            {
+                LOG.debug( Ix2 + "Skipping repository [" + repositoryURL + "], reason: offline" );
+            }
+            else if( m_context.getCircuitBreaker( RepositoryStatistics.key( repositoryURL.getURL() ) )
+                .isAvailable( this ) )
+            {
+                repositories.add( repositoryURL );
+            }
+            else
+            {
+                LOG.debug( Ix2 + "Skipping repository [" + repositoryURL + "], reason: repository is failing" );
+            }
+        }
+
+        // find artifact type
+        final boolean isLatest = m_parser.getVersion().contains( "LATEST" );
+        final boolean isSnapshot = m_parser.getVersion().endsWith( "SNAPSHOT" );
+        VersionRange versionRange = null;
+        if( !isLatest && !isSnapshot )
+        {
+            try
+            {
+                versionRange = new VersionRange( m_parser.getVersion() );
+            }
+            catch( Exception ignore )
+            {
+                // well, we do not have a range of versions
+            }
+        }
+
+        final ExecutorService executor = repositories.size() > 1 ? m_context.getProbeExecutor() : null;
+        if( executor == null
+            || !collectConcurrently( executor, repositories, downloadables, isLatest, isSnapshot, versionRange ) )
+        {
+            int priority = 0;
+            for( MavenRepositoryURL repositoryURL : repositories )
+            {
+                priority++;
+                try
+                {
+                    final List<DownloadableArtifact> found =
+                        probeRepository( repositoryURL, priority, isLatest, isSnapshot, versionRange );
+                    downloadables.addAll( found );
+                    // if we have a local built snapshot we skip the rest of repositories
+                    if( isSnapshot && containsLocalSnapshotBuild( found ) )
+                    {
+                        break;
+                    }
+                }
+                catch( IOException ignore )
+                {
+                    // if metadata cannot be found we go on with the next repository. Maybe we have better luck.
+                    LOG.debug( Ix2 + "Skipping repository [" + repositoryURL + "], reason: " + ignore.getMessage() );
+                }
+            }
+        }
+        return downloadables;
+    }
+
+    /**
+     * Probes all repositories at once using the provided executor. The results are gathered in repository order, so
+     * the priorities and the skipping of repositories after a local built snapshot are the same as when probing one
+     * repository after another. Repositories that do not answer within the configured probe timeout are skipped. The
+     * timeout of each repository is counted from the moment its probe starts, so probes queued while all probe threads
+     * are busy do not lose the time spent in the queue.
+     *
+     * @param executor      executor to run the probes on
+     * @param repositories  repositories to be searched
+     * @param downloadables set to add found artifacts to
+     * @param isLatest      true if the LATEST version should be resolved
+     * @param isSnapshot    true if a SNAPSHOT version should be resolved
+     * @param versionRange  version range to be resolved; null if not a version range
+     *
+     * @return false if the probes could not be submitted (e.g. executor was shutdown due to a configuration change)
+     */
+    private boolean collectConcurrently( final ExecutorService executor,
+                                         final List<MavenRepositoryURL> repositories,
+                                         final Set<DownloadableArtifact> downloadables,
+                                         final boolean isLatest,
+                                         final boolean isSnapshot,
+                                         final VersionRange versionRange )
+    {
+        final List<Future<List<DownloadableArtifact>>> probes = new ArrayList<Future<List<DownloadableArtifact>>>();
+        final AtomicLongArray starts = new AtomicLongArray( repositories.size() );
+        try
+        {
+            int priority = 0;
+            for( final MavenRepositoryURL repositoryURL : repositories )
+            {
+                final int repositoryPriority = ++priority;
+                probes.add( executor.submit(
+                    new Callable<List<DownloadableArtifact>>()
+                    {
+                        public List<DownloadableArtifact> call()
+                            throws IOException
+                        {
+                            starts.set( repositoryPriority - 1, System.currentTimeMillis() );
+                            return probeRepository(
+                                repositoryURL, repositoryPriority, isLatest, isSnapshot, versionRange
+                            );
+                        }
+                    }
+                )
+                );
+            }
+        }
+        catch( RejectedExecutionException e )
+        {
+            LOG.debug( Ix2 + "Repositories cannot be probed concurrently, reason: " + e.getMessage() );
+            cancel( probes, 0 );
+            return false;
+        }
+
+        final long timeout = m_configuration.getProbeTimeout();
+        for( int i = 0; i < probes.size(); i++ )
+        {
+            final Future<List<DownloadableArtifact>> probe = probes.get( i );
+            final MavenRepositoryURL repositoryURL = repositories.get( i );
+            try
+            {
+                final List<DownloadableArtifact> found = timeout == 0
+                                                         ? probe.get()
+                                                         : awaitProbe( probe, starts, i, timeout );
+                downloadables.addAll( found );
+                // if we have a local built snapshot we skip the rest of repositories
+                if( isSnapshot && containsLocalSnapshotBuild( found ) )
+                {
+                    cancel( probes, i + 1 );
+                    break;
+                }
+            }
+            catch( ExecutionException e )
+            {
+                final Throwable cause = e.getCause();
+                if( cause instanceof RuntimeException )
+                {
+                    cancel( probes, i + 1 );
+                    throw (RuntimeException) cause;
+                }
+                if( cause instanceof Error )
+                {
+                    cancel( probes, i + 1 );
+                    throw (Error) cause;
+                }
+                // if metadata cannot be found we go on with the next repository. Maybe we have better luck.
+                LOG.debug( Ix2 + "Skipping repository [" + repositoryURL + "], reason: " + cause.getMessage() );
+            }
+            catch( TimeoutException e )
+            {
+                probe.cancel( true );
+                LOG.debug( Ix2 + "Skipping repository [" + repositoryURL + "], reason: no answer within ["
+                           + timeout + "] ms"
+                );
+            }
+            catch( CancellationException e )
+            {
+                LOG.debug( Ix2 + "Skipping repository [" + repositoryURL + "], reason: probe cancelled" );
+            }
+            catch( InterruptedException e )
+            {
+                cancel( probes, i );
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Waits for a probe to answer within the timeout, counted from the moment the probe started. While the probe is
+     * queued (not started yet) the wait is extended.
+     *
+     * @param probe   probe to wait for
+     * @param starts  start times of the probes (0 while queued)
+     * @param index   index of the probe
+     * @param timeout probe timeout (in milliseconds)
+     *
+     * @return artifacts found by the probe
+     *
+     * @throws ExecutionException   if the probe failed
+     * @throws TimeoutException     if the probe did not answer within the timeout since it started
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    private static List<DownloadableArtifact> awaitProbe( final Future<List<DownloadableArtifact>> probe,
+                                                          final AtomicLongArray starts,
+                                                          final int index,
+                                                          final long timeout )
+        throws ExecutionException, TimeoutException, InterruptedException
+    {
+        while( true )
+        {
+            final long started = starts.get( index );
+            final long remaining = started == 0 ? timeout : started + timeout - System.currentTimeMillis();
+            try
+            {
+                return probe.get( Math.max( 0, remaining ), TimeUnit.MILLISECONDS );
+            }
+            catch( TimeoutException e )
+            {
+                if( started != 0 )
+                {
+                    throw e;
+                }
+                // the probe was still queued, so wait again counting from the moment it started
+            }
+        }
+    }
+
+    /**
+     * Probes one repository for possible artifacts to download.
+     *
+     * @param repositoryURL the url of the repository to probe
+     * @param priority      repository priority
+     * @param isLatest      true if the LATEST version should be resolved
+     * @param isSnapshot    true if a SNAPSHOT version should be resolved
+     * @param versionRange  version range to be resolved; null if not a version range
+     *
+     * @return list of downloadable artifacts found in repository
+     *
+     * @throws IOException if the repository does not contain the artifact
+     */
+    private List<DownloadableArtifact> probeRepository( final MavenRepositoryURL repositoryURL,
+                                                        final int priority,
+                                                        final boolean isLatest,
+                                                        final boolean isSnapshot,
+                                                        final VersionRange versionRange )
+        throws IOException
+    {
+        LOG.debug( "Collecting versions from repository [" + repositoryURL + "]" );
+        final String repository = RepositoryStatistics.key( repositoryURL.getURL() );
+        final long start = System.nanoTime();
+        try
+        {
+            final List<DownloadableArtifact> downloadables = new ArrayList<DownloadableArtifact>();
+            if( !( isLatest || isSnapshot || versionRange != null ) )
+            {
+                downloadables.add( resolveExactVersion( repositoryURL, priority ) );
+            }
+            else if( isSnapshot )
+            {
+                downloadables.add( resolveSnapshotVersion( repositoryURL, priority, m_parser.getVersion() ) );
+            }
+            else
+            {
+                final LocalRepositoryIndex localIndex = getLocalRepositoryIndex( repositoryURL );
+                final Metadata metadata = localIndex != null
+                                          ? getLocalMetadata( localIndex )
+                                          : getMetadata( repositoryURL.getURL(),
+                                                         new String[]
+                                                             {
+                                                                 m_parser.getArtifactLocalMetdataPath(),
+                                                                 m_parser.getArtifactMetdataPath()
+                                                             }
+                                          );
+                if( isLatest )
+                {
+                    downloadables.add( resolveLatestVersion( metadata, repositoryURL, priority ) );
+                }
+                else
+                {
+                    downloadables.addAll( resolveRangeVersions( metadata, repositoryURL, priority, versionRange ) );
+                }
+            }
+            fire( ResolutionEvent.Type.REPOSITORY_PROBED, repository, null, start, -1, null );
+            return downloadables;
+        }
+        catch( IOException e )
+        {
+            fire( ResolutionEvent.Type.REPOSITORY_PROBED, repository, null, start, -1, e );
+            throw e;
+        }
+    }
+
+    /**
+     * Checks if any of the artifacts is a local built snapshot.
+     *
+     * @param artifacts artifacts to check
+     *
+     * @return true if at least one of the artifacts is a local built snapshot
+     */
+    private static boolean containsLocalSnapshotBuild( final List<DownloadableArtifact> artifacts )
+    {
+        for( DownloadableArtifact artifact : artifacts )
+        {
+            if( artifact.isLocalSnapshotBuild() )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cancels probes starting with the one at the provided index.
+     *
+     * @param probes probes to cancel
+     * @param from   index of first probe to cancel
+     */
+    private static void cancel( final List<Future<List<DownloadableArtifact>>> probes, final int from )
+    {
+        for( int i = from; i < probes.size(); i++ )
+        {
+            probes.get( i ).cancel( true );
+        }
+    }
+
+    /**
+     * Returns maven metadata by looking first for a local metatdata xml file and then for a remote one.
+     * Metadata is looked up first in the metadata cache and, if not cached, downloaded, parsed and cached.
+     * If no metadata file is found or cannot be used an IOException is thrown.
+     * Metadata is parsed in a single pass while reading the stream and only the information used for resolution is
+     * kept, so cached metadata is immutable and can be shared between connections.
+     *
+     * @param repositoryURL     url of the repository from where the metadata should be parsed
+     * @param metadataLocations array of location paths to try as metadata
+     *
+     * @return parsed metadata
+     *
+     * @throws java.io.IOException if:
+     *                             metadata file cannot be located
+     */
+    private Metadata getMetadata( final URL repositoryURL,
+                                  final String[] metadataLocations )
+        throws IOException
+    {
+        LOG.debug( Ix2 + "Resolving metadata" );
+        final ExpiringCache<Metadata> cache = m_metadataCache;
+        final ExpiringCache<ValidatedMetadata> validatedCache = m_context.getValidatedMetadataCache();
+        final UpdatePolicy updatePolicy = m_context.getMetadataUpdatePolicy();
+        final boolean remote = isHttp( repositoryURL );
+        TransportResponse response = null;
+        String foundLocation = null;
+        long checked = 0;
+        long foundStarted = 0;
+        final ExpiringCache<Boolean> notFound = m_context.getNotFoundCache();
+        final String repository = RepositoryStatistics.key( repositoryURL );
+        for( String location : metadataLocations )
+        {
+            final String key = getCacheKey( repositoryURL, location );
+            final long started = System.nanoTime();
+            final Metadata cached = cache.get( key );
+            if( cached != null )
+            {
+                LOG.trace( Ix4 + "Metadata found in cache: [" + location + "]" );
+                fire( ResolutionEvent.Type.METADATA_CACHED, repository, key, started, -1, null );
+                return cached;
+            }
+            if( notFound.get( key ) != null )
+            {
+                LOG.trace( Ix4 + "Metadata known to be missing: [" + location + "]" );
+                continue;
+            }
+            final ValidatedMetadata validated = remote ? validatedCache.get( key ) : null;
+            final long start = System.currentTimeMillis();
+            if( validated != null && !updatePolicy.isUpdateRequired( validated.getLastChecked(), start ) )
+            {
+                if( validated.getMetadata() == null )
+                {
+                    LOG.trace( Ix4 + "Metadata missing as of last update: [" + location + "]" );
+                    continue;
+                }
+                LOG.trace( Ix4 + "Metadata up to date: [" + location + "]" );
+                fire( ResolutionEvent.Type.METADATA_CACHED, repository, key, started, -1, null );
+                return validated.getMetadata();
+            }
+            if( !m_context.getCircuitBreaker( repository ).allowRequest( this ) )
+            {
+                LOG.trace( Ix4 + "Skipping metadata [" + location + "] as the repository is failing" );
+                break;
+            }
+            try
+            {
+                // first try to get the artifact local metadata
+                response = prepareResponse( repositoryURL, location, getConditions( validated ) );
+                answered( repository, ResolutionMetrics.Request.METADATA, start, true );
+                if( response.getStatus() == HttpURLConnection.HTTP_NOT_MODIFIED && validated != null )
+                {
+                    closeQuietly( response );
+                    validated.checked( start );
+                    LOG.trace( Ix4 + "Metadata not modified: [" + location + "]" );
+                    fire( ResolutionEvent.Type.METADATA_FETCHED, repository, key, started, 0, null );
+                    return validated.getMetadata();
+                }
+                // get out at first found location
+                foundLocation = location;
+                checked = start;
+                foundStarted = started;
+                LOG.trace( Ix4 + "Metadata found: [" + location + "]" );
+                break;
+            }
+            catch( FileNotFoundException ignore )
+            {
+                notFound.put( key, Boolean.TRUE, 1 );
+                if( remote )
+                {
+                    // remembered as missing till next update
+                    validatedCache.put( key, new ValidatedMetadata( null, null, null, start ), 1 );
+                }
+                answered( repository, ResolutionMetrics.Request.METADATA, start, false );
+                fire( ResolutionEvent.Type.METADATA_FETCHED, repository, key, started, 0, ignore );
+                LOG.trace( Ix4 + "Metadata not found: [" + location + "]" );
+            }
+            catch( IOException ignore )
+            {
+                if( !( ignore instanceof ConnectionUnavailableException ) )
+                {
+                    failed( repository, ResolutionMetrics.Request.METADATA, start );
+                }
+                fire( ResolutionEvent.Type.METADATA_FETCHED, repository, key, started, 0, ignore );
+                LOG.trace( Ix4 + "Metadata not found: [" + location + "]" );
+            }
+        }
+        if( response == null )
+        {
+            throw new IOException( "Metadata not found in repository [" + repositoryURL + "]" );
+        }
+        try
+        {
+            final MeteredInputStream inputStream =
+                new MeteredInputStream( response.getInputStream(), m_context.getMetrics(), repository );
+            final Metadata metadata = MetadataParser.parse( inputStream );
+            final String key = getCacheKey( repositoryURL, foundLocation );
+            fire( ResolutionEvent.Type.METADATA_FETCHED, repository, key, foundStarted, inputStream.getBytes(), null );
+            cache.put( key, metadata, metadata.getWeight() );
+            if( remote )
+            {
+                validatedCache.put(
+                    key,
+                    new ValidatedMetadata(
+                        metadata, response.getHeader( "ETag" ), response.getHeader( "Last-Modified" ), checked
+                    ),
+                    metadata.getWeight()
+                );
+            }
+            return metadata;
+        }
+        catch( ParserConfigurationException e )
+        {
+            throw initIOException( "Metadata [" + foundLocation + "] could not be parsed.", e );
+        }
+        catch( SAXException e )
+        {
+            throw initIOException( "Metadata [" + foundLocation + "] could not be parsed.", e );
+        }
+        finally
+        {
+            closeQuietly( response );
+        }
     }
 
     /**
-     * Does nothing.
+     * Returns the local repository index if the repository is the indexed local repository.
      *
-     * @see java.net.URLConnection#connect()
+     * @param repositoryURL url of the repository
+     *
+     * @return local repository index or null if the repository is not indexed
      */
-    @Override
-    public void connect()
+    private LocalRepositoryIndex getLocalRepositoryIndex( final MavenRepositoryURL repositoryURL )
     {
-        // do nothing
+        final LocalRepositoryIndex localIndex = m_context.getLocalRepositoryIndex();
+        if( localIndex != null && repositoryURL.isFileRepository()
+            && localIndex.getRepository().equals( RepositoryStatistics.key( repositoryURL.getURL() ) ) )
+        {
+            return localIndex;
+        }
+        return null;
     }
 
     /**
-     * Returns the input stream denoted by the url.<br/>
-     * If the url does not contain a repository the resource is searched in every repository if available, in the order
-     * provided by the repository setting.
+     * Returns the equivalent of maven metadata for the versions of the artifact found in the local repository index.
+     * Only versions that contain the artifact file (or, for snapshots, a timestamped build of it) are included. The
+     * highest version is the last one, so it is the one resolved as LATEST.
      *
-     * @return the input stream for the resource denoted by url
+     * @param localIndex local repository index
      *
-     * @throws IOException in case of an exception during accessing the resource
-     * @see java.net.URLConnection#getInputStream()
+     * @return metadata listing the versions of the artifact
+     *
+     * @throws FileNotFoundException if the artifact is not in the local repository
      */
-    @Override
-    public InputStream getInputStream()
-        throws IOException
+    private Metadata getLocalMetadata( final LocalRepositoryIndex localIndex )
+        throws FileNotFoundException
     {
-        connect();
-        LOG.debug( "Resolving [" + url.toExternalForm() + "]" );
-        final Set<DownloadableArtifact> defaultDownloadables = collectDefaultPossibleDownloads();
-        if( LOG.isTraceEnabled() )
+        LOG.debug( Ix2 + "Resolving versions from local repository index" );
+        final List<String> versions = new ArrayList<String>();
+        Version highest = null;
+        final Map<String, Set<String>> indexed = localIndex.getVersions( m_parser.getArtifactDirectory() );
+        for( Map.Entry<String, Set<String>> entry : indexed.entrySet() )
         {
-            LOG.trace( "Possible default download locations for [" + url.toExternalForm() + "]" );
-            for( DownloadableArtifact artifact : defaultDownloadables )
+            final String versionString = entry.getKey();
+            final Set<String> files = entry.getValue();
+            if( files.contains( getFileName( m_parser.getArtifactPath( versionString ) ) )
+                || ( versionString.endsWith( "SNAPSHOT" ) && findSnapshotBuild( files, versionString ) != null ) )
             {
-                LOG.trace( "  " + artifact );
+                final Version version = new Version( versionString );
+                if( highest == null || version.compareTo( highest ) > 0 )
+                {
+                    highest = version;
+                    versions.add( versionString );
+                }
+                else
+                {
+                    versions.add( versions.size() - 1, versionString );
+                }
             }
         }
-        for( DownloadableArtifact artifact : defaultDownloadables )
+        if( versions.isEmpty() )
         {
-            LOG.trace( "Downloading [" + artifact + "]" );
-            try
-            {
-                m_configuration.enableProxy( artifact.getArtifactURL() );
-                return artifact.getInputStream();
-            }
-            catch( IOException ignore )
-            {
-                // go on with next repository
-                LOG.debug( Ix2 + "Could not download [" + artifact + "]" );
-                LOG.trace( Ix2 + "Reason [" + ignore.getClass().getName() + ": " + ignore.getMessage() + "]" );
-            }
+            throw new FileNotFoundException(
+                "Artifact [" + m_parser.getArtifactDirectory() + "] not found in local repository"
+            );
         }
-        final Set<DownloadableArtifact> downloadables = collectPossibleDownloads();
-        if( LOG.isTraceEnabled() )
+        return new Metadata( versions.toArray( new String[versions.size()] ), null, null, null, null );
+    }
+
+    /**
+     * Returns the equivalent of maven metadata for a snapshot version found in the local repository index:
+     * 1. if the version contains a local built snapshot (marked by a local metadata file) the artifact file is used
+     * and its modification time is the last updated time;
+     * 2. else if the version contains timestamped builds the latest one is used;
+     * 3. else the artifact file is used (as downloaded from a remote repository) and its modification time is the
+     * last updated time.
+     *
+     * @param localIndex local repository index
+     * @param version    snapshot version
+     *
+     * @return metadata of the snapshot version
+     *
+     * @throws FileNotFoundException if the snapshot version is not in the local repository
+     */
+    private Metadata getLocalSnapshotMetadata( final LocalRepositoryIndex localIndex, final String version )
+        throws FileNotFoundException
+    {
+        LOG.debug( Ix2 + "Resolving snapshot from local repository index" );
+        final Set<String> files = localIndex.getFiles( m_parser.getArtifactDirectory(), version );
+        final String artifactPath = m_parser.getArtifactPath( version );
+        final boolean localBuild = files.contains( getFileName( m_parser.getVersionLocalMetadataPath( version ) ) );
+        final String[] build = findSnapshotBuild( files, version );
+        if( files.contains( getFileName( artifactPath ) ) && ( localBuild || build == null ) )
         {
-            LOG.trace( "Possible download locations for [" + url.toExternalForm() + "]" );
-            for( DownloadableArtifact artifact : downloadables )
-            {
-                LOG.trace( "  " + artifact );
-            }
+            final SimpleDateFormat format = new SimpleDateFormat( "yyyyMMddHHmmss" );
+            format.setTimeZone( TimeZone.getTimeZone( "UTC" ) );
+            final String lastUpdated = format.format( new Date( localIndex.getFile( artifactPath ).lastModified() ) );
+            return new Metadata( new String[0], null, null, localBuild ? "true" : null, lastUpdated );
         }
-        for( DownloadableArtifact artifact : downloadables )
+        if( build != null )
         {
-            LOG.trace( "Downloading [" + artifact + "]" );
-            try
-            {
-                m_configuration.enableProxy( artifact.getArtifactURL() );
-                return artifact.getInputStream();
-            }
-            catch( IOException ignore )
-            {
-                // go on with next repository
-                LOG.debug( Ix2 + "Could not download [" + artifact + "]" );
-                LOG.trace( Ix2 + "Reason [" + ignore.getClass().getName() + ": " + ignore.getMessage() + "]" );
-            }
+            return new Metadata( new String[0], build[ 0 ], build[ 1 ], null, null );
         }
-        // no artifact found
-        throw new RuntimeException(
-            "URL [" + url.toExternalForm() + "] could not be resolved."
-        );
+        throw new FileNotFoundException( "Snapshot [" + artifactPath + "] not found in local repository" );
     }
 
     /**
-     * Searches all available repositories for possible artifacts to download. The returned set of downloadable
-     * artifacts (never null, but maybe empty) will be sorted descending by version of the artifact and by positon of
-     * repository in the list of repositories to be searched.
+     * Finds the latest timestamped build of a snapshot version (as artifact-1.0-20110101.120000-1.jar) among files.
      *
-     * @return a non null sorted set of artifacts
+     * @param files   file names
+     * @param version snapshot version
      *
-     * @throws java.net.MalformedURLException re-thrown
+     * @return timestamp and build number of latest build or null if there is no timestamped build
      */
-    private Set<DownloadableArtifact> collectPossibleDownloads()
-        throws MalformedURLException
+    private String[] findSnapshotBuild( final Set<String> files, final String version )
     {
-        final List<MavenRepositoryURL> repositories = new ArrayList<MavenRepositoryURL>();
-        repositories.addAll( m_configuration.getRepositories() );
-        // if the url contains a prefered repository add that repository as the first repository to be searched
-        if( m_parser.getRepositoryURL() != null )
+        final String artifactFile = getFileName( m_parser.getArtifactPath( version ) );
+        final String base = version.substring( 0, version.length() - "SNAPSHOT".length() );
+        final String prefix = m_parser.getArtifact() + "-" + base;
+        final String suffix = artifactFile.substring( prefix.length() + "SNAPSHOT".length() );
+        String[] latest = null;
+        for( String file : files )
         {
-            repositories.add(
-                repositories.size() == 0 ? 0 : 1,
-                m_parser.getRepositoryURL()
-            );
+            if( file.length() > prefix.length() + suffix.length()
+                && file.startsWith( prefix )
+                && file.endsWith( suffix ) )
+            {
+                final Matcher matcher = SNAPSHOT_BUILD.matcher(
+                    file.substring( prefix.length(), file.length() - suffix.length() )
+                );
+                if( matcher.matches()
+                    && ( latest == null
+                         || matcher.group( 1 ).compareTo( latest[ 0 ] ) > 0
+                         || ( matcher.group( 1 ).equals( latest[ 0 ] )
+                              && Integer.parseInt( matcher.group( 2 ) ) > Integer.parseInt( latest[ 1 ] ) ) ) )
+                {
+                    latest = new String[]{ matcher.group( 1 ), matcher.group( 2 ) };
+                }
+            }
         }
-        return doCollectPossibleDownloads( repositories );
+        return latest;
     }
 
     /**
-     * Search the default repositories for possible artifacts to download.
+     * Returns the last segment of a path.
+     *
+     * @param path path
+     *
+     * @return file name
      */
-    private Set<DownloadableArtifact> collectDefaultPossibleDownloads()
-        throws MalformedURLException
+    private static String getFileName( final String path )
     {
-        return doCollectPossibleDownloads( m_configuration.getDefaultRepositories() );
+        return path.substring( path.lastIndexOf( Parser.FILE_SEPARATOR ) + 1 );
     }
 
-    private Set<DownloadableArtifact> doCollectPossibleDownloads( final List<MavenRepositoryURL> repositories )
-        throws MalformedURLException
+    /**
+     * Returns the headers of a conditional request revalidating remembered metadata.
+     *
+     * @param validated remembered metadata; may be null
+     *
+     * @return request headers or null if metadata cannot be revalidated
+     */
+    private static Map<String, String> getConditions( final ValidatedMetadata validated )
     {
-        final Set<DownloadableArtifact> downloadables = new TreeSet<DownloadableArtifact>( new DownloadComparator() );
-
-        // find artifact type
-        final boolean isLatest = m_parser.getVersion().contains( "LATEST" );
-        final boolean isSnapshot = m_parser.getVersion().endsWith( "SNAPSHOT" );
-        VersionRange versionRange = null;
-        if( !isLatest && !isSnapshot )
+        if( validated == null || validated.getMetadata() == null )
         {
-            try
-            {
-                versionRange = new VersionRange( m_parser.getVersion() );
-            }
-            catch( Exception ignore )
-            {
-                // well, we do not have a range of versions
-            }
+            return null;
         }
-        final boolean isVersionRange = versionRange != null;
-        final boolean isExactVersion = !( isLatest || isSnapshot || isVersionRange );
-
-        int priority = 0;
-        for( MavenRepositoryURL repositoryURL : repositories )
+        final Map<String, String> headers = new HashMap<String, String>();
+        if( validated.getETag() != null )
         {
-            LOG.debug( "Collecting versions from repository [" + repositoryURL + "]" );
-            priority++;
-            try
-            {
-                if( isExactVersion )
-                {
-                    downloadables.add( resolveExactVersion( repositoryURL, priority ) );
-                }
-                else if( isSnapshot )
-                {
-                    final DownloadableArtifact snapshot =
-                        resolveSnapshotVersion( repositoryURL, priority, m_parser.getVersion() );
-                    downloadables.add( snapshot );
-                    // if we have a local built snapshot we skip the rest of repositories
-                    if( snapshot.isLocalSnapshotBuild() )
-                    {
-                        break;
-                    }
-                }
-                else
-                {
-                    final Document metadata = getMetadata( repositoryURL.getURL(),
-                                                           new String[]
-                                                               {
-                                                                   m_parser.getArtifactLocalMetdataPath(),
-                                                                   m_parser.getArtifactMetdataPath()
-                                                               }
-                    );
-                    if( isLatest )
-                    {
-                        downloadables.add( resolveLatestVersion( metadata, repositoryURL, priority ) );
-                    }
-                    else
-                    {
-                        downloadables.addAll( resolveRangeVersions( metadata, repositoryURL, priority, versionRange ) );
-                    }
-                }
-            }
-            catch( IOException ignore )
-            {
-                // if metadata cannot be found we go on with the next repository. Maybe we have better luck.
-                LOG.debug( Ix2 + "Skipping repository [" + repositoryURL + "], reason: " + ignore.getMessage() );
-            }
+            headers.put( "If-None-Match", validated.getETag() );
         }
-        return downloadables;
+        if( validated.getLastModified() != null )
+        {
+            headers.put( "If-Modified-Since", validated.getLastModified() );
+        }
+        return headers.isEmpty() ? null : headers;
     }
 
     /**
-     * Returns maven metadata by looking first for a local metatdata xml file and then for a remote one.
-     * If no metadata file is found or cannot be used an IOException is thrown.
+     * Checks if an url is a http(s) url.
      *
-     * @param repositoryURL     url of the repository from where the metadata should be parsed
-     * @param metadataLocations array of location paths to try as metadata
+     * @param url url to check
      *
-     * @return parsed xml document for the metadata file
+     * @return true if url protocol is http or https
+     */
+    private static boolean isHttp( final URL url )
+    {
+        return "http".equals( url.getProtocol() ) || "https".equals( url.getProtocol() );
+    }
+
+    /**
+     * Closes a transport response, ignoring failures.
      *
-     * @throws java.io.IOException if:
-     *                             metadata file cannot be located
+     * @param response response to close; may be null
      */
-    private Document getMetadata( final URL repositoryURL,
-                                  final String[] metadataLocations )
-        throws IOException
+    private static void closeQuietly( final TransportResponse response )
     {
-        LOG.debug( Ix2 + "Resolving metadata" );
-        InputStream inputStream = null;
-        String foundLocation = null;
-        for( String location : metadataLocations )
+        if( response != null )
         {
             try
             {
-                // first try to get the artifact local metadata
-                inputStream = prepareInputStream( repositoryURL, location );
-                // get out at first found location
-                foundLocation = location;
-                LOG.trace( Ix4 + "Metadata found: [" + location + "]" );
-                break;
+                response.close();
             }
             catch( IOException ignore )
             {
-                LOG.trace( Ix4 + "Metadata not found: [" + location + "]" );
+                // ignore
             }
         }
-        if( inputStream == null )
+    }
+
+    /**
+     * Notifies a resolution step to the resolution listeners. The event is only created if there are listeners.
+     *
+     * @param type       resolution step
+     * @param repository repository url; null if the step does not concern a repository
+     * @param resource   url of the resource accessed; null if the step does not concern a resource
+     * @param start      time the step started, as {@link System#nanoTime()}
+     * @param bytes      number of bytes read by the step; -1 if the step does not read bytes
+     * @param failure    failure of the step; null if the step did not fail
+     */
+    private void fire( final ResolutionEvent.Type type,
+                       final String repository,
+                       final String resource,
+                       final long start,
+                       final long bytes,
+                       final Throwable failure )
+    {
+        final ResolutionEventDispatcher dispatcher = m_context.getEventDispatcher();
+        if( dispatcher.hasListeners() )
         {
-            throw new IOException( "Metadata not found in repository [" + repositoryURL + "]" );
+            final long now = System.nanoTime();
+            dispatcher.fire(
+                new ResolutionEvent( type, url.toExternalForm(), repository, resource, now, now - start, bytes, failure )
+            );
         }
-        try
+    }
+
+    /**
+     * Records that a repository answered a request, having the requested resource or not.
+     *
+     * @param repository repository url, ending with a file separator
+     * @param request    kind of request
+     * @param start      time the request started
+     * @param found      true if the repository had the resource
+     */
+    private void answered( final String repository,
+                           final ResolutionMetrics.Request request,
+                           final long start,
+                           final boolean found )
+    {
+        final long latency = System.currentTimeMillis() - start;
+        if( found )
         {
-            return XmlUtils.parseDoc( inputStream );
+            m_context.getRepositoryStatistics().hit( repository, latency );
         }
-        catch( ParserConfigurationException e )
+        else
         {
-            throw initIOException( "Metadata [" + foundLocation + "] could not be parsed.", e );
+            m_context.getRepositoryStatistics().miss( repository, latency );
         }
-        catch( SAXException e )
+        m_context.getCircuitBreaker( repository ).success();
+        m_context.getMetrics().request(
+            repository, request, found ? ResolutionMetrics.Outcome.HIT : ResolutionMetrics.Outcome.NOT_FOUND, latency
+        );
+    }
+
+    /**
+     * Records that a request to a repository failed.
+     *
+     * @param repository repository url, ending with a file separator
+     * @param request    kind of request
+     * @param start      time the request started
+     */
+    private void failed( final String repository, final ResolutionMetrics.Request request, final long start )
+    {
+        final long latency = System.currentTimeMillis() - start;
+        m_context.getRepositoryStatistics().error( repository, latency );
+        m_context.getCircuitBreaker( repository ).failure();
+        m_context.getMetrics().request( repository, request, ResolutionMetrics.Outcome.ERROR, latency );
+    }
+
+    /**
+     * Returns the key used to cache information about a path in a repository. The key is the external form of the url
+     * the path is read from, same as the external form of a {@link DownloadableArtifact#getArtifactURL()}.
+     *
+     * @param repositoryURL url of the repository
+     * @param path          path within repository
+     *
+     * @return cache key
+     */
+    private static String getCacheKey( final URL repositoryURL, final String path )
+    {
+        String repository = repositoryURL.toExternalForm();
+        if( !repository.endsWith( Parser.FILE_SEPARATOR ) )
         {
-            throw initIOException( "Metadata [" + foundLocation + "] could not be parsed.", e );
+            repository = repository + Parser.FILE_SEPARATOR;
         }
+        return repository + path;
     }
 
     /**
@@ -397,13 +1769,13 @@ public class Connection
      *
      * @throws IOException if the artifact could not be resolved
      */
-    private DownloadableArtifact resolveLatestVersion( final Document metadata,
+    private DownloadableArtifact resolveLatestVersion( final Metadata metadata,
                                                        final MavenRepositoryURL repositoryURL,
                                                        final int priority )
         throws IOException
     {
         LOG.debug( Ix2 + "Resolving latest version" );
-        final String version = XmlUtils.getTextContentOfElement( metadata, "versioning/versions/version[last]" );
+        final String version = metadata.getLastVersion();
         if( version != null )
         {
             if( version.endsWith( "SNAPSHOT" ) )
@@ -451,21 +1823,22 @@ public class Connection
             throw new IOException( "Snapshots not enabled" );
         }
         LOG.debug( Ix2 + "Resolving snapshot version [" + version + "]" );
+        final LocalRepositoryIndex localIndex = getLocalRepositoryIndex( repositoryURL );
         try
         {
-            final Document snapshotMetadata = getMetadata( repositoryURL.getURL(),
-                                                           new String[]
-                                                               {
-                                                                   m_parser.getVersionLocalMetadataPath( version ),
-                                                                   m_parser.getVersionMetadataPath( version )
-                                                               }
-            );
-            final String timestamp =
-                XmlUtils.getTextContentOfElement( snapshotMetadata, "versioning/snapshot/timestamp" );
-            final String buildNumber =
-                XmlUtils.getTextContentOfElement( snapshotMetadata, "versioning/snapshot/buildNumber" );
-            final String localSnapshot =
-                XmlUtils.getTextContentOfElement( snapshotMetadata, "versioning/snapshot/localCopy" );
+            final Metadata snapshotMetadata = localIndex != null
+                                              ? getLocalSnapshotMetadata( localIndex, version )
+                                              : getMetadata( repositoryURL.getURL(),
+                                                             new String[]
+                                                                 {
+                                                                     m_parser.getVersionLocalMetadataPath( version ),
+                                                                     m_parser.getVersionMetadataPath( version )
+                                                                 }
+                                              );
+            final String timestamp = snapshotMetadata.getSnapshotTimestamp();
+            final String buildNumber = snapshotMetadata.getSnapshotBuildNumber();
+            final String localSnapshot = snapshotMetadata.getSnapshotLocalCopy();
+            String lastUpdated = snapshotMetadata.getLastUpdated();
             if( timestamp != null && buildNumber != null )
             {
                 return new DownloadableArtifact(
@@ -479,7 +1852,6 @@ public class Connection
             }
             else
             {
-                String lastUpdated = XmlUtils.getTextContentOfElement( snapshotMetadata, "versioning/lastUpdated" );
                 if( lastUpdated != null )
                 {
                     // last updated should contain in the first 8 chars the date and then the time,
@@ -499,8 +1871,13 @@ public class Connection
                 }
             }
         }
-        catch( IOException ignore )
+        catch( IOException e )
         {
+            if( localIndex != null )
+            {
+                // the index already knows that the snapshot is not in the local repository
+                throw e;
+            }
             // in this case we could not find any metadata so try to get the *-SNAPSHOT file directly
         }
         return new DownloadableArtifact(
@@ -514,7 +1891,8 @@ public class Connection
     }
 
     /**
-     * Resolves all versions that fits the provided range.
+     * Resolves all versions that fits the provided range. Versions in range are selected out of the sorted version
+     * index of the metadata and the artifact urls are created only for the artifacts that are actually downloaded.
      *
      * @param metadata      parsed metadata xml
      * @param repositoryURL the url of the repository to download from
@@ -525,7 +1903,7 @@ public class Connection
      *
      * @throws IOException re-thrown
      */
-    private List<DownloadableArtifact> resolveRangeVersions( final Document metadata,
+    private List<DownloadableArtifact> resolveRangeVersions( final Metadata metadata,
                                                              final MavenRepositoryURL repositoryURL,
                                                              final int priority,
                                                              final VersionRange versionRange )
@@ -533,53 +1911,47 @@ public class Connection
     {
         LOG.debug( Ix2 + "Resolving versions in range [" + versionRange + "]" );
         final List<DownloadableArtifact> downladables = new ArrayList<DownloadableArtifact>();
-        final List<Element> elements = XmlUtils.getElements( metadata, "versioning/versions/version" );
-        if( elements != null && elements.size() > 0 )
+        for( Version version : metadata.getVersionIndex().select( versionRange ) )
         {
-            for( Element element : elements )
+            final String versionString = version.toString();
+            if( versionString.endsWith( "SNAPSHOT" ) )
             {
-                final String versionString = XmlUtils.getTextContent( element );
-                if( versionString != null )
-                {
-                    final Version version = new Version( versionString );
-                    if( versionRange.includes( version ) )
-                    {
-                        if( versionString.endsWith( "SNAPSHOT" ) )
-                        {
-                            downladables.add(
-                                resolveSnapshotVersion( repositoryURL, priority, versionString )
-                            );
-                        }
-                        else
-                        {
-                            downladables.add(
-                                new DownloadableArtifact(
-                                    versionString,
-                                    priority,
-                                    repositoryURL.getURL(),
-                                    m_parser.getArtifactPath( versionString ),
-                                    false, // no local built snapshot
-                                    m_configuration.getCertificateCheck()
-                                )
-                            );
-                        }
-                    }
-                }
+                downladables.add(
+                    resolveSnapshotVersion( repositoryURL, priority, versionString )
+                );
+            }
+            else
+            {
+                downladables.add(
+                    new DownloadableArtifact(
+                        version,
+                        priority,
+                        repositoryURL.getURL(),
+                        m_parser.getArtifactPath( versionString ),
+                        false, // no local built snapshot
+                        m_configuration.getCertificateCheck()
+                    )
+                );
             }
         }
         return downladables;
     }
 
     /**
-     * @param repositoryURL url to reporsitory
-     * @param path          a path to the artifact jar file
+     * Opens a path within a repository.
      *
-     * @return prepared input stream
+     * @param repositoryURL url of the repository
+     * @param path          path within repository
+     * @param headers       request headers (e.g. conditions); may be null
+     *
+     * @return transport response
      *
      * @throws IOException re-thrown
-     * @see org.ops4j.net.URLUtils#prepareInputStream(java.net.URL,boolean)
+     * @see org.ops4j.pax.url.maven.commons.Transport#open(java.net.URL, java.util.Map)
      */
-    private InputStream prepareInputStream( URL repositoryURL, final String path )
+    private TransportResponse prepareResponse( final URL repositoryURL,
+                                               final String path,
+                                               final Map<String, String> headers )
         throws IOException
     {
         String repository = repositoryURL.toExternalForm();
@@ -587,10 +1959,9 @@ public class Connection
         {
             repository = repository + Parser.FILE_SEPARATOR;
         }
-        m_configuration.enableProxy( repositoryURL );
         final URL url = new URL( repository + path );
         LOG.trace( "Reading " + url.toExternalForm() );
-        return URLUtils.prepareInputStream( url, !m_configuration.getCertificateCheck() );
+        return m_context.getTransport().open( url, headers );
     }
 
     /**
@@ -639,4 +2010,141 @@ public class Connection
         }
 
     }
+    /**
+     * A started download: the artifact and its input stream.
+     */
+    private static class Download
+    {
+
+        /**
+         * Downloaded artifact.
+         */
+        private final DownloadableArtifact m_artifact;
+        /**
+         * Artifact input stream.
+         */
+        private final InputStream m_inputStream;
+        /**
+         * Artifact length as announced by the repository or -1 if not announced.
+         */
+        private final long m_length;
+        /**
+         * Time in milliseconds the download took to start.
+         */
+        private final long m_latency;
+
+        /**
+         * Creates a new started download.
+         *
+         * @param artifact    downloaded artifact
+         * @param inputStream artifact input stream
+         * @param length      artifact length as announced by the repository or -1 if not announced
+         * @param latency     time in milliseconds the download took to start
+         */
+        Download( final DownloadableArtifact artifact, final InputStream inputStream, final long length,
+                  final long latency )
+        {
+            m_artifact = artifact;
+            m_inputStream = inputStream;
+            m_length = length;
+            m_latency = latency;
+        }
+
+        /**
+         * Getter.
+         *
+         * @return downloaded artifact
+         */
+        DownloadableArtifact getArtifact()
+        {
+            return m_artifact;
+        }
+
+        /**
+         * Getter.
+         *
+         * @return artifact input stream
+         */
+        InputStream getInputStream()
+        {
+            return m_inputStream;
+        }
+
+        /**
+         * Getter.
+         *
+         * @return artifact length as announced by the repository or -1 if not announced
+         */
+        long getLength()
+        {
+            return m_length;
+        }
+
+        /**
+         * Getter.
+         *
+         * @return time in milliseconds the download took to start
+         */
+        long getLatency()
+        {
+            return m_latency;
+        }
+
+    }
+
+    /**
+     * One of the concurrent downloads of a hedged group. Only the first download to start is kept, the others are
+     * closed as soon as they start.
+     */
+    private class HedgedDownload
+        implements Callable<Download>
+    {
+
+        /**
+         * Artifact to download.
+         */
+        private final DownloadableArtifact m_artifact;
+        /**
+         * Download kept once a download of the group started first, or a marker if the group was decided otherwise.
+         */
+        private final AtomicReference<Object> m_decided;
+
+        /**
+         * Creates a new hedged download.
+         *
+         * @param artifact artifact to download
+         * @param decided  set to the download kept once a download of the group started first
+         */
+        HedgedDownload( final DownloadableArtifact artifact, final AtomicReference<Object> decided )
+        {
+            m_artifact = artifact;
+            m_decided = decided;
+        }
+
+        /**
+         * @see Callable#call()
+         */
+        public Download call()
+        {
+            if( m_decided.get() != null )
+            {
+                // do not even claim the repository as another download already started
+                return null;
+            }
+            final Download download = open( m_artifact );
+            if( download == null )
+            {
+                return null;
+            }
+            if( !m_decided.compareAndSet( null, download ) )
+            {
+                LOG.debug( Ix2 + "Closing download of [" + m_artifact + "] as another download started first" );
+                close( download );
+                return null;
+            }
+            return download;
+        }
+
+    }
+
 }
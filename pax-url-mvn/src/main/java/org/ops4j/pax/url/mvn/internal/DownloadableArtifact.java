@@ -19,9 +19,11 @@ package org.ops4j.pax.url.mvn.internal;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.MalformedURLException;
 import java.net.URL;
 import org.ops4j.lang.NullArgumentException;
 import org.ops4j.net.URLUtils;
+import org.ops4j.pax.url.maven.commons.Transport;
 
 /**
  * An artifact that can be downloaded.
@@ -41,9 +43,17 @@ public class DownloadableArtifact
      */
     private final int m_priority;
     /**
-     * The full url from where the artifact can be downloaded.
+     * Url of the repository, ending with a file separator.
      */
-    private final URL m_artifactURL;
+    private final String m_repository;
+    /**
+     * Path to the artifact within repository.
+     */
+    private final String m_path;
+    /**
+     * The full url from where the artifact can be downloaded. Lazy created.
+     */
+    private URL m_artifactURL;
     /**
      * True if the certificate should be checked on SSL connection, false otherwise.
      */
@@ -73,25 +83,78 @@ public class DownloadableArtifact
                           final boolean localSnapshotBuild,
                           final Boolean checkCertificate )
         throws IOException
+    {
+        this( createVersion( version ), priority, repositoryURL, path, localSnapshotBuild, checkCertificate );
+        m_artifactURL = createArtifactURL();
+    }
+
+    /**
+     * Creates a new downloadable artifact out of an already parsed version. The artifact url is created only when
+     * needed, so artifacts that will never be downloaded are cheap to create.
+     *
+     * @param version            artifact version. Cannot be null
+     * @param priority           priority
+     * @param repositoryURL      url to reporsitory. Cannot be null
+     * @param path               a path to the artifact jar file. Cannot be null
+     * @param localSnapshotBuild if the artifact is a local built snapshot
+     * @param checkCertificate   if the certificate should be checked on an SSL connection. Cannot be null
+     *
+     * @throws NullArgumentException if any of the parameters is null
+     */
+    DownloadableArtifact( final Version version,
+                          final int priority,
+                          final URL repositoryURL,
+                          final String path,
+                          final boolean localSnapshotBuild,
+                          final Boolean checkCertificate )
     {
         m_priority = priority;
-        NullArgumentException.validateNotEmpty( version, "Version" );
+        NullArgumentException.validateNotNull( version, "Version" );
         NullArgumentException.validateNotNull( repositoryURL, "Repository URL" );
         NullArgumentException.validateNotNull( path, "Path" );
         NullArgumentException.validateNotNull( localSnapshotBuild, "Local snapshot build" );
         NullArgumentException.validateNotNull( checkCertificate, "Certificate check" );
 
-        m_version = new Version( version );
+        m_version = version;
         String repository = repositoryURL.toExternalForm();
         if( !repository.endsWith( Parser.FILE_SEPARATOR ) )
         {
             repository = repository + Parser.FILE_SEPARATOR;
         }
-        m_artifactURL = new URL( repository + path );
+        m_repository = repository;
+        m_path = path;
         m_localSnapshotBuild = localSnapshotBuild;
         m_checkCertificate = checkCertificate;
     }
 
+    /**
+     * Validates and parses a version.
+     *
+     * @param version version as string
+     *
+     * @return parsed version
+     *
+     * @throws NullArgumentException if version is null or empty
+     */
+    private static Version createVersion( final String version )
+    {
+        NullArgumentException.validateNotEmpty( version, "Version" );
+        return new Version( version );
+    }
+
+    /**
+     * Creates the artifact url.
+     *
+     * @return artifact url
+     *
+     * @throws MalformedURLException if repository and path do not form a valid url
+     */
+    private URL createArtifactURL()
+        throws MalformedURLException
+    {
+        return new URL( m_repository + m_path );
+    }
+
     /**
      * Return the input stream to artifact.
      *
@@ -103,7 +166,34 @@ public class DownloadableArtifact
     InputStream getInputStream()
         throws IOException
     {
-        return URLUtils.prepareInputStream( m_artifactURL, !m_checkCertificate );
+        return URLUtils.prepareInputStream( getArtifactURL(), !m_checkCertificate );
+    }
+
+    /**
+     * Return the input stream to artifact. Downloads from http(s) repositories that get interrupted are resumed from
+     * where they stopped.
+     *
+     * @param transport transport used to connect to the repository; cannot be null
+     * @param retries   maximum number of consecutive attempts to resume an interrupted download
+     * @param delay     delay (in milliseconds) before the first attempt to resume, doubled on each following attempt
+     *
+     * @return prepared input stream
+     *
+     * @throws IOException           re-thrown
+     * @throws NullArgumentException if transport is null
+     * @see ResumableInputStream
+     */
+    InputStream getInputStream( final Transport transport, final int retries, final long delay )
+        throws IOException
+    {
+        NullArgumentException.validateNotNull( transport, "Transport" );
+        final URL artifactURL = getArtifactURL();
+        final String protocol = artifactURL.getProtocol();
+        if( retries > 0 && ( "http".equals( protocol ) || "https".equals( protocol ) ) )
+        {
+            return new ResumableInputStream( transport, artifactURL, retries, delay );
+        }
+        return transport.openStream( artifactURL );
     }
 
     /**
@@ -131,11 +221,43 @@ public class DownloadableArtifact
      *
      * @return artifact URL
      */
-    public URL getArtifactURL()
+    public synchronized URL getArtifactURL()
     {
+        if( m_artifactURL == null )
+        {
+            try
+            {
+                m_artifactURL = createArtifactURL();
+            }
+            catch( MalformedURLException e )
+            {
+                // repository is already an url of a known protocol, so appending a path cannot make it malformed
+                throw new IllegalStateException( "Invalid artifact url [" + m_repository + m_path + "]", e );
+            }
+        }
         return m_artifactURL;
     }
 
+    /**
+     * Getter.
+     *
+     * @return path to the artifact within repository
+     */
+    String getPath()
+    {
+        return m_path;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return url of the repository, ending with a file separator
+     */
+    String getRepository()
+    {
+        return m_repository;
+    }
+
     /**
      * Getter.
      *
@@ -173,7 +295,7 @@ public class DownloadableArtifact
     {
         return new StringBuilder()
             .append( "Version [" ).append( m_version ).append( "]" )
-            .append( " from URL [" ).append( m_artifactURL ).append( "]" )
+            .append( " from URL [" ).append( m_repository ).append( m_path ).append( "]" )
             .toString();
     }
 }
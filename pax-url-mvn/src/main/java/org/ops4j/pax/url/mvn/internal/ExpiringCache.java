@@ -0,0 +1,171 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache where entries expire after a time to live. Each entry has a weight (e.g. its size in bytes) and
+ * when the total weight exceeds the maximum weight the least recently used entries are evicted.
+ * A cache with a time to live of zero does not cache anything.
+ *
+ * @since 1.3.6
+ */
+class ExpiringCache<V>
+{
+
+    /**
+     * Time to live of an entry (in milliseconds).
+     */
+    private final long m_timeToLive;
+    /**
+     * Maximum total weight of cached entries.
+     */
+    private final long m_maxWeight;
+    /**
+     * Cached entries in access order (least recently used first).
+     */
+    private final LinkedHashMap<String, Entry<V>> m_entries;
+    /**
+     * Current total weight of cached entries.
+     */
+    private long m_weight;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param timeToLive time to live of an entry (in milliseconds); zero disables caching
+     * @param maxWeight  maximum total weight of cached entries
+     */
+    ExpiringCache( final long timeToLive, final long maxWeight )
+    {
+        m_timeToLive = timeToLive;
+        m_maxWeight = maxWeight;
+        m_entries = new LinkedHashMap<String, Entry<V>>( 16, 0.75f, true );
+    }
+
+    /**
+     * Returns the cached value for a key.
+     *
+     * @param key cache key
+     *
+     * @return cached value or null if there is no value cached for the key or the value expired
+     */
+    synchronized V get( final String key )
+    {
+        final Entry<V> entry = m_entries.get( key );
+        if( entry == null )
+        {
+            return null;
+        }
+        if( entry.m_expires <= System.currentTimeMillis() )
+        {
+            remove( key );
+            return null;
+        }
+        return entry.m_value;
+    }
+
+    /**
+     * Caches a value. If the value weight is bigger then maximum weight the value is not cached.
+     *
+     * @param key    cache key
+     * @param value  value to cache
+     * @param weight weight of the value
+     */
+    synchronized void put( final String key, final V value, final long weight )
+    {
+        if( m_timeToLive <= 0 || weight > m_maxWeight )
+        {
+            return;
+        }
+        remove( key );
+        m_entries.put( key, new Entry<V>( value, weight, System.currentTimeMillis() + m_timeToLive ) );
+        m_weight += weight;
+        final Iterator<Map.Entry<String, Entry<V>>> iterator = m_entries.entrySet().iterator();
+        while( m_weight > m_maxWeight && iterator.hasNext() )
+        {
+            m_weight -= iterator.next().getValue().m_weight;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Removes a cached value.
+     *
+     * @param key cache key
+     */
+    synchronized void remove( final String key )
+    {
+        final Entry<V> entry = m_entries.remove( key );
+        if( entry != null )
+        {
+            m_weight -= entry.m_weight;
+        }
+    }
+
+    /**
+     * Removes all cached values.
+     */
+    synchronized void clear()
+    {
+        m_entries.clear();
+        m_weight = 0;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return number of cached values (including expired values not yet evicted)
+     */
+    synchronized int size()
+    {
+        return m_entries.size();
+    }
+
+    /**
+     * A cached value.
+     */
+    private static class Entry<V>
+    {
+
+        /**
+         * Cached value.
+         */
+        private final V m_value;
+        /**
+         * Value weight.
+         */
+        private final long m_weight;
+        /**
+         * Time (in milliseconds) when the value expires.
+         */
+        private final long m_expires;
+
+        Entry( final V value, final long weight, final long expires )
+        {
+            m_value = value;
+            m_weight = weight;
+            m_expires = expires;
+        }
+
+    }
+
+}
@@ -0,0 +1,720 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.ops4j.io.FileUtils;
+import org.ops4j.lang.NullArgumentException;
+import org.ops4j.pax.url.maven.commons.DownloadScheduler;
+import org.ops4j.pax.url.maven.commons.MavenConfiguration;
+import org.ops4j.pax.url.maven.commons.MavenRepositoryURL;
+import org.ops4j.pax.url.maven.commons.PooledTransport;
+import org.ops4j.pax.url.maven.commons.Transport;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetrics;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetricsImpl;
+
+/**
+ * State shared by all connections created for one handler configuration. A new context is created each time the
+ * handler is (re)configured and the previous one is disposed.
+ *
+ * @since 1.3.6
+ */
+public class HandlerContext
+{
+
+    /**
+     * Logger.
+     */
+    private static final Log LOG = LogFactory.getLog( HandlerContext.class );
+    /**
+     * Time (in milliseconds) an artifact that failed checksum verification is skipped. Long enough to not download a
+     * broken artifact over and over, short enough to pick up a repository that fixed it.
+     */
+    private static final long CHECKSUM_FAILURE_TTL = 60 * 60 * 1000L;
+    /**
+     * Time (in milliseconds) remote metadata is remembered for revalidation. Metadata that was not used for that long
+     * is downloaded again.
+     */
+    private static final long VALIDATED_METADATA_TTL = 7 * 24 * 60 * 60 * 1000L;
+
+    /**
+     * Service configuration used to size the shared resources.
+     */
+    private final MavenConfiguration m_configuration;
+    /**
+     * Parsed maven metadata cached by repository and metadata path.
+     */
+    private final ExpiringCache<Metadata> m_metadataCache;
+    /**
+     * Artifacts and metadata known to be missing, by url.
+     */
+    private final ExpiringCache<Boolean> m_notFoundCache;
+    /**
+     * Artifacts that failed checksum verification, by url.
+     */
+    private final ExpiringCache<Boolean> m_checksumFailureCache;
+    /**
+     * Remote metadata with its validators, by url.
+     */
+    private final ExpiringCache<ValidatedMetadata> m_validatedMetadataCache;
+    /**
+     * Update policy of remote metadata.
+     */
+    private final UpdatePolicy m_metadataUpdatePolicy;
+    /**
+     * Transport used to access repositories.
+     */
+    private final Transport m_transport;
+    /**
+     * Resolutions in progress, by artifact coordinates.
+     */
+    private final ConcurrentMap<String, SharedResolution> m_sharedResolutions;
+    /**
+     * Observed behaviour of repositories.
+     */
+    private final RepositoryStatistics m_repositoryStatistics;
+    /**
+     * Circuit breakers, by repository url.
+     */
+    private final ConcurrentMap<String, CircuitBreaker> m_circuitBreakers;
+    /**
+     * State of hedged downloads.
+     */
+    private final Hedging m_hedging;
+    /**
+     * Metrics the connections report into. Outlives the context.
+     */
+    private final ResolutionMetrics m_metrics;
+    /**
+     * Dispatcher of resolution events. Outlives the context.
+     */
+    private final ResolutionEventDispatcher m_eventDispatcher;
+    /**
+     * Executor used to run hedged downloads. Lazy created.
+     */
+    private ExecutorService m_hedgeExecutor;
+    /**
+     * Executor used to probe repositories concurrently. Lazy created. Null if probing is sequential.
+     */
+    private ExecutorService m_probeExecutor;
+    /**
+     * Executor used to download artifacts of batch resolutions concurrently. Lazy created. Null if sequential.
+     */
+    private ExecutorService m_batchExecutor;
+    /**
+     * Executor used to finish shared downloads abandoned by their first reader. Lazy created.
+     */
+    private ExecutorService m_shareExecutor;
+    /**
+     * Executor used to prefetch artifacts in background. Lazy created.
+     */
+    private ExecutorService m_prefetchExecutor;
+    /**
+     * Prefetched artifacts, by artifact coordinates.
+     */
+    private final ConcurrentMap<String, File> m_stagedArtifacts;
+    /**
+     * Directory where prefetched artifacts are staged. Lazy created.
+     */
+    private File m_stagingDirectory;
+    /**
+     * Index of the local repository. Lazy created. Null if the local repository is not indexed.
+     */
+    private LocalRepositoryIndex m_localRepositoryIndex;
+    /**
+     * True once it was checked if the local repository should be indexed.
+     */
+    private boolean m_localRepositoryIndexChecked;
+    /**
+     * True if the context was disposed.
+     */
+    private boolean m_disposed;
+
+    /**
+     * Creates a new handler context that accesses repositories using a {@link PooledTransport}.
+     *
+     * @param configuration service configuration; cannot be null
+     *
+     * @throws NullArgumentException if configuration is null
+     */
+    public HandlerContext( final MavenConfiguration configuration )
+    {
+        this( configuration, new ResolutionMetricsImpl() );
+    }
+
+    /**
+     * Creates a new handler context that accesses repositories using a {@link PooledTransport} and reports into
+     * provided metrics.
+     *
+     * @param configuration service configuration; cannot be null
+     * @param metrics       metrics to report into; cannot be null
+     *
+     * @throws NullArgumentException if any of the parameters is null
+     */
+    public HandlerContext( final MavenConfiguration configuration, final ResolutionMetrics metrics )
+    {
+        this( configuration, createTransport( configuration, metrics ), metrics );
+    }
+
+    /**
+     * Creates a new handler context.
+     *
+     * @param configuration service configuration; cannot be null
+     * @param transport     transport used to access repositories; cannot be null
+     *
+     * @throws NullArgumentException if any of the parameters is null
+     */
+    public HandlerContext( final MavenConfiguration configuration, final Transport transport )
+    {
+        this( configuration, transport, new ResolutionMetricsImpl() );
+    }
+
+    /**
+     * Creates a new handler context.
+     *
+     * @param configuration service configuration; cannot be null
+     * @param transport     transport used to access repositories; cannot be null
+     * @param metrics       metrics to report into; cannot be null
+     *
+     * @throws NullArgumentException if any of the parameters is null
+     */
+    public HandlerContext( final MavenConfiguration configuration,
+                           final Transport transport,
+                           final ResolutionMetrics metrics )
+    {
+        this( configuration, transport, metrics, new ResolutionEventDispatcher() );
+    }
+
+    /**
+     * Creates a new handler context that accesses repositories using a {@link PooledTransport}.
+     *
+     * @param configuration   service configuration; cannot be null
+     * @param metrics         metrics to report into; cannot be null
+     * @param eventDispatcher dispatcher of resolution events; cannot be null
+     *
+     * @throws NullArgumentException if any of the parameters is null
+     */
+    HandlerContext( final MavenConfiguration configuration,
+                    final ResolutionMetrics metrics,
+                    final ResolutionEventDispatcher eventDispatcher )
+    {
+        this( configuration, createTransport( configuration, metrics ), metrics, eventDispatcher );
+    }
+
+    /**
+     * Creates a new handler context.
+     *
+     * @param configuration   service configuration; cannot be null
+     * @param transport       transport used to access repositories; cannot be null
+     * @param metrics         metrics to report into; cannot be null
+     * @param eventDispatcher dispatcher of resolution events; cannot be null
+     *
+     * @throws NullArgumentException if any of the parameters is null
+     */
+    HandlerContext( final MavenConfiguration configuration,
+                    final Transport transport,
+                    final ResolutionMetrics metrics,
+                    final ResolutionEventDispatcher eventDispatcher )
+    {
+        NullArgumentException.validateNotNull( configuration, "Service configuration" );
+        NullArgumentException.validateNotNull( transport, "Transport" );
+        NullArgumentException.validateNotNull( metrics, "Metrics" );
+        NullArgumentException.validateNotNull( eventDispatcher, "Event dispatcher" );
+        m_configuration = configuration;
+        m_transport = configuration.getOffline() ? new OfflineTransport( transport, metrics ) : transport;
+        m_metrics = metrics;
+        m_eventDispatcher = eventDispatcher;
+        m_sharedResolutions = new ConcurrentHashMap<String, SharedResolution>();
+        m_stagedArtifacts = new ConcurrentHashMap<String, File>();
+        m_repositoryStatistics = new RepositoryStatistics();
+        m_circuitBreakers = new ConcurrentHashMap<String, CircuitBreaker>();
+        m_hedging = new Hedging( configuration.getHedgeDelay(), configuration.getHedgePercentile(), metrics );
+        m_metadataCache = new ExpiringCache<Metadata>(
+            configuration.getMetadataCacheTtl(), configuration.getMetadataCacheSize() * 1024L
+        );
+        m_notFoundCache = new ExpiringCache<Boolean>(
+            configuration.getNotFoundCacheTtl(), configuration.getNotFoundCacheSize()
+        );
+        m_checksumFailureCache = new ExpiringCache<Boolean>(
+            CHECKSUM_FAILURE_TTL, configuration.getNotFoundCacheSize()
+        );
+        m_validatedMetadataCache = new ExpiringCache<ValidatedMetadata>(
+            VALIDATED_METADATA_TTL, configuration.getMetadataCacheSize() * 1024L
+        );
+        m_metadataUpdatePolicy = UpdatePolicy.parse( configuration.getMetadataUpdatePolicy() );
+    }
+
+    /**
+     * Creates the default transport, scheduling downloads with a {@link DownloadScheduler} that reports into the
+     * metrics, validating the parameters first.
+     *
+     * @param configuration service configuration
+     * @param metrics       metrics to report into
+     *
+     * @return pooled transport
+     *
+     * @throws NullArgumentException if any of the parameters is null
+     */
+    private static Transport createTransport( final MavenConfiguration configuration,
+                                              final ResolutionMetrics metrics )
+    {
+        NullArgumentException.validateNotNull( configuration, "Service configuration" );
+        NullArgumentException.validateNotNull( metrics, "Metrics" );
+        return new PooledTransport( configuration, new DownloadScheduler( configuration, metrics ) );
+    }
+
+    /**
+     * Getter.
+     *
+     * @return service configuration
+     */
+    MavenConfiguration getConfiguration()
+    {
+        return m_configuration;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return transport used to access repositories; refuses all but file urls while offline
+     */
+    public Transport getTransport()
+    {
+        return m_transport;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return resolutions in progress, by artifact coordinates
+     */
+    ConcurrentMap<String, SharedResolution> getSharedResolutions()
+    {
+        return m_sharedResolutions;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return observed behaviour of repositories
+     */
+    RepositoryStatistics getRepositoryStatistics()
+    {
+        return m_repositoryStatistics;
+    }
+
+    /**
+     * Returns the circuit breaker of a repository, creating it if needed.
+     *
+     * @param repository repository url, ending with a file separator
+     *
+     * @return circuit breaker of repository
+     */
+    CircuitBreaker getCircuitBreaker( final String repository )
+    {
+        CircuitBreaker circuitBreaker = m_circuitBreakers.get( repository );
+        if( circuitBreaker == null )
+        {
+            circuitBreaker = new CircuitBreaker(
+                repository, m_configuration.getCircuitBreakerThreshold(), m_configuration.getCircuitBreakerCoolDown(),
+                m_metrics
+            );
+            final CircuitBreaker existing = m_circuitBreakers.putIfAbsent( repository, circuitBreaker );
+            if( existing != null )
+            {
+                circuitBreaker = existing;
+            }
+        }
+        return circuitBreaker;
+    }
+
+    /**
+     * Returns the circuit breakers of all repositories accessed so far. Their transitions are also reported into the
+     * metrics, so their state can be monitored through the metrics service and MBean.
+     *
+     * @return circuit breakers
+     */
+    public Collection<CircuitBreaker> getCircuitBreakers()
+    {
+        return Collections.unmodifiableCollection( m_circuitBreakers.values() );
+    }
+
+    /**
+     * Getter.
+     *
+     * @return state of hedged downloads
+     */
+    public Hedging getHedging()
+    {
+        return m_hedging;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return metrics the connections report into
+     */
+    public ResolutionMetrics getMetrics()
+    {
+        return m_metrics;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return dispatcher of resolution events
+     */
+    ResolutionEventDispatcher getEventDispatcher()
+    {
+        return m_eventDispatcher;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return cache of parsed maven metadata
+     */
+    ExpiringCache<Metadata> getMetadataCache()
+    {
+        return m_metadataCache;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return cache of remote metadata with its validators
+     */
+    ExpiringCache<ValidatedMetadata> getValidatedMetadataCache()
+    {
+        return m_validatedMetadataCache;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return update policy of remote metadata
+     */
+    UpdatePolicy getMetadataUpdatePolicy()
+    {
+        return m_metadataUpdatePolicy;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return cache of urls known to be missing (each entry has a weight of 1)
+     */
+    ExpiringCache<Boolean> getNotFoundCache()
+    {
+        return m_notFoundCache;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return cache of artifact urls that failed checksum verification (each entry has a weight of 1)
+     */
+    ExpiringCache<Boolean> getChecksumFailureCache()
+    {
+        return m_checksumFailureCache;
+    }
+
+    /**
+     * Returns the executor to be used for probing repositories concurrently. The executor is bounded to the number of
+     * threads as configured by probe threads.
+     *
+     * @return probe executor or null if repositories should be probed one after another or context was disposed
+     */
+    public synchronized ExecutorService getProbeExecutor()
+    {
+        if( m_probeExecutor == null && !m_disposed )
+        {
+            final int threads = m_configuration.getProbeThreads();
+            if( threads > 0 )
+            {
+                LOG.debug( "Using [" + threads + "] threads for probing repositories" );
+                m_probeExecutor = Executors.newFixedThreadPool( threads, new DaemonThreadFactory( "probe" ) );
+            }
+        }
+        return m_probeExecutor;
+    }
+
+    /**
+     * Returns the executor to be used for downloading the artifacts of batch resolutions concurrently. The executor is
+     * bounded to the number of threads as configured by batch threads.
+     *
+     * @return batch executor or null if artifacts should be downloaded one after another or context was disposed
+     */
+    synchronized ExecutorService getBatchExecutor()
+    {
+        if( m_batchExecutor == null && !m_disposed )
+        {
+            final int threads = m_configuration.getBatchThreads();
+            if( threads > 0 )
+            {
+                LOG.debug( "Using [" + threads + "] threads for batch resolutions" );
+                m_batchExecutor = Executors.newFixedThreadPool( threads, new DaemonThreadFactory( "batch" ) );
+            }
+        }
+        return m_batchExecutor;
+    }
+
+    /**
+     * Returns the executor to be used for prefetching artifacts in background. The executor is bounded to the number of
+     * threads as configured by batch threads (at least one) and its threads run at minimum priority.
+     *
+     * @return prefetch executor or null if context was disposed
+     */
+    synchronized ExecutorService getPrefetchExecutor()
+    {
+        if( m_prefetchExecutor == null && !m_disposed )
+        {
+            final int threads = Math.max( 1, m_configuration.getBatchThreads() );
+            LOG.debug( "Using [" + threads + "] threads for prefetching artifacts" );
+            m_prefetchExecutor = Executors.newFixedThreadPool(
+                threads, new DaemonThreadFactory( "prefetch", Thread.MIN_PRIORITY )
+            );
+        }
+        return m_prefetchExecutor;
+    }
+
+    /**
+     * Returns the executor to be used for hedged downloads. The executor is not bounded, as the number of hedged
+     * requests is bounded by the maximum number of hedges per download.
+     *
+     * @return hedge executor or null if context was disposed
+     */
+    synchronized ExecutorService getHedgeExecutor()
+    {
+        if( m_hedgeExecutor == null && !m_disposed )
+        {
+            m_hedgeExecutor = Executors.newCachedThreadPool( new DaemonThreadFactory( "hedge" ) );
+        }
+        return m_hedgeExecutor;
+    }
+
+    /**
+     * Returns the executor to be used to finish shared downloads once their first reader closed them, for the
+     * concurrent readers. The executor is not bounded, as there is at most one task per shared download.
+     *
+     * @return share executor or null if context was disposed
+     */
+    synchronized ExecutorService getShareExecutor()
+    {
+        if( m_shareExecutor == null && !m_disposed )
+        {
+            m_shareExecutor = Executors.newCachedThreadPool( new DaemonThreadFactory( "share" ) );
+        }
+        return m_shareExecutor;
+    }
+
+    /**
+     * Returns the index of the local repository, creating it on first use. The local repository is indexed if
+     * indexing is enabled by configuration and the local repository is a file repository.
+     *
+     * @return local repository index or null if the local repository is not indexed or the context was disposed
+     */
+    synchronized LocalRepositoryIndex getLocalRepositoryIndex()
+    {
+        if( !m_localRepositoryIndexChecked && !m_disposed )
+        {
+            m_localRepositoryIndexChecked = true;
+            final MavenRepositoryURL localRepository = m_configuration.getLocalRepository();
+            if( localRepository != null && localRepository.isFileRepository()
+                && m_configuration.getLocalRepositoryIndex() )
+            {
+                m_localRepositoryIndex = new LocalRepositoryIndex(
+                    RepositoryStatistics.key( localRepository.getURL() ), localRepository.getFile()
+                );
+            }
+        }
+        return m_localRepositoryIndex;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return prefetched artifacts, by artifact coordinates
+     */
+    ConcurrentMap<String, File> getStagedArtifacts()
+    {
+        return m_stagedArtifacts;
+    }
+
+    /**
+     * Creates a new file in the staging directory, to store a prefetched artifact.
+     *
+     * @return new empty file
+     *
+     * @throws IOException if context was disposed or the file cannot be created
+     */
+    synchronized File createStagingFile()
+        throws IOException
+    {
+        if( m_disposed )
+        {
+            throw new IOException( "Handler context was disposed" );
+        }
+        if( m_stagingDirectory == null )
+        {
+            final File directory = File.createTempFile( "pax-url-mvn-staging-", "" );
+            if( !directory.delete() || !directory.mkdirs() )
+            {
+                throw new IOException( "Could not create staging directory [" + directory + "]" );
+            }
+            m_stagingDirectory = directory;
+        }
+        return File.createTempFile( "artifact-", ".tmp", m_stagingDirectory );
+    }
+
+    /**
+     * Registers a prefetched artifact, so later connections to the same artifact are served from the staged file.
+     *
+     * @param coordinates artifact coordinates
+     * @param file        staged file
+     *
+     * @return false if context was disposed meanwhile, in which case the file was not registered
+     */
+    synchronized boolean stage( final String coordinates, final File file )
+    {
+        if( m_disposed )
+        {
+            return false;
+        }
+        m_stagedArtifacts.put( coordinates, file );
+        return true;
+    }
+
+    /**
+     * Releases all resources held by this context. Probes already submitted are allowed to finish while connections
+     * that are still using the context will fall back to sequential resolution.
+     */
+    public synchronized void dispose()
+    {
+        m_disposed = true;
+        m_metadataCache.clear();
+        m_notFoundCache.clear();
+        m_checksumFailureCache.clear();
+        m_validatedMetadataCache.clear();
+        m_repositoryStatistics.clear();
+        m_circuitBreakers.clear();
+        if( m_probeExecutor != null )
+        {
+            m_probeExecutor.shutdown();
+            m_probeExecutor = null;
+        }
+        if( m_batchExecutor != null )
+        {
+            m_batchExecutor.shutdown();
+            m_batchExecutor = null;
+        }
+        if( m_hedgeExecutor != null )
+        {
+            m_hedgeExecutor.shutdown();
+            m_hedgeExecutor = null;
+        }
+        if( m_shareExecutor != null )
+        {
+            m_shareExecutor.shutdown();
+            m_shareExecutor = null;
+        }
+        if( m_prefetchExecutor != null )
+        {
+            m_prefetchExecutor.shutdownNow();
+            m_prefetchExecutor = null;
+        }
+        if( m_localRepositoryIndex != null )
+        {
+            m_localRepositoryIndex.clear();
+            m_localRepositoryIndex = null;
+        }
+        m_stagedArtifacts.clear();
+        if( m_stagingDirectory != null )
+        {
+            FileUtils.delete( m_stagingDirectory );
+            m_stagingDirectory = null;
+        }
+    }
+
+    /**
+     * Thread factory for daemon threads, so an executor that is not disposed does not prevent the vm from exiting.
+     */
+    static class DaemonThreadFactory
+        implements ThreadFactory
+    {
+
+        /**
+         * Threads name prefix.
+         */
+        private final String m_prefix;
+        /**
+         * Threads counter.
+         */
+        private final AtomicInteger m_count = new AtomicInteger();
+        /**
+         * Threads priority.
+         */
+        private final int m_priority;
+
+        /**
+         * Creates a new thread factory for threads of normal priority.
+         *
+         * @param name name of the threads purpose
+         */
+        DaemonThreadFactory( final String name )
+        {
+            this( name, Thread.NORM_PRIORITY );
+        }
+
+        /**
+         * Creates a new thread factory.
+         *
+         * @param name     name of the threads purpose
+         * @param priority threads priority
+         */
+        DaemonThreadFactory( final String name, final int priority )
+        {
+            m_prefix = "pax-url-mvn-" + name + "-";
+            m_priority = priority;
+        }
+
+        /**
+         * @see ThreadFactory#newThread(Runnable)
+         */
+        public Thread newThread( final Runnable runnable )
+        {
+            final Thread thread = new Thread( runnable, m_prefix + m_count.incrementAndGet() );
+            thread.setDaemon( true );
+            thread.setPriority( m_priority );
+            return thread;
+        }
+
+    }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetrics;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetricsImpl;
+
+/**
+ * State of hedged downloads: the recent download start latencies, from which the hedge delay is computed, and the
+ * number of hedges sent and won. Hedges are also reported into the resolution metrics, by the repository they were
+ * sent to.
+ *
+ * @since 1.3.6
+ */
+public class Hedging
+{
+
+    /**
+     * Number of latencies kept.
+     */
+    private static final int WINDOW = 128;
+    /**
+     * Minimum number of latencies observed before the percentile is used.
+     */
+    private static final int MIN_SAMPLES = 16;
+
+    /**
+     * Configured (minimum) hedge delay in milliseconds.
+     */
+    private final long m_delay;
+    /**
+     * Percentile of latencies used as delay; zero if the configured delay is always used.
+     */
+    private final int m_percentile;
+    /**
+     * Recent latencies, as a ring buffer.
+     */
+    private final long[] m_latencies;
+    /**
+     * Number of latencies observed.
+     */
+    private long m_samples;
+    /**
+     * Number of hedges sent.
+     */
+    private final AtomicLong m_hedges;
+    /**
+     * Number of hedges that started before the request they hedged.
+     */
+    private final AtomicLong m_hedgesWon;
+    /**
+     * Metrics the hedges are reported into.
+     */
+    private final ResolutionMetrics m_metrics;
+
+    /**
+     * Creates a new hedging state, whose hedges are not reported.
+     *
+     * @param delay      configured (minimum) hedge delay in milliseconds
+     * @param percentile percentile of latencies used as delay; zero if the configured delay is always used
+     */
+    Hedging( final long delay, final int percentile )
+    {
+        this( delay, percentile, new ResolutionMetricsImpl() );
+    }
+
+    /**
+     * Creates a new hedging state.
+     *
+     * @param delay      configured (minimum) hedge delay in milliseconds
+     * @param percentile percentile of latencies used as delay; zero if the configured delay is always used
+     * @param metrics    metrics the hedges are reported into
+     */
+    Hedging( final long delay, final int percentile, final ResolutionMetrics metrics )
+    {
+        m_delay = delay;
+        m_percentile = percentile;
+        m_latencies = new long[WINDOW];
+        m_hedges = new AtomicLong();
+        m_hedgesWon = new AtomicLong();
+        m_metrics = metrics;
+    }
+
+    /**
+     * Records the time a download took to start.
+     *
+     * @param latency latency in milliseconds
+     */
+    synchronized void started( final long latency )
+    {
+        m_latencies[ (int) ( m_samples % WINDOW ) ] = latency;
+        m_samples++;
+    }
+
+    /**
+     * Returns the time to wait for a download to start before it is hedged: the configured percentile of the recent
+     * latencies, but never less than the configured delay.
+     *
+     * @return hedge delay in milliseconds
+     */
+    synchronized long getDelay()
+    {
+        if( m_percentile == 0 || m_samples < MIN_SAMPLES )
+        {
+            return m_delay;
+        }
+        final int count = (int) Math.min( m_samples, WINDOW );
+        final long[] sorted = new long[count];
+        System.arraycopy( m_latencies, 0, sorted, 0, count );
+        Arrays.sort( sorted );
+        final int index = Math.min( count - 1, (int) Math.ceil( count * m_percentile / 100.0 ) - 1 );
+        return Math.max( m_delay, sorted[ Math.max( 0, index ) ] );
+    }
+
+    /**
+     * Records that a hedge was sent.
+     *
+     * @param repository repository url the hedge was sent to
+     */
+    void hedged( final String repository )
+    {
+        m_hedges.incrementAndGet();
+        m_metrics.hedged( repository );
+    }
+
+    /**
+     * Records that a hedge started before the request it hedged.
+     *
+     * @param repository repository url the hedge was sent to
+     */
+    void won( final String repository )
+    {
+        m_hedgesWon.incrementAndGet();
+        m_metrics.hedgeWon( repository );
+    }
+
+    /**
+     * Getter.
+     *
+     * @return number of hedges sent
+     */
+    public long getHedges()
+    {
+        return m_hedges.get();
+    }
+
+    /**
+     * Getter.
+     *
+     * @return number of hedges that started before the request they hedged
+     */
+    public long getHedgesWon()
+    {
+        return m_hedgesWon.get();
+    }
+
+}
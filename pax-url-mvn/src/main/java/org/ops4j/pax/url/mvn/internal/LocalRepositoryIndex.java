@@ -0,0 +1,336 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.ops4j.lang.NullArgumentException;
+
+/**
+ * In memory index of a local (file system) repository: for each artifact directory (group/artifact) the versions
+ * present on disk and the files of each version, so LATEST, version range and snapshot resolutions are answered
+ * without reading maven metadata files and artifacts installed without metadata are found as well.
+ * An artifact directory is listed the first time it is looked up. Afterwards the index is kept current by comparing
+ * the modification time of the artifact and version directories with the one they had when listed (a directory
+ * changes its modification time when files are added, removed or renamed in it), so a lookup costs one file status
+ * per directory and directories are only listed again when they changed. As modification times have a coarse
+ * granularity on some file systems, directories listed shortly after they changed are listed again on next lookup.
+ *
+ * @since 1.3.6
+ */
+class LocalRepositoryIndex
+{
+
+    /**
+     * Time in milliseconds after a change of a directory during which a listing of that directory is not trusted.
+     */
+    private static final long MODIFICATION_GRANULARITY = 2000;
+
+    /**
+     * Repository url, as keyed by {@link RepositoryStatistics#key(java.net.URL)}.
+     */
+    private final String m_repository;
+    /**
+     * Repository root directory.
+     */
+    private final File m_root;
+    /**
+     * Indexed artifact directories, by path relative to the repository root.
+     */
+    private final ConcurrentMap<String, ArtifactDirectory> m_artifacts;
+
+    /**
+     * Creates a new empty index.
+     *
+     * @param repository repository url; cannot be null
+     * @param root       repository root directory; cannot be null
+     *
+     * @throws NullArgumentException if repository or root is null
+     */
+    LocalRepositoryIndex( final String repository, final File root )
+    {
+        NullArgumentException.validateNotNull( repository, "Repository" );
+        NullArgumentException.validateNotNull( root, "Root" );
+        m_repository = repository;
+        m_root = root;
+        m_artifacts = new ConcurrentHashMap<String, ArtifactDirectory>();
+    }
+
+    /**
+     * Getter.
+     *
+     * @return repository url
+     */
+    String getRepository()
+    {
+        return m_repository;
+    }
+
+    /**
+     * Returns a file of the repository.
+     *
+     * @param path path relative to repository root
+     *
+     * @return file
+     */
+    File getFile( final String path )
+    {
+        return new File( m_root, path );
+    }
+
+    /**
+     * Returns the versions of an artifact present on disk together with their files, bringing the index up to date
+     * first.
+     *
+     * @param artifactDirectory artifact directory relative to repository root (group/artifact)
+     *
+     * @return unmodifiable map of version to version file names; empty if the artifact is not in repository
+     */
+    Map<String, Set<String>> getVersions( final String artifactDirectory )
+    {
+        final File directory = getFile( artifactDirectory );
+        ArtifactDirectory artifact = m_artifacts.get( artifactDirectory );
+        final Map<String, Directory> versions = new HashMap<String, Directory>();
+        boolean changed = false;
+        if( artifact == null || !artifact.isCurrent( directory ) )
+        {
+            final long listed = System.currentTimeMillis();
+            final long modified = directory.lastModified();
+            final File[] children = directory.listFiles();
+            if( children != null )
+            {
+                for( File child : children )
+                {
+                    if( child.isDirectory() )
+                    {
+                        // versions not known yet are listed below
+                        versions.put(
+                            child.getName(), artifact == null ? null : artifact.getVersions().get( child.getName() )
+                        );
+                    }
+                }
+            }
+            artifact = new ArtifactDirectory( modified, listed, versions );
+            changed = true;
+        }
+        else
+        {
+            versions.putAll( artifact.getVersions() );
+        }
+        final Map<String, Set<String>> files = new HashMap<String, Set<String>>();
+        for( Map.Entry<String, Directory> entry : versions.entrySet() )
+        {
+            Directory version = entry.getValue();
+            final File versionDirectory = new File( directory, entry.getKey() );
+            if( version == null || !version.isCurrent( versionDirectory ) )
+            {
+                version = list( versionDirectory );
+                entry.setValue( version );
+                changed = true;
+            }
+            if( !version.getFiles().isEmpty() )
+            {
+                files.put( entry.getKey(), version.getFiles() );
+            }
+        }
+        if( changed )
+        {
+            m_artifacts.put(
+                artifactDirectory, new ArtifactDirectory( artifact.m_modified, artifact.m_listed, versions )
+            );
+        }
+        return Collections.unmodifiableMap( files );
+    }
+
+    /**
+     * Returns the files of one version of an artifact present on disk, bringing the index of that version up to date
+     * first. The other versions of the artifact are not checked.
+     *
+     * @param artifactDirectory artifact directory relative to repository root (group/artifact)
+     * @param version           version
+     *
+     * @return unmodifiable set of file names; empty if the version is not in repository
+     */
+    Set<String> getFiles( final String artifactDirectory, final String version )
+    {
+        final File directory = getFile( artifactDirectory );
+        final File versionDirectory = new File( directory, version );
+        final ArtifactDirectory artifact = m_artifacts.get( artifactDirectory );
+        final Directory known = artifact == null ? null : artifact.getVersions().get( version );
+        if( known != null && known.isCurrent( versionDirectory ) )
+        {
+            return known.getFiles();
+        }
+        final Directory listed = list( versionDirectory );
+        if( artifact != null && artifact.isCurrent( directory ) )
+        {
+            final Map<String, Directory> versions = new HashMap<String, Directory>( artifact.getVersions() );
+            versions.put( version, listed );
+            m_artifacts.put(
+                artifactDirectory, new ArtifactDirectory( artifact.m_modified, artifact.m_listed, versions )
+            );
+        }
+        return listed.getFiles();
+    }
+
+    /**
+     * Returns the number of indexed artifact directories.
+     *
+     * @return number of artifacts
+     */
+    int size()
+    {
+        return m_artifacts.size();
+    }
+
+    /**
+     * Removes all indexed artifacts.
+     */
+    void clear()
+    {
+        m_artifacts.clear();
+    }
+
+    /**
+     * Lists the files of a version directory.
+     *
+     * @param directory version directory
+     *
+     * @return listed directory; without files if directory does not exist
+     */
+    private static Directory list( final File directory )
+    {
+        final long listed = System.currentTimeMillis();
+        final long modified = directory.lastModified();
+        final File[] children = directory.listFiles();
+        final Set<String> files = new HashSet<String>();
+        if( children != null )
+        {
+            for( File child : children )
+            {
+                if( child.isFile() )
+                {
+                    files.add( child.getName() );
+                }
+            }
+        }
+        return new Directory( modified, listed, Collections.unmodifiableSet( files ) );
+    }
+
+    /**
+     * A listed version directory. Immutable.
+     */
+    private static class Directory
+    {
+
+        /**
+         * Modification time of directory when listed.
+         */
+        final long m_modified;
+        /**
+         * Time the directory was listed.
+         */
+        final long m_listed;
+        /**
+         * Names of files in directory.
+         */
+        private final Set<String> m_files;
+
+        /**
+         * Creates a new listed directory.
+         *
+         * @param modified modification time of directory when listed; 0 if the directory did not exist
+         * @param listed   time the directory was listed
+         * @param files    names of files in directory
+         */
+        Directory( final long modified, final long listed, final Set<String> files )
+        {
+            m_modified = modified;
+            m_listed = listed;
+            m_files = files;
+        }
+
+        /**
+         * Getter.
+         *
+         * @return names of files in directory
+         */
+        Set<String> getFiles()
+        {
+            return m_files;
+        }
+
+        /**
+         * Checks if the listing is still current: the directory was not modified since and the listing was not made
+         * within the modification time granularity of the directory change.
+         *
+         * @param directory listed directory
+         *
+         * @return true if the listing is current
+         */
+        boolean isCurrent( final File directory )
+        {
+            return directory.lastModified() == m_modified && m_listed - m_modified > MODIFICATION_GRANULARITY;
+        }
+
+    }
+
+    /**
+     * A listed artifact directory. Immutable.
+     */
+    private static class ArtifactDirectory
+        extends Directory
+    {
+
+        /**
+         * Listed version directories by name.
+         */
+        private final Map<String, Directory> m_versions;
+
+        /**
+         * Creates a new listed artifact directory.
+         *
+         * @param modified modification time of directory when listed; 0 if the directory did not exist
+         * @param listed   time the directory was listed
+         * @param versions listed version directories by name
+         */
+        ArtifactDirectory( final long modified, final long listed, final Map<String, Directory> versions )
+        {
+            super( modified, listed, Collections.<String>emptySet() );
+            m_versions = Collections.unmodifiableMap( new HashMap<String, Directory>( versions ) );
+        }
+
+        /**
+         * Getter.
+         *
+         * @return listed version directories by name
+         */
+        Map<String, Directory> getVersions()
+        {
+            return m_versions;
+        }
+
+    }
+
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The information used by the handler out of a maven metadata file (maven-metadata.xml). Immutable, so it can be
+ * shared between connections.
+ * Text values are as found in the metadata file: null if the element is not present and empty if the element is
+ * present but has no content. The version index is built on first use and then reused for as long as the metadata is
+ * cached.
+ *
+ * @see MetadataParser
+ * @since 1.3.6
+ */
+class Metadata
+{
+
+    /**
+     * Versions (versioning/versions/version) in the order found in metadata.
+     */
+    private final List<String> m_versions;
+    /**
+     * Snapshot timestamp (versioning/snapshot/timestamp).
+     */
+    private final String m_snapshotTimestamp;
+    /**
+     * Snapshot build number (versioning/snapshot/buildNumber).
+     */
+    private final String m_snapshotBuildNumber;
+    /**
+     * Snapshot local copy marker (versioning/snapshot/localCopy).
+     */
+    private final String m_snapshotLocalCopy;
+    /**
+     * Last updated (versioning/lastUpdated).
+     */
+    private final String m_lastUpdated;
+    /**
+     * Sorted index of versions. Lazy created.
+     */
+    private volatile VersionIndex m_versionIndex;
+
+    /**
+     * Creates a new metadata.
+     *
+     * @param versions            versions; cannot be null
+     * @param snapshotTimestamp   snapshot timestamp
+     * @param snapshotBuildNumber snapshot build number
+     * @param snapshotLocalCopy   snapshot local copy marker
+     * @param lastUpdated         last updated
+     */
+    Metadata( final String[] versions,
+              final String snapshotTimestamp,
+              final String snapshotBuildNumber,
+              final String snapshotLocalCopy,
+              final String lastUpdated )
+    {
+        m_versions = Collections.unmodifiableList( Arrays.asList( versions ) );
+        m_snapshotTimestamp = snapshotTimestamp;
+        m_snapshotBuildNumber = snapshotBuildNumber;
+        m_snapshotLocalCopy = snapshotLocalCopy;
+        m_lastUpdated = lastUpdated;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return unmodifiable list of versions in the order found in metadata
+     */
+    List<String> getVersions()
+    {
+        return m_versions;
+    }
+
+    /**
+     * Returns the last version found in metadata.
+     *
+     * @return last version or null if metadata does not contain versions
+     */
+    String getLastVersion()
+    {
+        return m_versions.isEmpty() ? null : m_versions.get( m_versions.size() - 1 );
+    }
+
+    /**
+     * Returns the sorted index of versions, building it on first use. Concurrent first uses may build the index more
+     * then once, but all of them return an equivalent index.
+     *
+     * @return version index
+     *
+     * @throws org.ops4j.lang.NullArgumentException if any of the versions is empty
+     */
+    VersionIndex getVersionIndex()
+    {
+        VersionIndex versionIndex = m_versionIndex;
+        if( versionIndex == null )
+        {
+            versionIndex = new VersionIndex( m_versions );
+            m_versionIndex = versionIndex;
+        }
+        return versionIndex;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return snapshot timestamp
+     */
+    String getSnapshotTimestamp()
+    {
+        return m_snapshotTimestamp;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return snapshot build number
+     */
+    String getSnapshotBuildNumber()
+    {
+        return m_snapshotBuildNumber;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return snapshot local copy marker
+     */
+    String getSnapshotLocalCopy()
+    {
+        return m_snapshotLocalCopy;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return last updated
+     */
+    String getLastUpdated()
+    {
+        return m_lastUpdated;
+    }
+
+    /**
+     * Returns an estimate of the memory retained by this metadata, used to bound the metadata cache.
+     *
+     * @return estimated size in bytes
+     */
+    long getWeight()
+    {
+        long weight = 64 + weight( m_snapshotTimestamp ) + weight( m_snapshotBuildNumber )
+                      + weight( m_snapshotLocalCopy ) + weight( m_lastUpdated );
+        for( String version : m_versions )
+        {
+            // version string plus its parsed form in the version index
+            weight += 104 + weight( version );
+        }
+        return weight;
+    }
+
+    /**
+     * Estimates the memory retained by a string.
+     *
+     * @param value string; can be null
+     *
+     * @return estimated size in bytes
+     */
+    private static long weight( final String value )
+    {
+        return value == null ? 0 : 40 + 2L * value.length();
+    }
+
+    @Override
+    public String toString()
+    {
+        return new StringBuilder()
+            .append( "Metadata{" )
+            .append( "versions=" ).append( m_versions.size() )
+            .append( ",timestamp=" ).append( m_snapshotTimestamp )
+            .append( ",buildNumber=" ).append( m_snapshotBuildNumber )
+            .append( ",localCopy=" ).append( m_snapshotLocalCopy )
+            .append( ",lastUpdated=" ).append( m_lastUpdated )
+            .append( "}" )
+            .toString();
+    }
+
+}
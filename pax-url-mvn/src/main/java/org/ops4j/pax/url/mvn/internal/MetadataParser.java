@@ -0,0 +1,296 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+import org.ops4j.lang.NullArgumentException;
+
+/**
+ * Single pass, streaming parser for maven metadata files. Only the elements used by the handler are kept, without
+ * building a document tree:<br/>
+ * - versioning/versions/version<br/>
+ * - versioning/snapshot/timestamp<br/>
+ * - versioning/snapshot/buildNumber<br/>
+ * - versioning/snapshot/localCopy<br/>
+ * - versioning/lastUpdated<br/>
+ * Paths are relative to the document element and, as for {@link org.ops4j.util.xml.XmlUtils}, the first element
+ * found is used for single valued paths.
+ *
+ * @see Metadata
+ * @since 1.3.6
+ */
+class MetadataParser
+{
+
+    /**
+     * Factory for SAX parsers, not processing doctypes nor external entities as metadata comes from remote
+     * repositories. Access must be synchronized as factories are not thread safe.
+     */
+    private static final SAXParserFactory FACTORY = createFactory();
+
+    /**
+     * Utility class.
+     */
+    private MetadataParser()
+    {
+        // utility class
+    }
+
+    /**
+     * Parses a maven metadata file. The input stream is not closed.
+     *
+     * @param inputStream metadata content; cannot be null
+     *
+     * @return parsed metadata
+     *
+     * @throws IOException              re-thrown
+     * @throws SAXException             if content is not a valid xml
+     * @throws ParserConfigurationException if a SAX parser cannot be created
+     * @throws NullArgumentException    if input stream is null
+     */
+    static Metadata parse( final InputStream inputStream )
+        throws IOException, SAXException, ParserConfigurationException
+    {
+        NullArgumentException.validateNotNull( inputStream, "Input stream" );
+        final SAXParser parser;
+        synchronized( FACTORY )
+        {
+            parser = FACTORY.newSAXParser();
+        }
+        final MetadataHandler handler = new MetadataHandler();
+        parser.parse( inputStream, handler );
+        return handler.getMetadata();
+    }
+
+    /**
+     * Creates the factory for SAX parsers. Doctype declarations are rejected; if the parser does not support that,
+     * external entities are not resolved.
+     *
+     * @return factory
+     */
+    private static SAXParserFactory createFactory()
+    {
+        final SAXParserFactory factory = SAXParserFactory.newInstance();
+        try
+        {
+            factory.setFeature( "http://apache.org/xml/features/disallow-doctype-decl", true );
+        }
+        catch( ParserConfigurationException e )
+        {
+            disableExternalEntities( factory );
+        }
+        catch( SAXException e )
+        {
+            disableExternalEntities( factory );
+        }
+        return factory;
+    }
+
+    /**
+     * Disables the resolution of external entities, for parsers that cannot reject doctype declarations. Unsupported
+     * features are ignored, as there is nothing better to fall back to.
+     *
+     * @param factory factory to configure
+     */
+    private static void disableExternalEntities( final SAXParserFactory factory )
+    {
+        final String[] features = {
+            "http://xml.org/sax/features/external-general-entities",
+            "http://xml.org/sax/features/external-parameter-entities"
+        };
+        for( String feature : features )
+        {
+            try
+            {
+                factory.setFeature( feature, false );
+            }
+            catch( ParserConfigurationException ignore )
+            {
+                // not supported
+            }
+            catch( SAXException ignore )
+            {
+                // not supported
+            }
+        }
+    }
+
+    /**
+     * SAX handler that collects the interesting elements.
+     */
+    private static class MetadataHandler
+        extends DefaultHandler
+    {
+
+        /**
+         * Element names of the current path.
+         */
+        private final String[] m_path = new String[4];
+        /**
+         * Depth of current element (1 = document element).
+         */
+        private int m_depth;
+        /**
+         * Buffer for the text of the element being collected.
+         */
+        private final StringBuilder m_text = new StringBuilder();
+        /**
+         * True if the text of the current element is collected.
+         */
+        private boolean m_collecting;
+        /**
+         * Versions (versioning/versions/version), in document order.
+         */
+        private final List<String> m_versions = new ArrayList<String>();
+        /**
+         * Snapshot timestamp (versioning/snapshot/timestamp). Null if not present.
+         */
+        private String m_timestamp;
+        /**
+         * Snapshot build number (versioning/snapshot/buildNumber). Null if not present.
+         */
+        private String m_buildNumber;
+        /**
+         * Snapshot local copy flag (versioning/snapshot/localCopy). Null if not present.
+         */
+        private String m_localCopy;
+        /**
+         * Last update time (versioning/lastUpdated). Null if not present.
+         */
+        private String m_lastUpdated;
+
+        @Override
+        public void startElement( final String uri,
+                                  final String localName,
+                                  final String qName,
+                                  final Attributes attributes )
+        {
+            m_depth++;
+            if( m_depth <= m_path.length )
+            {
+                m_path[ m_depth - 1 ] = qName;
+            }
+            m_collecting = isCollected();
+            if( m_collecting )
+            {
+                m_text.setLength( 0 );
+            }
+        }
+
+        @Override
+        public void characters( final char[] ch, final int start, final int length )
+        {
+            if( m_collecting )
+            {
+                m_text.append( ch, start, length );
+            }
+        }
+
+        @Override
+        public void endElement( final String uri, final String localName, final String qName )
+        {
+            if( m_collecting )
+            {
+                final String text = m_text.toString();
+                final String name = m_path[ m_depth - 1 ];
+                if( m_depth == 3 )
+                {
+                    if( m_lastUpdated == null )
+                    {
+                        m_lastUpdated = text;
+                    }
+                }
+                else if( "version".equals( name ) )
+                {
+                    m_versions.add( text );
+                }
+                else if( "timestamp".equals( name ) )
+                {
+                    if( m_timestamp == null )
+                    {
+                        m_timestamp = text;
+                    }
+                }
+                else if( "buildNumber".equals( name ) )
+                {
+                    if( m_buildNumber == null )
+                    {
+                        m_buildNumber = text;
+                    }
+                }
+                else if( m_localCopy == null )
+                {
+                    m_localCopy = text;
+                }
+                m_collecting = false;
+            }
+            m_depth--;
+        }
+
+        /**
+         * Checks if the current element is one of the collected elements.
+         *
+         * @return true if text of current element should be collected
+         */
+        private boolean isCollected()
+        {
+            if( m_depth < 3 || m_depth > 4 || !"versioning".equals( m_path[ 1 ] ) )
+            {
+                return false;
+            }
+            final String name = m_path[ m_depth - 1 ];
+            if( m_depth == 3 )
+            {
+                return "lastUpdated".equals( name );
+            }
+            if( "versions".equals( m_path[ 2 ] ) )
+            {
+                return "version".equals( name );
+            }
+            return "snapshot".equals( m_path[ 2 ] )
+                   && ( "timestamp".equals( name ) || "buildNumber".equals( name ) || "localCopy".equals( name ) );
+        }
+
+        /**
+         * Returns the collected metadata.
+         *
+         * @return metadata
+         */
+        Metadata getMetadata()
+        {
+            return new Metadata(
+                m_versions.toArray( new String[m_versions.size()] ),
+                m_timestamp,
+                m_buildNumber,
+                m_localCopy,
+                m_lastUpdated
+            );
+        }
+
+    }
+
+}
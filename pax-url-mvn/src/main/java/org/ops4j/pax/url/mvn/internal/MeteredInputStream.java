@@ -0,0 +1,167 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.ops4j.lang.NullArgumentException;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetrics;
+
+/**
+ * An input stream that reports the bytes read from a repository into the handler metrics. Subclasses can be notified
+ * once, at the end of the stream or when it is closed, of the total number of bytes read.
+ *
+ * @since 1.3.6
+ */
+class MeteredInputStream
+    extends FilterInputStream
+{
+
+    /**
+     * Metrics to report into.
+     */
+    private final ResolutionMetrics m_metrics;
+    /**
+     * Repository url the bytes are read from.
+     */
+    private final String m_repository;
+    /**
+     * Number of bytes read.
+     */
+    private long m_bytes;
+    /**
+     * True once the completion was notified.
+     */
+    private boolean m_completed;
+
+    /**
+     * Creates a new metered stream.
+     *
+     * @param inputStream stream to meter; cannot be null
+     * @param metrics     metrics to report into; cannot be null
+     * @param repository  repository url the bytes are read from; cannot be null
+     *
+     * @throws NullArgumentException if any of the parameters is null
+     */
+    MeteredInputStream( final InputStream inputStream, final ResolutionMetrics metrics, final String repository )
+    {
+        super( inputStream );
+        NullArgumentException.validateNotNull( inputStream, "Input stream" );
+        NullArgumentException.validateNotNull( metrics, "Metrics" );
+        NullArgumentException.validateNotNull( repository, "Repository" );
+        m_metrics = metrics;
+        m_repository = repository;
+    }
+
+    @Override
+    public int read()
+        throws IOException
+    {
+        final int read = super.read();
+        if( read == -1 )
+        {
+            complete();
+        }
+        else
+        {
+            transferred( 1 );
+        }
+        return read;
+    }
+
+    @Override
+    public int read( final byte[] buffer, final int offset, final int length )
+        throws IOException
+    {
+        final int read = super.read( buffer, offset, length );
+        if( read == -1 )
+        {
+            complete();
+        }
+        else if( read > 0 )
+        {
+            transferred( read );
+        }
+        return read;
+    }
+
+    @Override
+    public long skip( final long count )
+        throws IOException
+    {
+        final long skipped = super.skip( count );
+        if( skipped > 0 )
+        {
+            transferred( skipped );
+        }
+        return skipped;
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        complete();
+        super.close();
+    }
+
+    /**
+     * Getter.
+     *
+     * @return number of bytes read so far
+     */
+    long getBytes()
+    {
+        return m_bytes;
+    }
+
+    /**
+     * Called once, at the end of the stream or when it is closed before its end. Does nothing by default.
+     *
+     * @param bytes total number of bytes read
+     */
+    protected void completed( final long bytes )
+    {
+        // nothing by default
+    }
+
+    /**
+     * Records bytes read.
+     *
+     * @param bytes number of bytes
+     */
+    private void transferred( final long bytes )
+    {
+        m_bytes += bytes;
+        m_metrics.transferred( m_repository, bytes );
+    }
+
+    /**
+     * Notifies the completion, if not already notified.
+     */
+    private void complete()
+    {
+        if( !m_completed )
+        {
+            m_completed = true;
+            completed( m_bytes );
+        }
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Map;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.ops4j.lang.NullArgumentException;
+import org.ops4j.pax.url.maven.commons.Transport;
+import org.ops4j.pax.url.maven.commons.TransportResponse;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetrics;
+
+/**
+ * Transport used while the handler is offline. File urls are opened by the wrapped transport, any other url is
+ * refused without opening a connection. Remote repositories are not searched while offline, so a refused url means
+ * that some code path tried to reach the network anyway; such attempts are logged and counted as blocked requests of
+ * the host in the handler metrics.
+ *
+ * @since 1.3.6
+ */
+class OfflineTransport
+    implements Transport
+{
+
+    /**
+     * Logger.
+     */
+    private static final Log LOG = LogFactory.getLog( OfflineTransport.class );
+
+    /**
+     * Transport used for file urls.
+     */
+    private final Transport m_transport;
+    /**
+     * Metrics to report blocked requests into.
+     */
+    private final ResolutionMetrics m_metrics;
+
+    /**
+     * Creates a new offline transport.
+     *
+     * @param transport transport used for file urls; cannot be null
+     * @param metrics   metrics to report blocked requests into; cannot be null
+     *
+     * @throws NullArgumentException if any of the parameters is null
+     */
+    OfflineTransport( final Transport transport, final ResolutionMetrics metrics )
+    {
+        NullArgumentException.validateNotNull( transport, "Transport" );
+        NullArgumentException.validateNotNull( metrics, "Metrics" );
+        m_transport = transport;
+        m_metrics = metrics;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public InputStream openStream( final URL url )
+        throws IOException
+    {
+        checkOffline( url );
+        return m_transport.openStream( url );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public TransportResponse open( final URL url, final Map<String, String> headers )
+        throws IOException
+    {
+        checkOffline( url );
+        return m_transport.open( url, headers );
+    }
+
+    /**
+     * Checks that an url can be accessed while offline.
+     *
+     * @param url url to be accessed
+     *
+     * @throws IOException if the url is not a file url
+     */
+    private void checkOffline( final URL url )
+        throws IOException
+    {
+        if( "file".equals( url.getProtocol() ) )
+        {
+            return;
+        }
+        LOG.warn( "Blocked access to [" + url.toExternalForm() + "] while offline" );
+        m_metrics.request(
+            url.getProtocol() + "://" + url.getAuthority() + "/",
+            url.getPath().endsWith( ".xml" ) && url.getPath().contains( "maven-metadata" )
+            ? ResolutionMetrics.Request.METADATA
+            : ResolutionMetrics.Request.ARTIFACT,
+            ResolutionMetrics.Outcome.BLOCKED,
+            0
+        );
+        throw new IOException( "Cannot access [" + url.toExternalForm() + "] while offline" );
+    }
+
+}
@@ -19,6 +19,7 @@ package org.ops4j.pax.url.mvn.internal;
 
 import java.net.MalformedURLException;
 import org.ops4j.pax.url.maven.commons.MavenRepositoryURL;
+import org.ops4j.pax.url.maven.commons.ParseCache;
 
 /**
  * Parser for mvn: protocol.<br/>
@@ -85,34 +86,63 @@ public class Parser
      */
     private static final String METADATA_FILE_LOCAL = "maven-metadata-local.xml";
 
+    /**
+     * Maximum number of parsed paths kept in cache.
+     */
+    private static final int CACHE_SIZE = 1024;
+    /**
+     * Parsers by parsed path, shared by all connections.
+     */
+    private static final ParseCache<Parser> CACHE = new ParseCache<Parser>( CACHE_SIZE );
+
     /**
      * Repository URL. Null if not present.
      */
-    private MavenRepositoryURL m_repositoryURL;
+    private final MavenRepositoryURL m_repositoryURL;
     /**
      * Artifact group id.
      */
-    private String m_group;
+    private final String m_group;
     /**
      * Artifact id.
      */
-    private String m_artifact;
+    private final String m_artifact;
     /**
      * Artifact version.
      */
-    private String m_version;
+    private final String m_version;
     /**
      * Artifact type.
      */
-    private String m_type;
+    private final String m_type;
     /**
      * Artifact classifier.
      */
-    private String m_classifier;
+    private final String m_classifier;
     /**
      * Artifact classifier to use to build artifact name.
      */
-    private String m_fullClassifier;
+    private final String m_fullClassifier;
+    /**
+     * Path to the directory that contains all versions of the artifact.
+     */
+    private final String m_artifactDirectory;
+    /**
+     * Artifact file name ending, after the version (classifier and type).
+     */
+    private final String m_fileSuffix;
+    /**
+     * Path to artifact for the url version.
+     */
+    private final String m_artifactPath;
+    /**
+     * Path to artifact metadata file.
+     */
+    private final String m_artifactMetadataPath;
+    /**
+     * Path to artifact local metadata file.
+     */
+    private final String m_artifactLocalMetadataPath;
 
     /**
      * Creates a new protocol parser.
@@ -134,16 +164,41 @@ public class Parser
                 "Path cannot start or end with " + REPOSITORY_SEPARATOR + ". Syntax " + SYNTAX
             );
         }
-        if( path.contains( REPOSITORY_SEPARATOR ) )
-        {
-            int pos = path.lastIndexOf( REPOSITORY_SEPARATOR );
-            parseArtifactPart( path.substring( pos + 1 ) );
-            m_repositoryURL = new MavenRepositoryURL( path.substring( 0, pos ) + "@snapshots" );
-        }
-        else
+        final int pos = path.lastIndexOf( REPOSITORY_SEPARATOR );
+        final String[] segments = parseArtifactPart( path.substring( pos + 1 ) );
+        m_repositoryURL = pos < 0 ? null : new MavenRepositoryURL( path.substring( 0, pos ) + "@snapshots" );
+        m_group = segments[ 0 ];
+        m_artifact = segments[ 1 ];
+        m_version = segments[ 2 ];
+        m_type = segments[ 3 ];
+        m_classifier = segments[ 4 ];
+        m_fullClassifier = m_classifier == null ? "" : CLASSIFIER_SEPARATOR + m_classifier;
+        m_artifactDirectory = m_group.replaceAll( GROUP_SEPARATOR, FILE_SEPARATOR ) + FILE_SEPARATOR + m_artifact;
+        m_fileSuffix = m_fullClassifier + TYPE_SEPARATOR + m_type;
+        m_artifactPath = buildArtifactPath( m_version, m_version );
+        m_artifactMetadataPath = m_artifactDirectory + FILE_SEPARATOR + METADATA_FILE;
+        m_artifactLocalMetadataPath = m_artifactDirectory + FILE_SEPARATOR + METADATA_FILE_LOCAL;
+    }
+
+    /**
+     * Returns the parser of a path. Parsers are immutable, so the parsers of the most used paths are cached and shared.
+     *
+     * @param path the path part of the url (without starting mvn:)
+     *
+     * @return parser
+     *
+     * @throws MalformedURLException if provided path does not comply to expected syntax or an malformed repository URL
+     * @since 1.3.6
+     */
+    public static Parser parse( final String path )
+        throws MalformedURLException
+    {
+        final Parser cached = path == null ? null : CACHE.get( path );
+        if( cached != null )
         {
-            parseArtifactPart( path );
+            return cached;
         }
+        return CACHE.put( path, new Parser( path ) );
     }
 
     /**
@@ -151,9 +206,11 @@ public class Parser
      *
      * @param part url part without protocol and repository.
      *
+     * @return group id, artifact id, version, type and classifier (null if not present)
+     *
      * @throws MalformedURLException if provided path does not comply to syntax.
      */
-    private void parseArtifactPart( final String part )
+    private static String[] parseArtifactPart( final String part )
         throws MalformedURLException
     {
         String[] segments = part.split( ARTIFACT_SEPARATOR );
@@ -162,36 +219,36 @@ public class Parser
             throw new MalformedURLException( "Invalid path. Syntax " + SYNTAX );
         }
         // we must have a valid group
-        m_group = segments[ 0 ];
-        if( m_group.trim().length() == 0 )
+        final String group = segments[ 0 ];
+        if( group.trim().length() == 0 )
         {
             throw new MalformedURLException( "Invalid groupId. Syntax " + SYNTAX );
         }
         // valid artifact
-        m_artifact = segments[ 1 ];
-        if( m_artifact.trim().length() == 0 )
+        final String artifact = segments[ 1 ];
+        if( artifact.trim().length() == 0 )
         {
             throw new MalformedURLException( "Invalid artifactId. Syntax " + SYNTAX );
         }
         // version is optional but we have a default value 
-        m_version = VERSION_LATEST;
+        String version = VERSION_LATEST;
         if( segments.length >= 3 && segments[ 2 ].trim().length() > 0 )
         {
-            m_version = segments[ 2 ];
+            version = segments[ 2 ];
         }
         // type is optional but we have a default value
-        m_type = TYPE_JAR;
+        String type = TYPE_JAR;
         if( segments.length >= 4 && segments[ 3 ].trim().length() > 0 )
         {
-            m_type = segments[ 3 ];
+            type = segments[ 3 ];
         }
         // classifier is optional (if not pressent or empty we will have a null classsifier
-        m_fullClassifier = "";
+        String classifier = null;
         if( segments.length >= 5 && segments[ 4 ].trim().length() > 0 )
         {
-            m_classifier = segments[ 4 ];
-            m_fullClassifier = CLASSIFIER_SEPARATOR + m_classifier;
+            classifier = segments[ 4 ];
         }
+        return new String[]{ group, artifact, version, type, classifier };
     }
 
     /**
@@ -261,7 +318,7 @@ public class Parser
      */
     public String getArtifactPath()
     {
-        return getArtifactPath( m_version );
+        return m_artifactPath;
     }
 
     /**
@@ -273,20 +330,11 @@ public class Parser
      */
     public String getArtifactPath( final String version )
     {
-        return new StringBuilder()
-            .append( m_group.replaceAll( GROUP_SEPARATOR, FILE_SEPARATOR ) )
-            .append( FILE_SEPARATOR )
-            .append( m_artifact )
-            .append( FILE_SEPARATOR )
-            .append( version )
-            .append( FILE_SEPARATOR )
-            .append( m_artifact )
-            .append( VERSION_SEPARATOR )
-            .append( version )
-            .append( m_fullClassifier )
-            .append( TYPE_SEPARATOR )
-            .append( m_type )
-            .toString();
+        if( m_version.equals( version ) )
+        {
+            return m_artifactPath;
+        }
+        return buildArtifactPath( version, version );
     }
 
     /**
@@ -314,20 +362,7 @@ public class Parser
      */
     public String getSnapshotPath( final String version, final String timestamp, final String buildnumber )
     {
-        return new StringBuilder()
-            .append( m_group.replaceAll( GROUP_SEPARATOR, FILE_SEPARATOR ) )
-            .append( FILE_SEPARATOR )
-            .append( m_artifact )
-            .append( FILE_SEPARATOR )
-            .append( version )
-            .append( FILE_SEPARATOR )
-            .append( m_artifact )
-            .append( VERSION_SEPARATOR )
-            .append( getSnapshotVersion( version, timestamp, buildnumber ) )
-            .append( m_fullClassifier )
-            .append( TYPE_SEPARATOR )
-            .append( m_type )
-            .toString();
+        return buildArtifactPath( version, getSnapshotVersion( version, timestamp, buildnumber ) );
     }
 
     /**
@@ -340,9 +375,7 @@ public class Parser
     public String getVersionMetadataPath( final String version )
     {
         return new StringBuilder()
-            .append( m_group.replaceAll( GROUP_SEPARATOR, FILE_SEPARATOR ) )
-            .append( FILE_SEPARATOR )
-            .append( m_artifact )
+            .append( m_artifactDirectory )
             .append( FILE_SEPARATOR )
             .append( version )
             .append( FILE_SEPARATOR )
@@ -360,9 +393,7 @@ public class Parser
     public String getVersionLocalMetadataPath( final String version )
     {
         return new StringBuilder()
-            .append( m_group.replaceAll( GROUP_SEPARATOR, FILE_SEPARATOR ) )
-            .append( FILE_SEPARATOR )
-            .append( m_artifact )
+            .append( m_artifactDirectory )
             .append( FILE_SEPARATOR )
             .append( version )
             .append( FILE_SEPARATOR )
@@ -370,6 +401,16 @@ public class Parser
             .toString();
     }
 
+    /**
+     * Returns the path to the directory that contains all versions of the artifact.
+     *
+     * @return artifact directory path
+     */
+    public String getArtifactDirectory()
+    {
+        return m_artifactDirectory;
+    }
+
     /**
      * Returns the complete path to artifact local metadata file.
      *
@@ -377,13 +418,7 @@ public class Parser
      */
     public String getArtifactLocalMetdataPath()
     {
-        return new StringBuilder()
-            .append( m_group.replaceAll( GROUP_SEPARATOR, FILE_SEPARATOR ) )
-            .append( FILE_SEPARATOR )
-            .append( m_artifact )
-            .append( FILE_SEPARATOR )
-            .append( METADATA_FILE_LOCAL )
-            .toString();
+        return m_artifactLocalMetadataPath;
     }
 
     /**
@@ -392,13 +427,29 @@ public class Parser
      * @return artifact path
      */
     public String getArtifactMetdataPath()
+    {
+        return m_artifactMetadataPath;
+    }
+
+    /**
+     * Builds the path to an artifact file.
+     *
+     * @param version     version directory
+     * @param fileVersion version used in the file name (the version or a snapshot build version)
+     *
+     * @return artifact path
+     */
+    private String buildArtifactPath( final String version, final String fileVersion )
     {
         return new StringBuilder()
-            .append( m_group.replaceAll( GROUP_SEPARATOR, FILE_SEPARATOR ) )
+            .append( m_artifactDirectory )
             .append( FILE_SEPARATOR )
-            .append( m_artifact )
+            .append( version )
             .append( FILE_SEPARATOR )
-            .append( METADATA_FILE )
+            .append( m_artifact )
+            .append( VERSION_SEPARATOR )
+            .append( fileVersion )
+            .append( m_fileSuffix )
             .toString();
     }
 
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.ops4j.lang.NullArgumentException;
+import org.ops4j.pax.url.mvn.Handler;
+import org.ops4j.pax.url.mvn.ServiceConstants;
+
+/**
+ * Resolves the artifacts configured to be prefetched in background, as soon as a handler context is created.
+ * Artifacts found in a local (file) repository are left there, downloaded artifacts are staged in the handler context so
+ * later connections to the same artifact are served from the staged copy. Connections to an artifact that is still
+ * being prefetched join the running download.
+ *
+ * @since 1.3.6
+ */
+class Prefetcher
+{
+
+    /**
+     * Logger.
+     */
+    private static final Log LOG = LogFactory.getLog( Prefetcher.class );
+    /**
+     * Handler used to create mvn: urls. Never used to open connections.
+     */
+    private static final Handler HANDLER = new Handler();
+
+    /**
+     * Handler context in which artifacts are staged.
+     */
+    private final HandlerContext m_context;
+
+    /**
+     * Creates a new prefetcher.
+     *
+     * @param context handler context; cannot be null
+     *
+     * @throws NullArgumentException if context is null
+     */
+    Prefetcher( final HandlerContext context )
+    {
+        NullArgumentException.validateNotNull( context, "Handler context" );
+        m_context = context;
+    }
+
+    /**
+     * Starts prefetching the configured artifacts on the prefetch executor. Does nothing if there is nothing to
+     * prefetch. Artifacts that cannot be prefetched are logged and will be resolved on demand.
+     */
+    void start()
+    {
+        final String prefetch = m_context.getConfiguration().getPrefetch();
+        if( prefetch == null )
+        {
+            return;
+        }
+        final List<String> urls;
+        try
+        {
+            urls = parse( prefetch );
+        }
+        catch( IOException e )
+        {
+            LOG.warn( "Could not read the artifacts to prefetch from [" + prefetch + "]: " + e.getMessage() );
+            return;
+        }
+        LOG.debug( "Prefetching [" + urls.size() + "] artifacts" );
+        for( final String url : urls )
+        {
+            final ExecutorService executor = m_context.getPrefetchExecutor();
+            if( executor == null )
+            {
+                return;
+            }
+            try
+            {
+                executor.execute( new Runnable()
+                {
+                    public void run()
+                    {
+                        prefetch( url );
+                    }
+                }
+                );
+            }
+            catch( RejectedExecutionException ignore )
+            {
+                // context disposed meanwhile
+                return;
+            }
+        }
+    }
+
+    /**
+     * Resolves one artifact and stages it if it was downloaded.
+     *
+     * @param url url to prefetch, with or without the "mvn:" prefix
+     */
+    void prefetch( final String url )
+    {
+        try
+        {
+            final String prefix = ServiceConstants.PROTOCOL + ":";
+            final Connection connection = new Connection(
+                new URL( null, url.startsWith( prefix ) ? url : prefix + url, HANDLER ),
+                m_context.getConfiguration(),
+                m_context
+            );
+            final InputStream inputStream = connection.getInputStream();
+            if( connection.getDownloadedFile() != null )
+            {
+                inputStream.close();
+                LOG.debug( "Artifact [" + url + "] is available locally" );
+                return;
+            }
+            final File file = store( inputStream );
+            if( !m_context.stage( connection.getCoordinates(), file ) )
+            {
+                delete( file );
+                return;
+            }
+            LOG.debug( "Prefetched artifact [" + url + "]" );
+        }
+        catch( IOException e )
+        {
+            LOG.warn( "Could not prefetch artifact [" + url + "]: " + e.getMessage() );
+        }
+        catch( RuntimeException e )
+        {
+            LOG.warn( "Could not prefetch artifact [" + url + "]: " + e.getMessage() );
+        }
+    }
+
+    /**
+     * Stores a downloaded artifact in a staging file of the handler context.
+     *
+     * @param inputStream artifact stream
+     *
+     * @return staging file
+     *
+     * @throws IOException if the artifact cannot be downloaded or stored
+     */
+    private File store( final InputStream inputStream )
+        throws IOException
+    {
+        File file = null;
+        try
+        {
+            file = m_context.createStagingFile();
+            final OutputStream outputStream = new FileOutputStream( file );
+            try
+            {
+                final byte[] buffer = new byte[8192];
+                int read;
+                while( ( read = inputStream.read( buffer ) ) != -1 )
+                {
+                    outputStream.write( buffer, 0, read );
+                }
+            }
+            finally
+            {
+                outputStream.close();
+            }
+            return file;
+        }
+        catch( IOException e )
+        {
+            if( file != null )
+            {
+                delete( file );
+            }
+            throw e;
+        }
+        finally
+        {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * Parses the prefetch specification. If the specification is a single url of another protocol than mvn: it is read
+     * as a file listing one url per line, where empty lines and lines starting with "#" are ignored. Otherwise it is a
+     * comma separated list of urls.
+     *
+     * @param prefetch prefetch specification
+     *
+     * @return urls to prefetch
+     *
+     * @throws IOException if the listing file cannot be read
+     */
+    static List<String> parse( final String prefetch )
+        throws IOException
+    {
+        final List<String> urls = new ArrayList<String>();
+        final String spec = prefetch.trim();
+        final URL listing = asListing( spec );
+        if( listing == null )
+        {
+            for( String url : spec.split( "," ) )
+            {
+                add( urls, url );
+            }
+            return urls;
+        }
+        final BufferedReader reader = new BufferedReader( new InputStreamReader( listing.openStream(), "UTF-8" ) );
+        try
+        {
+            String line;
+            while( ( line = reader.readLine() ) != null )
+            {
+                add( urls, line );
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+        return urls;
+    }
+
+    /**
+     * Returns the url of the listing file if the specification denotes one.
+     *
+     * @param spec prefetch specification
+     *
+     * @return listing url or null if the specification is a list of mvn: urls
+     */
+    private static URL asListing( final String spec )
+    {
+        if( spec.contains( "," ) || spec.contains( "!" ) || spec.startsWith( ServiceConstants.PROTOCOL + ":" ) )
+        {
+            return null;
+        }
+        try
+        {
+            return new URL( spec );
+        }
+        catch( MalformedURLException e )
+        {
+            // no protocol, so it is an artifact such as group/artifact/version
+            return null;
+        }
+    }
+
+    /**
+     * Adds an url to the list, unless it is empty or a comment.
+     *
+     * @param urls list of urls
+     * @param url  url to add
+     */
+    private static void add( final List<String> urls, final String url )
+    {
+        final String trimmed = url.trim();
+        if( trimmed.length() > 0 && !trimmed.startsWith( "#" ) )
+        {
+            urls.add( trimmed );
+        }
+    }
+
+    /**
+     * Deletes a file, or schedules it for deletion if it cannot be deleted now.
+     *
+     * @param file file to delete
+     */
+    private static void delete( final File file )
+    {
+        if( file.exists() && !file.delete() )
+        {
+            file.deleteOnExit();
+        }
+    }
+
+}
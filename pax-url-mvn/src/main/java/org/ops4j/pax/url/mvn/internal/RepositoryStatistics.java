@@ -0,0 +1,244 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.ops4j.pax.url.maven.commons.MavenRepositoryURL;
+
+/**
+ * Observed behaviour of repositories: latency, hit ratio and error ratio, each as an exponentially weighted moving
+ * average. Used to probe the repositories that are fast and usually have the artifacts first.
+ * Repositories are keyed by their url, ending with a file separator.
+ *
+ * @since 1.3.6
+ */
+class RepositoryStatistics
+{
+
+    /**
+     * Weight of the newest sample in the moving averages.
+     */
+    private static final double ALPHA = 0.2;
+    /**
+     * Lowest hit ratio taken into account, so a repository that never had an artifact is not infinitely costly.
+     */
+    private static final double MIN_HIT_RATIO = 0.001;
+    /**
+     * Extra cost factor of a repository that always fails.
+     */
+    private static final double ERROR_PENALTY = 4;
+
+    /**
+     * Statistics by repository.
+     */
+    private final ConcurrentMap<String, Statistics> m_statistics;
+
+    /**
+     * Creates empty statistics.
+     */
+    RepositoryStatistics()
+    {
+        m_statistics = new ConcurrentHashMap<String, Statistics>();
+    }
+
+    /**
+     * Records that a repository had the requested resource.
+     *
+     * @param repository repository url
+     * @param latency    time in milliseconds until the resource could be read
+     */
+    void hit( final String repository, final long latency )
+    {
+        statistics( repository ).record( latency, 1, 0 );
+    }
+
+    /**
+     * Records that a repository does not have the requested resource.
+     *
+     * @param repository repository url
+     * @param latency    time in milliseconds until the repository answered
+     */
+    void miss( final String repository, final long latency )
+    {
+        statistics( repository ).record( latency, 0, 0 );
+    }
+
+    /**
+     * Records that a repository could not be accessed.
+     *
+     * @param repository repository url
+     * @param latency    time in milliseconds until the access failed
+     */
+    void error( final String repository, final long latency )
+    {
+        statistics( repository ).record( latency, 0, 1 );
+    }
+
+    /**
+     * Returns the expected cost of looking up a resource in a repository: the average latency, raised by the error
+     * ratio and divided by the hit ratio.
+     *
+     * @param repository repository url
+     *
+     * @return expected cost; zero if nothing was observed yet, so unknown repositories get probed and measured
+     */
+    double getCost( final String repository )
+    {
+        final Statistics statistics = m_statistics.get( repository );
+        return statistics == null ? 0 : statistics.getCost();
+    }
+
+    /**
+     * Orders repositories by expected cost. Costs are compared by order of magnitude (power of two), so repositories
+     * of comparable cost keep their configured order.
+     *
+     * @param repositories repositories in configured order
+     *
+     * @return new list of repositories, cheapest first
+     */
+    List<MavenRepositoryURL> order( final List<MavenRepositoryURL> repositories )
+    {
+        final Map<MavenRepositoryURL, Integer> classes = new HashMap<MavenRepositoryURL, Integer>();
+        for( MavenRepositoryURL repository : repositories )
+        {
+            classes.put( repository, (int) Math.floor( Math.log( getCost( key( repository.getURL() ) ) + 1 )
+                                                       / Math.log( 2 ) )
+            );
+        }
+        final List<MavenRepositoryURL> ordered = new ArrayList<MavenRepositoryURL>( repositories );
+        // sort is stable, so configured order breaks ties
+        Collections.sort( ordered, new Comparator<MavenRepositoryURL>()
+        {
+            public int compare( final MavenRepositoryURL repository1, final MavenRepositoryURL repository2 )
+            {
+                return classes.get( repository1 ).compareTo( classes.get( repository2 ) );
+            }
+        }
+        );
+        return ordered;
+    }
+
+    /**
+     * Returns the key of a repository.
+     *
+     * @param repositoryURL repository url
+     *
+     * @return repository url ending with a file separator
+     */
+    static String key( final URL repositoryURL )
+    {
+        final String repository = repositoryURL.toExternalForm();
+        return repository.endsWith( Parser.FILE_SEPARATOR ) ? repository : repository + Parser.FILE_SEPARATOR;
+    }
+
+    /**
+     * Clears all statistics.
+     */
+    void clear()
+    {
+        m_statistics.clear();
+    }
+
+    /**
+     * Returns the statistics of a repository, creating them if needed.
+     *
+     * @param repository repository url
+     *
+     * @return statistics of repository
+     */
+    private Statistics statistics( final String repository )
+    {
+        Statistics statistics = m_statistics.get( repository );
+        if( statistics == null )
+        {
+            statistics = new Statistics();
+            final Statistics existing = m_statistics.putIfAbsent( repository, statistics );
+            if( existing != null )
+            {
+                statistics = existing;
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * Moving averages of one repository.
+     */
+    private static class Statistics
+    {
+
+        /**
+         * Average latency in milliseconds.
+         */
+        private double m_latency;
+        /**
+         * Average ratio of lookups that found the resource.
+         */
+        private double m_hitRatio;
+        /**
+         * Average ratio of lookups that failed.
+         */
+        private double m_errorRatio;
+        /**
+         * True once a first sample was recorded.
+         */
+        private boolean m_sampled;
+
+        /**
+         * Records one lookup.
+         *
+         * @param latency lookup latency
+         * @param hit     1 if resource was found, 0 otherwise
+         * @param error   1 if lookup failed, 0 otherwise
+         */
+        synchronized void record( final long latency, final double hit, final double error )
+        {
+            if( !m_sampled )
+            {
+                m_latency = latency;
+                m_hitRatio = hit;
+                m_errorRatio = error;
+                m_sampled = true;
+                return;
+            }
+            m_latency += ALPHA * ( latency - m_latency );
+            m_hitRatio += ALPHA * ( hit - m_hitRatio );
+            m_errorRatio += ALPHA * ( error - m_errorRatio );
+        }
+
+        /**
+         * Getter.
+         *
+         * @return expected cost of a lookup
+         */
+        synchronized double getCost()
+        {
+            return ( m_latency + 1 ) * ( 1 + ERROR_PENALTY * m_errorRatio ) / Math.max( m_hitRatio, MIN_HIT_RATIO );
+        }
+
+    }
+
+}
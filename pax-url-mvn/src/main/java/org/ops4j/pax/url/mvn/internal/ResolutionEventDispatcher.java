@@ -0,0 +1,227 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.ops4j.lang.NullArgumentException;
+import org.ops4j.pax.url.mvn.ResolutionEvent;
+import org.ops4j.pax.url.mvn.ResolutionListener;
+
+/**
+ * Delivers resolution events to the registered listeners. Events are queued and delivered by a single thread, in the
+ * order they were fired. If the queue is full the event is dropped, so firing never blocks the resolving thread.
+ *
+ * @since 1.3.6
+ */
+class ResolutionEventDispatcher
+{
+
+    /**
+     * Logger.
+     */
+    private static final Log LOG = LogFactory.getLog( ResolutionEventDispatcher.class );
+    /**
+     * Default number of events waiting for delivery, above which events are dropped.
+     */
+    private static final int DEFAULT_CAPACITY = 10000;
+
+    /**
+     * Registered listeners.
+     */
+    private final List<ResolutionListener> m_listeners;
+    /**
+     * Number of events waiting for delivery, above which events are dropped.
+     */
+    private final int m_capacity;
+    /**
+     * Number of events dropped.
+     */
+    private final AtomicLong m_dropped;
+    /**
+     * Executor delivering the events. Lazy created.
+     */
+    private volatile ExecutorService m_executor;
+    /**
+     * True if the dispatcher was disposed.
+     */
+    private boolean m_disposed;
+
+    /**
+     * Creates a new dispatcher with the default capacity.
+     */
+    ResolutionEventDispatcher()
+    {
+        this( DEFAULT_CAPACITY );
+    }
+
+    /**
+     * Creates a new dispatcher.
+     *
+     * @param capacity number of events waiting for delivery, above which events are dropped
+     */
+    ResolutionEventDispatcher( final int capacity )
+    {
+        m_listeners = new CopyOnWriteArrayList<ResolutionListener>();
+        m_capacity = capacity;
+        m_dropped = new AtomicLong();
+    }
+
+    /**
+     * Registers a listener.
+     *
+     * @param listener listener to register; cannot be null
+     *
+     * @throws NullArgumentException if listener is null
+     */
+    void addListener( final ResolutionListener listener )
+    {
+        NullArgumentException.validateNotNull( listener, "Listener" );
+        m_listeners.add( listener );
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener listener to unregister
+     */
+    void removeListener( final ResolutionListener listener )
+    {
+        m_listeners.remove( listener );
+    }
+
+    /**
+     * Checks if there are listeners, so events are only created if they will be delivered.
+     *
+     * @return true if at least a listener is registered
+     */
+    boolean hasListeners()
+    {
+        return !m_listeners.isEmpty();
+    }
+
+    /**
+     * Queues an event for delivery to the registered listeners.
+     *
+     * @param event event to deliver
+     */
+    void fire( final ResolutionEvent event )
+    {
+        if( !hasListeners() )
+        {
+            return;
+        }
+        ExecutorService executor = m_executor;
+        if( executor == null )
+        {
+            executor = getExecutor();
+        }
+        if( executor == null )
+        {
+            return;
+        }
+        try
+        {
+            executor.execute( new Runnable()
+            {
+                public void run()
+                {
+                    deliver( event );
+                }
+            }
+            );
+        }
+        catch( RejectedExecutionException e )
+        {
+            if( m_dropped.incrementAndGet() == 1 )
+            {
+                LOG.warn( "Resolution listeners are too slow, dropping resolution events" );
+            }
+        }
+    }
+
+    /**
+     * Getter.
+     *
+     * @return number of events dropped because listeners were too slow
+     */
+    long getDropped()
+    {
+        return m_dropped.get();
+    }
+
+    /**
+     * Stops delivering events. Queued events are dropped.
+     */
+    synchronized void dispose()
+    {
+        m_disposed = true;
+        if( m_executor != null )
+        {
+            m_executor.shutdownNow();
+            m_executor = null;
+        }
+    }
+
+    /**
+     * Delivers an event to every registered listener. Listener failures are logged.
+     *
+     * @param event event to deliver
+     */
+    private void deliver( final ResolutionEvent event )
+    {
+        for( ResolutionListener listener : m_listeners )
+        {
+            try
+            {
+                listener.resolutionEvent( event );
+            }
+            catch( RuntimeException e )
+            {
+                LOG.warn( "Resolution listener [" + listener + "] failed on " + event, e );
+            }
+        }
+    }
+
+    /**
+     * Returns the executor delivering the events, creating it if needed.
+     *
+     * @return executor or null if the dispatcher was disposed
+     */
+    private synchronized ExecutorService getExecutor()
+    {
+        if( m_executor == null && !m_disposed )
+        {
+            m_executor = new ThreadPoolExecutor(
+                1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>( m_capacity ),
+                new HandlerContext.DaemonThreadFactory( "events" )
+            );
+        }
+        return m_executor;
+    }
+
+}
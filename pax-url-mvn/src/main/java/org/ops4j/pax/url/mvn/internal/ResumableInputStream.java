@@ -0,0 +1,359 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.ops4j.lang.NullArgumentException;
+import org.ops4j.pax.url.maven.commons.Transport;
+import org.ops4j.pax.url.maven.commons.TransportResponse;
+
+/**
+ * An input stream over a http(s) download that, when the transfer is interrupted (read fails or the stream ends
+ * before the announced content length), reconnects and continues from the last byte read, so the caller never sees
+ * the interruption.
+ * The download is resumed with a "Range" request guarded by an "If-Range" validator (ETag or Last-Modified), so a
+ * resource that changed meanwhile is never stitched together. Servers that do not support ranges answer with the whole
+ * resource, in which case the bytes already read are skipped, provided the resource did not change.
+ * Each resume is preceded by a delay that doubles on every consecutive attempt that did not read any byte. Once the
+ * retries are exhausted the last failure is thrown.
+ *
+ * @since 1.3.6
+ */
+class ResumableInputStream
+    extends InputStream
+{
+
+    /**
+     * Logger.
+     */
+    private static final Log LOG = LogFactory.getLog( ResumableInputStream.class );
+    /**
+     * Maximum delay between retries (in milliseconds).
+     */
+    private static final long MAX_DELAY = 30000;
+
+    /**
+     * Url being downloaded.
+     */
+    private final URL m_url;
+    /**
+     * Transport used to connect.
+     */
+    private final Transport m_transport;
+    /**
+     * Maximum number of consecutive resume attempts.
+     */
+    private final int m_retries;
+    /**
+     * Delay before first resume attempt (in milliseconds).
+     */
+    private final long m_delay;
+    /**
+     * Content length as announced by the first response or -1 if not announced.
+     */
+    private final long m_length;
+    /**
+     * ETag or Last-Modified of the first response. Null if none.
+     */
+    private final String m_validator;
+    /**
+     * Stream of current connection.
+     */
+    private InputStream m_inputStream;
+    /**
+     * Number of bytes read so far.
+     */
+    private long m_position;
+    /**
+     * Position at which the download was last resumed.
+     */
+    private long m_resumedAt;
+    /**
+     * Number of consecutive resume attempts.
+     */
+    private int m_attempts;
+    /**
+     * True if the stream was closed.
+     */
+    private boolean m_closed;
+
+    /**
+     * Creates a new resumable stream by connecting to the url.
+     *
+     * @param transport transport used to connect; cannot be null
+     * @param url       http(s) url to download; cannot be null
+     * @param retries   maximum number of consecutive resume attempts
+     * @param delay     delay before first resume attempt (in milliseconds)
+     *
+     * @throws IOException           if the url cannot be opened (e.g. FileNotFoundException if not found)
+     * @throws NullArgumentException if transport or url is null
+     */
+    ResumableInputStream( final Transport transport, final URL url, final int retries, final long delay )
+        throws IOException
+    {
+        NullArgumentException.validateNotNull( transport, "Transport" );
+        NullArgumentException.validateNotNull( url, "URL" );
+        m_transport = transport;
+        m_url = url;
+        m_retries = retries;
+        m_delay = delay;
+        final TransportResponse response = transport.open( url, null );
+        m_inputStream = response.getInputStream();
+        m_length = response.getContentLength();
+        m_validator = getValidator( response );
+    }
+
+    @Override
+    public int read()
+        throws IOException
+    {
+        final byte[] buffer = new byte[1];
+        int read;
+        do
+        {
+            read = read( buffer, 0, 1 );
+        }
+        while( read == 0 );
+        return read == -1 ? -1 : buffer[ 0 ] & 0xFF;
+    }
+
+    @Override
+    public int read( final byte[] buffer, final int offset, final int length )
+        throws IOException
+    {
+        while( true )
+        {
+            try
+            {
+                final int read = m_inputStream.read( buffer, offset, length );
+                if( read == -1 && m_length >= 0 && m_position < m_length )
+                {
+                    throw new EOFException(
+                        "Premature end of stream after [" + m_position + "] of [" + m_length + "] bytes"
+                    );
+                }
+                if( read > 0 )
+                {
+                    m_position += read;
+                }
+                return read;
+            }
+            catch( IOException e )
+            {
+                if( m_closed )
+                {
+                    throw e;
+                }
+                resume( e );
+            }
+        }
+    }
+
+    @Override
+    public int available()
+        throws IOException
+    {
+        return m_inputStream.available();
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        m_closed = true;
+        m_inputStream.close();
+    }
+
+    /**
+     * Getter.
+     *
+     * @return content length as announced by the first response or -1 if not announced
+     */
+    long getLength()
+    {
+        return m_length;
+    }
+
+    /**
+     * Reconnects and positions the stream at the last byte read.
+     *
+     * @param failure failure that interrupted the download
+     *
+     * @throws IOException the last failure if the download cannot be resumed
+     */
+    private void resume( final IOException failure )
+        throws IOException
+    {
+        closeQuietly( m_inputStream );
+        if( m_position > m_resumedAt )
+        {
+            // progress was made since last resume, so start counting again
+            m_attempts = 0;
+        }
+        IOException lastFailure = failure;
+        while( m_attempts < m_retries )
+        {
+            final long delay = Math.min( MAX_DELAY, m_delay << Math.min( m_attempts, 16 ) );
+            m_attempts++;
+            LOG.debug( "Download of [" + m_url + "] interrupted after [" + m_position + "] bytes, reason: "
+                       + lastFailure.getMessage() + ". Resuming in [" + delay + "] ms (" + m_attempts + "/"
+                       + m_retries + ")"
+            );
+            try
+            {
+                Thread.sleep( delay );
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw lastFailure;
+            }
+            try
+            {
+                m_inputStream = reopen();
+                m_resumedAt = m_position;
+                return;
+            }
+            catch( IOException e )
+            {
+                lastFailure = e;
+            }
+        }
+        throw lastFailure;
+    }
+
+    /**
+     * Connects again asking for the bytes not yet read.
+     *
+     * @return stream positioned at the last byte read
+     *
+     * @throws IOException if the download cannot continue from the last byte read
+     */
+    private InputStream reopen()
+        throws IOException
+    {
+        final Map<String, String> headers = new HashMap<String, String>();
+        headers.put( "Range", "bytes=" + m_position + "-" );
+        if( m_validator != null )
+        {
+            headers.put( "If-Range", m_validator );
+        }
+        final TransportResponse response = m_transport.open( m_url, headers );
+        if( response.getStatus() == HttpURLConnection.HTTP_PARTIAL )
+        {
+            final String range = response.getHeader( "Content-Range" );
+            if( range == null || !range.trim().startsWith( "bytes " + m_position + "-" ) )
+            {
+                response.close();
+                throw new IOException( "Unexpected content range [" + range + "] when resuming [" + m_url + "]" );
+            }
+            return response.getInputStream();
+        }
+        if( response.getStatus() == HttpURLConnection.HTTP_OK )
+        {
+            // ranges not supported or resource changed
+            final String validator = getValidator( response );
+            if( ( m_validator != null && !m_validator.equals( validator ) )
+                || response.getContentLength() != m_length )
+            {
+                response.close();
+                throw new IOException( "[" + m_url + "] changed while downloading" );
+            }
+            final InputStream inputStream = response.getInputStream();
+            try
+            {
+                skipFully( inputStream, m_position );
+            }
+            catch( IOException e )
+            {
+                closeQuietly( inputStream );
+                throw e;
+            }
+            return inputStream;
+        }
+        response.close();
+        throw new IOException( "Unexpected response [" + response.getStatus() + "] when resuming [" + m_url + "]" );
+    }
+
+    /**
+     * Returns a validator usable in an If-Range header: a strong ETag or else the Last-Modified date.
+     *
+     * @param response response
+     *
+     * @return validator or null if the response has none
+     */
+    private static String getValidator( final TransportResponse response )
+    {
+        final String eTag = response.getHeader( "ETag" );
+        if( eTag != null && !eTag.startsWith( "W/" ) )
+        {
+            return eTag;
+        }
+        return response.getHeader( "Last-Modified" );
+    }
+
+    /**
+     * Skips exactly a number of bytes.
+     *
+     * @param inputStream stream
+     * @param count       number of bytes to skip
+     *
+     * @throws IOException if the stream ends before
+     */
+    private static void skipFully( final InputStream inputStream, final long count )
+        throws IOException
+    {
+        final byte[] buffer = new byte[8192];
+        long skipped = 0;
+        while( skipped < count )
+        {
+            final int read = inputStream.read( buffer, 0, (int) Math.min( buffer.length, count - skipped ) );
+            if( read == -1 )
+            {
+                throw new EOFException( "Premature end of stream while skipping [" + count + "] bytes" );
+            }
+            skipped += read;
+        }
+    }
+
+    /**
+     * Closes a stream ignoring failures.
+     *
+     * @param inputStream stream to close
+     */
+    private static void closeQuietly( final InputStream inputStream )
+    {
+        try
+        {
+            inputStream.close();
+        }
+        catch( IOException ignore )
+        {
+            // ignore as the stream is replaced
+        }
+    }
+
+}
@@ -0,0 +1,971 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.ops4j.lang.NullArgumentException;
+
+/**
+ * A resolution of an artifact shared by all the connections that resolve the same artifact at the same time.
+ * The first connection (the leader) resolves the artifact and, while its caller reads the download, copies the bytes
+ * to a temporary file. Concurrent connections (followers) get their own stream over that file, which follows the
+ * download as it progresses. If the leader's caller closes its stream before the end while followers are still
+ * reading, the rest of the download is finished for them in background. The temporary file is deleted once all streams
+ * are closed.
+ * The resolution can be joined as long as it is registered among the resolutions in progress, that is till the download
+ * ends.
+ * Artifacts found in a local repository are not shared, as reading them again is as cheap as reading a copy; in that
+ * case followers resolve the artifact by themselves. A failure of the leader is reported to all followers.
+ * A follower waits for the leader at most the read timeout at a time. If the leader makes no progress meanwhile, as
+ * when its stream is leaked, or if the follower waits on the leader own thread, that would never read the leader stream
+ * while waiting, the follower resolves the artifact by itself. A follower that already read part of the download only
+ * continues over its own resolution if it resolved the same artifact, as a LATEST or SNAPSHOT version or a version
+ * range may resolve differently meanwhile.
+ *
+ * @since 1.3.6
+ */
+class SharedResolution
+{
+
+    /**
+     * Logger.
+     */
+    private static final Log LOG = LogFactory.getLog( SharedResolution.class );
+    /**
+     * Time (in milliseconds) a follower waits for the leader to make progress if there is no read timeout.
+     */
+    static final long DEFAULT_TIMEOUT = 60000;
+
+    /**
+     * Resolutions in progress, this one registered under its key.
+     */
+    private final ConcurrentMap<String, SharedResolution> m_resolutions;
+    /**
+     * Key under which this resolution is registered.
+     */
+    private final String m_key;
+    /**
+     * Thread of the leader, that created the resolution.
+     */
+    private final Thread m_leader;
+    /**
+     * Executor finishing downloads abandoned by the leader for the followers. Null if finished on the leader thread.
+     */
+    private final Executor m_executor;
+    /**
+     * Url of the shared artifact. Null while resolving or if not shared.
+     */
+    private String m_artifact;
+    /**
+     * Length of the shared artifact as announced by the repository or -1 if not announced.
+     */
+    private long m_length;
+    /**
+     * Temporary file with the downloaded bytes. Null while resolving or if not shared.
+     */
+    private File m_file;
+    /**
+     * Number of bytes available in the temporary file.
+     */
+    private long m_written;
+    /**
+     * True once the resolution is over: shared, not shared or failed.
+     */
+    private boolean m_resolved;
+    /**
+     * True once all bytes are available in the temporary file.
+     */
+    private boolean m_complete;
+    /**
+     * True if the leader stopped reading before the end and there was no follower to finish the download for.
+     */
+    private boolean m_abandoned;
+    /**
+     * Failure of the leader. Null if none.
+     */
+    private Exception m_failure;
+    /**
+     * Number of connections (leader included) that did not release the resolution yet.
+     */
+    private int m_readers;
+
+    /**
+     * Creates a new shared resolution, owned by the leader, that finishes downloads abandoned by the leader on the
+     * leader thread.
+     *
+     * @param resolutions resolutions in progress; cannot be null
+     * @param key         key under which the resolution is registered; cannot be null
+     *
+     * @throws NullArgumentException if any of the parameters is null
+     */
+    SharedResolution( final ConcurrentMap<String, SharedResolution> resolutions, final String key )
+    {
+        this( resolutions, key, null );
+    }
+
+    /**
+     * Creates a new shared resolution, owned by the leader. The leader is expected to register it among the
+     * resolutions in progress; it unregisters itself once the download ends.
+     *
+     * @param resolutions resolutions in progress; cannot be null
+     * @param key         key under which the resolution is registered; cannot be null
+     * @param executor    executor finishing downloads abandoned by the leader for the followers; null to finish them
+     *                    on the leader thread
+     *
+     * @throws NullArgumentException if resolutions or key is null
+     */
+    SharedResolution( final ConcurrentMap<String, SharedResolution> resolutions, final String key,
+                      final Executor executor )
+    {
+        NullArgumentException.validateNotNull( resolutions, "Resolutions" );
+        NullArgumentException.validateNotNull( key, "Key" );
+        m_resolutions = resolutions;
+        m_key = key;
+        m_executor = executor;
+        m_leader = Thread.currentThread();
+        m_readers = 1;
+    }
+
+    /**
+     * Registers a follower. Should be followed by {@link #await(long, Resolver)}.
+     *
+     * @return false if the resolution cannot be joined anymore as it was released or abandoned
+     */
+    synchronized boolean join()
+    {
+        if( m_readers == 0 || m_abandoned )
+        {
+            return false;
+        }
+        m_readers++;
+        return true;
+    }
+
+    /**
+     * Called by the leader to share a download.
+     *
+     * @param inputStream artifact stream; cannot be null
+     * @param artifact    url of the downloaded artifact; cannot be null
+     * @param length      length of the artifact as announced by the repository or -1 if not announced
+     *
+     * @return leader own stream, that copies the artifact for the followers while being read
+     *
+     * @throws NullArgumentException if input stream or artifact is null
+     */
+    InputStream share( final InputStream inputStream, final String artifact, final long length )
+    {
+        NullArgumentException.validateNotNull( inputStream, "Input stream" );
+        NullArgumentException.validateNotNull( artifact, "Artifact" );
+        final File file;
+        final OutputStream outputStream;
+        try
+        {
+            file = File.createTempFile( "pax-url-mvn-", ".tmp" );
+            outputStream = new FileOutputStream( file );
+        }
+        catch( IOException e )
+        {
+            LOG.debug( "Could not create temporary file, resolution will not be shared: " + e.getMessage() );
+            unshared();
+            return inputStream;
+        }
+        synchronized( this )
+        {
+            m_file = file;
+            m_artifact = artifact;
+            m_length = length;
+            m_resolved = true;
+            notifyAll();
+        }
+        return new LeaderInputStream( inputStream, outputStream );
+    }
+
+    /**
+     * Called by the leader if the artifact is not shared. Followers will resolve the artifact by themselves.
+     */
+    synchronized void unshared()
+    {
+        m_resolved = true;
+        notifyAll();
+        release();
+        unregister();
+    }
+
+    /**
+     * Called by the leader if the resolution failed.
+     *
+     * @param failure failure, IOException or RuntimeException
+     */
+    synchronized void fail( final Exception failure )
+    {
+        m_failure = failure;
+        m_resolved = true;
+        notifyAll();
+        release();
+        unregister();
+    }
+
+    /**
+     * Called by a follower to wait for the resolution of the leader.
+     *
+     * @param timeout  time (in milliseconds) to wait for the leader to make progress; zero for the default
+     * @param resolver independent resolution, used if the leader cannot be waited for; cannot be null
+     *
+     * @return own stream over the shared download or null if the artifact is not shared or the leader cannot be
+     *         waited for
+     *
+     * @throws IOException      re-thrown from the leader or if waiting was interrupted
+     * @throws RuntimeException re-thrown from the leader
+     */
+    InputStream await( final long timeout, final Resolver resolver )
+        throws IOException
+    {
+        NullArgumentException.validateNotNull( resolver, "Resolver" );
+        final long wait = timeout > 0 ? timeout : DEFAULT_TIMEOUT;
+        final File file;
+        synchronized( this )
+        {
+            final long deadline = System.currentTimeMillis() + wait;
+            while( !m_resolved )
+            {
+                if( !waitForLeader( deadline ) )
+                {
+                    LOG.debug( "Concurrent resolution made no progress within [" + wait + "] ms" );
+                    release();
+                    unregister();
+                    return null;
+                }
+            }
+            if( m_file == null )
+            {
+                final Exception failure = m_failure;
+                release();
+                if( failure != null )
+                {
+                    throw rethrow( failure );
+                }
+                return null;
+            }
+            file = m_file;
+        }
+        final InputStream inputStream;
+        try
+        {
+            inputStream = new FileInputStream( file );
+        }
+        catch( IOException e )
+        {
+            synchronized( this )
+            {
+                release();
+            }
+            throw e;
+        }
+        return new FollowerInputStream( inputStream, wait, resolver );
+    }
+
+    /**
+     * Waits for the leader to make progress, till the deadline. Must be called while holding the lock.
+     *
+     * @param deadline time (as of {@link System#currentTimeMillis()}) waiting ends at
+     *
+     * @return false if the leader cannot be waited for: the deadline passed or this is the leader thread
+     *
+     * @throws InterruptedIOException if the thread was interrupted
+     */
+    private boolean waitForLeader( final long deadline )
+        throws InterruptedIOException
+    {
+        final long remaining = deadline - System.currentTimeMillis();
+        if( remaining <= 0 || Thread.currentThread() == m_leader )
+        {
+            return false;
+        }
+        try
+        {
+            wait( remaining );
+            return true;
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while waiting for a concurrent resolution" );
+        }
+    }
+
+    /**
+     * Creates the exception thrown to a follower for a failure of the leader.
+     *
+     * @param failure failure of the leader
+     *
+     * @return IOException to be thrown
+     *
+     * @throws RuntimeException if the failure is not an IOException
+     */
+    private static IOException rethrow( final Exception failure )
+    {
+        if( failure instanceof IOException )
+        {
+            final IOException exception = new IOException( failure.getMessage() );
+            exception.initCause( failure );
+            return exception;
+        }
+        throw new RuntimeException( failure.getMessage(), failure );
+    }
+
+    /**
+     * Unregisters the resolution from the resolutions in progress, so later connections start a new one.
+     */
+    private void unregister()
+    {
+        m_resolutions.remove( m_key, this );
+    }
+
+    /**
+     * Releases one reader, deleting the temporary file when the last one is released. Must be called while holding
+     * the lock.
+     */
+    private void release()
+    {
+        m_readers--;
+        if( m_readers == 0 && m_file != null && !m_file.delete() )
+        {
+            LOG.debug( "Could not delete temporary file [" + m_file + "]" );
+            m_file.deleteOnExit();
+        }
+    }
+
+    /**
+     * Stream of the leader, copying the bytes read to the temporary file.
+     */
+    private class LeaderInputStream
+        extends FilterInputStream
+    {
+
+        /**
+         * Temporary file stream. Null once closed or if copying failed.
+         */
+        private OutputStream m_outputStream;
+        /**
+         * True once closed.
+         */
+        private boolean m_closed;
+
+        /**
+         * Creates a new leader stream.
+         *
+         * @param inputStream  artifact stream
+         * @param outputStream temporary file stream
+         */
+        LeaderInputStream( final InputStream inputStream, final OutputStream outputStream )
+        {
+            super( inputStream );
+            m_outputStream = outputStream;
+        }
+
+        @Override
+        public int read()
+            throws IOException
+        {
+            final byte[] buffer = new byte[1];
+            int read;
+            do
+            {
+                read = read( buffer, 0, 1 );
+            }
+            while( read == 0 );
+            return read == -1 ? -1 : buffer[ 0 ] & 0xFF;
+        }
+
+        @Override
+        public int read( final byte[] buffer, final int offset, final int length )
+            throws IOException
+        {
+            if( m_closed )
+            {
+                throw new IOException( "Stream closed" );
+            }
+            return transfer( buffer, offset, length );
+        }
+
+        /**
+         * Reads from the artifact stream, copying the bytes read for the followers.
+         *
+         * @param buffer buffer to read into
+         * @param offset offset in the buffer
+         * @param length maximum number of bytes to read
+         *
+         * @return number of bytes read or -1 at the end of the stream
+         *
+         * @throws IOException re-thrown from the artifact stream
+         */
+        private int transfer( final byte[] buffer, final int offset, final int length )
+            throws IOException
+        {
+            final int read;
+            try
+            {
+                read = super.read( buffer, offset, length );
+            }
+            catch( IOException e )
+            {
+                failed( e );
+                throw e;
+            }
+            if( read == -1 )
+            {
+                completed();
+            }
+            else if( read > 0 )
+            {
+                copy( buffer, offset, read );
+            }
+            return read;
+        }
+
+        @Override
+        public long skip( final long count )
+            throws IOException
+        {
+            // skipped bytes must be copied as well
+            final byte[] buffer = new byte[(int) Math.min( 8192, Math.max( count, 0 ) )];
+            long skipped = 0;
+            while( skipped < count )
+            {
+                final int read = read( buffer, 0, (int) Math.min( buffer.length, count - skipped ) );
+                if( read == -1 )
+                {
+                    break;
+                }
+                skipped += read;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported()
+        {
+            return false;
+        }
+
+        @Override
+        public void close()
+            throws IOException
+        {
+            if( m_closed )
+            {
+                return;
+            }
+            m_closed = true;
+            final boolean drain;
+            synchronized( SharedResolution.this )
+            {
+                drain = !m_complete && m_failure == null && m_readers > 1;
+                if( !drain && !m_complete && m_failure == null )
+                {
+                    m_abandoned = true;
+                    m_failure = new IOException( "Download abandoned" );
+                    SharedResolution.this.notifyAll();
+                }
+            }
+            if( !drain )
+            {
+                unregister();
+                finish();
+                return;
+            }
+            LOG.debug( "Finishing download for concurrent resolutions" );
+            if( m_executor != null )
+            {
+                try
+                {
+                    m_executor.execute(
+                        new Runnable()
+                        {
+                            public void run()
+                            {
+                                try
+                                {
+                                    drain();
+                                }
+                                catch( IOException e )
+                                {
+                                    LOG.debug( "Could not close finished download: " + e.getMessage() );
+                                }
+                            }
+                        }
+                    );
+                    return;
+                }
+                catch( RejectedExecutionException e )
+                {
+                    LOG.debug( "Could not finish download in background, reason: " + e.getMessage() );
+                }
+            }
+            drain();
+        }
+
+        /**
+         * Reads the rest of the download, copying it for the followers, then closes the stream.
+         *
+         * @throws IOException re-thrown from closing the artifact stream
+         */
+        private void drain()
+            throws IOException
+        {
+            final byte[] buffer = new byte[8192];
+            try
+            {
+                while( transfer( buffer, 0, buffer.length ) != -1 )
+                {
+                    // transfer() copies for the followers
+                }
+            }
+            catch( IOException ignore )
+            {
+                // already reported to followers
+            }
+            finish();
+        }
+
+        /**
+         * Closes the artifact stream and the temporary file stream, and releases the leader.
+         *
+         * @throws IOException re-thrown from closing the artifact stream
+         */
+        private void finish()
+            throws IOException
+        {
+            try
+            {
+                super.close();
+            }
+            finally
+            {
+                closeOutput();
+                synchronized( SharedResolution.this )
+                {
+                    release();
+                }
+            }
+        }
+
+        /**
+         * Copies bytes read to the temporary file and makes them available to followers.
+         *
+         * @param buffer bytes read
+         * @param offset offset of bytes read
+         * @param length number of bytes read
+         */
+        private void copy( final byte[] buffer, final int offset, final int length )
+        {
+            if( m_outputStream == null )
+            {
+                return;
+            }
+            try
+            {
+                m_outputStream.write( buffer, offset, length );
+            }
+            catch( IOException e )
+            {
+                LOG.warn( "Could not share download: " + e.getMessage() );
+                failed( e );
+                return;
+            }
+            synchronized( SharedResolution.this )
+            {
+                m_written += length;
+                SharedResolution.this.notifyAll();
+            }
+        }
+
+        /**
+         * Marks the download as complete.
+         */
+        private void completed()
+        {
+            if( m_outputStream == null )
+            {
+                return;
+            }
+            closeOutput();
+            synchronized( SharedResolution.this )
+            {
+                m_complete = true;
+                SharedResolution.this.notifyAll();
+            }
+            unregister();
+        }
+
+        /**
+         * Reports a failure to the followers and stops copying.
+         *
+         * @param failure failure
+         */
+        private void failed( final IOException failure )
+        {
+            closeOutput();
+            synchronized( SharedResolution.this )
+            {
+                if( !m_complete && m_failure == null )
+                {
+                    m_failure = failure;
+                    SharedResolution.this.notifyAll();
+                }
+            }
+            unregister();
+        }
+
+        /**
+         * Closes the temporary file stream, once.
+         */
+        private void closeOutput()
+        {
+            if( m_outputStream == null )
+            {
+                return;
+            }
+            try
+            {
+                m_outputStream.close();
+            }
+            catch( IOException e )
+            {
+                LOG.debug( "Could not close temporary file: " + e.getMessage() );
+            }
+            m_outputStream = null;
+        }
+
+    }
+
+    /**
+     * Independent resolution of the artifact, for a follower that cannot wait for the leader.
+     */
+    static interface Resolver
+    {
+
+        /**
+         * Resolves the artifact without sharing the resolution.
+         *
+         * @return artifact stream
+         *
+         * @throws IOException re-thrown
+         */
+        InputStream resolve()
+            throws IOException;
+
+        /**
+         * Returns the url of the artifact found by the last resolution.
+         *
+         * @return artifact url
+         */
+        String getArtifact();
+
+        /**
+         * Returns the length of the artifact found by the last resolution.
+         *
+         * @return length as announced by the repository or -1 if not announced
+         */
+        long getLength();
+
+    }
+
+    /**
+     * Stream of a follower, reading the temporary file as far as the leader has downloaded. If the leader cannot be
+     * waited for, the stream continues over an independent resolution.
+     */
+    private class FollowerInputStream
+        extends FilterInputStream
+    {
+
+        /**
+         * Time (in milliseconds) to wait for the leader to make progress.
+         */
+        private final long m_timeout;
+        /**
+         * Independent resolution.
+         */
+        private final Resolver m_resolver;
+        /**
+         * Number of bytes read so far.
+         */
+        private long m_position;
+        /**
+         * True once reading an independent resolution instead of the temporary file.
+         */
+        private boolean m_independent;
+        /**
+         * True once closed.
+         */
+        private boolean m_closed;
+
+        /**
+         * Creates a new follower stream.
+         *
+         * @param inputStream temporary file stream
+         * @param timeout     time (in milliseconds) to wait for the leader to make progress
+         * @param resolver    independent resolution
+         */
+        FollowerInputStream( final InputStream inputStream, final long timeout, final Resolver resolver )
+        {
+            super( inputStream );
+            m_timeout = timeout;
+            m_resolver = resolver;
+        }
+
+        @Override
+        public int read()
+            throws IOException
+        {
+            final byte[] buffer = new byte[1];
+            int read;
+            do
+            {
+                read = read( buffer, 0, 1 );
+            }
+            while( read == 0 );
+            return read == -1 ? -1 : buffer[ 0 ] & 0xFF;
+        }
+
+        @Override
+        public int read( final byte[] buffer, final int offset, final int length )
+            throws IOException
+        {
+            if( length == 0 )
+            {
+                return 0;
+            }
+            if( m_independent )
+            {
+                return super.read( buffer, offset, length );
+            }
+            long available = -1;
+            synchronized( SharedResolution.this )
+            {
+                if( awaitBytes() )
+                {
+                    if( m_failure != null && !m_complete )
+                    {
+                        throw rethrow( m_failure );
+                    }
+                    available = m_written - m_position;
+                }
+            }
+            if( available < 0 )
+            {
+                resolveIndependently();
+                return super.read( buffer, offset, length );
+            }
+            if( available == 0 )
+            {
+                return -1;
+            }
+            final int read = super.read( buffer, offset, (int) Math.min( length, available ) );
+            if( read > 0 )
+            {
+                m_position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip( final long count )
+            throws IOException
+        {
+            final byte[] buffer = new byte[(int) Math.min( 8192, Math.max( count, 0 ) )];
+            long skipped = 0;
+            while( skipped < count )
+            {
+                final int read = read( buffer, 0, (int) Math.min( buffer.length, count - skipped ) );
+                if( read == -1 )
+                {
+                    break;
+                }
+                skipped += read;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available()
+            throws IOException
+        {
+            if( m_independent )
+            {
+                return super.available();
+            }
+            synchronized( SharedResolution.this )
+            {
+                return (int) Math.min( Integer.MAX_VALUE, m_written - m_position );
+            }
+        }
+
+        @Override
+        public boolean markSupported()
+        {
+            return false;
+        }
+
+        @Override
+        public void close()
+            throws IOException
+        {
+            if( m_closed )
+            {
+                return;
+            }
+            m_closed = true;
+            if( m_independent )
+            {
+                super.close();
+                return;
+            }
+            try
+            {
+                super.close();
+            }
+            finally
+            {
+                synchronized( SharedResolution.this )
+                {
+                    release();
+                }
+            }
+        }
+
+        /**
+         * Waits for the leader to download bytes past the position, to complete or to fail. Must be called while
+         * holding the lock.
+         *
+         * @return false if the leader cannot be waited for
+         *
+         * @throws InterruptedIOException if the thread was interrupted
+         */
+        private boolean awaitBytes()
+            throws InterruptedIOException
+        {
+            final long deadline = System.currentTimeMillis() + m_timeout;
+            while( m_position >= m_written && !m_complete && m_failure == null )
+            {
+                if( !waitForLeader( deadline ) )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Continues over an independent resolution, skipping the bytes already read, and releases the shared download.
+         * The resolution is unregistered, so later connections do not wait for the leader either. If bytes were already
+         * read, the independent resolution must have found the same artifact, with the same length.
+         *
+         * @throws IOException re-thrown from the independent resolution or if it found another artifact or is shorter
+         *                     than the bytes read
+         */
+        private void resolveIndependently()
+            throws IOException
+        {
+            LOG.debug( "Concurrent resolution cannot be waited for, resolving independently" );
+            final InputStream inputStream = m_resolver.resolve();
+            long remaining = m_position;
+            try
+            {
+                if( remaining > 0 )
+                {
+                    verify();
+                }
+                while( remaining > 0 )
+                {
+                    final long skipped = inputStream.skip( remaining );
+                    if( skipped > 0 )
+                    {
+                        remaining -= skipped;
+                    }
+                    else if( inputStream.read() != -1 )
+                    {
+                        remaining--;
+                    }
+                    else
+                    {
+                        throw new IOException( "Independent resolution is shorter than the bytes already read" );
+                    }
+                }
+            }
+            catch( IOException e )
+            {
+                inputStream.close();
+                throw e;
+            }
+            unregister();
+            try
+            {
+                in.close();
+            }
+            finally
+            {
+                in = inputStream;
+                m_independent = true;
+                synchronized( SharedResolution.this )
+                {
+                    release();
+                }
+            }
+        }
+
+        /**
+         * Verifies that the independent resolution found the shared artifact, so the bytes already read can be
+         * followed by its bytes.
+         *
+         * @throws IOException if another artifact or an artifact of another length was found
+         */
+        private void verify()
+            throws IOException
+        {
+            final String artifact;
+            final long length;
+            synchronized( SharedResolution.this )
+            {
+                artifact = m_artifact;
+                length = m_length;
+            }
+            if( !artifact.equals( m_resolver.getArtifact() ) || length != m_resolver.getLength() )
+            {
+                throw new IOException(
+                    "Independent resolution of [" + m_resolver.getArtifact() + "] (" + m_resolver.getLength()
+                    + " bytes) does not match the shared download of [" + artifact + "] (" + length + " bytes)"
+                );
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.util.Calendar;
+import org.ops4j.pax.url.maven.commons.MavenConstants;
+
+/**
+ * Update policy of remote maven metadata, telling when remembered metadata has to be revalidated.
+ *
+ * @since 1.3.6
+ */
+class UpdatePolicy
+{
+
+    /**
+     * Interval marking a daily policy.
+     */
+    private static final long DAILY = -1;
+
+    /**
+     * Time in milliseconds after which metadata has to be revalidated; {@link #DAILY} if metadata has to be
+     * revalidated once a day.
+     */
+    private final long m_interval;
+
+    /**
+     * Creates a new update policy.
+     *
+     * @param interval time in milliseconds after which metadata has to be revalidated or {@link #DAILY}
+     */
+    private UpdatePolicy( final long interval )
+    {
+        m_interval = interval;
+    }
+
+    /**
+     * Parses an update policy as returned by the configuration: always, daily, interval:N (minutes) or never.
+     * Anything else is handled as always.
+     *
+     * @param policy update policy
+     *
+     * @return parsed update policy
+     */
+    static UpdatePolicy parse( final String policy )
+    {
+        if( MavenConstants.UPDATE_POLICY_NEVER.equals( policy ) )
+        {
+            return new UpdatePolicy( Long.MAX_VALUE );
+        }
+        if( MavenConstants.UPDATE_POLICY_DAILY.equals( policy ) )
+        {
+            return new UpdatePolicy( DAILY );
+        }
+        if( policy != null && policy.startsWith( MavenConstants.UPDATE_POLICY_INTERVAL ) )
+        {
+            try
+            {
+                return new UpdatePolicy(
+                    Long.parseLong( policy.substring( MavenConstants.UPDATE_POLICY_INTERVAL.length() ).trim() )
+                    * 60 * 1000L
+                );
+            }
+            catch( NumberFormatException ignore )
+            {
+                // handled as always
+            }
+        }
+        return new UpdatePolicy( 0 );
+    }
+
+    /**
+     * Checks if metadata has to be revalidated.
+     *
+     * @param lastChecked time when the metadata was downloaded or last revalidated
+     * @param now         current time
+     *
+     * @return true if metadata has to be revalidated
+     */
+    boolean isUpdateRequired( final long lastChecked, final long now )
+    {
+        if( m_interval == DAILY )
+        {
+            final Calendar today = Calendar.getInstance();
+            today.setTimeInMillis( now );
+            today.set( Calendar.HOUR_OF_DAY, 0 );
+            today.set( Calendar.MINUTE, 0 );
+            today.set( Calendar.SECOND, 0 );
+            today.set( Calendar.MILLISECOND, 0 );
+            return lastChecked < today.getTimeInMillis();
+        }
+        return now - lastChecked >= m_interval;
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+/**
+ * Parsed remote maven metadata together with the validators of the response it was parsed from, so it can be
+ * revalidated with a conditional request.
+ *
+ * @since 1.3.6
+ */
+class ValidatedMetadata
+{
+
+    /**
+     * Parsed metadata.
+     */
+    private final Metadata m_metadata;
+    /**
+     * ETag of the response. Null if not sent.
+     */
+    private final String m_etag;
+    /**
+     * Last-Modified of the response. Null if not sent.
+     */
+    private final String m_lastModified;
+    /**
+     * Time when metadata was downloaded or last revalidated.
+     */
+    private volatile long m_lastChecked;
+
+    /**
+     * Creates a new validated metadata.
+     *
+     * @param metadata     parsed metadata
+     * @param etag         ETag of the response; null if not sent
+     * @param lastModified Last-Modified of the response; null if not sent
+     * @param lastChecked  time when metadata was downloaded
+     */
+    ValidatedMetadata( final Metadata metadata, final String etag, final String lastModified, final long lastChecked )
+    {
+        m_metadata = metadata;
+        m_etag = etag;
+        m_lastModified = lastModified;
+        m_lastChecked = lastChecked;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return parsed metadata
+     */
+    Metadata getMetadata()
+    {
+        return m_metadata;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return ETag of the response; null if not sent
+     */
+    String getETag()
+    {
+        return m_etag;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return Last-Modified of the response; null if not sent
+     */
+    String getLastModified()
+    {
+        return m_lastModified;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return time when metadata was downloaded or last revalidated
+     */
+    long getLastChecked()
+    {
+        return m_lastChecked;
+    }
+
+    /**
+     * Records that metadata was revalidated.
+     *
+     * @param time time of revalidation
+     */
+    void checked( final long time )
+    {
+        m_lastChecked = time;
+    }
+
+}
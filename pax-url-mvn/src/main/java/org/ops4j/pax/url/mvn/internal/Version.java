@@ -29,18 +29,49 @@ class Version
     implements Comparable<Version>
 {
 
+    /**
+     * Segment type of a missing or empty segment.
+     */
+    private static final byte NULL = 0;
+    /**
+     * Segment type of a numeric segment.
+     */
+    private static final byte INTEGER = 1;
+    /**
+     * Segment type of a qualifier segment.
+     */
+    private static final byte STRING = 2;
+    /**
+     * Segment type of a SNAPSHOT segment.
+     */
+    private static final byte SNAPSHOT = 3;
+    /**
+     * SNAPSHOT segment.
+     */
+    private static final String SNAPSHOT_SEGMENT = "SNAPSHOT";
+
     /**
      * Original string version.
      */
     private final String m_version;
 
     /**
-     * Version segments.
+     * Version segments types.
+     */
+    private final byte[] m_types;
+    /**
+     * Value of integer segments (zero for other segment types).
      */
-    private final VersionSegment[] m_segments;
+    private final int[] m_numbers;
+    /**
+     * Interned string form of each segment, used when segments of different types are compared as strings.
+     */
+    private final String[] m_strings;
 
     /**
      * Creates a new version.
+     * The version is parsed once into segment types, numbers and interned strings so comparing versions does not
+     * allocate.
      *
      * @param version version as a string
      *
@@ -52,27 +83,34 @@ class Version
 
         m_version = version;
         final String[] segments = version.split( "[\\.-]" );
-        m_segments = new VersionSegment[segments.length];
+        m_types = new byte[segments.length];
+        m_numbers = new int[segments.length];
+        m_strings = new String[segments.length];
         for( int i = 0; i < segments.length; i++ )
         {
             final String trimmedSegment = segments[ i ].trim();
             if( "".equals( trimmedSegment ) )
             {
-                m_segments[ i ] = new NullVersionSegment();
+                m_types[ i ] = NULL;
+                m_strings[ i ] = "";
             }
-            else if( "SNAPSHOT".equals( trimmedSegment ) )
+            else if( SNAPSHOT_SEGMENT.equals( trimmedSegment ) )
             {
-                m_segments[ i ] = new SnapshotVersionSegment();
+                m_types[ i ] = SNAPSHOT;
+                m_strings[ i ] = SNAPSHOT_SEGMENT;
             }
             else
             {
                 try
                 {
-                    m_segments[ i ] = new IntegerVersionSegment( trimmedSegment );
+                    m_numbers[ i ] = Integer.parseInt( trimmedSegment );
+                    m_types[ i ] = INTEGER;
+                    m_strings[ i ] = String.valueOf( m_numbers[ i ] ).intern();
                 }
                 catch( NumberFormatException ignore )
                 {
-                    m_segments[ i ] = new StringVersionSegment( trimmedSegment );
+                    m_types[ i ] = STRING;
+                    m_strings[ i ] = trimmedSegment.intern();
                 }
             }
         }
@@ -85,14 +123,113 @@ class Version
      */
     VersionSegment[] getSegments()
     {
-        final VersionSegment[] copy = new VersionSegment[m_segments.length];
-        System.arraycopy( m_segments, 0, copy, 0, m_segments.length );
-        return copy;
+        final VersionSegment[] segments = new VersionSegment[m_types.length];
+        for( int i = 0; i < m_types.length; i++ )
+        {
+            switch( m_types[ i ] )
+            {
+                case NULL:
+                    segments[ i ] = new NullVersionSegment();
+                    break;
+                case INTEGER:
+                    segments[ i ] = new IntegerVersionSegment( m_numbers[ i ] );
+                    break;
+                case SNAPSHOT:
+                    segments[ i ] = new SnapshotVersionSegment();
+                    break;
+                default:
+                    segments[ i ] = new StringVersionSegment( m_strings[ i ] );
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Checks if all segments of this version are numbers (e.g. 1.2.3, but not 1.2-RC1, 1.2-SNAPSHOT or 1..2).
+     *
+     * @return true if all segments are numbers
+     */
+    boolean isNumeric()
+    {
+        for( byte type : m_types )
+        {
+            if( type != INTEGER )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares numbers of two numeric versions one by one; if all numbers of the shorter version are equal to the ones
+     * of the longer version, the shorter version is lower. Unlike {@link #compareTo(Version)}, that considers 1.2 equal
+     * to 1.2.3, this is a total order and any list of numeric versions sorted by it is also sorted by
+     * {@link #compareTo(Version)}.
+     *
+     * @param version numeric version to compare to; cannot be null
+     *
+     * @return a negative integer, zero, or a positive integer as this version is less than, equal to, or greater than
+     *         the specified
+     */
+    int compareNumbers( final Version version )
+    {
+        return compareNumbers( version, version.m_numbers.length );
+    }
+
+    /**
+     * Compares numbers of this numeric version with the first numbers of another numeric version.
+     *
+     * @param version  numeric version to compare to; cannot be null
+     * @param segments number of segments of the other version to compare to
+     *
+     * @return a negative integer, zero, or a positive integer as this version is less than, equal to, or greater than
+     *         the first segments of the specified version
+     *
+     * @see #compareNumbers(Version)
+     */
+    int compareNumbers( final Version version, final int segments )
+    {
+        final int minSegments = Math.min( m_numbers.length, segments );
+        for( int i = 0; i < minSegments; i++ )
+        {
+            if( m_numbers[ i ] != version.m_numbers[ i ] )
+            {
+                return m_numbers[ i ] < version.m_numbers[ i ] ? -1 : 1;
+            }
+        }
+        return m_numbers.length - segments;
+    }
+
+    /**
+     * Checks if this numeric version has less segments then another numeric version and all of them are equal to the
+     * first segments of the other version (e.g. 1.2 is a prefix of 1.2.3).
+     *
+     * @param version numeric version; cannot be null
+     *
+     * @return true if this version is a proper prefix of the other version
+     */
+    boolean isPrefixOf( final Version version )
+    {
+        return m_numbers.length < version.m_numbers.length
+               && compareNumbers( version, m_numbers.length ) == 0;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return number of segments
+     */
+    int getSegmentCount()
+    {
+        return m_types.length;
     }
 
     /**
      * Compars to versions. Comparation is done by comparing each segment that makes up the version. If the version to
      * compare to is null then 1 (greather) is returned.
+     * Segments of the same type are compared by their value (SNAPSHOT is lower then any other qualifier), integer and
+     * missing segments are considered equal and otherwise segments are compared by their string form.
      *
      * @param version version to compare to
      *
@@ -108,42 +245,75 @@ class Version
         {
             return 1;
         }
-        final VersionSegment[] otherSegments = version.getSegments();
-        final int maxSegments = Math.max( m_segments.length, otherSegments.length );
+        final int maxSegments = Math.max( m_types.length, version.m_types.length );
         for( int i = 0; i < maxSegments; i++ )
         {
-            VersionSegment thisSegment = new NullVersionSegment();
-            if( i < m_segments.length )
-            {
-                thisSegment = m_segments[ i ];
-            }
-            VersionSegment otherSegment = new NullVersionSegment();
-            if( i < otherSegments.length )
+            final int compResult = compareSegments( version, i );
+            if( compResult != 0 )
             {
-                otherSegment = otherSegments[ i ];
+                return compResult;
             }
+        }
+        return 0;
+    }
 
-            int compResult = 0;
-            if( thisSegment.getClass().isAssignableFrom( otherSegment.getClass() ) )
-            {
-                compResult = thisSegment.compareTo( otherSegment );
-            }
-            else if( thisSegment instanceof StringVersionSegment )
-            {
-                compResult = thisSegment.compareTo( new StringVersionSegment( otherSegment.toString() ) );
-            }
-            else if( otherSegment instanceof StringVersionSegment )
-            {
-                compResult = new StringVersionSegment( thisSegment.toString() ).compareTo( otherSegment );
-            }
-            if( compResult != 0 )
+    /**
+     * Compares a segment of this version with the same segment of another version. Missing segments are considered
+     * empty.
+     *
+     * @param other other version
+     * @param index index of segment
+     *
+     * @return comparison result
+     */
+    private int compareSegments( final Version other, final int index )
+    {
+        final boolean present = index < m_types.length;
+        final boolean otherPresent = index < other.m_types.length;
+        final byte type = present ? m_types[ index ] : NULL;
+        final byte otherType = otherPresent ? other.m_types[ index ] : NULL;
+        final String string = present ? m_strings[ index ] : "";
+        final String otherString = otherPresent ? other.m_strings[ index ] : "";
+
+        if( type == otherType )
+        {
+            if( type == INTEGER )
             {
-                return compResult;
+                final int number = m_numbers[ index ];
+                final int otherNumber = other.m_numbers[ index ];
+                return number < otherNumber ? -1 : ( number == otherNumber ? 0 : 1 );
             }
+            return type == STRING ? compareStrings( string, otherString ) : 0;
+        }
+        if( type == SNAPSHOT )
+        {
+            return -1;
+        }
+        if( type == STRING || otherType == STRING || otherType == SNAPSHOT )
+        {
+            return compareStrings( string, otherString );
         }
+        // integer and missing segments
         return 0;
     }
 
+    /**
+     * Compares two interned strings.
+     *
+     * @param string      first string
+     * @param otherString second string
+     *
+     * @return comparison result
+     */
+    private static int compareStrings( final String string, final String otherString )
+    {
+        if( string == otherString )
+        {
+            return 0;
+        }
+        return string.compareTo( otherString );
+    }
+
     @Override
     public boolean equals( Object o )
     {
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import org.ops4j.lang.NullArgumentException;
+
+/**
+ * Index of the versions of an artifact, used to select the versions that fall into a range by a binary search on the
+ * range bounds instead of checking every version.
+ * Versions made only of numbers (the vast majority of released versions) are kept sorted and, if both range bounds are
+ * also made only of numbers, are selected by binary search. Versions with qualifiers do not compare consistently
+ * (e.g. 1.0 and 1.0-SNAPSHOT are both lower then each other) so they cannot be sorted and are checked one by one.
+ * Numeric versions are equal to all versions they are a prefix of (e.g. 2 is equal to 2.0 and 2.3) so numeric versions
+ * that are a prefix of a range bound are checked one by one as well.
+ * In both cases the selected versions are exactly the ones for which {@link VersionRange#includes(Version)} is true.
+ * The index is immutable so it can be shared between connections along with the metadata it was built from.
+ *
+ * @see Metadata#getVersionIndex()
+ * @since 1.3.6
+ */
+class VersionIndex
+{
+
+    /**
+     * Orders numeric versions.
+     */
+    private static final Comparator<Version> NUMERIC_ORDER = new Comparator<Version>()
+    {
+        public int compare( final Version first, final Version second )
+        {
+            return first.compareNumbers( second );
+        }
+    };
+
+    /**
+     * Versions made only of numbers, ascending.
+     */
+    private final Version[] m_numeric;
+    /**
+     * Other versions, in original order.
+     */
+    private final Version[] m_other;
+
+    /**
+     * Creates a new index.
+     *
+     * @param versions versions as strings; cannot be null
+     *
+     * @throws NullArgumentException if versions is null or any of the versions is null or empty
+     */
+    VersionIndex( final List<String> versions )
+    {
+        NullArgumentException.validateNotNull( versions, "Versions" );
+        final List<Version> numeric = new ArrayList<Version>( versions.size() );
+        final List<Version> other = new ArrayList<Version>();
+        for( String versionString : versions )
+        {
+            final Version version = new Version( versionString );
+            if( version.isNumeric() )
+            {
+                numeric.add( version );
+            }
+            else
+            {
+                other.add( version );
+            }
+        }
+        m_numeric = numeric.toArray( new Version[numeric.size()] );
+        Arrays.sort( m_numeric, NUMERIC_ORDER );
+        m_other = other.toArray( new Version[other.size()] );
+    }
+
+    /**
+     * Selects the versions that fall into a range.
+     *
+     * @param range version range; cannot be null
+     *
+     * @return versions in range; versions made only of numbers come first, ascending
+     *
+     * @throws NullArgumentException if range is null
+     */
+    List<Version> select( final VersionRange range )
+    {
+        NullArgumentException.validateNotNull( range, "Range" );
+        final List<Version> selected = new ArrayList<Version>();
+        final Version lowest = range.getLowestVersion();
+        final Version highest = range.getHighestVersion();
+        if( lowest.isNumeric() && highest.isNumeric() )
+        {
+            final int from = firstAboveLowest( range );
+            final int to = firstAboveHighest( range, from );
+            for( int i = from; i < to; i++ )
+            {
+                final Version version = m_numeric[ i ];
+                if( !version.isPrefixOf( highest ) || range.includes( version ) )
+                {
+                    selected.add( version );
+                }
+            }
+            // prefixes of lowest version are sorted before it, but they may be in range
+            for( int segments = 1; segments < lowest.getSegmentCount(); segments++ )
+            {
+                for( int i = firstNotBelow( lowest, segments );
+                     i < from && m_numeric[ i ].compareNumbers( lowest, segments ) == 0;
+                     i++ )
+                {
+                    if( range.includes( m_numeric[ i ] ) )
+                    {
+                        selected.add( m_numeric[ i ] );
+                    }
+                }
+            }
+        }
+        else
+        {
+            addIncluded( range, m_numeric, selected );
+        }
+        addIncluded( range, m_other, selected );
+        return selected;
+    }
+
+    /**
+     * Getter.
+     *
+     * @return number of indexed versions
+     */
+    int size()
+    {
+        return m_numeric.length + m_other.length;
+    }
+
+    /**
+     * Checks versions one by one.
+     *
+     * @param range    version range
+     * @param versions versions to check
+     * @param selected list to add the versions in range to
+     */
+    private static void addIncluded( final VersionRange range, final Version[] versions, final List<Version> selected )
+    {
+        for( Version version : versions )
+        {
+            if( range.includes( version ) )
+            {
+                selected.add( version );
+            }
+        }
+    }
+
+    /**
+     * Binary search for the first numeric version that satisfies the lowest version of the range. As the lowest
+     * version is numeric, all numeric versions that satisfy it, except its prefixes, are at the end of the sorted
+     * numeric versions.
+     *
+     * @param range version range
+     *
+     * @return index of first version above lowest or number of numeric versions if there is none
+     */
+    private int firstAboveLowest( final VersionRange range )
+    {
+        int low = 0;
+        int high = m_numeric.length;
+        while( low < high )
+        {
+            final int middle = ( low + high ) >>> 1;
+            final Version version = m_numeric[ middle ];
+            if( !version.isPrefixOf( range.getLowestVersion() ) && range.isAboveLowest( version ) )
+            {
+                high = middle;
+            }
+            else
+            {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Binary search for the first numeric version that does not satisfy the highest version of the range. As the
+     * highest version is numeric, all numeric versions that satisfy it, plus its prefixes, are at the start of the
+     * sorted numeric versions.
+     *
+     * @param range version range
+     * @param from  index to start the search from
+     *
+     * @return index of first version above highest or number of numeric versions if there is none
+     */
+    private int firstAboveHighest( final VersionRange range, final int from )
+    {
+        int low = from;
+        int high = m_numeric.length;
+        while( low < high )
+        {
+            final int middle = ( low + high ) >>> 1;
+            final Version version = m_numeric[ middle ];
+            if( version.isPrefixOf( range.getHighestVersion() ) || range.isBelowHighest( version ) )
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Binary search for the first numeric version that is not lower then the first segments of a version.
+     *
+     * @param version  numeric version
+     * @param segments number of segments of version
+     *
+     * @return index of first version not lower or number of numeric versions if there is none
+     */
+    private int firstNotBelow( final Version version, final int segments )
+    {
+        int low = 0;
+        int high = m_numeric.length;
+        while( low < high )
+        {
+            final int middle = ( low + high ) >>> 1;
+            if( m_numeric[ middle ].compareNumbers( version, segments ) >= 0 )
+            {
+                high = middle;
+            }
+            else
+            {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+}
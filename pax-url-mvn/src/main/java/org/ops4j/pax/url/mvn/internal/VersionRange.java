@@ -130,19 +130,32 @@ class VersionRange
      */
     boolean includes( final Version version )
     {
-        if( version == null )
-        {
-            return false;
-        }
+        return version != null && isAboveLowest( version ) && isBelowHighest( version );
+    }
 
-        // check if bigger then lowest version
-        int compare = version.compareTo( m_lowestVersion );
-        if( compare == -1 || ( compare == 0 && m_lowestExclusive ) )
-        {
-            return false;
-        }
-        // check if smaller then highest version
-        compare = version.compareTo( m_highestVersion );
+    /**
+     * Checks if a version is bigger then the lowest version (or equal if lowest version is inclusive).
+     *
+     * @param version to check; cannot be null
+     *
+     * @return true if version satisfies the lowest version
+     */
+    boolean isAboveLowest( final Version version )
+    {
+        final int compare = version.compareTo( m_lowestVersion );
+        return !( compare == -1 || ( compare == 0 && m_lowestExclusive ) );
+    }
+
+    /**
+     * Checks if a version is smaller then the highest version (or equal if highest version is inclusive).
+     *
+     * @param version to check; cannot be null
+     *
+     * @return true if version satisfies the highest version
+     */
+    boolean isBelowHighest( final Version version )
+    {
+        final int compare = version.compareTo( m_highestVersion );
         return !( compare == 1 || ( compare == 0 && m_highestExclusive ) );
     }
 
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.ops4j.lang.NullArgumentException;
+
+/**
+ * An input stream that stores the bytes read by the caller into a file. Bytes are written to a temporary file in the
+ * same directory as the target file, which is renamed to the target file once the whole stream was read. If the
+ * stream is closed before its end or reading fails the temporary file is deleted, so the target file is either
+ * complete or missing.
+ * Failing to store the file does not affect the caller, which continues to read the original stream.
+ *
+ * @since 1.3.6
+ */
+class WriteThroughInputStream
+    extends FilterInputStream
+{
+
+    /**
+     * Logger.
+     */
+    private static final Log LOG = LogFactory.getLog( WriteThroughInputStream.class );
+
+    /**
+     * File to be written.
+     */
+    private final File m_target;
+    /**
+     * Temporary file the bytes are written to.
+     */
+    private final File m_temporary;
+    /**
+     * Stream to temporary file. Null once the file was stored or discarded.
+     */
+    private OutputStream m_output;
+
+    /**
+     * Creates a new write through stream. The directory of the target file is created if it does not exist.
+     *
+     * @param inputStream stream to read from; cannot be null
+     * @param target      file to store the stream into; cannot be null
+     *
+     * @throws IOException           if the temporary file cannot be created
+     * @throws NullArgumentException if any of the parameters is null
+     */
+    WriteThroughInputStream( final InputStream inputStream, final File target )
+        throws IOException
+    {
+        super( inputStream );
+        NullArgumentException.validateNotNull( inputStream, "Input stream" );
+        NullArgumentException.validateNotNull( target, "Target file" );
+        m_target = target;
+        final File directory = target.getParentFile();
+        if( !directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory() )
+        {
+            throw new IOException( "Directory [" + directory + "] could not be created" );
+        }
+        m_temporary = File.createTempFile( target.getName() + ".", ".tmp", directory );
+        try
+        {
+            m_output = new FileOutputStream( m_temporary );
+        }
+        catch( IOException e )
+        {
+            m_temporary.delete();
+            throw e;
+        }
+    }
+
+    @Override
+    public int read()
+        throws IOException
+    {
+        final int read;
+        try
+        {
+            read = super.read();
+        }
+        catch( IOException e )
+        {
+            discard();
+            throw e;
+        }
+        if( read == -1 )
+        {
+            store();
+        }
+        else if( m_output != null )
+        {
+            try
+            {
+                m_output.write( read );
+            }
+            catch( IOException e )
+            {
+                writeFailed( e );
+            }
+        }
+        return read;
+    }
+
+    @Override
+    public int read( final byte[] buffer, final int offset, final int length )
+        throws IOException
+    {
+        final int read;
+        try
+        {
+            read = super.read( buffer, offset, length );
+        }
+        catch( IOException e )
+        {
+            discard();
+            throw e;
+        }
+        if( read == -1 )
+        {
+            store();
+        }
+        else if( read > 0 && m_output != null )
+        {
+            try
+            {
+                m_output.write( buffer, offset, read );
+            }
+            catch( IOException e )
+            {
+                writeFailed( e );
+            }
+        }
+        return read;
+    }
+
+    /**
+     * Skipped bytes must be stored as well, so they are read.
+     */
+    @Override
+    public long skip( final long count )
+        throws IOException
+    {
+        final byte[] buffer = new byte[(int) Math.min( 8192, Math.max( count, 0 ) )];
+        long skipped = 0;
+        while( skipped < count )
+        {
+            final int read = read( buffer, 0, (int) Math.min( buffer.length, count - skipped ) );
+            if( read == -1 )
+            {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported()
+    {
+        return false;
+    }
+
+    @Override
+    public void mark( final int readLimit )
+    {
+        // not supported
+    }
+
+    @Override
+    public void reset()
+        throws IOException
+    {
+        throw new IOException( "Mark / reset not supported" );
+    }
+
+    /**
+     * Closes the stream. If the stream was not read till its end the temporary file is deleted.
+     */
+    @Override
+    public void close()
+        throws IOException
+    {
+        try
+        {
+            super.close();
+        }
+        finally
+        {
+            discard();
+        }
+    }
+
+    /**
+     * Moves the temporary file to the target file. If the target file was created meanwhile (e.g. by another
+     * download of the same artifact) the temporary file is deleted.
+     */
+    private void store()
+    {
+        if( m_output == null )
+        {
+            return;
+        }
+        try
+        {
+            m_output.close();
+        }
+        catch( IOException e )
+        {
+            writeFailed( e );
+            return;
+        }
+        m_output = null;
+        if( m_target.exists() )
+        {
+            m_temporary.delete();
+        }
+        else if( m_temporary.renameTo( m_target ) )
+        {
+            LOG.debug( "Stored [" + m_target + "]" );
+        }
+        else
+        {
+            LOG.warn( "Could not store [" + m_target + "]" );
+            m_temporary.delete();
+        }
+    }
+
+    /**
+     * Stops storing the stream as writing failed. Caller continues reading.
+     *
+     * @param cause write failure
+     */
+    private void writeFailed( final IOException cause )
+    {
+        LOG.warn( "Could not store [" + m_target + "], reason: " + cause.getMessage() );
+        discard();
+    }
+
+    /**
+     * Closes and deletes the temporary file, if not already stored.
+     */
+    private void discard()
+    {
+        if( m_output == null )
+        {
+            return;
+        }
+        try
+        {
+            m_output.close();
+        }
+        catch( IOException ignore )
+        {
+            // ignore as the file is deleted anyway
+        }
+        m_output = null;
+        m_temporary.delete();
+    }
+
+}
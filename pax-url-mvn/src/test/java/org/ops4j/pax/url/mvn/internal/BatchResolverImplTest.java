@@ -0,0 +1,204 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ops4j.io.FileUtils;
+import org.ops4j.pax.url.maven.commons.MavenConfigurationImpl;
+import org.ops4j.pax.url.mvn.BatchResolution;
+import org.ops4j.pax.url.mvn.ServiceConstants;
+import org.ops4j.util.property.PropertiesPropertyResolver;
+
+/**
+ * Unit test for {@link BatchResolverImpl}.
+ *
+ * @since 1.3.6
+ */
+public class BatchResolverImplTest
+{
+
+    private File m_root;
+    private File m_repository;
+
+    @Before
+    public void setUp()
+        throws IOException
+    {
+        m_root = File.createTempFile( "pax-url-mvn", "" );
+        m_root.delete();
+        m_repository = new File( m_root, "repository" );
+        write( new File( m_repository, "group/artifact/maven-metadata.xml" ),
+               "<metadata><groupId>group</groupId><artifactId>artifact</artifactId><versioning><versions>"
+               + "<version>1.0</version><version>1.5</version><version>2.0</version>"
+               + "</versions></versioning></metadata>"
+        );
+        for( String version : new String[]{ "1.0", "1.5", "2.0" } )
+        {
+            write( new File( m_repository, "group/artifact/" + version + "/artifact-" + version + ".jar" ),
+                   "artifact:" + version
+            );
+        }
+        write( new File( m_repository, "group/other/1.0/other-1.0.jar" ), "other:1.0" );
+    }
+
+    @After
+    public void tearDown()
+    {
+        FileUtils.delete( m_root );
+    }
+
+    /**
+     * Tests that urls are resolved in order, to the files of a local repository, and failures are reported per url.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void resolveLocal()
+        throws IOException
+    {
+        final Properties properties = new Properties();
+        properties.setProperty( ServiceConstants.PROPERTY_REPOSITORIES, m_repository.toURI().toASCIIString() );
+        final List<BatchResolution> resolutions = resolve(
+            properties,
+            "mvn:group/artifact/[1.0,2.0)", "group/other/1.0", "mvn:group/missing/1.0", "mvn:group/artifact/1.0"
+        );
+        assertEquals( "Resolutions", 4, resolutions.size() );
+        assertEquals( "Content", "artifact:1.5", read( resolutions.get( 0 ) ) );
+        assertEquals( "File", new File( m_repository, "group/artifact/1.5/artifact-1.5.jar" ).getCanonicalFile(),
+                      resolutions.get( 0 ).getFile().getCanonicalFile()
+        );
+        assertEquals( "URL", "group/other/1.0", resolutions.get( 1 ).getURL() );
+        assertEquals( "Content", "other:1.0", read( resolutions.get( 1 ) ) );
+        assertFalse( "Missing resolved", resolutions.get( 2 ).isResolved() );
+        assertNotNull( "Failure", resolutions.get( 2 ).getFailure() );
+        assertEquals( "Content", "artifact:1.0", read( resolutions.get( 3 ) ) );
+        for( BatchResolution resolution : resolutions )
+        {
+            resolution.release();
+        }
+        assertTrue( "Repository file deleted", resolutions.get( 0 ).getFile().exists() );
+    }
+
+    /**
+     * Tests that urls of the same artifact fetch the metadata only once and that downloads are stored in temporary
+     * files, deleted on release.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void resolveRemote()
+        throws IOException
+    {
+        final HttpTestServer server = new HttpTestServer( m_repository );
+        try
+        {
+            final Properties properties = new Properties();
+            properties.setProperty( ServiceConstants.PROPERTY_REPOSITORIES, server.getURL() + "@id=remote" );
+            properties.setProperty(
+                ServiceConstants.PROPERTY_LOCAL_REPOSITORY, new File( m_root, "local" ).getPath()
+            );
+            final List<BatchResolution> resolutions = resolve(
+                properties, "mvn:group/artifact/[1.0,2.0)", "mvn:group/artifact/[1.0,1.5)", "mvn:group/artifact"
+            );
+            assertEquals( "Content", "artifact:1.5", read( resolutions.get( 0 ) ) );
+            assertEquals( "Content", "artifact:1.0", read( resolutions.get( 1 ) ) );
+            assertEquals( "Content", "artifact:2.0", read( resolutions.get( 2 ) ) );
+            assertEquals( "Metadata downloads", 1, server.getRequests( "group/artifact/maven-metadata.xml" ) );
+            final File file = resolutions.get( 0 ).getFile();
+            assertTrue( "Temporary file", file.exists() );
+            resolutions.get( 0 ).release();
+            assertFalse( "Temporary file deleted", file.exists() );
+            resolutions.get( 1 ).release();
+            resolutions.get( 2 ).release();
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+    /**
+     * Tests that a resolver without a handler context cannot be used.
+     */
+    @Test( expected = IllegalStateException.class )
+    public void notConfigured()
+    {
+        new BatchResolverImpl().resolve( Arrays.asList( "mvn:group/artifact/1.0" ) );
+    }
+
+    private List<BatchResolution> resolve( final Properties properties, final String... urls )
+    {
+        final HandlerContext context = new HandlerContext(
+            new MavenConfigurationImpl( new PropertiesPropertyResolver( properties ), ServiceConstants.PID )
+        );
+        try
+        {
+            final BatchResolverImpl resolver = new BatchResolverImpl();
+            resolver.setContext( context );
+            return resolver.resolve( Arrays.asList( urls ) );
+        }
+        finally
+        {
+            context.dispose();
+        }
+    }
+
+    private static String read( final BatchResolution resolution )
+        throws IOException
+    {
+        assertTrue( "Resolved", resolution.isResolved() );
+        final InputStream inputStream = resolution.openStream();
+        try
+        {
+            return new BufferedReader( new InputStreamReader( inputStream ) ).readLine();
+        }
+        finally
+        {
+            inputStream.close();
+        }
+    }
+
+    private static void write( final File file, final String content )
+        throws IOException
+    {
+        file.getParentFile().mkdirs();
+        final Writer writer = new FileWriter( file );
+        try
+        {
+            writer.write( content );
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.ops4j.pax.url.maven.commons.metrics.RepositoryMetrics;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetrics;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetricsImpl;
+
+/**
+ * Unit test for {@link CircuitBreaker}.
+ *
+ * @since 1.3.6
+ */
+public class CircuitBreakerTest
+{
+
+    /**
+     * Tests that the breaker opens after the threshold of consecutive failures and that an answer resets the count.
+     */
+    @Test
+    public void opensAfterThreshold()
+    {
+        final CircuitBreaker circuitBreaker = new CircuitBreaker( "http://repository/", 2, 60000 );
+        circuitBreaker.failure();
+        circuitBreaker.success();
+        circuitBreaker.failure();
+        assertEquals( "State", CircuitBreaker.State.CLOSED, circuitBreaker.getState() );
+        assertTrue( "Request allowed", circuitBreaker.allowRequest( this ) );
+        circuitBreaker.failure();
+        assertEquals( "State", CircuitBreaker.State.OPEN, circuitBreaker.getState() );
+        assertFalse( "Request allowed", circuitBreaker.allowRequest( this ) );
+    }
+
+    /**
+     * Tests that after the cool down the breaker is half open, closing on success and opening again on failure.
+     *
+     * @throws InterruptedException - Unexpected
+     */
+    @Test
+    public void halfOpenAfterCoolDown()
+        throws InterruptedException
+    {
+        final CircuitBreaker circuitBreaker = new CircuitBreaker( "http://repository/", 1, 50 );
+        circuitBreaker.failure();
+        assertFalse( "Request allowed", circuitBreaker.allowRequest( this ) );
+        Thread.sleep( 100 );
+        assertTrue( "Request allowed", circuitBreaker.allowRequest( this ) );
+        assertEquals( "State", CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState() );
+        circuitBreaker.failure();
+        assertEquals( "State", CircuitBreaker.State.OPEN, circuitBreaker.getState() );
+        assertFalse( "Request allowed", circuitBreaker.allowRequest( this ) );
+        Thread.sleep( 100 );
+        assertTrue( "Request allowed", circuitBreaker.allowRequest( this ) );
+        circuitBreaker.success();
+        assertEquals( "State", CircuitBreaker.State.CLOSED, circuitBreaker.getState() );
+    }
+
+    /**
+     * Tests that a half open breaker lets only the caller of the trial through till the trial reports an outcome or
+     * is given up after the cool down, and that transitions are reported into the metrics.
+     *
+     * @throws InterruptedException - Unexpected
+     */
+    @Test
+    public void singleTrialWhenHalfOpen()
+        throws InterruptedException
+    {
+        final ResolutionMetricsImpl metrics = new ResolutionMetricsImpl();
+        final CircuitBreaker circuitBreaker = new CircuitBreaker( "http://repository/", 1, 50, metrics );
+        final Object trial = new Object();
+        final Object other = new Object();
+        circuitBreaker.failure();
+        Thread.sleep( 100 );
+        assertTrue( "Trial allowed", circuitBreaker.allowRequest( trial ) );
+        assertTrue( "Trial allowed again", circuitBreaker.allowRequest( trial ) );
+        assertFalse( "Other allowed", circuitBreaker.allowRequest( other ) );
+        circuitBreaker.failure();
+        assertEquals( "State", CircuitBreaker.State.OPEN, circuitBreaker.getState() );
+        Thread.sleep( 100 );
+        assertTrue( "Other trial allowed", circuitBreaker.allowRequest( other ) );
+        assertFalse( "Trial allowed", circuitBreaker.allowRequest( trial ) );
+        Thread.sleep( 100 );
+        assertTrue( "Trial allowed after other trial given up", circuitBreaker.allowRequest( trial ) );
+        circuitBreaker.success();
+        assertTrue( "Other allowed when closed", circuitBreaker.allowRequest( other ) );
+
+        final RepositoryMetrics repository = metrics.getRepositoryMetrics( "http://repository/" );
+        assertEquals( "Reported state", ResolutionMetrics.CircuitState.CLOSED, repository.getCircuitState() );
+        assertEquals( "Opened", 2, repository.getCircuitOpened() );
+        assertEquals( "Half opened", 2, repository.getCircuitHalfOpened() );
+        assertEquals( "Closed", 1, repository.getCircuitClosed() );
+    }
+
+    /**
+     * Tests that checking the availability of the repository neither changes the state nor claims the trial.
+     *
+     * @throws InterruptedException - Unexpected
+     */
+    @Test
+    public void availabilityDoesNotClaimTrial()
+        throws InterruptedException
+    {
+        final CircuitBreaker circuitBreaker = new CircuitBreaker( "http://repository/", 1, 50 );
+        final Object trial = new Object();
+        final Object other = new Object();
+        circuitBreaker.failure();
+        assertFalse( "Available", circuitBreaker.isAvailable( trial ) );
+        Thread.sleep( 100 );
+        assertTrue( "Available", circuitBreaker.isAvailable( trial ) );
+        assertTrue( "Available to other", circuitBreaker.isAvailable( other ) );
+        assertEquals( "State", CircuitBreaker.State.OPEN, circuitBreaker.getState() );
+        assertTrue( "Trial allowed", circuitBreaker.allowRequest( trial ) );
+        assertTrue( "Available to trial", circuitBreaker.isAvailable( trial ) );
+        assertFalse( "Available to other", circuitBreaker.isAvailable( other ) );
+    }
+
+    /**
+     * Tests that a breaker with a zero threshold never opens.
+     */
+    @Test
+    public void disabled()
+    {
+        final CircuitBreaker circuitBreaker = new CircuitBreaker( "http://repository/", 0, 60000 );
+        for( int i = 0; i < 10; i++ )
+        {
+            circuitBreaker.failure();
+        }
+        assertEquals( "State", CircuitBreaker.State.CLOSED, circuitBreaker.getState() );
+        assertTrue( "Request allowed", circuitBreaker.allowRequest( this ) );
+    }
+
+}
@@ -0,0 +1,1135 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ops4j.io.FileUtils;
+import org.ops4j.pax.url.maven.commons.MavenConfigurationImpl;
+import org.ops4j.pax.url.maven.commons.metrics.RepositoryMetrics;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetrics;
+import org.ops4j.pax.url.maven.commons.metrics.ResolutionMetricsImpl;
+import org.ops4j.pax.url.mvn.ResolutionEvent;
+import org.ops4j.pax.url.mvn.ResolutionListener;
+import org.ops4j.pax.url.mvn.ServiceConstants;
+import org.ops4j.util.property.PropertiesPropertyResolver;
+
+/**
+ * Unit test for {@link Connection} using file based repositories.
+ *
+ * @since 1.3.6
+ */
+public class ConnectionTest
+{
+
+    private File m_root;
+    private String m_repositories;
+
+    @Before
+    public void setUp()
+        throws IOException
+    {
+        m_root = File.createTempFile( "pax-url-mvn", "" );
+        m_root.delete();
+        final File repository1 = new File( m_root, "repository1" );
+        final File repository2 = new File( m_root, "repository2" );
+        deploy( repository1, "1.0", "1.1" );
+        deploy( repository2, "1.1", "1.5", "2.0" );
+        m_repositories = repository1.toURI().toASCIIString() + "@id=repository1,"
+                         + repository2.toURI().toASCIIString() + "@id=repository2";
+    }
+
+    @After
+    public void tearDown()
+    {
+        FileUtils.delete( m_root );
+    }
+
+    /**
+     * Tests that the highest version in range is resolved when probing one repository after another.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void rangeSequential()
+        throws IOException
+    {
+        assertEquals( "Content", "repository2:1.5", read( "mvn:group/artifact/[1.0,2.0)", new Properties() ) );
+    }
+
+    /**
+     * Tests that probing repositories concurrently resolves the same artifact as probing one after another.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void rangeConcurrent()
+        throws IOException
+    {
+        final Properties properties = new Properties();
+        properties.setProperty( ServiceConstants.PROPERTY_PROBE_THREADS, "2" );
+        assertEquals( "Content", "repository2:1.5", read( "mvn:group/artifact/[1.0,2.0)", properties ) );
+        assertEquals( "Content", "repository1:1.1", read( "mvn:group/artifact/[1.0,1.5)", properties ) );
+    }
+
+    /**
+     * Tests that the probe timeout of a repository whose probe waited for a free probe thread is counted from the
+     * moment its probe started, so the repository is not skipped.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void rangeConcurrentQueued()
+        throws IOException
+    {
+        final HttpTestServer server1 = new HttpTestServer( new File( m_root, "repository1" ) );
+        final HttpTestServer server2 = new HttpTestServer( new File( m_root, "repository2" ) );
+        try
+        {
+            server1.setDelay( 400 );
+            server2.setDelay( 400 );
+            final Properties properties = new Properties();
+            properties.setProperty( ServiceConstants.PROPERTY_REPOSITORIES,
+                                    server1.getURL() + "@id=repository1," + server2.getURL() + "@id=repository2"
+            );
+            properties.setProperty( ServiceConstants.PROPERTY_LOCAL_REPOSITORY,
+                                    new File( m_root, "local" ).getPath()
+            );
+            properties.setProperty( ServiceConstants.PROPERTY_PROBE_THREADS, "1" );
+            properties.setProperty( ServiceConstants.PROPERTY_PROBE_TIMEOUT, "600" );
+            assertEquals( "Content", "repository2:1.5", read( "mvn:group/artifact/[1.0,2.0)", properties ) );
+        }
+        finally
+        {
+            server1.stop();
+            server2.stop();
+        }
+    }
+
+    /**
+     * Tests that metadata is cached between connections sharing a handler context.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void metadataCached()
+        throws IOException
+    {
+        final Properties properties = new Properties();
+        properties.setProperty( ServiceConstants.PROPERTY_METADATA_CACHE_TTL, "60000" );
+        final MavenConfigurationImpl config = createConfiguration( properties );
+        final HandlerContext context = new HandlerContext( config );
+        try
+        {
+            assertEquals( "Content", "repository2:2.0", read( "mvn:group/artifact", config, context ) );
+            deploy( new File( m_root, "repository2" ), "1.1", "3.0" );
+            assertEquals( "Content", "repository2:2.0", read( "mvn:group/artifact", config, context ) );
+        }
+        finally
+        {
+            context.dispose();
+        }
+        assertEquals( "Content", "repository2:3.0", read( "mvn:group/artifact", properties ) );
+    }
+
+    /**
+     * Tests that an artifact not found in a repository is not looked up again in that repository.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void notFoundCached()
+        throws IOException
+    {
+        final Properties properties = new Properties();
+        properties.setProperty( ServiceConstants.PROPERTY_NOT_FOUND_CACHE_TTL, "60000" );
+        final MavenConfigurationImpl config = createConfiguration( properties );
+        final HandlerContext context = new HandlerContext( config );
+        try
+        {
+            assertEquals( "Content", "repository2:1.5", read( "mvn:group/artifact/1.5", config, context ) );
+            deploy( new File( m_root, "repository1" ), "1.5" );
+            assertEquals( "Content", "repository2:1.5", read( "mvn:group/artifact/1.5", config, context ) );
+        }
+        finally
+        {
+            context.dispose();
+        }
+        assertEquals( "Content", "repository1:1.5", read( "mvn:group/artifact/1.5", properties ) );
+    }
+
+    /**
+     * Tests that an artifact downloaded from a remote repository is stored in the local repository and later resolved
+     * from there.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void writeThrough()
+        throws IOException
+    {
+        final HttpTestServer server = new HttpTestServer( new File( m_root, "repository2" ) );
+        try
+        {
+            final Properties properties = createRemoteProperties( server );
+            properties.setProperty( ServiceConstants.PROPERTY_LOCAL_REPOSITORY_WRITE_THROUGH, "true" );
+            assertEquals( "Content", "repository2:1.5", read( "mvn:group/artifact/1.5", properties ) );
+            final File stored = new File( m_root, "local/group/artifact/1.5/artifact-1.5.jar" );
+            assertTrue( "Stored in local repository", stored.isFile() );
+            assertEquals( "Files in local repository", 1, stored.getParentFile().list().length );
+            assertEquals( "Content", "repository2:1.5", read( "mvn:group/artifact/1.5", properties ) );
+            assertEquals( "Remote downloads", 1, server.getRequests( "group/artifact/1.5/artifact-1.5.jar" ) );
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+    /**
+     * Tests that an interrupted download is resumed and the artifact is stored completely in the local repository.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void writeThroughResumed()
+        throws IOException
+    {
+        final StringBuilder content = new StringBuilder( "repository2:big" );
+        while( content.length() < 100000 )
+        {
+            content.append( ' ' ).append( content.length() );
+        }
+        write( new File( m_root, "repository2/group/artifact/big/artifact-big.jar" ), content.toString() );
+        final HttpTestServer server = new HttpTestServer( new File( m_root, "repository2" ) );
+        try
+        {
+            server.dropAfter( 10000, 2 );
+            final Properties properties = createRemoteProperties( server );
+            properties.setProperty( ServiceConstants.PROPERTY_LOCAL_REPOSITORY_WRITE_THROUGH, "true" );
+            properties.setProperty( ServiceConstants.PROPERTY_DOWNLOAD_RETRY_DELAY, "1" );
+            assertEquals( "Content", content.toString(), read( "mvn:group/artifact/big", properties ) );
+            assertEquals( "Stored", content.length(),
+                          new File( m_root, "local/group/artifact/big/artifact-big.jar" ).length()
+            );
+            assertEquals( "Remote downloads", 3, server.getRequests( "group/artifact/big/artifact-big.jar" ) );
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+    /**
+     * Tests that an artifact is not stored in the local repository if not enabled or not read till the end.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void writeThroughIncomplete()
+        throws IOException
+    {
+        final HttpTestServer server = new HttpTestServer( new File( m_root, "repository2" ) );
+        try
+        {
+            final Properties properties = createRemoteProperties( server );
+            assertEquals( "Content", "repository2:1.5", read( "mvn:group/artifact/1.5", properties ) );
+            final File directory = new File( m_root, "local/group/artifact/1.5" );
+            assertFalse( "Stored while not enabled", directory.exists() );
+
+            properties.setProperty( ServiceConstants.PROPERTY_LOCAL_REPOSITORY_WRITE_THROUGH, "true" );
+            final MavenConfigurationImpl config = createConfiguration( properties );
+            final HandlerContext context = new HandlerContext( config );
+            try
+            {
+                new Connection( new URL( null, "mvn:group/artifact/1.5", new org.ops4j.pax.url.mvn.Handler() ),
+                                config, context
+                ).getInputStream().close();
+            }
+            finally
+            {
+                context.dispose();
+            }
+            assertEquals( "Files in local repository", 0, directory.list().length );
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+    /**
+     * Tests that artifacts matching their published SHA-1 or MD5 checksum are downloaded when checksum policy is fail.
+     *
+     * @throws Exception - Unexpected
+     */
+    @Test
+    public void checksumVerified()
+        throws Exception
+    {
+        final File repository = new File( m_root, "repository2" );
+        writeChecksum( repository, "1.5", "SHA-1", ".sha1", "repository2:1.5" );
+        writeChecksum( repository, "2.0", "MD5", ".md5", "repository2:2.0" );
+        final HttpTestServer server = new HttpTestServer( repository );
+        try
+        {
+            final Properties properties = createRemoteProperties( server );
+            properties.setProperty( ServiceConstants.PROPERTY_CHECKSUM_POLICY, "fail" );
+            assertEquals( "Content", "repository2:1.5", read( "mvn:group/artifact/1.5", properties ) );
+            assertEquals( "Content", "repository2:2.0", read( "mvn:group/artifact/2.0", properties ) );
+            assertEquals( "Content", "repository2:1.1", read( "mvn:group/artifact/1.1", properties ) );
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+    /**
+     * Tests that an artifact not matching its published checksum fails the download, is not stored in local
+     * repository and is skipped by the next resolution, which moves on to the next repository.
+     *
+     * @throws Exception - Unexpected
+     */
+    @Test
+    public void checksumMismatchFail()
+        throws Exception
+    {
+        final File repository1 = new File( m_root, "repository1" );
+        final File repository2 = new File( m_root, "repository2" );
+        deploy( repository1, "1.5" );
+        writeChecksum( repository2, "1.5", "SHA-1", ".sha1", "corrupted" );
+        final HttpTestServer server1 = new HttpTestServer( repository2 );
+        final HttpTestServer server2 = new HttpTestServer( repository1 );
+        try
+        {
+            final Properties properties = createRemoteProperties( server1 );
+            properties.setProperty( ServiceConstants.PROPERTY_REPOSITORIES,
+                                    server1.getURL() + "@id=remote1," + server2.getURL() + "@id=remote2"
+            );
+            properties.setProperty( ServiceConstants.PROPERTY_CHECKSUM_POLICY, "fail" );
+            properties.setProperty( ServiceConstants.PROPERTY_LOCAL_REPOSITORY_WRITE_THROUGH, "true" );
+            final MavenConfigurationImpl config = createConfiguration( properties );
+            final HandlerContext context = new HandlerContext( config );
+            try
+            {
+                try
+                {
+                    read( "mvn:group/artifact/1.5", config, context );
+                    fail( "Expected a checksum mismatch" );
+                }
+                catch( ChecksumVerifyingInputStream.ChecksumException expected )
+                {
+                    // expected
+                }
+                assertEquals( "Files in local repository", 0,
+                              new File( m_root, "local/group/artifact/1.5" ).list().length
+                );
+                assertEquals( "Content", "repository1:1.5", read( "mvn:group/artifact/1.5", config, context ) );
+            }
+            finally
+            {
+                context.dispose();
+            }
+        }
+        finally
+        {
+            server1.stop();
+            server2.stop();
+        }
+    }
+
+    /**
+     * Tests that an artifact not matching its published checksum is downloaded when checksum policy is warn.
+     *
+     * @throws Exception - Unexpected
+     */
+    @Test
+    public void checksumMismatchWarn()
+        throws Exception
+    {
+        final File repository = new File( m_root, "repository2" );
+        writeChecksum( repository, "1.5", "SHA-1", ".sha1", "corrupted" );
+        final HttpTestServer server = new HttpTestServer( repository );
+        try
+        {
+            final Properties properties = createRemoteProperties( server );
+            properties.setProperty( ServiceConstants.PROPERTY_CHECKSUM_POLICY, "warn" );
+            assertEquals( "Content", "repository2:1.5", read( "mvn:group/artifact/1.5", properties ) );
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+    /**
+     * Tests that concurrent connections for the same artifact download it only once and each read the whole artifact.
+     *
+     * @throws Exception - Unexpected
+     */
+    @Test
+    public void concurrentResolutionsShared()
+        throws Exception
+    {
+        final HttpTestServer server = new HttpTestServer( new File( m_root, "repository2" ) );
+        try
+        {
+            server.setDelay( 500 );
+            final MavenConfigurationImpl config = createConfiguration( createRemoteProperties( server ) );
+            final HandlerContext context = new HandlerContext( config );
+            final ExecutorService executor = Executors.newFixedThreadPool( 4 );
+            try
+            {
+                final List<Future<String>> results = new ArrayList<Future<String>>();
+                for( int i = 0; i < 4; i++ )
+                {
+                    results.add( executor.submit( new Callable<String>()
+                    {
+                        public String call()
+                            throws IOException
+                        {
+                            return read( "mvn:group/artifact/1.5", config, context );
+                        }
+                    }
+                    )
+                    );
+                }
+                for( Future<String> result : results )
+                {
+                    assertEquals( "Content", "repository2:1.5", result.get() );
+                }
+            }
+            finally
+            {
+                executor.shutdown();
+                context.dispose();
+            }
+            assertEquals( "Remote downloads", 1, server.getRequests( "group/artifact/1.5/artifact-1.5.jar" ) );
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+    /**
+     * Tests that a thread that opens the same url twice can read the second stream before the first one, as the second
+     * connection does not wait for the first one on the same thread.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test( timeout = 10000 )
+    public void sameThreadResolutionsNotShared()
+        throws IOException
+    {
+        final HttpTestServer server = new HttpTestServer( new File( m_root, "repository2" ) );
+        try
+        {
+            final MavenConfigurationImpl config = createConfiguration( createRemoteProperties( server ) );
+            final HandlerContext context = new HandlerContext( config );
+            try
+            {
+                final InputStream first =
+                    new Connection( new URL( null, "mvn:group/artifact/1.5", new org.ops4j.pax.url.mvn.Handler() ),
+                                    config, context
+                    ).getInputStream();
+                try
+                {
+                    assertEquals( "Second content", "repository2:1.5",
+                                  read( "mvn:group/artifact/1.5", config, context )
+                    );
+                    assertEquals( "First content", "repository2:1.5",
+                                  new BufferedReader( new InputStreamReader( first ) ).readLine()
+                    );
+                }
+                finally
+                {
+                    first.close();
+                }
+            }
+            finally
+            {
+                context.dispose();
+            }
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+    /**
+     * Tests that in adaptive mode a repository that usually misses is probed after the others, unless it is the
+     * repository given in the url.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void adaptiveRepositoryOrder()
+        throws IOException
+    {
+        final Properties properties = new Properties();
+        properties.setProperty( ServiceConstants.PROPERTY_ADAPTIVE_REPOSITORY_ORDER, "true" );
+        final MavenConfigurationImpl config = createConfiguration( properties );
+        final HandlerContext context = new HandlerContext( config );
+        try
+        {
+            assertEquals( "Content", "repository1:1.1", read( "mvn:group/artifact/1.1", config, context ) );
+            final URL repository1 = new File( m_root, "repository1" ).toURI().toURL();
+            for( int i = 0; i < 10; i++ )
+            {
+                context.getRepositoryStatistics().miss( RepositoryStatistics.key( repository1 ), 50 );
+            }
+            assertEquals( "Content", "repository2:1.1", read( "mvn:group/artifact/1.1", config, context ) );
+            assertEquals( "Content", "repository1:1.1",
+                          read( "mvn:" + repository1.toExternalForm() + "@id=repository1!group/artifact/1.1",
+                                config, context
+                          )
+            );
+        }
+        finally
+        {
+            context.dispose();
+        }
+    }
+
+    /**
+     * Tests that a repository that cannot be reached is skipped once its circuit breaker opened.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void circuitBreakerOpens()
+        throws IOException
+    {
+        final ServerSocket socket = new ServerSocket( 0 );
+        final int port = socket.getLocalPort();
+        socket.close();
+        final Properties properties = new Properties();
+        properties.setProperty( ServiceConstants.PROPERTY_REPOSITORIES,
+                                "http://127.0.0.1:" + port + "/repository@id=down,"
+                                + new File( m_root, "repository2" ).toURI().toASCIIString() + "@id=repository2"
+        );
+        properties.setProperty( ServiceConstants.PROPERTY_CIRCUIT_BREAKER_THRESHOLD, "2" );
+        final MavenConfigurationImpl config = createConfiguration( properties );
+        final ResolutionMetricsImpl metrics = new ResolutionMetricsImpl();
+        final HandlerContext context = new HandlerContext( config, metrics );
+        try
+        {
+            final String repository = "http://127.0.0.1:" + port + "/repository/";
+            final CircuitBreaker circuitBreaker = context.getCircuitBreaker( repository );
+            assertEquals( "Content", "repository2:2.0", read( "mvn:group/artifact", config, context ) );
+            assertEquals( "State", CircuitBreaker.State.OPEN, circuitBreaker.getState() );
+            assertFalse( "Request allowed", circuitBreaker.allowRequest( this ) );
+            assertEquals( "Content", "repository2:1.5", read( "mvn:group/artifact/1.5", config, context ) );
+            assertTrue( "Monitored", context.getCircuitBreakers().contains( circuitBreaker ) );
+            assertEquals( "Reported state", ResolutionMetrics.CircuitState.OPEN,
+                          metrics.getRepositoryMetrics( repository ).getCircuitState()
+            );
+            assertEquals( "Open circuits", 1, metrics.getOpenCircuits() );
+        }
+        finally
+        {
+            context.dispose();
+        }
+    }
+
+    /**
+     * Tests that a download that timed out waiting for a free connection to the repository host is not counted as a
+     * failure of the repository.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void connectionUnavailableNotFailure()
+        throws IOException
+    {
+        final HttpTestServer server = new HttpTestServer( new File( m_root, "repository2" ) );
+        try
+        {
+            final Properties properties = createRemoteProperties( server );
+            properties.setProperty( ServiceConstants.PROPERTY_MAX_CONNECTIONS_PER_HOST, "1" );
+            properties.setProperty( ServiceConstants.PROPERTY_CONNECT_TIMEOUT, "200" );
+            properties.setProperty( ServiceConstants.PROPERTY_CIRCUIT_BREAKER_THRESHOLD, "1" );
+            final MavenConfigurationImpl config = createConfiguration( properties );
+            final ResolutionMetricsImpl metrics = new ResolutionMetricsImpl();
+            final HandlerContext context = new HandlerContext( config, metrics );
+            try
+            {
+                final String repository = RepositoryStatistics.key( new URL( server.getURL() ) );
+                final InputStream held =
+                    new Connection( new URL( null, "mvn:group/artifact/1.5", new org.ops4j.pax.url.mvn.Handler() ),
+                                    config, context
+                    ).getInputStream();
+                try
+                {
+                    read( "mvn:group/artifact/2.0", config, context );
+                    fail( "Expected no connection to be available" );
+                }
+                catch( RuntimeException expected )
+                {
+                    // expected
+                }
+                finally
+                {
+                    held.close();
+                }
+                assertEquals( "State", CircuitBreaker.State.CLOSED, context.getCircuitBreaker( repository ).getState() );
+                assertEquals( "Errors", 0, metrics.getRepositoryMetrics( repository ).getErrors() );
+                assertEquals( "Content", "repository2:2.0", read( "mvn:group/artifact/2.0", config, context ) );
+            }
+            finally
+            {
+                context.dispose();
+            }
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+    /**
+     * Tests that a download that does not start within the hedge delay is hedged by the next repository.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void hedgedDownload()
+        throws IOException
+    {
+        final HttpTestServer slow = new HttpTestServer( new File( m_root, "repository1" ) );
+        final HttpTestServer fast = new HttpTestServer( new File( m_root, "repository2" ) );
+        try
+        {
+            slow.setDelay( 2000 );
+            final Properties properties = new Properties();
+            properties.setProperty( ServiceConstants.PROPERTY_REPOSITORIES,
+                                    slow.getURL() + "@id=slow," + fast.getURL() + "@id=fast"
+            );
+            properties.setProperty( ServiceConstants.PROPERTY_LOCAL_REPOSITORY,
+                                    new File( m_root, "local" ).getPath()
+            );
+            properties.setProperty( ServiceConstants.PROPERTY_HEDGE_DELAY, "100" );
+            final MavenConfigurationImpl config = createConfiguration( properties );
+            final ResolutionMetricsImpl metrics = new ResolutionMetricsImpl();
+            final HandlerContext context = new HandlerContext( config, metrics );
+            try
+            {
+                final long start = System.currentTimeMillis();
+                assertEquals( "Content", "repository2:1.1", read( "mvn:group/artifact/1.1", config, context ) );
+                assertTrue( "Hedged in time", System.currentTimeMillis() - start < 2000 );
+                assertEquals( "Hedges", 1, context.getHedging().getHedges() );
+                assertEquals( "Hedges won", 1, context.getHedging().getHedgesWon() );
+                final RepositoryMetrics hedged =
+                    metrics.getRepositoryMetrics( RepositoryStatistics.key( new URL( fast.getURL() ) ) );
+                assertEquals( "Reported hedges", 1, hedged.getHedges() );
+                assertEquals( "Reported hedges won", 1, hedged.getHedgesWon() );
+                assertEquals( "Total hedges", 1, metrics.getHedges() );
+            }
+            finally
+            {
+                context.dispose();
+            }
+        }
+        finally
+        {
+            slow.stop();
+            fast.stop();
+        }
+    }
+
+    /**
+     * Tests that a repository recovering from failures is not claimed for a trial request by a hedge group that never
+     * downloads from it.
+     *
+     * @throws Exception - Unexpected
+     */
+    @Test
+    public void unusedHedgeDoesNotClaimTrial()
+        throws Exception
+    {
+        final HttpTestServer first = new HttpTestServer( new File( m_root, "repository1" ) );
+        final HttpTestServer second = new HttpTestServer( new File( m_root, "repository2" ) );
+        try
+        {
+            final Properties properties = new Properties();
+            properties.setProperty( ServiceConstants.PROPERTY_REPOSITORIES,
+                                    first.getURL() + "@id=first," + second.getURL() + "@id=second"
+            );
+            properties.setProperty( ServiceConstants.PROPERTY_LOCAL_REPOSITORY,
+                                    new File( m_root, "local" ).getPath()
+            );
+            properties.setProperty( ServiceConstants.PROPERTY_HEDGE_DELAY, "1000" );
+            properties.setProperty( ServiceConstants.PROPERTY_CIRCUIT_BREAKER_THRESHOLD, "1" );
+            properties.setProperty( ServiceConstants.PROPERTY_CIRCUIT_BREAKER_COOL_DOWN, "100" );
+            final MavenConfigurationImpl config = createConfiguration( properties );
+            final HandlerContext context = new HandlerContext( config );
+            try
+            {
+                final CircuitBreaker circuitBreaker =
+                    context.getCircuitBreaker( RepositoryStatistics.key( new URL( second.getURL() ) ) );
+                circuitBreaker.failure();
+                Thread.sleep( 150 );
+                assertEquals( "Content", "repository1:1.1", read( "mvn:group/artifact/1.1", config, context ) );
+                assertTrue( "Trial available", circuitBreaker.allowRequest( new Object() ) );
+            }
+            finally
+            {
+                context.dispose();
+            }
+        }
+        finally
+        {
+            first.stop();
+            second.stop();
+        }
+    }
+
+    /**
+     * Tests that remote snapshot metadata is revalidated with a conditional request.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void snapshotMetadataRevalidated()
+        throws IOException
+    {
+        final HttpTestServer server = deploySnapshot();
+        try
+        {
+            final Properties properties = createRemoteProperties( server );
+            properties.setProperty( ServiceConstants.PROPERTY_REPOSITORIES, server.getURL() + "@snapshots@id=remote" );
+            final MavenConfigurationImpl config = createConfiguration( properties );
+            final HandlerContext context = new HandlerContext( config );
+            try
+            {
+                assertEquals( "Content", "snapshot:1", read( "mvn:group/artifact/1.0-SNAPSHOT", config, context ) );
+                assertEquals( "Content", "snapshot:1", read( "mvn:group/artifact/1.0-SNAPSHOT", config, context ) );
+                assertEquals( "Metadata requests", 2,
+                              server.getRequests( "group/artifact/1.0-SNAPSHOT/maven-metadata.xml" )
+                );
+                assertEquals( "Not modified", 1, server.getNotModified() );
+            }
+            finally
+            {
+                context.dispose();
+            }
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+    /**
+     * Tests that remote snapshot metadata is not revalidated within the update interval.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void snapshotMetadataUpdateInterval()
+        throws IOException
+    {
+        final HttpTestServer server = deploySnapshot();
+        try
+        {
+            final Properties properties = createRemoteProperties( server );
+            properties.setProperty( ServiceConstants.PROPERTY_REPOSITORIES, server.getURL() + "@snapshots@id=remote" );
+            properties.setProperty( ServiceConstants.PROPERTY_METADATA_UPDATE_POLICY, "interval:60" );
+            final MavenConfigurationImpl config = createConfiguration( properties );
+            final HandlerContext context = new HandlerContext( config );
+            try
+            {
+                assertEquals( "Content", "snapshot:1", read( "mvn:group/artifact/1.0-SNAPSHOT", config, context ) );
+                assertEquals( "Content", "snapshot:1", read( "mvn:group/artifact/1.0-SNAPSHOT", config, context ) );
+                assertEquals( "Metadata requests", 1,
+                              server.getRequests( "group/artifact/1.0-SNAPSHOT/maven-metadata.xml" )
+                );
+                assertEquals( "Local metadata requests", 1,
+                              server.getRequests( "group/artifact/1.0-SNAPSHOT/maven-metadata-local.xml" )
+                );
+            }
+            finally
+            {
+                context.dispose();
+            }
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+    /**
+     * Tests that requests, bytes and resolution times are reported into the handler metrics.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void metricsReported()
+        throws IOException
+    {
+        final File repository = new File( m_root, "repository2" );
+        final HttpTestServer server = new HttpTestServer( repository );
+        try
+        {
+            final MavenConfigurationImpl config = createConfiguration( createRemoteProperties( server ) );
+            final ResolutionMetricsImpl metrics = new ResolutionMetricsImpl();
+            final HandlerContext context = new HandlerContext( config, metrics );
+            try
+            {
+                assertEquals( "Content", "repository2:1.5", read( "mvn:group/artifact/1.5", config, context ) );
+            }
+            finally
+            {
+                context.dispose();
+            }
+            assertEquals( "Resolutions", 1, metrics.getResolutions() );
+            assertEquals( "Resolution failures", 0, metrics.getResolutionFailures() );
+            assertEquals( "Resolved urls", 1, metrics.getResolutionTimesByUrl().size() );
+            final RepositoryMetrics remote =
+                metrics.getRepositoryMetrics( RepositoryStatistics.key( new URL( server.getURL() ) ) );
+            assertEquals( "Artifact downloads", 1, remote.getArtifactLatency().getCount() );
+            assertEquals( "Hits", 1, remote.getHits() );
+            assertEquals( "Errors", 0, remote.getErrors() );
+            assertEquals( "Bytes", new File( repository, "group/artifact/1.5/artifact-1.5.jar" ).length(),
+                          remote.getBytesTransferred()
+            );
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+    /**
+     * Tests that remote repositories are neither searched nor accessed while offline and that accidental remote
+     * accesses are counted.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void offline()
+        throws IOException
+    {
+        final HttpTestServer server = deploySnapshot();
+        try
+        {
+            final Properties properties = new Properties();
+            properties.setProperty( ServiceConstants.PROPERTY_REPOSITORIES,
+                                    m_repositories + "," + server.getURL() + "@snapshots@id=remote"
+            );
+            properties.setProperty( ServiceConstants.PROPERTY_OFFLINE, "true" );
+            final MavenConfigurationImpl config = createConfiguration( properties );
+            final ResolutionMetricsImpl metrics = new ResolutionMetricsImpl();
+            final HandlerContext context = new HandlerContext( config, metrics );
+            try
+            {
+                assertEquals( "Content", "repository2:2.0", read( "mvn:group/artifact", config, context ) );
+                try
+                {
+                    read( "mvn:group/artifact/1.0-SNAPSHOT", config, context );
+                    fail( "Expected to fail offline" );
+                }
+                catch( RuntimeException e )
+                {
+                    assertTrue( "Message", e.getMessage().contains( "offline" ) );
+                }
+                assertEquals( "Remote metadata requests", 0,
+                              server.getRequests( "group/artifact/1.0-SNAPSHOT/maven-metadata.xml" )
+                );
+                try
+                {
+                    context.getTransport().open( new URL( server.getURL() + "group/artifact/maven-metadata.xml" ),
+                                                 null
+                    );
+                    fail( "Expected remote access to be refused" );
+                }
+                catch( IOException expected )
+                {
+                    // expected
+                }
+                assertEquals( "Refused requests", 0, server.getRequests( "group/artifact/maven-metadata.xml" ) );
+                assertEquals( "Blocked", 1, metrics.getBlocked() );
+            }
+            finally
+            {
+                context.dispose();
+            }
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+    /**
+     * Tests that LATEST, ranges and snapshots are resolved from the local repository index, so artifacts installed
+     * without metadata are found, and that the index notices newly installed versions.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void localRepositoryIndexed()
+        throws IOException
+    {
+        final File localRepository = new File( m_root, "local" );
+        install( localRepository, "1.7", "3.0" );
+        write( new File( localRepository, "group/artifact/1.0-SNAPSHOT/artifact-1.0-SNAPSHOT.jar" ),
+               "local:1.0-SNAPSHOT"
+        );
+        write( new File( localRepository, "group/artifact/1.0-SNAPSHOT/maven-metadata-local.xml" ), "<metadata/>" );
+        final Properties properties = new Properties();
+        properties.setProperty( ServiceConstants.PROPERTY_LOCAL_REPOSITORY, localRepository.getAbsolutePath() );
+        final MavenConfigurationImpl config = createConfiguration( properties );
+        final HandlerContext context = new HandlerContext( config );
+        try
+        {
+            assertEquals( "Latest", "local:3.0", read( "mvn:group/artifact", config, context ) );
+            assertEquals( "Range", "local:1.7", read( "mvn:group/artifact/[1.0,2.0)", config, context ) );
+            assertEquals( "Snapshot", "local:1.0-SNAPSHOT",
+                          read( "mvn:group/artifact/1.0-SNAPSHOT", config, context )
+            );
+            install( localRepository, "4.0" );
+            assertEquals( "Installed", "local:4.0", read( "mvn:group/artifact", config, context ) );
+        }
+        finally
+        {
+            context.dispose();
+        }
+
+        properties.setProperty( ServiceConstants.PROPERTY_LOCAL_REPOSITORY_INDEX, "false" );
+        assertEquals( "Not indexed", "repository2:2.0", read( "mvn:group/artifact", properties ) );
+    }
+
+    /**
+     * Tests that the resolution steps are notified to resolution listeners.
+     *
+     * @throws Exception - Unexpected
+     */
+    @Test
+    public void resolutionEventsFired()
+        throws Exception
+    {
+        final File repository = new File( m_root, "repository2" );
+        final HttpTestServer server = new HttpTestServer( repository );
+        final ResolutionEventDispatcher dispatcher = new ResolutionEventDispatcher();
+        final List<ResolutionEvent> events = new CopyOnWriteArrayList<ResolutionEvent>();
+        dispatcher.addListener( new ResolutionListener()
+        {
+            public void resolutionEvent( final ResolutionEvent event )
+            {
+                events.add( event );
+            }
+        }
+        );
+        try
+        {
+            final MavenConfigurationImpl config = createConfiguration( createRemoteProperties( server ) );
+            final HandlerContext context = new HandlerContext( config, new ResolutionMetricsImpl(), dispatcher );
+            try
+            {
+                assertEquals( "Content", "repository2:2.0", read( "mvn:group/artifact", config, context ) );
+            }
+            finally
+            {
+                context.dispose();
+            }
+            final long deadline = System.currentTimeMillis() + 5000;
+            while( !contains( events, ResolutionEvent.Type.DOWNLOAD_COMPLETED )
+                   && System.currentTimeMillis() < deadline )
+            {
+                Thread.sleep( 10 );
+            }
+            assertEquals( "First event", ResolutionEvent.Type.RESOLUTION_STARTED, events.get( 0 ).getType() );
+            assertTrue( "Metadata fetched", contains( events, ResolutionEvent.Type.METADATA_FETCHED ) );
+            assertTrue( "Repository probed", contains( events, ResolutionEvent.Type.REPOSITORY_PROBED ) );
+            assertTrue( "Candidate attempted", contains( events, ResolutionEvent.Type.CANDIDATE_ATTEMPTED ) );
+            assertFalse( "Resolution failed", contains( events, ResolutionEvent.Type.RESOLUTION_FAILED ) );
+            final ResolutionEvent completed = events.get( events.size() - 1 );
+            assertEquals( "Last event", ResolutionEvent.Type.DOWNLOAD_COMPLETED, completed.getType() );
+            assertEquals( "Bytes", new File( repository, "group/artifact/2.0/artifact-2.0.jar" ).length(),
+                          completed.getBytes()
+            );
+            assertEquals( "URL", "mvn:group/artifact", completed.getURL() );
+        }
+        finally
+        {
+            dispatcher.dispose();
+            server.stop();
+        }
+    }
+
+    private static boolean contains( final List<ResolutionEvent> events, final ResolutionEvent.Type type )
+    {
+        for( ResolutionEvent event : events )
+        {
+            if( event.getType() == type )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private HttpTestServer deploySnapshot()
+        throws IOException
+    {
+        final File repository = new File( m_root, "snapshots" );
+        write( new File( repository, "group/artifact/1.0-SNAPSHOT/maven-metadata.xml" ),
+               "<metadata><groupId>group</groupId><artifactId>artifact</artifactId><version>1.0-SNAPSHOT</version>"
+               + "<versioning><snapshot><timestamp>20110101.120000</timestamp><buildNumber>1</buildNumber>"
+               + "</snapshot></versioning></metadata>"
+        );
+        write( new File( repository, "group/artifact/1.0-SNAPSHOT/artifact-1.0-20110101.120000-1.jar" ),
+               "snapshot:1"
+        );
+        return new HttpTestServer( repository );
+    }
+
+    private Properties createRemoteProperties( final HttpTestServer server )
+    {
+        final Properties properties = new Properties();
+        properties.setProperty( ServiceConstants.PROPERTY_REPOSITORIES, server.getURL() + "@id=remote" );
+        properties.setProperty( ServiceConstants.PROPERTY_LOCAL_REPOSITORY, new File( m_root, "local" ).getPath() );
+        return properties;
+    }
+
+    private MavenConfigurationImpl createConfiguration( final Properties properties )
+    {
+        if( !properties.containsKey( ServiceConstants.PROPERTY_REPOSITORIES ) )
+        {
+            properties.setProperty( ServiceConstants.PROPERTY_REPOSITORIES, m_repositories );
+        }
+        return new MavenConfigurationImpl( new PropertiesPropertyResolver( properties ), ServiceConstants.PID );
+    }
+
+    private String read( final String spec, final Properties properties )
+        throws IOException
+    {
+        final MavenConfigurationImpl config = createConfiguration( properties );
+        final HandlerContext context = new HandlerContext( config );
+        try
+        {
+            return read( spec, config, context );
+        }
+        finally
+        {
+            context.dispose();
+        }
+    }
+
+    private String read( final String spec, final MavenConfigurationImpl config, final HandlerContext context )
+        throws IOException
+    {
+        final InputStream inputStream =
+            new Connection( new URL( null, spec, new org.ops4j.pax.url.mvn.Handler() ), config, context )
+                .getInputStream();
+        try
+        {
+            return new BufferedReader( new InputStreamReader( inputStream ) ).readLine();
+        }
+        finally
+        {
+            inputStream.close();
+        }
+    }
+
+    private static void deploy( final File repository, final String... versions )
+        throws IOException
+    {
+        final File artifactDir = new File( repository, "group/artifact" );
+        final StringBuilder metadata = new StringBuilder()
+            .append( "<metadata><groupId>group</groupId><artifactId>artifact</artifactId><versioning><versions>" );
+        for( String version : versions )
+        {
+            metadata.append( "<version>" ).append( version ).append( "</version>" );
+            write( new File( artifactDir, version + "/artifact-" + version + ".jar" ),
+                   repository.getName() + ":" + version
+            );
+        }
+        metadata.append( "</versions></versioning></metadata>" );
+        write( new File( artifactDir, "maven-metadata.xml" ), metadata.toString() );
+    }
+
+    private static void install( final File repository, final String... versions )
+        throws IOException
+    {
+        for( String version : versions )
+        {
+            write( new File( repository, "group/artifact/" + version + "/artifact-" + version + ".jar" ),
+                   repository.getName() + ":" + version
+            );
+        }
+    }
+
+    private static void writeChecksum( final File repository,
+                                       final String version,
+                                       final String algorithm,
+                                       final String extension,
+                                       final String content )
+        throws Exception
+    {
+        final StringBuilder checksum = new StringBuilder();
+        for( byte b : MessageDigest.getInstance( algorithm ).digest( content.getBytes() ) )
+        {
+            checksum.append( String.format( "%02x", b ) );
+        }
+        write( new File( repository, "group/artifact/" + version + "/artifact-" + version + ".jar" + extension ),
+               checksum + "  artifact-" + version + ".jar"
+        );
+    }
+
+    private static void write( final File file, final String content )
+        throws IOException
+    {
+        file.getParentFile().mkdirs();
+        final Writer writer = new FileWriter( file );
+        try
+        {
+            writer.write( content );
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+}
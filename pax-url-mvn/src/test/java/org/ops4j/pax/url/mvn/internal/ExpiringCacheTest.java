@@ -0,0 +1,98 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link ExpiringCache}.
+ *
+ * @since 1.3.6
+ */
+public class ExpiringCacheTest
+{
+
+    /**
+     * Tests that a cached value is returned.
+     */
+    @Test
+    public void cached()
+    {
+        final ExpiringCache<String> cache = new ExpiringCache<String>( 60000, 10 );
+        cache.put( "key", "value", 1 );
+        assertEquals( "Cached value", "value", cache.get( "key" ) );
+    }
+
+    /**
+     * Tests that a cache with a zero time to live does not cache.
+     */
+    @Test
+    public void disabled()
+    {
+        final ExpiringCache<String> cache = new ExpiringCache<String>( 0, 10 );
+        cache.put( "key", "value", 1 );
+        assertNull( "Cached value", cache.get( "key" ) );
+    }
+
+    /**
+     * Tests that expired values are not returned.
+     *
+     * @throws InterruptedException - Unexpected
+     */
+    @Test
+    public void expired()
+        throws InterruptedException
+    {
+        final ExpiringCache<String> cache = new ExpiringCache<String>( 1, 10 );
+        cache.put( "key", "value", 1 );
+        Thread.sleep( 10 );
+        assertNull( "Cached value", cache.get( "key" ) );
+        assertEquals( "Size", 0, cache.size() );
+    }
+
+    /**
+     * Tests that least recently used values are evicted when maximum weight is exceeded.
+     */
+    @Test
+    public void leastRecentlyUsedEvicted()
+    {
+        final ExpiringCache<String> cache = new ExpiringCache<String>( 60000, 10 );
+        cache.put( "first", "1", 4 );
+        cache.put( "second", "2", 4 );
+        cache.get( "first" );
+        cache.put( "third", "3", 4 );
+        assertEquals( "First", "1", cache.get( "first" ) );
+        assertNull( "Second", cache.get( "second" ) );
+        assertEquals( "Third", "3", cache.get( "third" ) );
+    }
+
+    /**
+     * Tests that values heavier than maximum weight are not cached.
+     */
+    @Test
+    public void tooHeavy()
+    {
+        final ExpiringCache<String> cache = new ExpiringCache<String>( 60000, 10 );
+        cache.put( "first", "1", 4 );
+        cache.put( "key", "value", 11 );
+        assertNull( "Cached value", cache.get( "key" ) );
+        assertEquals( "First", "1", cache.get( "first" ) );
+    }
+
+}
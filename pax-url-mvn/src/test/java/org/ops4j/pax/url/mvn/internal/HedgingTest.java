@@ -0,0 +1,66 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link Hedging}.
+ *
+ * @since 1.3.6
+ */
+public class HedgingTest
+{
+
+    /**
+     * Tests that the configured delay is used until enough latencies were observed.
+     */
+    @Test
+    public void configuredDelay()
+    {
+        final Hedging hedging = new Hedging( 100, 95 );
+        for( int i = 0; i < 10; i++ )
+        {
+            hedging.started( 1000 );
+        }
+        assertEquals( "Delay", 100, hedging.getDelay() );
+    }
+
+    /**
+     * Tests that the percentile of observed latencies is used if longer than the configured delay.
+     */
+    @Test
+    public void percentileDelay()
+    {
+        final Hedging hedging = new Hedging( 10, 90 );
+        for( int i = 1; i <= 100; i++ )
+        {
+            hedging.started( i );
+        }
+        assertEquals( "Delay", 90, hedging.getDelay() );
+        assertEquals( "Minimum delay", 200, new Hedging( 200, 90 ).getDelay() );
+        final Hedging fixed = new Hedging( 10, 0 );
+        for( int i = 1; i <= 100; i++ )
+        {
+            fixed.started( i );
+        }
+        assertEquals( "Fixed delay", 10, fixed.getDelay() );
+    }
+
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Minimal http server serving the files of a directory, used as a remote repository in tests. Supports single
+ * "bytes=start-" range requests and can drop connections in the middle of a transfer.
+ *
+ * @since 1.3.6
+ */
+class HttpTestServer
+{
+
+    private final File m_root;
+    private final HttpServer m_server;
+    private final Map<String, Integer> m_requests = new HashMap<String, Integer>();
+    private boolean m_rangeSupport = true;
+    private int m_dropAfter;
+    private int m_drops;
+    private long m_delay;
+    private int m_notModified;
+
+    /**
+     * Starts a server on a free port.
+     *
+     * @param root directory to serve
+     *
+     * @throws IOException - If server cannot be started
+     */
+    HttpTestServer( final File root )
+        throws IOException
+    {
+        m_root = root;
+        m_server = HttpServer.create( new InetSocketAddress( "127.0.0.1", 0 ), 0 );
+        m_server.createContext( "/", new HttpHandler()
+        {
+            public void handle( final HttpExchange exchange )
+                throws IOException
+            {
+                try
+                {
+                    serve( exchange );
+                }
+                finally
+                {
+                    exchange.close();
+                }
+            }
+        }
+        );
+        m_server.start();
+    }
+
+    /**
+     * @return url of served directory, ending with a slash
+     */
+    String getURL()
+    {
+        return "http://127.0.0.1:" + m_server.getAddress().getPort() + "/";
+    }
+
+    /**
+     * @param path path relative to served directory
+     *
+     * @return number of requests for path
+     */
+    synchronized int getRequests( final String path )
+    {
+        final Integer requests = m_requests.get( "/" + path );
+        return requests == null ? 0 : requests;
+    }
+
+    /**
+     * @return number of requests answered with not modified
+     */
+    synchronized int getNotModified()
+    {
+        return m_notModified;
+    }
+
+    /**
+     * @param rangeSupport false if range requests should be answered with the whole file
+     */
+    synchronized void setRangeSupport( final boolean rangeSupport )
+    {
+        m_rangeSupport = rangeSupport;
+    }
+
+    /**
+     * Drops the connection of the next responses after sending part of the file.
+     *
+     * @param bytes number of bytes sent before dropping the connection
+     * @param times number of responses to drop
+     */
+    synchronized void dropAfter( final int bytes, final int times )
+    {
+        m_dropAfter = bytes;
+        m_drops = times;
+    }
+
+    /**
+     * @param delay time in milliseconds to wait before answering a request for a file
+     */
+    synchronized void setDelay( final long delay )
+    {
+        m_delay = delay;
+    }
+
+    void stop()
+    {
+        m_server.stop( 0 );
+    }
+
+    private void serve( final HttpExchange exchange )
+        throws IOException
+    {
+        final String path = exchange.getRequestURI().getPath();
+        synchronized( this )
+        {
+            final Integer requests = m_requests.get( path );
+            m_requests.put( path, requests == null ? 1 : requests + 1 );
+        }
+        final File file = new File( m_root, path );
+        if( !file.isFile() )
+        {
+            exchange.sendResponseHeaders( 404, -1 );
+            return;
+        }
+        final String range = exchange.getRequestHeaders().getFirst( "Range" );
+        long start = 0;
+        final int dropAfter;
+        final long delay;
+        synchronized( this )
+        {
+            delay = m_delay;
+        }
+        if( delay > 0 )
+        {
+            try
+            {
+                Thread.sleep( delay );
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized( this )
+        {
+            if( m_rangeSupport && range != null && range.startsWith( "bytes=" ) && range.endsWith( "-" ) )
+            {
+                start = Long.parseLong( range.substring( 6, range.length() - 1 ) );
+            }
+            // only responses bigger then the drop point are dropped
+            dropAfter = m_drops > 0 && file.length() - start > m_dropAfter ? m_dropAfter : -1;
+            if( dropAfter >= 0 )
+            {
+                m_drops--;
+            }
+        }
+        final String etag = "\"" + file.length() + "-" + file.lastModified() + "\"";
+        exchange.getResponseHeaders().add( "ETag", etag );
+        if( etag.equals( exchange.getRequestHeaders().getFirst( "If-None-Match" ) ) )
+        {
+            synchronized( this )
+            {
+                m_notModified++;
+            }
+            exchange.sendResponseHeaders( 304, -1 );
+            return;
+        }
+        if( start > 0 )
+        {
+            exchange.getResponseHeaders().add(
+                "Content-Range", "bytes " + start + "-" + ( file.length() - 1 ) + "/" + file.length()
+            );
+            exchange.sendResponseHeaders( 206, file.length() - start );
+        }
+        else
+        {
+            exchange.sendResponseHeaders( 200, file.length() );
+        }
+        final InputStream inputStream = new FileInputStream( file );
+        final OutputStream outputStream = exchange.getResponseBody();
+        try
+        {
+            inputStream.skip( start );
+            final byte[] buffer = new byte[8192];
+            long sent = 0;
+            int read;
+            while( ( read = inputStream.read( buffer ) ) != -1 )
+            {
+                if( dropAfter >= 0 && sent + read > dropAfter )
+                {
+                    outputStream.write( buffer, 0, (int) ( dropAfter - sent ) );
+                    outputStream.flush();
+                    // closing the exchange before all bytes were sent drops the connection
+                    return;
+                }
+                outputStream.write( buffer, 0, read );
+                sent += read;
+            }
+        }
+        finally
+        {
+            inputStream.close();
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ops4j.io.FileUtils;
+
+/**
+ * Unit test for {@link LocalRepositoryIndex}.
+ *
+ * @since 1.3.6
+ */
+public class LocalRepositoryIndexTest
+{
+
+    private File m_root;
+    private LocalRepositoryIndex m_index;
+
+    @Before
+    public void setUp()
+        throws IOException
+    {
+        m_root = File.createTempFile( "pax-url-mvn", "" );
+        m_root.delete();
+        m_index = new LocalRepositoryIndex( m_root.toURI().toASCIIString(), m_root );
+    }
+
+    @After
+    public void tearDown()
+    {
+        FileUtils.delete( m_root );
+    }
+
+    /**
+     * Tests that versions and their files are indexed, versions without files being left out.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void versions()
+        throws IOException
+    {
+        touch( "group/artifact/1.0/artifact-1.0.jar" );
+        touch( "group/artifact/1.0/artifact-1.0.pom" );
+        touch( "group/artifact/2.0/artifact-2.0.jar" );
+        new File( m_root, "group/artifact/3.0" ).mkdirs();
+        final Map<String, Set<String>> versions = m_index.getVersions( "group/artifact" );
+        assertEquals( "Versions", 2, versions.size() );
+        assertEquals( "1.0 files", 2, versions.get( "1.0" ).size() );
+        assertTrue( "2.0 jar", versions.get( "2.0" ).contains( "artifact-2.0.jar" ) );
+        assertTrue( "Missing artifact", m_index.getVersions( "group/missing" ).isEmpty() );
+        assertTrue( "Missing version", m_index.getFiles( "group/artifact", "4.0" ).isEmpty() );
+        assertEquals( "Indexed artifacts", 2, m_index.size() );
+    }
+
+    /**
+     * Tests that versions and files added after the artifact was indexed are found.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void changes()
+        throws IOException
+    {
+        touch( "group/artifact/1.0/artifact-1.0.jar" );
+        assertEquals( "Versions", 1, m_index.getVersions( "group/artifact" ).size() );
+        touch( "group/artifact/1.0/artifact-1.0-sources.jar" );
+        touch( "group/artifact/2.0/artifact-2.0.jar" );
+        final Map<String, Set<String>> versions = m_index.getVersions( "group/artifact" );
+        assertEquals( "Versions", 2, versions.size() );
+        assertTrue( "Added file", versions.get( "1.0" ).contains( "artifact-1.0-sources.jar" ) );
+        touch( "group/artifact/2.0/artifact-2.0.pom" );
+        assertEquals( "Added version file", 2, m_index.getFiles( "group/artifact", "2.0" ).size() );
+    }
+
+    private void touch( final String path )
+        throws IOException
+    {
+        final File file = new File( m_root, path );
+        file.getParentFile().mkdirs();
+        file.createNewFile();
+    }
+
+}
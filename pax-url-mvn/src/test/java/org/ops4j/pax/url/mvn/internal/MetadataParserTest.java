@@ -0,0 +1,140 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+import org.ops4j.lang.NullArgumentException;
+
+/**
+ * Unit test for {@link MetadataParser}.
+ *
+ * @since 1.3.6
+ */
+public class MetadataParserTest
+{
+
+    /**
+     * Tests that versions are read in document order and the last one is the latest.
+     *
+     * @throws Exception - Unexpected
+     */
+    @Test
+    public void versions()
+        throws Exception
+    {
+        final Metadata metadata = parse(
+            "<metadata><groupId>g</groupId><artifactId>a</artifactId>"
+            + "<versioning><latest>2.0</latest><versions>"
+            + "<version>1.0</version><version>2.<!-- comment -->0</version><version>1.5</version>"
+            + "</versions><lastUpdated>20110101120000</lastUpdated></versioning></metadata>"
+        );
+        assertEquals( "Versions", Arrays.asList( "1.0", "2.0", "1.5" ), metadata.getVersions() );
+        assertEquals( "Last version", "1.5", metadata.getLastVersion() );
+        assertEquals( "Last updated", "20110101120000", metadata.getLastUpdated() );
+        assertNull( "Timestamp", metadata.getSnapshotTimestamp() );
+    }
+
+    /**
+     * Tests reading of snapshot information.
+     *
+     * @throws Exception - Unexpected
+     */
+    @Test
+    public void snapshot()
+        throws Exception
+    {
+        final Metadata metadata = parse(
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<metadata><versioning><snapshot>"
+            + "<timestamp>20110101.120000</timestamp><buildNumber>3</buildNumber><localCopy/>"
+            + "</snapshot></versioning></metadata>"
+        );
+        assertEquals( "Timestamp", "20110101.120000", metadata.getSnapshotTimestamp() );
+        assertEquals( "Build number", "3", metadata.getSnapshotBuildNumber() );
+        assertEquals( "Local copy", "", metadata.getSnapshotLocalCopy() );
+        assertNull( "Last updated", metadata.getLastUpdated() );
+        assertNull( "Last version", metadata.getLastVersion() );
+    }
+
+    /**
+     * Tests that elements outside the expected paths are ignored.
+     *
+     * @throws Exception - Unexpected
+     */
+    @Test
+    public void unexpectedPaths()
+        throws Exception
+    {
+        final Metadata metadata = parse(
+            "<metadata><version>0.1</version><versioning><version>0.2</version>"
+            + "<versions><version>1.0</version></versions></versioning>"
+            + "<plugins><versioning><versions><version>0.3</version></versions></versioning></plugins>"
+            + "</metadata>"
+        );
+        assertEquals( "Versions", Arrays.asList( "1.0" ), metadata.getVersions() );
+    }
+
+    /**
+     * Tests that an invalid xml is reported.
+     *
+     * @throws Exception - Expected
+     */
+    @Test( expected = SAXException.class )
+    public void invalidXml()
+        throws Exception
+    {
+        parse( "<metadata><versioning></metadata>" );
+    }
+
+    /**
+     * Tests that doctypes, that could declare external entities, are not processed.
+     *
+     * @throws Exception - Expected
+     */
+    @Test( expected = SAXException.class )
+    public void doctypeRejected()
+        throws Exception
+    {
+        parse( "<?xml version=\"1.0\"?><!DOCTYPE metadata [<!ENTITY version SYSTEM \"file:///etc/hostname\">]>"
+               + "<metadata><versioning><versions><version>&version;</version></versions></versioning></metadata>"
+        );
+    }
+
+    /**
+     * Tests that a null input stream is not accepted.
+     *
+     * @throws Exception - Expected
+     */
+    @Test( expected = NullArgumentException.class )
+    public void nullInputStream()
+        throws Exception
+    {
+        MetadataParser.parse( null );
+    }
+
+    private static Metadata parse( final String content )
+        throws Exception
+    {
+        return MetadataParser.parse( new ByteArrayInputStream( content.getBytes( "UTF-8" ) ) );
+    }
+
+}
@@ -282,4 +282,31 @@ public class ParserTest
         );
     }
 
+    @Test
+    public void artifactDirectory()
+        throws MalformedURLException
+    {
+        Parser parser = new Parser( "org.group/artifact/version" );
+        assertEquals( "Artifact directory", "org/group/artifact", parser.getArtifactDirectory() );
+    }
+
+    @Test
+    public void parseCached()
+        throws MalformedURLException
+    {
+        Parser parser = Parser.parse( "org.group/artifact/1.0/zip/classifier" );
+        assertSame( "Cached parser", parser, Parser.parse( "org.group/artifact/1.0/zip/classifier" ) );
+        assertEquals( "Artifact path", "org/group/artifact/1.0/artifact-1.0-classifier.zip", parser.getArtifactPath() );
+        assertEquals( "Other version path", "org/group/artifact/2.0/artifact-2.0-classifier.zip",
+                      parser.getArtifactPath( "2.0" )
+        );
+    }
+
+    @Test( expected = MalformedURLException.class )
+    public void parseWithNullPath()
+        throws MalformedURLException
+    {
+        Parser.parse( null );
+    }
+
 }
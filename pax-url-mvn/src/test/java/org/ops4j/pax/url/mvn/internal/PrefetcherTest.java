@@ -0,0 +1,157 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Properties;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ops4j.io.FileUtils;
+import org.ops4j.pax.url.maven.commons.MavenConfigurationImpl;
+import org.ops4j.pax.url.mvn.Handler;
+import org.ops4j.pax.url.mvn.ServiceConstants;
+import org.ops4j.util.property.PropertiesPropertyResolver;
+
+/**
+ * Unit test for {@link Prefetcher}.
+ *
+ * @since 1.3.6
+ */
+public class PrefetcherTest
+{
+
+    private File m_root;
+    private File m_repository;
+
+    @Before
+    public void setUp()
+        throws IOException
+    {
+        m_root = File.createTempFile( "pax-url-mvn", "" );
+        m_root.delete();
+        m_repository = new File( m_root, "repository" );
+        write( new File( m_repository, "group/artifact/1.0/artifact-1.0.jar" ), "artifact:1.0" );
+    }
+
+    @After
+    public void tearDown()
+    {
+        FileUtils.delete( m_root );
+    }
+
+    /**
+     * Tests that a comma separated list and a listing file are parsed the same way.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void parse()
+        throws IOException
+    {
+        assertEquals( "List", Arrays.asList( "mvn:group/artifact/1.0", "group/other/2.0" ),
+                      Prefetcher.parse( " mvn:group/artifact/1.0 , group/other/2.0, " )
+        );
+        assertEquals( "Single", Arrays.asList( "group/artifact/1.0" ), Prefetcher.parse( "group/artifact/1.0" ) );
+        final File listing = new File( m_root, "prefetch.txt" );
+        write( listing, "# artifacts\nmvn:group/artifact/1.0\n\n  group/other/2.0  \n" );
+        assertEquals( "Listing", Arrays.asList( "mvn:group/artifact/1.0", "group/other/2.0" ),
+                      Prefetcher.parse( listing.toURI().toASCIIString() )
+        );
+    }
+
+    /**
+     * Tests that a prefetched artifact is staged and later connections do not download it again.
+     *
+     * @throws Exception - Unexpected
+     */
+    @Test
+    public void prefetchRemote()
+        throws Exception
+    {
+        final HttpTestServer server = new HttpTestServer( m_repository );
+        final Properties properties = new Properties();
+        properties.setProperty( ServiceConstants.PROPERTY_REPOSITORIES, server.getURL() + "@id=remote" );
+        properties.setProperty( ServiceConstants.PROPERTY_LOCAL_REPOSITORY, new File( m_root, "local" ).getPath() );
+        properties.setProperty( ServiceConstants.PROPERTY_PREFETCH, "group/artifact/1.0" );
+        final MavenConfigurationImpl config =
+            new MavenConfigurationImpl( new PropertiesPropertyResolver( properties ), ServiceConstants.PID );
+        final HandlerContext context = new HandlerContext( config );
+        try
+        {
+            new Prefetcher( context ).start();
+            final long deadline = System.currentTimeMillis() + 10000;
+            while( context.getStagedArtifacts().isEmpty() && System.currentTimeMillis() < deadline )
+            {
+                Thread.sleep( 10 );
+            }
+            assertEquals( "Staged artifacts", 1, context.getStagedArtifacts().size() );
+            final Connection connection = new Connection(
+                new URL( "mvn", "", -1, "group/artifact/1.0", new Handler() ), config, context
+            );
+            assertEquals( "Content", "artifact:1.0", read( connection.getInputStream() ) );
+            assertEquals( "Downloads", 1, server.getRequests( "group/artifact/1.0/artifact-1.0.jar" ) );
+            final File staged = context.getStagedArtifacts().values().iterator().next();
+            context.dispose();
+            assertFalse( "Staged file deleted", staged.exists() );
+        }
+        finally
+        {
+            context.dispose();
+            server.stop();
+        }
+    }
+
+    private static String read( final InputStream inputStream )
+        throws IOException
+    {
+        try
+        {
+            return new BufferedReader( new InputStreamReader( inputStream ) ).readLine();
+        }
+        finally
+        {
+            inputStream.close();
+        }
+    }
+
+    private static void write( final File file, final String content )
+        throws IOException
+    {
+        file.getParentFile().mkdirs();
+        final Writer writer = new FileWriter( file );
+        try
+        {
+            writer.write( content );
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+}
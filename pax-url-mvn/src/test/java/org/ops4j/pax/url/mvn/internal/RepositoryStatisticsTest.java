@@ -0,0 +1,100 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.net.MalformedURLException;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.ops4j.pax.url.maven.commons.MavenRepositoryURL;
+
+/**
+ * Unit test for {@link RepositoryStatistics}.
+ *
+ * @since 1.3.6
+ */
+public class RepositoryStatisticsTest
+{
+
+    /**
+     * Tests that repositories without statistics keep the configured order.
+     *
+     * @throws MalformedURLException - Unexpected
+     */
+    @Test
+    public void configuredOrder()
+        throws MalformedURLException
+    {
+        final List<MavenRepositoryURL> repositories = repositories( "http://a", "http://b", "http://c" );
+        assertEquals( "Order", repositories, new RepositoryStatistics().order( repositories ) );
+    }
+
+    /**
+     * Tests that slow, missing and failing repositories are moved after the others.
+     *
+     * @throws MalformedURLException - Unexpected
+     */
+    @Test
+    public void adaptiveOrder()
+        throws MalformedURLException
+    {
+        final List<MavenRepositoryURL> repositories =
+            repositories( "http://slow", "http://missing", "http://failing", "http://fast" );
+        final RepositoryStatistics statistics = new RepositoryStatistics();
+        for( int i = 0; i < 5; i++ )
+        {
+            statistics.hit( "http://slow/", 2000 );
+            statistics.miss( "http://missing/", 20 );
+            statistics.error( "http://failing/", 20 );
+            statistics.hit( "http://fast/", 20 );
+        }
+        final List<MavenRepositoryURL> ordered = statistics.order( repositories );
+        assertEquals( "First", repositories.get( 3 ), ordered.get( 0 ) );
+        assertEquals( "Last", repositories.get( 2 ), ordered.get( 3 ) );
+        assertEquals( "Slow before missing", repositories.get( 0 ), ordered.get( 1 ) );
+    }
+
+    /**
+     * Tests that repositories of comparable cost keep the configured order.
+     *
+     * @throws MalformedURLException - Unexpected
+     */
+    @Test
+    public void tiesKeepConfiguredOrder()
+        throws MalformedURLException
+    {
+        final List<MavenRepositoryURL> repositories = repositories( "http://a", "http://b" );
+        final RepositoryStatistics statistics = new RepositoryStatistics();
+        statistics.hit( "http://a/", 110 );
+        statistics.hit( "http://b/", 100 );
+        assertEquals( "Order", repositories, statistics.order( repositories ) );
+    }
+
+    private static List<MavenRepositoryURL> repositories( final String... urls )
+        throws MalformedURLException
+    {
+        final MavenRepositoryURL[] repositories = new MavenRepositoryURL[urls.length];
+        for( int i = 0; i < urls.length; i++ )
+        {
+            repositories[ i ] = new MavenRepositoryURL( urls[ i ] );
+        }
+        return Arrays.asList( repositories );
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.ops4j.pax.url.mvn.ResolutionEvent;
+import org.ops4j.pax.url.mvn.ResolutionListener;
+
+/**
+ * Unit test for {@link ResolutionEventDispatcher}.
+ *
+ * @since 1.3.6
+ */
+public class ResolutionEventDispatcherTest
+{
+
+    /**
+     * Tests that firing does not wait for a slow listener and that events are dropped once the queue is full.
+     *
+     * @throws InterruptedException - Unexpected
+     */
+    @Test
+    public void slowListenerDoesNotBlock()
+        throws InterruptedException
+    {
+        final ResolutionEventDispatcher dispatcher = new ResolutionEventDispatcher( 2 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final List<ResolutionEvent> delivered = new CopyOnWriteArrayList<ResolutionEvent>();
+        dispatcher.addListener( new ResolutionListener()
+        {
+            public void resolutionEvent( final ResolutionEvent event )
+            {
+                try
+                {
+                    release.await( 10, TimeUnit.SECONDS );
+                }
+                catch( InterruptedException ignore )
+                {
+                    Thread.currentThread().interrupt();
+                }
+                delivered.add( event );
+            }
+        }
+        );
+        try
+        {
+            final long start = System.currentTimeMillis();
+            for( int i = 0; i < 10; i++ )
+            {
+                dispatcher.fire( event( i ) );
+            }
+            assertTrue( "Firing blocked", System.currentTimeMillis() - start < 1000 );
+            assertTrue( "Dropped events", dispatcher.getDropped() >= 7 );
+            release.countDown();
+            final long deadline = System.currentTimeMillis() + 5000;
+            while( delivered.size() + dispatcher.getDropped() < 10 && System.currentTimeMillis() < deadline )
+            {
+                Thread.sleep( 10 );
+            }
+            assertEquals( "Delivered and dropped", 10, delivered.size() + dispatcher.getDropped() );
+            for( int i = 1; i < delivered.size(); i++ )
+            {
+                assertTrue( "Order", delivered.get( i - 1 ).getBytes() < delivered.get( i ).getBytes() );
+            }
+        }
+        finally
+        {
+            release.countDown();
+            dispatcher.dispose();
+        }
+    }
+
+    private static ResolutionEvent event( final int index )
+    {
+        return new ResolutionEvent(
+            ResolutionEvent.Type.CANDIDATE_ATTEMPTED, "mvn:group/artifact", null, null, System.nanoTime(), 0, index, null
+        );
+    }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ops4j.io.FileUtils;
+import org.ops4j.pax.url.maven.commons.PooledTransport;
+import org.ops4j.pax.url.maven.commons.Transport;
+
+/**
+ * Unit test for {@link ResumableInputStream} against a http server that drops connections.
+ *
+ * @since 1.3.6
+ */
+public class ResumableInputStreamTest
+{
+
+    private static final String PATH = "group/artifact/1.0/artifact-1.0.zip";
+    private static final Transport TRANSPORT = new PooledTransport( 0, 0, 5, false );
+
+    private File m_root;
+    private byte[] m_content;
+    private HttpTestServer m_server;
+
+    @Before
+    public void setUp()
+        throws IOException
+    {
+        m_root = File.createTempFile( "pax-url-mvn", "" );
+        m_root.delete();
+        final File file = new File( m_root, PATH );
+        file.getParentFile().mkdirs();
+        m_content = new byte[200000];
+        new Random( 1 ).nextBytes( m_content );
+        final OutputStream outputStream = new FileOutputStream( file );
+        try
+        {
+            outputStream.write( m_content );
+        }
+        finally
+        {
+            outputStream.close();
+        }
+        m_server = new HttpTestServer( m_root );
+    }
+
+    @After
+    public void tearDown()
+    {
+        m_server.stop();
+        FileUtils.delete( m_root );
+    }
+
+    /**
+     * Tests that a download is read completely although the connection drops several times.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void resumeWithRange()
+        throws IOException
+    {
+        m_server.dropAfter( 30000, 3 );
+        assertTrue( "Content", Arrays.equals( m_content, read( 3 ) ) );
+        assertEquals( "Requests", 4, m_server.getRequests( PATH ) );
+    }
+
+    /**
+     * Tests that a download is read completely from a server that does not support ranges.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void resumeWithoutRangeSupport()
+        throws IOException
+    {
+        m_server.setRangeSupport( false );
+        m_server.dropAfter( 50000, 1 );
+        assertTrue( "Content", Arrays.equals( m_content, read( 1 ) ) );
+        assertEquals( "Requests", 2, m_server.getRequests( PATH ) );
+    }
+
+    /**
+     * Tests that retries are counted per interruption, as long as each resumed transfer makes progress.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void retriesResetOnProgress()
+        throws IOException
+    {
+        m_server.dropAfter( 20000, 5 );
+        assertTrue( "Content", Arrays.equals( m_content, read( 1 ) ) );
+    }
+
+    /**
+     * Tests that the download fails once retries are exhausted.
+     *
+     * @throws IOException - Expected
+     */
+    @Test( expected = IOException.class )
+    public void retriesExhausted()
+        throws IOException
+    {
+        m_server.dropAfter( 0, 3 );
+        read( 2 );
+    }
+
+    /**
+     * Tests that a missing artifact is reported as not found, without retries.
+     *
+     * @throws IOException - Expected
+     */
+    @Test( expected = FileNotFoundException.class )
+    public void notFound()
+        throws IOException
+    {
+        new ResumableInputStream( TRANSPORT, new URL( m_server.getURL() + "missing.jar" ), 3, 1 );
+    }
+
+    private byte[] read( final int retries )
+        throws IOException
+    {
+        final InputStream inputStream =
+            new ResumableInputStream( TRANSPORT, new URL( m_server.getURL() + PATH ), retries, 1 );
+        try
+        {
+            final ByteArrayOutputStream content = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int read;
+            while( ( read = inputStream.read( buffer ) ) != -1 )
+            {
+                content.write( buffer, 0, read );
+            }
+            return content.toByteArray();
+        }
+        finally
+        {
+            inputStream.close();
+        }
+    }
+
+}
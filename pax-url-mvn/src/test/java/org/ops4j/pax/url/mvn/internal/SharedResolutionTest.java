@@ -0,0 +1,378 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link SharedResolution}.
+ *
+ * @since 1.3.6
+ */
+public class SharedResolutionTest
+{
+
+    private static final String ARTIFACT = "http://repository/group/artifact/1.0/artifact-1.0.jar";
+
+    /**
+     * Tests that a follower reads the whole download although the leader stops reading half way.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void leaderClosesEarly()
+        throws IOException
+    {
+        final byte[] content = content();
+        final SharedResolution resolution = new SharedResolution( new ConcurrentHashMap<String, SharedResolution>(), "key" );
+        final InputStream leader = resolution.share( new ByteArrayInputStream( content ), ARTIFACT, content.length );
+        assertTrue( "Joined", resolution.join() );
+        leader.read( new byte[content.length / 2] );
+        leader.close();
+        assertTrue( "Content", Arrays.equals( content, read( resolution.await( 0, resolver( content ) ) ) ) );
+    }
+
+    /**
+     * Tests that a follower reads the download while the leader is still reading.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void followerReadsAlong()
+        throws IOException
+    {
+        final byte[] content = content();
+        final SharedResolution resolution = new SharedResolution( new ConcurrentHashMap<String, SharedResolution>(), "key" );
+        final InputStream leader = resolution.share( new ByteArrayInputStream( content ), ARTIFACT, content.length );
+        assertTrue( "Joined", resolution.join() );
+        final InputStream follower = resolution.await( 0, resolver( content ) );
+        final byte[] buffer = new byte[100];
+        assertEquals( "Read", 100, leader.read( buffer ) );
+        assertEquals( "Available", 100, follower.available() );
+        assertTrue( "Content", Arrays.equals( Arrays.copyOfRange( content, 100, content.length ), read( leader ) ) );
+        assertTrue( "Content", Arrays.equals( content, read( follower ) ) );
+    }
+
+    /**
+     * Tests that a resolution can be joined until the download ends, even after the leader started reading.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void registeredTillDownloadEnds()
+        throws IOException
+    {
+        final byte[] content = content();
+        final ConcurrentMap<String, SharedResolution> resolutions = new ConcurrentHashMap<String, SharedResolution>();
+        final SharedResolution resolution = new SharedResolution( resolutions, "key" );
+        resolutions.put( "key", resolution );
+        final InputStream leader = resolution.share( new ByteArrayInputStream( content ), ARTIFACT, content.length );
+        leader.read( new byte[100] );
+        assertSame( "Registered while downloading", resolution, resolutions.get( "key" ) );
+        assertTrue( "Joined while downloading", resolution.join() );
+        final InputStream follower = resolution.await( 0, resolver( content ) );
+        read( leader );
+        assertNull( "Registered after download", resolutions.get( "key" ) );
+        assertTrue( "Content", Arrays.equals( content, read( follower ) ) );
+    }
+
+    /**
+     * Tests that a download abandoned without followers cannot be joined anymore.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void abandoned()
+        throws IOException
+    {
+        final SharedResolution resolution = new SharedResolution( new ConcurrentHashMap<String, SharedResolution>(), "key" );
+        resolution.share( new ByteArrayInputStream( content() ), ARTIFACT, -1 ).close();
+        assertFalse( "Joined", resolution.join() );
+    }
+
+    /**
+     * Tests that followers of a not shared resolution are told to resolve by themselves.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void unshared()
+        throws IOException
+    {
+        final SharedResolution resolution = new SharedResolution( new ConcurrentHashMap<String, SharedResolution>(), "key" );
+        assertTrue( "Joined", resolution.join() );
+        resolution.unshared();
+        assertNull( "Stream", resolution.await( 0, resolver( content() ) ) );
+    }
+
+    /**
+     * Tests that a failure of the leader is reported to the followers.
+     *
+     * @throws IOException - Expected
+     */
+    @Test( expected = IOException.class )
+    public void failed()
+        throws IOException
+    {
+        final SharedResolution resolution = new SharedResolution( new ConcurrentHashMap<String, SharedResolution>(), "key" );
+        assertTrue( "Joined", resolution.join() );
+        resolution.fail( new IOException( "Not found" ) );
+        resolution.await( 0, resolver( content() ) );
+    }
+
+    /**
+     * Tests that a follower read on the leader thread before the leader resolves the artifact by itself instead of
+     * waiting for ever.
+     *
+     * @throws IOException - Unexpected
+     */
+    @Test
+    public void followerOnLeaderThread()
+        throws IOException
+    {
+        final byte[] content = content();
+        final SharedResolution resolution = new SharedResolution( new ConcurrentHashMap<String, SharedResolution>(), "key" );
+        final InputStream leader = resolution.share( new ByteArrayInputStream( content ), ARTIFACT, content.length );
+        assertTrue( "Joined", resolution.join() );
+        final InputStream follower = resolution.await( 0, resolver( content ) );
+        assertTrue( "Follower content", Arrays.equals( content, read( follower ) ) );
+        assertTrue( "Leader content", Arrays.equals( content, read( leader ) ) );
+    }
+
+    /**
+     * Tests that a follower resolves the artifact by itself once the leader made no progress within the timeout, and
+     * that the resolution cannot be joined anymore.
+     *
+     * @throws Exception - Unexpected
+     */
+    @Test
+    public void leaderMakesNoProgress()
+        throws Exception
+    {
+        final byte[] content = content();
+        final ConcurrentMap<String, SharedResolution> resolutions = new ConcurrentHashMap<String, SharedResolution>();
+        final SharedResolution resolution = new SharedResolution( resolutions, "key" );
+        resolutions.put( "key", resolution );
+        final InputStream leader = resolution.share( new ByteArrayInputStream( content ), ARTIFACT, content.length );
+        leader.read( new byte[100] );
+        assertTrue( "Joined", resolution.join() );
+        final byte[][] followerContent = new byte[1][];
+        final Thread follower = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    followerContent[ 0 ] = read( resolution.await( 100, resolver( content ) ) );
+                }
+                catch( IOException ignore )
+                {
+                    // asserted below
+                }
+            }
+        };
+        follower.start();
+        follower.join( 5000 );
+        assertTrue( "Follower content", Arrays.equals( content, followerContent[ 0 ] ) );
+        assertNull( "Registered", resolutions.get( "key" ) );
+        leader.close();
+    }
+
+    /**
+     * Tests that a follower that already read part of the download does not continue over an independent resolution
+     * of another artifact.
+     *
+     * @throws Exception - Unexpected
+     */
+    @Test
+    public void independentResolutionOfOtherArtifact()
+        throws Exception
+    {
+        final byte[] content = content();
+        final SharedResolution resolution = new SharedResolution( new ConcurrentHashMap<String, SharedResolution>(), "key" );
+        final InputStream leader = resolution.share( new ByteArrayInputStream( content ), ARTIFACT, content.length );
+        leader.read( new byte[100] );
+        assertTrue( "Joined", resolution.join() );
+        final IOException[] failure = new IOException[1];
+        final Thread follower = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    read( resolution.await(
+                        100, resolver( content, "http://repository/group/artifact/1.1/artifact-1.1.jar" )
+                    ) );
+                }
+                catch( IOException e )
+                {
+                    failure[ 0 ] = e;
+                }
+            }
+        };
+        follower.start();
+        follower.join( 5000 );
+        assertNotNull( "Failure", failure[ 0 ] );
+        leader.close();
+    }
+
+    /**
+     * Tests that a leader closing its stream before the end does not wait for the rest of the download, that is
+     * finished in background for the followers.
+     *
+     * @throws Exception - Unexpected
+     */
+    @Test( timeout = 5000 )
+    public void leaderClosesWithoutWaiting()
+        throws Exception
+    {
+        final byte[] content = content();
+        final CountDownLatch proceed = new CountDownLatch( 1 );
+        final InputStream download = new FilterInputStream( new ByteArrayInputStream( content ) )
+        {
+            private int m_read;
+
+            @Override
+            public int read( final byte[] buffer, final int offset, final int length )
+                throws IOException
+            {
+                if( m_read >= content.length / 2 )
+                {
+                    try
+                    {
+                        proceed.await();
+                    }
+                    catch( InterruptedException e )
+                    {
+                        throw new InterruptedIOException();
+                    }
+                }
+                final int read = super.read( buffer, offset, length );
+                if( read > 0 )
+                {
+                    m_read += read;
+                }
+                return read;
+            }
+        };
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            final SharedResolution resolution =
+                new SharedResolution( new ConcurrentHashMap<String, SharedResolution>(), "key", executor );
+            final InputStream leader = resolution.share( download, ARTIFACT, content.length );
+            assertTrue( "Joined", resolution.join() );
+            leader.read( new byte[content.length / 2] );
+            leader.close();
+            proceed.countDown();
+            final byte[][] followerContent = new byte[1][];
+            final Thread follower = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        followerContent[ 0 ] = read( resolution.await( 0, resolver( new byte[0] ) ) );
+                    }
+                    catch( IOException ignore )
+                    {
+                        // asserted below
+                    }
+                }
+            };
+            follower.start();
+            follower.join();
+            assertTrue( "Follower content", Arrays.equals( content, followerContent[ 0 ] ) );
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private static SharedResolution.Resolver resolver( final byte[] content )
+    {
+        return resolver( content, ARTIFACT );
+    }
+
+    private static SharedResolution.Resolver resolver( final byte[] content, final String artifact )
+    {
+        return new SharedResolution.Resolver()
+        {
+            public InputStream resolve()
+            {
+                return new ByteArrayInputStream( content );
+            }
+
+            public String getArtifact()
+            {
+                return artifact;
+            }
+
+            public long getLength()
+            {
+                return content.length;
+            }
+        };
+    }
+
+    private static byte[] content()
+    {
+        final byte[] content = new byte[50000];
+        new Random( 1 ).nextBytes( content );
+        return content;
+    }
+
+    private static byte[] read( final InputStream inputStream )
+        throws IOException
+    {
+        try
+        {
+            final ByteArrayOutputStream content = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int read;
+            while( ( read = inputStream.read( buffer ) ) != -1 )
+            {
+                content.write( buffer, 0, read );
+            }
+            return content.toByteArray();
+        }
+        finally
+        {
+            inputStream.close();
+        }
+    }
+
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2011 OPS4J.
+ *
+ * Licensed  under the  Apache License,  Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.url.mvn.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.ops4j.lang.NullArgumentException;
+
+/**
+ * Unit test for {@link VersionIndex}.
+ *
+ * @since 1.3.6
+ */
+public class VersionIndexTest
+{
+
+    private static final List<String> VERSIONS = Arrays.asList(
+        "2.1.1", "1.0", "2.2", "2.1", "3.0-SNAPSHOT", "2.1.5", "2.0", "2.2.0.1", "2.1-SNAPSHOT", "1.5"
+    );
+
+    /**
+     * Tests that selected versions are in ascending order.
+     */
+    @Test
+    public void selectAscending()
+    {
+        assertEquals( "Selected", Arrays.asList( "1.0", "1.5", "2.0" ), select( "[1.0,2.0]" ) );
+    }
+
+    /**
+     * Tests selection with inclusive lowest and exclusive highest version. Note that 2.1 and 2.1.1 are equal versions
+     * (missing segments are equal to numeric segments) so their order is not checked.
+     */
+    @Test
+    public void selectNarrowRange()
+    {
+        assertEquals( "Selected", sorted( "2.1", "2.1.1", "2.1.5" ), sorted( select( "[2.1,2.2)" ) ) );
+    }
+
+    /**
+     * Tests selection with exclusive lowest and inclusive highest version. As 2.1 equals 2.1.x and 2.2 equals 2.2.x
+     * versions, the 2.1.x versions are excluded and the 2.2.x versions are included.
+     */
+    @Test
+    public void selectExclusiveLowest()
+    {
+        assertEquals( "Selected", sorted( "2.2", "2.2.0.1" ), sorted( select( "(2.1,2.2]" ) ) );
+    }
+
+    /**
+     * Tests selection of versions with qualifiers.
+     */
+    @Test
+    public void selectQualified()
+    {
+        assertEquals( "Selected", sorted( "2.2", "2.2.0.1", "3.0-SNAPSHOT" ), sorted( select( "[2.2,3.0)" ) ) );
+    }
+
+    /**
+     * Tests selection of a range including all versions.
+     */
+    @Test
+    public void selectAll()
+    {
+        assertEquals( "Selected", sorted( VERSIONS ), sorted( select( "[0,4)" ) ) );
+    }
+
+    /**
+     * Tests selection of a range outside the versions.
+     */
+    @Test
+    public void selectNone()
+    {
+        assertEquals( "Selected", new ArrayList<String>(), select( "[4,5)" ) );
+        assertEquals( "Selected", new ArrayList<String>(), select( "[0,1.0)" ) );
+    }
+
+    /**
+     * Tests that the index selects the same versions as checking every version against the range.
+     */
+    @Test
+    public void selectSameAsIncludes()
+    {
+        final String[] ranges = { "[1.0,2.0)", "[1.5,1.5]", "(1.0,3.0)", "[2.1-SNAPSHOT,2.1]", "[2.1.0,2.1.1)", "(2.1,2.1.5)",
+                                  "[2.2,2.2.0.1]", "[3.0-SNAPSHOT,3.0]" };
+        for( String range : ranges )
+        {
+            final List<String> expected = new ArrayList<String>();
+            final VersionRange versionRange = new VersionRange( range );
+            for( String version : VERSIONS )
+            {
+                if( versionRange.includes( new Version( version ) ) )
+                {
+                    expected.add( version );
+                }
+            }
+            assertEquals( "Selected for " + range, sorted( expected ), sorted( select( range ) ) );
+        }
+    }
+
+    /**
+     * Tests that numeric versions that are a prefix of a range bound are selected as they are equal to the bound.
+     */
+    @Test
+    public void selectPrefixOfBound()
+    {
+        final VersionIndex index = new VersionIndex( Arrays.asList( "1.9", "2", "2.0", "2.2.9", "2.3", "2.4", "3" ) );
+        final List<String> selected = new ArrayList<String>();
+        for( Version version : index.select( new VersionRange( "[2.3,3)" ) ) )
+        {
+            selected.add( version.toString() );
+        }
+        assertEquals( "Selected", sorted( "2", "2.3", "2.4" ), sorted( selected ) );
+    }
+
+    /**
+     * Tests that the index selects the same versions as checking every version against the range, for random numeric
+     * and qualified versions and ranges.
+     */
+    @Test
+    public void selectSameAsIncludesRandom()
+    {
+        final Random random = new Random( 1 );
+        final String[] qualifiers = { "", "", "", "-SNAPSHOT", "-RC1", ".Final", "-alpha" };
+        final List<String> versions = new ArrayList<String>();
+        for( int i = 0; i < 500; i++ )
+        {
+            versions.add( randomVersion( random ) + qualifiers[ random.nextInt( qualifiers.length ) ] );
+        }
+        final VersionIndex index = new VersionIndex( versions );
+        for( int i = 0; i < 500; i++ )
+        {
+            final String range = ( random.nextBoolean() ? "[" : "(" ) + randomVersion( random ) + ","
+                                 + randomVersion( random ) + qualifiers[ random.nextInt( qualifiers.length ) ]
+                                 + ( random.nextBoolean() ? "]" : ")" );
+            final VersionRange versionRange = new VersionRange( range );
+            final List<String> expected = new ArrayList<String>();
+            for( String version : versions )
+            {
+                if( versionRange.includes( new Version( version ) ) )
+                {
+                    expected.add( version );
+                }
+            }
+            final List<String> selected = new ArrayList<String>();
+            for( Version version : index.select( versionRange ) )
+            {
+                selected.add( version.toString() );
+            }
+            assertEquals( "Selected for " + range, sorted( expected ), sorted( selected ) );
+        }
+    }
+
+    /**
+     * Tests that empty versions are not accepted.
+     */
+    @Test( expected = NullArgumentException.class )
+    public void emptyVersion()
+    {
+        new VersionIndex( Arrays.asList( "1.0", "" ) );
+    }
+
+    private static String randomVersion( final Random random )
+    {
+        final StringBuilder version = new StringBuilder().append( random.nextInt( 4 ) );
+        for( int i = random.nextInt( 4 ); i > 0; i-- )
+        {
+            version.append( "." ).append( random.nextInt( 4 ) );
+        }
+        return version.toString();
+    }
+
+    private static List<String> sorted( final String... versions )
+    {
+        return sorted( Arrays.asList( versions ) );
+    }
+
+    private static List<String> sorted( final List<String> versions )
+    {
+        final List<String> sorted = new ArrayList<String>( versions );
+        Collections.sort( sorted );
+        return sorted;
+    }
+
+    private static List<String> select( final String range )
+    {
+        final List<String> selected = new ArrayList<String>();
+        for( Version version : new VersionIndex( VERSIONS ).select( new VersionRange( range ) ) )
+        {
+            selected.add( version.toString() );
+        }
+        return selected;
+    }
+
+}
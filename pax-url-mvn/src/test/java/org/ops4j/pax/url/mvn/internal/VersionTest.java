@@ -210,6 +210,51 @@ public class VersionTest
         assertTrue( "1.5 < 2.0.0", new Version( "1.5" ).compareTo( new Version( "2.0.0" ) ) == -1 );
     }
 
+    /**
+     * Tests that 1.10 > 1.9 (numeric segments are not compared as strings).
+     */
+    @Test
+    public void compare06()
+    {
+        assertTrue( "1.10 > 1.9", new Version( "1.10" ).compareTo( new Version( "1.9" ) ) == 1 );
+    }
+
+    /**
+     * Tests that 1.0-SNAPSHOT < 1.0-RC1
+     */
+    @Test
+    public void compare07()
+    {
+        assertTrue( "1.0-SNAPSHOT < 1.0-RC1",
+                    new Version( "1.0-SNAPSHOT" ).compareTo( new Version( "1.0-RC1" ) ) == -1
+        );
+    }
+
+    /**
+     * Tests that comparing versions gives the same results as comparing their segments one by one, using the same
+     * rules as segments: segments of different types are compared by their string form, except for integer and
+     * missing segments that are considered equal.
+     */
+    @Test
+    public void compareSameAsSegments()
+    {
+        final String[] versions = {
+            "1", "1.0", "1.0.0", "1.0.", "1.0-SNAPSHOT", "1.0.SNAPSHOT", "1.0-RC1", "1.0-rc1", "1.0-alpha", "1.1",
+            "1.10", "1.9", "2", "2.0.0", "007", "1-2", "RC1", "RC1.SNAPSHOT", ".", "..", ".RC1.", "1..2", "SNAPSHOT",
+            "1.0-SNAPSHOT-2", "1.0-1", "A", "a", "1.0.a"
+        };
+        for( String first : versions )
+        {
+            for( String second : versions )
+            {
+                assertEquals( first + " vs " + second,
+                              compareSegments( new Version( first ), new Version( second ) ),
+                              new Version( first ).compareTo( new Version( second ) )
+                );
+            }
+        }
+    }
+
     /**
      * Tests equals.
      */
@@ -219,4 +264,33 @@ public class VersionTest
         assertEquals( "Versions", new Version( "1.0" ), new Version( "1.0" ) );
     }
 
+    private static int compareSegments( final Version version, final Version other )
+    {
+        final VersionSegment[] segments = version.getSegments();
+        final VersionSegment[] otherSegments = other.getSegments();
+        for( int i = 0; i < Math.max( segments.length, otherSegments.length ); i++ )
+        {
+            final VersionSegment segment = i < segments.length ? segments[ i ] : new NullVersionSegment();
+            final VersionSegment otherSegment = i < otherSegments.length ? otherSegments[ i ] : new NullVersionSegment();
+            int result = 0;
+            if( segment.getClass().isAssignableFrom( otherSegment.getClass() ) )
+            {
+                result = segment.compareTo( otherSegment );
+            }
+            else if( segment instanceof StringVersionSegment )
+            {
+                result = segment.compareTo( new StringVersionSegment( otherSegment.toString() ) );
+            }
+            else if( otherSegment instanceof StringVersionSegment )
+            {
+                result = new StringVersionSegment( segment.toString() ).compareTo( otherSegment );
+            }
+            if( result != 0 )
+            {
+                return result;
+            }
+        }
+        return 0;
+    }
+
 }